@@ -31,6 +31,7 @@ import android.graphics.BitmapFactory;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.view.View;
 import android.widget.ImageButton;
@@ -106,6 +107,26 @@ public class FanartActivity extends GenericActivity {
      */
     private SeekBar mPositionSeekbar;
 
+    /**
+     * Last status of the server, used to calculate the current playback position
+     */
+    private MPDCurrentStatus mLastStatus = new MPDCurrentStatus();
+
+    /**
+     * Updates the position seekbar once per second while playing
+     */
+    private final Runnable mPositionUpdater = new Runnable() {
+        @Override
+        public void run() {
+            updatePosition();
+        }
+    };
+
+    /**
+     * True while the activity is resumed and the position should be updated
+     */
+    private boolean mPositionUpdatesActive;
+
     /**
      * Seekbar used for volume control of host
      */
@@ -263,7 +284,7 @@ public class FanartActivity extends GenericActivity {
         mVolumeSeekbarLayout = (LinearLayout) findViewById(R.id.volume_seekbar_layout);
         mVolumeButtonLayout = (LinearLayout) findViewById(R.id.volume_button_layout);
 
-        mFanartCache = new FanartCacheManager(getApplicationContext());
+        mFanartCache = FanartCacheManager.getInstance(getApplicationContext());
     }
 
     @Override
@@ -282,6 +303,9 @@ public class FanartActivity extends GenericActivity {
         hideSystemUI();
 
         setVolumeControlSetting();
+
+        mPositionUpdatesActive = true;
+        updatePosition();
     }
 
     @Override
@@ -290,6 +314,9 @@ public class FanartActivity extends GenericActivity {
 
         MPDStateMonitoringHandler.unregisterStatusListener(mStateListener);
         cancelSwitching();
+
+        mPositionUpdatesActive = false;
+        mPositionSeekbar.removeCallbacks(mPositionUpdater);
     }
 
     @Override
@@ -362,7 +389,23 @@ public class FanartActivity extends GenericActivity {
 
         // Update position seekbar & textviews
         mPositionSeekbar.setMax(status.getTrackLength());
-        mPositionSeekbar.setProgress(status.getElapsedTime());
+        mLastStatus = status;
+        updatePosition();
+    }
+
+    /**
+     * Shows the current position calculated from the last status. While playing the next
+     * update is scheduled for the moment the position reaches the next second.
+     */
+    private void updatePosition() {
+        mPositionSeekbar.removeCallbacks(mPositionUpdater);
+
+        long elapsedMs = mLastStatus.getElapsedTimeMsAt(SystemClock.elapsedRealtime());
+        mPositionSeekbar.setProgress((int) (elapsedMs / 1000));
+
+        if (mPositionUpdatesActive && mLastStatus.getPlaybackState() == MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING) {
+            mPositionSeekbar.postDelayed(mPositionUpdater, 1000 - (elapsedMs % 1000));
+        }
     }
 
     /**
@@ -573,33 +616,27 @@ public class FanartActivity extends GenericActivity {
         if (mSwitcher.getDisplayedChild() == 0) {
             if (mNextFanart < fanartCount) {
                 mCurrentFanart = mNextFanart;
-                File fanartFile = mFanartCache.getFanart(mbid, mNextFanart);
-                if (null == fanartFile) {
+                Bitmap image = loadFanart(mbid, mNextFanart);
+                if (null == image) {
                     return;
                 }
-                Bitmap image = BitmapFactory.decodeFile(fanartFile.getPath());
-                if (image != null) {
-                    mFanartView1.setImageBitmap(image);
+                mFanartView1.setImageBitmap(image);
 
-                    // Move pointer with wraparound
-                    mNextFanart = (mNextFanart + 1) % fanartCount;
-                }
+                // Move pointer with wraparound
+                mNextFanart = (mNextFanart + 1) % fanartCount;
             }
             mSwitcher.setDisplayedChild(1);
         } else {
             if (mNextFanart < fanartCount) {
                 mCurrentFanart = mNextFanart;
-                File fanartFile = mFanartCache.getFanart(mbid, mNextFanart);
-                if (null == fanartFile) {
+                Bitmap image = loadFanart(mbid, mNextFanart);
+                if (null == image) {
                     return;
                 }
-                Bitmap image = BitmapFactory.decodeFile(fanartFile.getPath());
-                if (image != null) {
-                    mFanartView0.setImageBitmap(image);
+                mFanartView0.setImageBitmap(image);
 
-                    // Move pointer with wraparound
-                    mNextFanart = (mNextFanart + 1) % fanartCount;
-                }
+                // Move pointer with wraparound
+                mNextFanart = (mNextFanart + 1) % fanartCount;
             }
             mSwitcher.setDisplayedChild(0);
         }
@@ -610,6 +647,30 @@ public class FanartActivity extends GenericActivity {
         }
     }
 
+    /**
+     * Decodes a cached fanart image. If the image is not available anymore (e.g. the system cleared
+     * the cache) the fanart of the artist is removed from the cache and downloaded again.
+     *
+     * @param mbid  MBID of the artist
+     * @param index Index of the fanart image
+     * @return The decoded image or null if it is not available.
+     */
+    private Bitmap loadFanart(String mbid, int index) {
+        File fanartFile = mFanartCache.getFanart(mbid, index);
+        if (null != fanartFile) {
+            Bitmap image = BitmapFactory.decodeFile(fanartFile.getPath());
+            if (null != image) {
+                return image;
+            }
+            mFanartCache.removeFanart(mbid);
+        }
+
+        if (mFanartCache.getFanartCount(mbid) == 0) {
+            syncFanart(mLastTrack);
+        }
+        return null;
+    }
+
     /**
      * Cancels the view switching task that alternates between images.
      */
@@ -27,6 +27,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ListView;
@@ -36,14 +37,19 @@ import org.gateshipone.malp.application.artworkdatabase.ArtworkManager;
 import org.gateshipone.malp.application.listviewitems.FileListItem;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.MPDStatusChangeHandler;
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseCurrentState;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponsePlaylistChanges;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylistChanges;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -58,6 +64,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * The second mode fetches only a comparable small block of songs and get a new block of songs if needed.
  * This decreases the memory footprint because the adapter is able to clear unneeded list blocks when
  * not longer needed (e.g. the user scrolled away)
+ * <p/>
+ * In both modes the tracks are kept in a column based {@link MPDTrackStore} and the views are
+ * filled directly from it, so no MPDTrack object needs to be held per row.
+ * <p/>
+ * If the ranged mode is active, changes of the server-side playlist are applied to the local
+ * copy by only requesting the changed positions since the known playlist version.
  */
 public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements ArtworkManager.onNewAlbumImageListener, SharedPreferences.OnSharedPreferenceChangeListener {
     /**
@@ -97,14 +109,32 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
     private Context mContext;
 
     /**
-     * List of songs that is used if the traditional fetch all mode is active
+     * Column store of the songs in the playlist. In the ranged mode only the rows of the
+     * fetched list blocks are loaded.
+     */
+    private MPDTrackStore mTrackStore = null;
+
+    /**
+     * Tracks created for the section items. They are kept so that the artwork of a section is
+     * not reset every time its view is recycled.
      */
-    private List<MPDFileEntry> mPlaylist = null;
+    private SparseArray<MPDTrack> mSectionTracks;
 
     /**
-     * Array of smaller lists that is used if the ranged mode is active
+     * Playlist version that the track store represents. -1 if the store is not usable for
+     * incremental updates.
      */
-    private List<MPDFileEntry>[] mWindowedPlaylists;
+    private int mPlaylistVersion = -1;
+
+    /**
+     * Playlist version of the last status when the pending changes were requested.
+     */
+    private int mRequestedPlaylistVersion;
+
+    /**
+     * Set while a request for the playlist changes is running.
+     */
+    private boolean mChangesPending;
 
     /**
      * Array that represents the state of the list blocks necessary for the amount of tracks
@@ -140,6 +170,17 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
      */
     private PlaylistFetchResponseHandler mTrackResponseHandler;
 
+    /**
+     * ResponseHandler that receives the changed positions of the playlist from the MPDQueryHandler.
+     */
+    private PlaylistChangesResponseHandler mChangesResponseHandler;
+
+    /**
+     * ResponseHandler of the running request for the status together with the list block of the
+     * current song. Null if no request is running.
+     */
+    private CurrentStateResponseHandler mCurrentStateResponseHandler;
+
     /**
      * This handler receives status updates from the MPDStateMonitoringHandler asychronously.
      */
@@ -178,6 +219,7 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         mContext = context;
 
         mTrackResponseHandler = new PlaylistFetchResponseHandler();
+        mChangesResponseHandler = new PlaylistChangesResponseHandler();
         mStateListener = new PlaylistStateListener();
         mConnectionListener = new ConnectionStateChangeListener();
 
@@ -188,6 +230,7 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         }
         mListsLock = new ReentrantReadWriteLock();
         mClearTimer = null;
+        mSectionTracks = new SparseArray<>();
 
         mArtworkManager = ArtworkManager.getInstance(context.getApplicationContext());
 
@@ -231,21 +274,23 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         if(!mSectionsEnabled) {
             return VIEW_TYPES.TYPE_TRACK_ITEM.ordinal();
         }
-        // Get MPDTrack at the given index used for this item.
-        MPDTrack track = getTrack(position);
         boolean newAlbum = false;
 
-        // Check if the track was available in local data set already (or is currently fetching)
-        if (track != null) {
-            MPDTrack previousTrack;
-            if (position > 0) {
-                previousTrack = getTrack(position - 1);
-                if (previousTrack != null) {
-                    newAlbum = !previousTrack.getTrackAlbum().equals(track.getTrackAlbum());
+        mListsLock.readLock().lock();
+        try {
+            // Check if the track was available in local data set already (or is currently fetching)
+            if (isTrackAvailable(position)) {
+                if (position > 0) {
+                    // Album names are dictionary encoded, so comparing the ids is sufficient.
+                    if (isTrackAvailable(position - 1)) {
+                        newAlbum = mTrackStore.getTrackAlbumID(position - 1) != mTrackStore.getTrackAlbumID(position);
+                    }
+                } else {
+                    return VIEW_TYPES.TYPE_SECTION_TRACK_ITEM.ordinal();
                 }
-            } else {
-                return VIEW_TYPES.TYPE_SECTION_TRACK_ITEM.ordinal();
             }
+        } finally {
+            mListsLock.readLock().unlock();
         }
         return newAlbum ? VIEW_TYPES.TYPE_SECTION_TRACK_ITEM.ordinal() :VIEW_TYPES.TYPE_TRACK_ITEM.ordinal();
     }
@@ -280,61 +325,71 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
-        // Get MPDTrack at the given index used for this item.
-        MPDTrack track = getTrack(position);
-
-        // Check if the track was available in local data set already (or is currently fetching)
-        if (track != null) {
-            String trackAlbum = track.getTrackAlbum();
-
-            VIEW_TYPES type = VIEW_TYPES.values()[getItemViewType(position)];
-            // Normal track item type
-            if (type == VIEW_TYPES.TYPE_TRACK_ITEM) {
-                if ( convertView == null ) {
-                    // If not create a new Listitem
-                    convertView = new FileListItem(mContext, track, position + 1, false);
-                } else {
+        // Block the list structures as the view is filled directly from the track store.
+        mListsLock.readLock().lock();
+        try {
+            // Check if the track was available in local data set already (or is currently fetching)
+            if (isTrackAvailable(position)) {
+                String trackAlbum = mTrackStore.getTrackAlbum(position);
+
+                VIEW_TYPES type = VIEW_TYPES.values()[getItemViewType(position)];
+                // Normal track item type
+                if (type == VIEW_TYPES.TYPE_TRACK_ITEM) {
+                    if (convertView == null) {
+                        // If not create a new Listitem
+                        convertView = new FileListItem(mContext, false);
+                    }
                     FileListItem tracksListViewItem = (FileListItem) convertView;
-                    tracksListViewItem.setTrack(track, mContext);
+                    tracksListViewItem.setTrack(mTrackStore, position, mContext);
                     tracksListViewItem.setTrackNumber(String.valueOf(position + 1));
-                }
-            } else if (type == VIEW_TYPES.TYPE_SECTION_TRACK_ITEM) { // Section track type.
-                if ( convertView == null ) {
-                    // If not create a new Listitem
-                    convertView = new FileListItem(mContext, track, position + 1, false, trackAlbum, this);
-                } else {
+                } else if (type == VIEW_TYPES.TYPE_SECTION_TRACK_ITEM) { // Section track type.
+                    if (convertView == null) {
+                        // If not create a new Listitem
+                        convertView = new FileListItem(mContext, trackAlbum, false, this);
+                    } else {
+                        ((FileListItem) convertView).setSectionHeader(trackAlbum);
+                    }
                     FileListItem tracksListViewItem = (FileListItem) convertView;
-                    tracksListViewItem.setSectionHeader(trackAlbum);
-                    tracksListViewItem.setTrack(track, mContext);
+                    tracksListViewItem.setTrack(mTrackStore, position, mContext);
                     tracksListViewItem.setTrackNumber(String.valueOf(position + 1));
-                }
-                // This will prepare the view for fetching the image from the internet if not already saved in local database.
-                ((FileListItem) convertView).prepareArtworkFetching(mArtworkManager, track);
 
-                // Start async image loading if not scrolling at the moment. Otherwise the ScrollSpeedListener
-                // starts the loading.
-                if (mScrollSpeed == 0) {
-                    ((FileListItem) convertView).startCoverImageTask();
+                    // Artwork fetching needs a track object. Only create it once per section.
+                    MPDTrack sectionTrack = mSectionTracks.get(position);
+                    if (null == sectionTrack) {
+                        sectionTrack = mTrackStore.createTrack(position);
+                        mSectionTracks.put(position, sectionTrack);
+                    }
+
+                    // This will prepare the view for fetching the image from the internet if not already saved in local database.
+                    tracksListViewItem.prepareArtworkFetching(mArtworkManager, sectionTrack);
+
+                    // Start async image loading if not scrolling at the moment. Otherwise the ScrollSpeedListener
+                    // starts the loading.
+                    if (mScrollSpeed == 0) {
+                        tracksListViewItem.startCoverImageTask();
+                    }
                 }
-            }
 
 
-            if (null != mLastStatus && mLastStatus.getCurrentSongIndex() == position) {
-                ((FileListItem) convertView).setPlaying(true);
-            } else {
-                ((FileListItem) convertView).setPlaying(false);
-            }
+                if (null != mLastStatus && mLastStatus.getCurrentSongIndex() == position) {
+                    ((FileListItem) convertView).setPlaying(true);
+                } else {
+                    ((FileListItem) convertView).setPlaying(false);
+                }
 
-        } else {
-            // If the element is not yet received we will show an empty view, that notifies the user about
-            // the running fetch.
-            if ( convertView == null ) {
-                // If not create a new Listitem
-                convertView = new FileListItem(mContext, null, position + 1, false);
             } else {
-                FileListItem tracksListViewItem = (FileListItem) convertView;
-                tracksListViewItem.setTrack(null, mContext);
+                // If the element is not yet received we will show an empty view, that notifies the user about
+                // the running fetch.
+                if (convertView == null) {
+                    // If not create a new Listitem
+                    convertView = new FileListItem(mContext, null, position + 1, false);
+                } else {
+                    FileListItem tracksListViewItem = (FileListItem) convertView;
+                    tracksListViewItem.setTrack(null, mContext);
+                }
             }
+        } finally {
+            mListsLock.readLock().unlock();
         }
 
         // The view that is used for the position in the list
@@ -428,13 +483,23 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
             // If the ranged playlist feature is disabled
             if (!mWindowEnabled) {
+                // Convert the new playlist to the column store
+                MPDTrackStore trackStore = null;
+                if (null != trackList) {
+                    trackStore = new MPDTrackStore(trackList.size());
+                    trackStore.setTracks(0, trackList);
+                }
+
                 // Save the new playlist
-                mPlaylist = trackList;
+                mListsLock.writeLock().lock();
+                mTrackStore = trackStore;
+                mSectionTracks.clear();
+                mListsLock.writeLock().unlock();
 
                 // Set the index active for the currently playing/paused song (if any)
                 if (null != mLastStatus) {
                     int index = mLastStatus.getCurrentSongIndex();
-                    if ((null != mPlaylist) && (index < mPlaylist.size())) {
+                    if ((null != trackStore) && (index < trackStore.getSize())) {
                         setCurrentIndex(index);
                     }
                 }
@@ -444,16 +509,16 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
                 // Get the lock to prevent race-conditions.
                 mListsLock.writeLock().lock();
 
-                if (mWindowedPlaylists.length <= start / WINDOW_SIZE) {
+                if (null == mTrackStore || null == mWindowedListStates || mWindowedListStates.length <= start / WINDOW_SIZE) {
                     // Obviously we received old data here. Abort handling.
                     // Crash reported via Google Play (07.11.2016)
                     mListsLock.writeLock().unlock();
                     return;
                 }
 
-                // If a ranged playlist is used, then the list block is saved into the array of list blocks at
-                // the position depending on the start position and the WINDOW_SIZE
-                mWindowedPlaylists[start / WINDOW_SIZE] = trackList;
+                // If a ranged playlist is used, then the list block is saved into the rows of the track store
+                // starting at the start position of the block.
+                mTrackStore.setTracks(start, trackList);
 
                 // Set the list state to ready.
                 mWindowedListStates[start / WINDOW_SIZE] = LIST_STATE.LIST_READY;
@@ -478,6 +543,135 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         }
     }
 
+    /**
+     * Private class to handle the combined response of the status and the list block of the
+     * current song. This shows the playlist after resuming with a single network round trip.
+     */
+    private class CurrentStateResponseHandler extends MPDResponseCurrentState {
+
+        @Override
+        public void handleCurrentState(MPDCurrentStatus status, MPDTrack track, List<MPDFileEntry> playlistWindow, int windowStart, int windowEnd) {
+            // Ignore responses of requests that were replaced or cancelled by onPause
+            if (this != mCurrentStateResponseHandler) {
+                return;
+            }
+            mCurrentStateResponseHandler = null;
+
+            if (null == status) {
+                // The request failed, continue with the last known status
+                mStateListener.onNewStatusReady(MPDStateMonitoringHandler.getLastStatus());
+                return;
+            }
+            mStateListener.onNewStatusReady(status);
+
+            if (null == playlistWindow || !mWindowEnabled) {
+                return;
+            }
+
+            // Only use the block if it belongs to the playlist version of the track store and is complete
+            int blockEnd = Math.min(windowEnd, status.getPlaylistLength());
+            int listIndex = windowStart / WINDOW_SIZE;
+            mListsLock.readLock().lock();
+            boolean blockValid = status.getPlaylistVersion() == mPlaylistVersion && null != mTrackStore
+                    && null != mWindowedListStates && listIndex < mWindowedListStates.length
+                    && mWindowedListStates[listIndex] != LIST_STATE.LIST_READY
+                    && playlistWindow.size() == blockEnd - windowStart;
+            mListsLock.readLock().unlock();
+
+            if (blockValid) {
+                mTrackResponseHandler.handleTracks(playlistWindow, windowStart, blockEnd);
+            }
+        }
+    }
+
+    /**
+     * Private class to handle the changed playlist positions from MPDQueryHandler. The changes
+     * are applied to the track store without fetching the list blocks again.
+     */
+    private class PlaylistChangesResponseHandler extends MPDResponsePlaylistChanges {
+
+        /**
+         * Called when the changes since the given playlist version are ready.
+         *
+         * @param changes Changed positions with their song ids or null if the request failed
+         * @param version Playlist version the changes are based on
+         */
+        @Override
+        public void handlePlaylistChanges(MPDPlaylistChanges changes, int version) {
+            if (version != mPlaylistVersion) {
+                // The local playlist was reset meanwhile, ignore the old response.
+                return;
+            }
+            mChangesPending = false;
+
+            if (null == mLastStatus) {
+                return;
+            }
+
+            // Get the lock to prevent race-conditions.
+            mListsLock.writeLock().lock();
+
+            if (null == changes || null == mTrackStore || null == mWindowedListStates) {
+                // Not possible to update the local copy. Fall back to fetching the list blocks again.
+                mPlaylistVersion = -1;
+                mListsLock.writeLock().unlock();
+                updatePlaylist();
+                return;
+            }
+
+            int playlistLength = mLastStatus.getPlaylistLength();
+            mTrackStore.applyChanges(playlistLength, changes);
+            mSectionTracks.clear();
+
+            // Adapt the list block states to the new length of the playlist
+            int oldListCount = mWindowedListStates.length;
+            int listCount = (playlistLength / WINDOW_SIZE) + 1;
+            mWindowedListStates = Arrays.copyOf(mWindowedListStates, listCount);
+            for (int i = oldListCount; i < listCount; i++) {
+                mWindowedListStates[i] = LIST_STATE.LIST_EMPTY;
+            }
+            if (mLastAccessedList >= listCount) {
+                mLastAccessedList = 0;
+            }
+
+            // Changed positions with songs that were not known locally are requested from the server.
+            // Only the range of missing rows within each ready list block is fetched.
+            for (int i = 0; i < listCount; i++) {
+                if (mWindowedListStates[i] != LIST_STATE.LIST_READY) {
+                    continue;
+                }
+                int blockEnd = Math.min((i + 1) * WINDOW_SIZE, playlistLength);
+                int firstMissing = -1;
+                int lastMissing = -1;
+                for (int row = i * WINDOW_SIZE; row < blockEnd; row++) {
+                    if (!mTrackStore.isLoaded(row)) {
+                        if (firstMissing < 0) {
+                            firstMissing = row;
+                        }
+                        lastMissing = row;
+                    }
+                }
+                if (firstMissing >= 0) {
+                    mWindowedListStates[i] = LIST_STATE.LIST_LOADING;
+                    MPDQueryHandler.getCurrentPlaylist(mTrackResponseHandler, firstMissing, lastMissing + 1);
+                }
+            }
+
+            // The server could have changed the playlist again after the changes were requested.
+            // This is covered by requesting the changes again since the version of the request.
+            mPlaylistVersion = mRequestedPlaylistVersion;
+
+            // Relinquish the lock again
+            mListsLock.writeLock().unlock();
+
+            if (mLastStatus.getPlaylistVersion() != mPlaylistVersion) {
+                updatePlaylist();
+            } else {
+                notifyDataSetChanged();
+            }
+        }
+    }
+
     /**
      * Handler used to react on connects/disconnects from the MPD server.
      */
@@ -497,6 +691,8 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
             } else {
                 mWindowEnabled = false;
             }
+            // The local playlist could be from another server, so do not update it incrementally.
+            mPlaylistVersion = -1;
             updatePlaylist();
         }
 
@@ -505,7 +701,7 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
          */
         @Override
         public void onDisconnected() {
-            mPlaylist = null;
+            clearPlaylist();
             mLastStatus = null;
             updatePlaylist();
             notifyDataSetChanged();
@@ -525,7 +721,11 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         // Reset old states because it is not ensured that it has any meaning.
         mLastStatus = null;
         updatePlaylist();
-        mStateListener.onNewStatusReady(MPDStateMonitoringHandler.getLastStatus());
+        if (mWindowEnabled) {
+            requestCurrentState();
+        } else {
+            mStateListener.onNewStatusReady(MPDStateMonitoringHandler.getLastStatus());
+        }
         ArtworkManager.getInstance(mContext.getApplicationContext()).registerOnNewAlbumImageListener(this);
 
         SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(mContext);
@@ -540,7 +740,8 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         MPDStateMonitoringHandler.unregisterStatusListener(mStateListener);
         MPDStateMonitoringHandler.unregisterConnectionStateListener(mConnectionListener);
 
-        mPlaylist = null;
+        mCurrentStateResponseHandler = null;
+        clearPlaylist();
         ArtworkManager.getInstance(mContext.getApplicationContext()).unregisterOnNewAlbumImageListener(this);
 
         SharedPreferences sharedPref = PreferenceManager.getDefaultSharedPreferences(mContext);
@@ -558,13 +759,22 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         } else {
             // If ranged playlists are available check if we know how many tracks are in the server side list.
             // This determines how many list blocks we need locally.
-            if (null != mLastStatus) {
+            if (null != mLastStatus && mPlaylistVersion >= 0 && null != mTrackStore) {
+                // A local copy of an older playlist version exists. Only request the changed positions
+                // and update the copy when they are received.
+                if (!mChangesPending) {
+                    mChangesPending = true;
+                    mRequestedPlaylistVersion = mLastStatus.getPlaylistVersion();
+                    MPDQueryHandler.getCurrentPlaylistChanges(mChangesResponseHandler, mPlaylistVersion);
+                }
+            } else if (null != mLastStatus) {
                 // Lock list structures
                 mListsLock.writeLock().lock();
                 // Calculate the number of needed list blocks
                 int listCount = (mLastStatus.getPlaylistLength() / WINDOW_SIZE) + 1;
-                // Create the array that later contains the list blocks
-                mWindowedPlaylists = (List<MPDFileEntry>[]) new List[listCount];
+                // Create the store that later contains the tracks of the list blocks
+                mTrackStore = new MPDTrackStore(mLastStatus.getPlaylistLength());
+                mSectionTracks.clear();
 
                 // Create the state array for the list blocks
                 mWindowedListStates = new LIST_STATE[listCount];
@@ -572,9 +782,13 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
                 // Reset the last accessed block because it is now invalid.
                 mLastAccessedList = 0;
 
-                // Initialize the state and list arrays with a clean state.
+                // The store will be filled with this version of the playlist. Responses to older
+                // change requests are ignored.
+                mPlaylistVersion = mLastStatus.getPlaylistVersion();
+                mChangesPending = false;
+
+                // Initialize the state array with a clean state.
                 for (int i = 0; i < listCount; i++) {
-                    mWindowedPlaylists[i] = null;
                     mWindowedListStates[i] = LIST_STATE.LIST_EMPTY;
 
                 }
@@ -587,6 +801,20 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
         notifyDataSetChanged();
     }
 
+    /**
+     * Requests the status of the server together with the list block of the last known current
+     * song in one network round trip.
+     */
+    private void requestCurrentState() {
+        MPDCurrentStatus lastStatus = MPDStateMonitoringHandler.getLastStatus();
+        int index = null == lastStatus ? 0 : Math.max(0, lastStatus.getCurrentSongIndex());
+        int start = (index / WINDOW_SIZE) * WINDOW_SIZE;
+
+        // A new handler for every request, so that responses of older requests can be ignored
+        mCurrentStateResponseHandler = new CurrentStateResponseHandler();
+        MPDQueryHandler.getCurrentState(mCurrentStateResponseHandler, start, start + WINDOW_SIZE);
+    }
+
     /**
      * Requests the list block for a given list index. This maps the index to the list block index.
      *
@@ -604,52 +832,70 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
     }
 
     /**
-     * This will return the MPDTrack entry for a given position. This could be null (e.g. block is still fetching).
+     * Removes all tracks from the local data set.
+     */
+    private void clearPlaylist() {
+        mListsLock.writeLock().lock();
+        mTrackStore = null;
+        mPlaylistVersion = -1;
+        mChangesPending = false;
+        mSectionTracks.clear();
+        // The list blocks are recreated with the next status
+        mWindowedListStates = null;
+        mListsLock.writeLock().unlock();
+    }
+
+    /**
+     * This will create a MPDTrack object for a given position. This could be null (e.g. block is still fetching).
      *
      * @param position Position of the track to get
      * @return the MPDTrack at position or null if not ready.
      */
     private MPDTrack getTrack(int position) {
+        mListsLock.readLock().lock();
+        try {
+            if (isTrackAvailable(position)) {
+                return mTrackStore.createTrack(position);
+            }
+            return null;
+        } finally {
+            mListsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the track at the given position is available in the track store. If its list block
+     * is not yet available, it is requested from the server. The caller has to hold the read lock.
+     *
+     * @param position Position of the track to check
+     * @return True if the row of the track store can be used, false if not ready.
+     */
+    private boolean isTrackAvailable(int position) {
         if (!mWindowEnabled) {
             // Check if list is long enough, can be that the new list is not ready yet.
-            if (null != mPlaylist && mPlaylist.size() > position) {
-                return (MPDTrack) mPlaylist.get(position);
-            } else {
-                return null;
-            }
+            return null != mTrackStore && mTrackStore.isLoaded(position);
         } else {
             // If ranged playlist is activated calculate the index of the requested list block.
             int listIndex = position / WINDOW_SIZE;
 
-            // Block the list
-            mListsLock.readLock().lock();
+            if (null == mWindowedListStates || listIndex >= mWindowedListStates.length) {
+                return false;
+            }
 
             // Check if this list block is already available.
             if (mWindowedListStates[listIndex] == LIST_STATE.LIST_READY) {
                 // Save that the list index was the last accessed one
                 mLastAccessedList = listIndex;
 
-                // Calculate the position of the MPDTrack within the list block
-                int listPosition = position % WINDOW_SIZE;
-                if (listPosition < mWindowedPlaylists[listIndex].size()) {
-                    // Return the MPDTrack from the list block.
-                    mListsLock.readLock().unlock();
-                    return (MPDTrack) mWindowedPlaylists[listIndex].get(position % WINDOW_SIZE);
-                }
-                mListsLock.readLock().unlock();
-            } else if (mWindowedListStates[position / WINDOW_SIZE] == LIST_STATE.LIST_EMPTY) {
+                return null != mTrackStore && mTrackStore.isLoaded(position);
+            } else if (mWindowedListStates[listIndex] == LIST_STATE.LIST_EMPTY) {
                 // If the list is not yet available, request it with the method fetchWindow and set the state
                 // to LIST_LOADING.
-                mWindowedListStates[position / WINDOW_SIZE] = LIST_STATE.LIST_LOADING;
-                mListsLock.readLock().unlock();
+                mWindowedListStates[listIndex] = LIST_STATE.LIST_LOADING;
                 fetchWindow(position);
-            } else {
-                mListsLock.readLock().unlock();
             }
-
-
         }
-        return null;
+        return false;
     }
 
     public void removeAlbumFrom(int position) {
@@ -684,12 +930,21 @@ public class CurrentPlaylistAdapter extends ScrollSpeedAdapter implements Artwor
 
 
             // Cleanup all but the currently active list block.
-            for (int i = 0; i < mWindowedPlaylists.length; i++) {
+            for (int i = 0; null != mWindowedListStates && i < mWindowedListStates.length; i++) {
                 if (i != mLastAccessedList) {
-                    mWindowedPlaylists[i] = null;
+                    if (null != mTrackStore) {
+                        mTrackStore.clearRange(i * WINDOW_SIZE, (i + 1) * WINDOW_SIZE);
+                    }
                     mWindowedListStates[i] = LIST_STATE.LIST_EMPTY;
                 }
             }
+
+            // Remove the section tracks of the cleared blocks as well
+            for (int i = mSectionTracks.size() - 1; i >= 0; i--) {
+                if (mSectionTracks.keyAt(i) / WINDOW_SIZE != mLastAccessedList) {
+                    mSectionTracks.removeAt(i);
+                }
+            }
             // Cleanup the timer field
             mClearTimer = null;
             // Release the list lock
@@ -24,7 +24,6 @@ package org.gateshipone.malp.application.adapters;
 
 
 import android.os.AsyncTask;
-import android.support.v4.util.Pair;
 import android.util.Log;
 import android.widget.BaseAdapter;
 import android.widget.SectionIndexer;
@@ -55,9 +54,14 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
 
     private boolean mSectionsEnabled;
     /**
-     * Task used to do the filtering of the list asynchronously
+     * Index used for the filtering. Null while it is built for a new model.
      */
-    private FilterTask mFilterTask;
+    private ModelFilterIndex<T> mFilterIndex;
+
+    /**
+     * Task used to build the filter index asynchronously
+     */
+    private BuildIndexTask mBuildIndexTask;
 
 
     public GenericSectionAdapter() {
@@ -95,6 +99,14 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
         }
         setScrollSpeed(0);
 
+        // Rebuild the filter index for the new data. The new data is refiltered when it is ready.
+        if (mBuildIndexTask != null) {
+            mBuildIndexTask.cancel(true);
+        }
+        mBuildIndexTask = new BuildIndexTask(mFilterIndex);
+        mFilterIndex = null;
+        mBuildIndexTask.execute(new ArrayList<>(mModelData));
+
         if (mFilterString.isEmpty()) {
             // create sectionlist for fastscrolling
             if (mSectionsEnabled) {
@@ -102,13 +114,6 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
             }
 
             notifyDataSetChanged();
-        } else {
-            // Refilter the new data
-            if (mFilterTask != null) {
-                mFilterTask.cancel(true);
-            }
-            mFilterTask = new FilterTask();
-            mFilterTask.execute(mFilterString);
         }
     }
 
@@ -253,11 +258,11 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
     public void applyFilter(String filterString) {
         if (!filterString.equals(mFilterString)) {
             mFilterString = filterString;
-            if (mFilterTask != null) {
-                mFilterTask.cancel(true);
+
+            // Without an index the filter is applied as soon as the index is built
+            if (mFilterIndex != null) {
+                filterModel();
             }
-            mFilterTask = new FilterTask();
-            mFilterTask.execute(filterString);
         }
 
     }
@@ -277,41 +282,48 @@ public abstract class GenericSectionAdapter<T extends MPDGenericItem> extends Sc
         }
     }
 
-    private class FilterTask extends AsyncTask<String, Object, Pair<List<T>, String>> {
+    /**
+     * Filters the model with the index. The index answers the query fast enough to do this
+     * directly on every keystroke.
+     */
+    private void filterModel() {
+        List<T> resultList = mFilterIndex.query(mFilterString);
 
-        @Override
-        protected Pair<List<T>, String> doInBackground(String... lists) {
-            List<T> resultList = new ArrayList<>();
+        synchronized (mFilteredModelData) {
+            mFilteredModelData.clear();
 
-            String filterString = lists[0];
+            mFilteredModelData.addAll(resultList);
+        }
+        setScrollSpeed(0);
+        if (mSectionsEnabled) {
+            createSections();
+        }
+        notifyDataSetChanged();
+    }
 
-            for (T elem : mModelData) {
-                // Check if task was cancelled from the outside.
-                if (isCancelled()) {
-                    resultList.clear();
-                    return new Pair<>(resultList, filterString);
-                }
-                if (elem.getSectionTitle().toLowerCase().contains(filterString.toLowerCase())) {
-                    resultList.add(elem);
-                }
-            }
+    private class BuildIndexTask extends AsyncTask<List<T>, Object, ModelFilterIndex<T>> {
+
+        /**
+         * Index of the previous model, its folded titles are reused.
+         */
+        private final ModelFilterIndex<T> mPreviousIndex;
 
-            return new Pair<List<T>, String>(resultList, filterString);
+        BuildIndexTask(ModelFilterIndex<T> previousIndex) {
+            mPreviousIndex = previousIndex;
         }
 
-        protected void onPostExecute(Pair<List<T>, String> result) {
-            if (!isCancelled() && mFilterString.equals(result.second)) {
+        @Override
+        protected ModelFilterIndex<T> doInBackground(List<T>... lists) {
+            return new ModelFilterIndex<>(lists[0], mPreviousIndex);
+        }
 
-                synchronized (mFilteredModelData) {
-                    mFilteredModelData.clear();
+        protected void onPostExecute(ModelFilterIndex<T> result) {
+            if (!isCancelled()) {
+                mFilterIndex = result;
 
-                    mFilteredModelData.addAll(result.first);
-                }
-                setScrollSpeed(0);
-                if (mSectionsEnabled) {
-                    createSections();
+                if (!mFilterString.isEmpty()) {
+                    filterModel();
                 }
-                notifyDataSetChanged();
             }
         }
 
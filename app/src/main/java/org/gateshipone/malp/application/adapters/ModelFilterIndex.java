@@ -0,0 +1,226 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.adapters;
+
+import org.gateshipone.malp.application.utils.NameNormalizer;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index over the section titles of a model list. It is built once in the background and
+ * answers substring queries (case and accent insensitive) by intersecting the position lists of
+ * the trigrams of the query. A query that extends the previous query only checks the previous
+ * result.
+ *
+ * Building is not thread safe with querying, a built index must only be queried from one thread.
+ */
+public class ModelFilterIndex<T extends MPDGenericItem> {
+
+    /**
+     * Snapshot of the model that the positions refer to
+     */
+    private final List<T> mItems;
+
+    /**
+     * Folded section titles, same order as {@link #mItems}
+     */
+    private final String[] mTitles;
+
+    /**
+     * Sorted item positions per trigram
+     */
+    private final HashMap<Long, int[]> mTrigrams;
+
+    private String mLastQuery;
+
+    private int[] mLastResult;
+
+    /**
+     * Builds the index for the given model. Folded titles of the previous index are reused,
+     * so rebuilding for a changed model only folds the new titles.
+     *
+     * @param items         Model to index, must not be modified afterwards
+     * @param previousIndex Index of the previous model, can be null
+     */
+    public ModelFilterIndex(List<T> items, ModelFilterIndex<T> previousIndex) {
+        mItems = items;
+        mTitles = new String[mItems.size()];
+
+        HashMap<String, String> foldedTitles = new HashMap<>();
+        if (null != previousIndex) {
+            for (int i = 0; i < previousIndex.mItems.size(); i++) {
+                foldedTitles.put(previousIndex.mItems.get(i).getSectionTitle(), previousIndex.mTitles[i]);
+            }
+        }
+
+        HashMap<Long, PositionList> trigrams = new HashMap<>();
+        for (int i = 0; i < mTitles.length; i++) {
+            String title = mItems.get(i).getSectionTitle();
+            String folded = foldedTitles.get(title);
+            if (null == folded) {
+                folded = NameNormalizer.fold(title);
+            }
+            mTitles[i] = folded;
+
+            for (int j = 0; j + 3 <= folded.length(); j++) {
+                Long trigram = getTrigram(folded, j);
+                PositionList positions = trigrams.get(trigram);
+                if (null == positions) {
+                    positions = new PositionList();
+                    trigrams.put(trigram, positions);
+                }
+                positions.add(i);
+            }
+        }
+
+        mTrigrams = new HashMap<>(trigrams.size());
+        for (Map.Entry<Long, PositionList> entry : trigrams.entrySet()) {
+            mTrigrams.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Returns all items whose section title contains the filter string.
+     *
+     * @param filterString String to search for
+     * @return The matching items in the order of the model
+     */
+    public List<T> query(String filterString) {
+        String query = NameNormalizer.fold(filterString);
+
+        int[] candidates;
+        if (null != mLastQuery && query.contains(mLastQuery)) {
+            // Every match of the extended query also matched the previous query
+            candidates = mLastResult;
+        } else if (query.length() >= 3) {
+            candidates = getTrigramCandidates(query);
+        } else {
+            candidates = null;
+        }
+
+        PositionList result = new PositionList();
+        if (null == candidates) {
+            for (int i = 0; i < mTitles.length; i++) {
+                if (mTitles[i].contains(query)) {
+                    result.add(i);
+                }
+            }
+        } else {
+            for (int position : candidates) {
+                if (mTitles[position].contains(query)) {
+                    result.add(position);
+                }
+            }
+        }
+
+        mLastQuery = query;
+        mLastResult = result.toArray();
+
+        List<T> resultList = new ArrayList<>(mLastResult.length);
+        for (int position : mLastResult) {
+            resultList.add(mItems.get(position));
+        }
+        return resultList;
+    }
+
+    /**
+     * Intersects the position lists of all trigrams of the query, starting with the shortest list.
+     * The result contains all matches but can also contain items that have the trigrams in
+     * another order.
+     */
+    private int[] getTrigramCandidates(String query) {
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            int[] positions = mTrigrams.get(getTrigram(query, i));
+            if (null == positions) {
+                return new int[0];
+            }
+            lists.add(positions);
+        }
+
+        int[] candidates = lists.get(0);
+        for (int[] positions : lists) {
+            if (positions.length < candidates.length) {
+                candidates = positions;
+            }
+        }
+
+        for (int[] positions : lists) {
+            if (positions != candidates) {
+                candidates = intersect(candidates, positions);
+            }
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Long getTrigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Growable list of positions without boxing
+     */
+    private static class PositionList {
+        private int[] mPositions = new int[4];
+        private int mSize;
+
+        void add(int position) {
+            // Trigrams that occur multiple times in a title add the position only once
+            if (mSize > 0 && mPositions[mSize - 1] == position) {
+                return;
+            }
+            if (mSize == mPositions.length) {
+                mPositions = Arrays.copyOf(mPositions, mSize * 2);
+            }
+            mPositions[mSize++] = position;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(mPositions, mSize);
+        }
+    }
+}
@@ -22,8 +22,14 @@
 
 package org.gateshipone.malp.application.artworkdatabase;
 
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import org.gateshipone.malp.application.utils.NameNormalizer;
+
+import java.util.HashSet;
+import java.util.Set;
+
 public class AlbumArtTable {
     public static final String TABLE_NAME = "malp_album_artwork_items";
 
@@ -36,14 +42,103 @@ public class AlbumArtTable {
 
     public static final String COLUMN_IMAGE_NOT_FOUND = "image_not_found";
 
+    /**
+     * Content hash of the image file in the {@link ArtworkFileStore}
+     */
+    public static final String COLUMN_IMAGE_HASH = "image_hash";
+
+    public static final String COLUMN_IMAGE_SIZE = "image_size";
+
+    /**
+     * Reason for the not_found flag (s. {@link ArtworkDatabaseManager#NOT_FOUND_REASON_NO_IMAGE})
+     */
+    public static final String COLUMN_NOT_FOUND_REASON = "not_found_reason";
+
+    /**
+     * Number of unsuccessful searches in a row
+     */
+    public static final String COLUMN_FAILURE_COUNT = "failure_count";
+
+    /**
+     * Time (ms since epoch) after which an unsuccessful search may be retried
+     */
+    public static final String COLUMN_RETRY_TIME = "retry_time";
+
+    /**
+     * The album name in the form of {@link NameNormalizer#normalize(String)} for lookups
+     */
+    public static final String COLUMN_ALBUM_NAME_NORMALIZED = "album_name_normalized";
+
+    /**
+     * The artist name in the form of {@link NameNormalizer#normalize(String)} for lookups
+     */
+    public static final String COLUMN_ARTIST_NAME_NORMALIZED = "artist_name_normalized";
+
     private static final String DATABASE_CREATE = "CREATE TABLE if not exists " + TABLE_NAME + " (" +
             COLUMN_ALBUM_NAME + " text," + COLUMN_ARTIST_NAME + " text," +
             COLUMN_ALBUM_MBID + " text," +
             COLUMN_IMAGE_NOT_FOUND + " integer," +
-            COLUMN_IMAGE_DATA + " blob" +");";
+            COLUMN_IMAGE_DATA + " blob," +
+            COLUMN_IMAGE_HASH + " text," +
+            COLUMN_IMAGE_SIZE + " integer," +
+            COLUMN_NOT_FOUND_REASON + " integer," +
+            COLUMN_FAILURE_COUNT + " integer," +
+            COLUMN_RETRY_TIME + " integer," +
+            COLUMN_ALBUM_NAME_NORMALIZED + " text," +
+            COLUMN_ARTIST_NAME_NORMALIZED + " text" + ");";
+
+    /**
+     * Columns (name, type) that were added after the first version of the table
+     */
+    private static final String[][] UPGRADE_COLUMNS = {
+            {COLUMN_IMAGE_HASH, "text"},
+            {COLUMN_IMAGE_SIZE, "integer"},
+            {COLUMN_NOT_FOUND_REASON, "integer"},
+            {COLUMN_FAILURE_COUNT, "integer"},
+            {COLUMN_RETRY_TIME, "integer"},
+            {COLUMN_ALBUM_NAME_NORMALIZED, "text"},
+            {COLUMN_ARTIST_NAME_NORMALIZED, "text"}
+    };
+
+    /**
+     * Indices for the lookups by MBID and by the normalized names
+     */
+    private static final String[] INDICES_CREATE = {
+            "CREATE INDEX if not exists " + TABLE_NAME + "_mbid_index ON " + TABLE_NAME + " (" + COLUMN_ALBUM_MBID + ");",
+            "CREATE INDEX if not exists " + TABLE_NAME + "_name_index ON " + TABLE_NAME + " (" + COLUMN_ALBUM_NAME_NORMALIZED + "," + COLUMN_ARTIST_NAME_NORMALIZED + ");"
+    };
 
     public static void createTable(SQLiteDatabase database) {
         // Create table if not already existing
         database.execSQL(DATABASE_CREATE);
     }
+
+    /**
+     * Adds the columns for the file based image storage, the retry information and the normalized
+     * names to tables of older versions. The image data column is kept for the migration of old images.
+     */
+    public static void upgradeTable(SQLiteDatabase database) {
+        Cursor columns = database.rawQuery("PRAGMA table_info(" + TABLE_NAME + ")", null);
+        Set<String> existingColumns = new HashSet<>();
+        while (columns.moveToNext()) {
+            existingColumns.add(columns.getString(columns.getColumnIndex("name")));
+        }
+        columns.close();
+
+        for (String[] column : UPGRADE_COLUMNS) {
+            if (!existingColumns.contains(column[0])) {
+                database.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + column[0] + " " + column[1]);
+            }
+        }
+    }
+
+    /**
+     * Creates the indices for the lookups. Must be called after {@link #upgradeTable(SQLiteDatabase)}
+     * because the indices use the columns that are added by it.
+     */
+    public static void createIndices(SQLiteDatabase database) {
+        for (String index : INDICES_CREATE) {
+            database.execSQL(index);
+        }
+    }
 }
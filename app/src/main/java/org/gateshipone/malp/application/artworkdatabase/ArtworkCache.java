@@ -0,0 +1,429 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.artworkdatabase;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two level cache for decoded artwork bitmaps that is used by the {@link ArtworkManager} in front
+ * of the {@link ArtworkDatabaseManager}.
+ * <p/>
+ * The first level is a size bounded LRU cache in memory. The second level keeps the downsampled
+ * thumbnails as small compressed files on the disk, so that they can be restored without reading
+ * the full sized image from the database and scaling it down again. Images are identified by their
+ * type (album/artist), an identity string (e.g. MBID or name) and the requested size.
+ */
+public class ArtworkCache implements ComponentCallbacks2 {
+    private static final String TAG = ArtworkCache.class.getSimpleName();
+
+    public static final String TYPE_ALBUM = "album";
+    public static final String TYPE_ARTIST = "artist";
+
+    /**
+     * Requested size for images that are used in their original size.
+     */
+    public static final int ORIGINAL_SIZE = 0;
+
+    /**
+     * Part of the maximum heap that is used for the memory cache (1/8)
+     */
+    private static final int MEMORY_CACHE_FRACTION = 8;
+
+    /**
+     * Name of the directory inside the cache directory for the thumbnails
+     */
+    private static final String DISK_CACHE_DIRECTORY = "artwork_thumbnails";
+
+    /**
+     * Maximum size of all thumbnails on the disk (32 MiB)
+     */
+    private static final long MAX_DISK_CACHE_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Thumbnails bigger than this are not written to the disk as they are close to the size of the
+     * images in the database, so decoding them would not be faster than decoding the original.
+     */
+    private static final int MAX_DISK_THUMBNAIL_SIZE = 400;
+
+    /**
+     * Quality of the compressed thumbnails on the disk
+     */
+    private static final int DISK_THUMBNAIL_QUALITY = 90;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    private final File mDiskCacheDirectory;
+
+    /**
+     * Size of all files in the disk cache. -1 until the directory was scanned.
+     */
+    private long mDiskCacheSize = -1;
+
+    /**
+     * Lock for the size bookkeeping of the disk cache and for deleting files. Reading and writing
+     * the files is done without it, as finished files are only replaced by renaming them.
+     */
+    private final Object mDiskLock = new Object();
+
+    private final AtomicInteger mDiskHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+    private final AtomicInteger mDiskEvictionCount = new AtomicInteger();
+
+    public ArtworkCache(Context context) {
+        int memoryCacheSize = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_FRACTION);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        mDiskCacheDirectory = new File(context.getCacheDir(), DISK_CACHE_DIRECTORY);
+    }
+
+    /**
+     * Returns a cached image. The memory is checked first and then the disk.
+     *
+     * @param type     Type of the image ({@link #TYPE_ALBUM} or {@link #TYPE_ARTIST})
+     * @param identity String that identifies the image within its type
+     * @param size     Requested size of the image
+     * @return The cached bitmap or null if it is not cached.
+     */
+    public Bitmap get(String type, String identity, int size) {
+        String key = createKey(type, identity, size);
+
+        Bitmap image = mMemoryCache.get(key);
+        if (null != image) {
+            return image;
+        }
+
+        if (isDiskCacheable(size)) {
+            image = readFromDisk(key);
+            if (null != image) {
+                mDiskHitCount.incrementAndGet();
+                mMemoryCache.put(key, image);
+                return image;
+            }
+        }
+
+        mMissCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds an image to the cache.
+     *
+     * @param type     Type of the image ({@link #TYPE_ALBUM} or {@link #TYPE_ARTIST})
+     * @param identity String that identifies the image within its type
+     * @param size     Requested size of the image
+     * @param image    Decoded image
+     */
+    public void put(String type, String identity, int size, Bitmap image) {
+        if (null == image) {
+            return;
+        }
+        String key = createKey(type, identity, size);
+
+        mMemoryCache.put(key, image);
+
+        if (isDiskCacheable(size)) {
+            writeToDisk(key, image);
+        }
+    }
+
+    /**
+     * Removes all cached images of the given type. Used when images in the database are changed.
+     *
+     * @param type Type of the images to remove
+     */
+    public void clear(String type) {
+        String prefix = type + ':';
+        for (String key : mMemoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                mMemoryCache.remove(key);
+            }
+        }
+
+        synchronized (mDiskLock) {
+            File[] files = mDiskCacheDirectory.listFiles();
+            if (null == files) {
+                return;
+            }
+            for (File file : files) {
+                if (file.getName().startsWith(type + '_')) {
+                    deleteFile(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of requests that were served from the memory
+     */
+    public int getHitCount() {
+        return mMemoryCache.hitCount();
+    }
+
+    /**
+     * @return Number of requests that were served from the disk
+     */
+    public int getDiskHitCount() {
+        return mDiskHitCount.get();
+    }
+
+    /**
+     * @return Number of requests that were neither found in the memory nor on the disk
+     */
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * @return Number of images that were removed from the memory to stay within the size limit
+     */
+    public int getEvictionCount() {
+        return mMemoryCache.evictionCount();
+    }
+
+    /**
+     * @return Number of thumbnails that were removed from the disk to stay within the size limit
+     */
+    public int getDiskEvictionCount() {
+        return mDiskEvictionCount.get();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // The app is likely to be killed soon, free everything.
+            mMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        mMemoryCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+
+    private static boolean isDiskCacheable(int size) {
+        return size != ORIGINAL_SIZE && size <= MAX_DISK_THUMBNAIL_SIZE;
+    }
+
+    private static String createKey(String type, String identity, int size) {
+        return type + ':' + identity + '@' + size;
+    }
+
+    /**
+     * Creates the file name for a key. The type is kept readable to be able to clear all files
+     * of one type. The key itself is saved inside the file to detect hash collisions.
+     *
+     * @param key Cache key
+     * @return File name for the key
+     */
+    private static String createFileName(String key) {
+        String type = key.substring(0, key.indexOf(':'));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(type).append('_');
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16));
+                name.append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return type + '_' + Integer.toHexString(key.hashCode());
+        }
+    }
+
+    private Bitmap readFromDisk(String key) {
+        File file = new File(mDiskCacheDirectory, createFileName(key));
+        if (!file.exists()) {
+            return null;
+        }
+
+        Bitmap image = null;
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new FileInputStream(file));
+            if (!key.equals(input.readUTF())) {
+                // Hash collision, the file belongs to another image.
+                return null;
+            }
+            image = BitmapFactory.decodeStream(input);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read cached thumbnail: " + e.getMessage());
+        } finally {
+            if (null != input) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        if (null == image) {
+            // The file was removed in the meantime or is broken.
+            synchronized (mDiskLock) {
+                deleteFile(file);
+            }
+            return null;
+        }
+
+        // Mark the file as recently used
+        file.setLastModified(System.currentTimeMillis());
+        return image;
+    }
+
+    private void writeToDisk(String key, Bitmap image) {
+        if (!mDiskCacheDirectory.exists() && !mDiskCacheDirectory.mkdirs()) {
+            return;
+        }
+
+        File file = new File(mDiskCacheDirectory, createFileName(key));
+
+        // Compress the image into a temporary file without holding the lock. The name of the temporary
+        // file is unique, so that threads writing the same image do not interfere with each other.
+        File tempFile;
+        DataOutputStream output = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", mDiskCacheDirectory);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not create cached thumbnail: " + e.getMessage());
+            return;
+        }
+        try {
+            output = new DataOutputStream(new FileOutputStream(tempFile));
+            output.writeUTF(key);
+            if (!image.compress(Bitmap.CompressFormat.JPEG, DISK_THUMBNAIL_QUALITY, output)) {
+                output.close();
+                output = null;
+                tempFile.delete();
+                return;
+            }
+            output.close();
+            output = null;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write cached thumbnail: " + e.getMessage());
+            tempFile.delete();
+            return;
+        } finally {
+            if (null != output) {
+                try {
+                    output.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        synchronized (mDiskLock) {
+            if (mDiskCacheSize < 0) {
+                mDiskCacheSize = 0;
+                File[] files = mDiskCacheDirectory.listFiles();
+                if (null != files) {
+                    for (File cachedFile : files) {
+                        mDiskCacheSize += cachedFile.length();
+                    }
+                }
+                // The temporary file is added below
+                mDiskCacheSize -= tempFile.length();
+            }
+
+            long oldLength = file.length();
+
+            // Rename the finished file so that no partially written files are read.
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return;
+            }
+            mDiskCacheSize += file.length() - oldLength;
+
+            if (mDiskCacheSize > MAX_DISK_CACHE_SIZE) {
+                trimDiskCache();
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used thumbnails until the disk cache is at 3/4 of its maximum size.
+     * Needs to be called with the disk lock held.
+     */
+    private void trimDiskCache() {
+        File[] files = mDiskCacheDirectory.listFiles();
+        if (null == files) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+
+        for (File file : files) {
+            if (mDiskCacheSize <= MAX_DISK_CACHE_SIZE / 4 * 3) {
+                break;
+            }
+            deleteFile(file);
+            mDiskEvictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Deletes a file of the disk cache and updates the size of the cache.
+     * Needs to be called with the disk lock held.
+     */
+    private void deleteFile(File file) {
+        long length = file.length();
+        if (file.delete() && mDiskCacheSize >= 0) {
+            mDiskCacheSize -= length;
+        }
+    }
+}
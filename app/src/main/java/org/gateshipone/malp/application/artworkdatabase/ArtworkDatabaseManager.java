@@ -26,12 +26,19 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
-import org.gateshipone.malp.BuildConfig;
+import org.gateshipone.malp.application.utils.NameNormalizer;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 
 public class ArtworkDatabaseManager extends SQLiteOpenHelper {
 
@@ -41,22 +48,115 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "OdysseyArtworkDB";
 
     /**
-     * The version of the database
+     * The version of the database schema. Must be increased with every change of the tables,
+     * otherwise {@link #onUpgrade(SQLiteDatabase, int, int)} is not called for existing installations.
+     * Versions up to 18 followed the version code of the app.
+     * <p/>
+     * 19: Image files with hash and size instead of image blobs
+     * 20: Bulk queue table, retry information, normalized names and lookup indices
+     * 21: Server of the bulk queue
      */
-    private static final int DATABASE_VERSION = BuildConfig.VERSION_CODE;
+    private static final int DATABASE_VERSION = 21;
 
     private Context mContext;
 
+    /**
+     * Store for the image files. The tables only contain the content hash of the images.
+     */
+    private ArtworkFileStore mFileStore;
+
+    /**
+     * The provider answered but has no image for the album/artist.
+     */
+    public static final int NOT_FOUND_REASON_NO_IMAGE = 1;
+
+    /**
+     * The image could not be downloaded because of a network or server error.
+     */
+    public static final int NOT_FOUND_REASON_ERROR = 2;
+
+    /**
+     * Time until the first retry of an unsuccessful search. It is doubled with every further
+     * unsuccessful search up to the maximum.
+     */
+    private static final long NO_IMAGE_RETRY_DELAY = 7L * 24 * 60 * 60 * 1000;
+    private static final long NO_IMAGE_MAX_RETRY_DELAY = 180L * 24 * 60 * 60 * 1000;
+    private static final long ERROR_RETRY_DELAY = 60L * 60 * 1000;
+    private static final long ERROR_MAX_RETRY_DELAY = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Length of a MusicBrainz identifier (UUID)
+     */
+    private static final int MBID_LENGTH = 36;
+
+    /**
+     * Lookup types that are used as index for {@link #LOOKUP_QUERIES}
+     */
+    private static final int LOOKUP_ALBUM_MBID = 0;
+    private static final int LOOKUP_ALBUM_NAME = 1;
+    private static final int LOOKUP_ALBUM_NAME_ARTIST_NAME = 2;
+    private static final int LOOKUP_ARTIST_MBID = 3;
+    private static final int LOOKUP_ARTIST_NAME = 4;
+    private static final int LOOKUP_ALBUM_TRACK = 5;
+
+    /**
+     * Queries for the lookups. They return the image hash, an empty string if the image was
+     * searched for before without success (not_found flag) or no row if the image is unknown.
+     */
+    private static final String[] LOOKUP_QUERIES = {
+            createLookupQuery(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    AlbumArtTable.COLUMN_ALBUM_MBID + "=?"),
+            createLookupQuery(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED + "=?"),
+            createLookupQuery(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?"),
+            createLookupQuery(ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    ArtistArtTable.COLUMN_ARTIST_MBID + "=?"),
+            createLookupQuery(ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?"),
+            // Replaces the chain of lookups for a track (mbid, album + album artist, album + artist, album).
+            // Both conditions use an index, the few matching rows are ordered by the priority of the chain.
+            createLookupQuery(AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND,
+                    AlbumArtTable.COLUMN_ALBUM_MBID + "=?1 OR " + AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED + "=?2"
+                            + " ORDER BY " + AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1, CASE"
+                            + " WHEN " + AlbumArtTable.COLUMN_ALBUM_MBID + "=?1 THEN 0"
+                            + " WHEN " + AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?3 THEN 1"
+                            + " WHEN " + AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?4 THEN 2"
+                            + " ELSE 3 END")
+    };
+
+    /**
+     * Compiled lookup statements. A statement keeps its bindings so it can not be shared between
+     * threads. Each loader thread gets its own set of statements instead, which allows the lookups
+     * to run in parallel on the reader connections of the WAL database.
+     */
+    private final ThreadLocal<SQLiteStatement[]> mLookupStatements = new ThreadLocal<SQLiteStatement[]>() {
+        @Override
+        protected SQLiteStatement[] initialValue() {
+            return new SQLiteStatement[LOOKUP_QUERIES.length];
+        }
+    };
+
+    /**
+     * Lock for all modifications. Lookups do not use it and can run while images are inserted.
+     * It also makes sure that no image file is removed as unreferenced before its row is inserted.
+     */
+    private final Object mWriteLock = new Object();
+
     private static ArtworkDatabaseManager mInstance;
 
     private ArtworkDatabaseManager(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+
+        // Write ahead logging allows reads while another thread is writing
+        setWriteAheadLoggingEnabled(true);
     }
 
     public static synchronized ArtworkDatabaseManager getInstance(Context context) {
         if (null == mInstance) {
             mInstance = new ArtworkDatabaseManager(context);
             ArtworkDatabaseManager.mInstance.mContext = context;
+            ArtworkDatabaseManager.mInstance.mFileStore = new ArtworkFileStore(context);
         }
         return mInstance;
     }
@@ -71,11 +171,110 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         AlbumArtTable.createTable(db);
         ArtistArtTable.createTable(db);
+        BulkQueueTable.createTable(db);
+
+        AlbumArtTable.createIndices(db);
+        ArtistArtTable.createIndices(db);
     }
 
+    /**
+     * Adds the columns for the image files to existing tables and moves images that are still
+     * stored inside the database to the {@link ArtworkFileStore}. The normalized names of
+     * existing rows are calculated and the lookup indices are created.
+     *
+     * @param db
+     * @param oldVersion
+     * @param newVersion
+     */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        //FIXME
+        AlbumArtTable.createTable(db);
+        ArtistArtTable.createTable(db);
+        BulkQueueTable.createTable(db);
+
+        AlbumArtTable.upgradeTable(db);
+        ArtistArtTable.upgradeTable(db);
+        BulkQueueTable.upgradeTable(db);
+
+        migrateImages(db, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_DATA, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_SIZE);
+        migrateImages(db, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_DATA, ArtistArtTable.COLUMN_IMAGE_HASH, ArtistArtTable.COLUMN_IMAGE_SIZE);
+
+        normalizeNames(db, AlbumArtTable.TABLE_NAME,
+                new String[]{AlbumArtTable.COLUMN_ALBUM_NAME, AlbumArtTable.COLUMN_ARTIST_NAME},
+                new String[]{AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED, AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED});
+        normalizeNames(db, ArtistArtTable.TABLE_NAME,
+                new String[]{ArtistArtTable.COLUMN_ARTIST_NAME},
+                new String[]{ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED});
+
+        AlbumArtTable.createIndices(db);
+        ArtistArtTable.createIndices(db);
+    }
+
+    /**
+     * Fills the normalized name columns of all rows that were inserted before the columns existed.
+     *
+     * @param nameColumns       Columns containing the names
+     * @param normalizedColumns Columns for the normalized names, in the same order as the nameColumns
+     */
+    private static void normalizeNames(SQLiteDatabase db, String tableName, String[] nameColumns, String[] normalizedColumns) {
+        String[] projection = new String[nameColumns.length + 1];
+        projection[0] = "rowid";
+        System.arraycopy(nameColumns, 0, projection, 1, nameColumns.length);
+
+        db.beginTransaction();
+        try {
+            Cursor nameCursor = db.query(tableName, projection, normalizedColumns[0] + " IS NULL", null, null, null, null);
+            while (nameCursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                for (int i = 0; i < normalizedColumns.length; i++) {
+                    values.put(normalizedColumns[i], NameNormalizer.normalize(nameCursor.getString(i + 1)));
+                }
+                db.update(tableName, values, "rowid=?", new String[]{String.valueOf(nameCursor.getLong(0))});
+            }
+            nameCursor.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Moves all image blobs of the given table to files. The rows are handled one by one
+     * to avoid loading all images into memory at once.
+     */
+    private void migrateImages(SQLiteDatabase db, String tableName, String dataColumn, String hashColumn, String sizeColumn) {
+        List<Long> rowIDs = new ArrayList<>();
+        Cursor rowCursor = db.query(tableName, new String[]{"rowid"}, dataColumn + " IS NOT NULL", null, null, null, null);
+        while (rowCursor.moveToNext()) {
+            rowIDs.add(rowCursor.getLong(0));
+        }
+        rowCursor.close();
+
+        for (Long rowID : rowIDs) {
+            String[] whereArgs = {String.valueOf(rowID)};
+            Cursor imageCursor = db.query(tableName, new String[]{dataColumn}, "rowid=?", whereArgs, null, null, null);
+            byte[] image = null;
+            if (imageCursor.moveToFirst()) {
+                image = imageCursor.getBlob(0);
+            }
+            imageCursor.close();
+
+            if (null == image) {
+                continue;
+            }
+
+            String hash = mFileStore.store(image);
+            if (null == hash) {
+                // Keep the blob, the migration is retried with the next upgrade
+                continue;
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(hashColumn, hash);
+            values.put(sizeColumn, image.length);
+            values.putNull(dataColumn);
+            db.update(tableName, values, "rowid=?", whereArgs);
+        }
     }
 
     /**
@@ -85,7 +284,7 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getAlbumImage(MPDAlbum album) throws ImageNotFoundException {
+    public byte[] getAlbumImage(MPDAlbum album) throws ImageNotFoundException {
         return getAlbumImageFromMBID(album.getMBID());
     }
 
@@ -96,34 +295,8 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getAlbumImageFromMBID(String mbid) throws ImageNotFoundException {
-        SQLiteDatabase database = getReadableDatabase();
-
-        String selection = AlbumArtTable.COLUMN_ALBUM_MBID + "=?";
-
-
-        Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_ALBUM_MBID, AlbumArtTable.COLUMN_IMAGE_DATA, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, new String[]{mbid}, null, null, null);
-
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
-            }
-            byte[] imageData = requestCursor.getBlob(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_DATA));
-
-            requestCursor.close();
-            database.close();
-            return imageData;
-        }
-
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
+    public byte[] getAlbumImageFromMBID(String mbid) throws ImageNotFoundException {
+        return getImage(LOOKUP_ALBUM_MBID, mbid);
     }
 
     /**
@@ -133,38 +306,13 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getArtistImage(MPDArtist artist) throws ImageNotFoundException {
-        SQLiteDatabase database = getReadableDatabase();
-
-        String selection = ArtistArtTable.COLUMN_ARTIST_MBID + "=?";
-
+    public byte[] getArtistImage(MPDArtist artist) throws ImageNotFoundException {
         String mbids = "";
         for (int i = 0; i < artist.getMBIDCount(); i++) {
             mbids += artist.getMBID(i);
         }
 
-        Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_ARTIST_MBID, ArtistArtTable.COLUMN_IMAGE_DATA, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, new String[]{String.valueOf(mbids)}, null, null, null);
-
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
-            }
-            byte[] imageData = requestCursor.getBlob(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_DATA));
-
-            requestCursor.close();
-            database.close();
-            return imageData;
-        }
-
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
+        return getImage(LOOKUP_ARTIST_MBID, mbids);
     }
 
     /**
@@ -174,47 +322,55 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getArtistImage(String artistName) throws ImageNotFoundException {
-        SQLiteDatabase database = getReadableDatabase();
+    public byte[] getArtistImage(String artistName) throws ImageNotFoundException {
+        return getImage(LOOKUP_ARTIST_NAME, NameNormalizer.normalize(artistName));
+    }
+
+    /**
+     * Inserts the given byte[] image to the artists table.
+     *
+     * @param artist Artist for the associated image byte[].
+     * @param image  byte[] containing the raw image that was downloaded. This can be null in which case
+     *               the database entry will have the not_found flag set.
+     */
+    public void insertArtistImage(MPDArtist artist, byte[] image) {
+        if (null == image) {
+            insertArtistImageNotFound(artist, NOT_FOUND_REASON_NO_IMAGE);
+            return;
+        }
 
-        String selection = ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
+        ContentValues values = new ContentValues();
 
+        String mbids = "";
+        for (int i = 0; i < artist.getMBIDCount(); i++) {
+            mbids += artist.getMBID(i);
+        }
 
-        Cursor requestCursor = database.query(ArtistArtTable.TABLE_NAME, new String[]{ArtistArtTable.COLUMN_ARTIST_NAME, ArtistArtTable.COLUMN_IMAGE_DATA, ArtistArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, new String[]{artistName}, null, null, null);
+        values.put(ArtistArtTable.COLUMN_ARTIST_MBID, mbids);
+        values.put(ArtistArtTable.COLUMN_ARTIST_NAME, artist.getArtistName());
+        values.put(ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED, NameNormalizer.normalize(artist.getArtistName()));
+        values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, 0);
 
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
+        synchronized (mWriteLock) {
+            String hash = mFileStore.store(image);
+            if (null == hash) {
+                return;
             }
-            byte[] imageData = requestCursor.getBlob(requestCursor.getColumnIndex(ArtistArtTable.COLUMN_IMAGE_DATA));
+            values.put(ArtistArtTable.COLUMN_IMAGE_HASH, hash);
+            values.put(ArtistArtTable.COLUMN_IMAGE_SIZE, image.length);
 
-            requestCursor.close();
-            database.close();
-            return imageData;
+            replaceArtistEntry(getWritableDatabase(), mbids, artist.getArtistName(), values);
         }
-
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
     }
 
     /**
-     * Inserts the given byte[] image to the artists table.
+     * Sets the not_found flag for the artist. The time of the next retry is increased
+     * exponentially with each unsuccessful search.
      *
-     * @param artist Artist for the associated image byte[].
-     * @param image  byte[] containing the raw image that was downloaded. This can be null in which case
-     *               the database entry will have the not_found flag set.
+     * @param artist Artist that no image was found for.
+     * @param reason {@link #NOT_FOUND_REASON_NO_IMAGE} or {@link #NOT_FOUND_REASON_ERROR}
      */
-    public synchronized void insertArtistImage(MPDArtist artist, byte[] image) {
-        SQLiteDatabase database = getWritableDatabase();
-
-
+    public void insertArtistImageNotFound(MPDArtist artist, int reason) {
         ContentValues values = new ContentValues();
 
         String mbids = "";
@@ -224,14 +380,43 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
 
         values.put(ArtistArtTable.COLUMN_ARTIST_MBID, mbids);
         values.put(ArtistArtTable.COLUMN_ARTIST_NAME, artist.getArtistName());
-        values.put(ArtistArtTable.COLUMN_IMAGE_DATA, image);
+        values.put(ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED, NameNormalizer.normalize(artist.getArtistName()));
+        values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, 1);
+        values.put(ArtistArtTable.COLUMN_NOT_FOUND_REASON, reason);
 
-        // If null was given as byte[] set the not_found flag for this entry.
-        values.put(ArtistArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
+        String where = ArtistArtTable.COLUMN_ARTIST_MBID + "=? AND " + ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
+        String whereArgs[] = {mbids, nonNull(artist.getArtistName())};
 
-        database.replace(ArtistArtTable.TABLE_NAME, "", values);
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
 
-        database.close();
+            int failureCount = getFailureCount(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_FAILURE_COUNT, where, whereArgs) + 1;
+            values.put(ArtistArtTable.COLUMN_FAILURE_COUNT, failureCount);
+            values.put(ArtistArtTable.COLUMN_RETRY_TIME, System.currentTimeMillis() + getRetryDelay(reason, failureCount));
+
+            replaceArtistEntry(database, mbids, artist.getArtistName(), values);
+        }
+    }
+
+    /**
+     * Replaces all rows of the artist with a new row. Must be called with the write lock.
+     */
+    private void replaceArtistEntry(SQLiteDatabase database, String mbids, String artistName, ContentValues values) {
+        String where = ArtistArtTable.COLUMN_ARTIST_MBID + "=? AND " + ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
+        String whereArgs[] = {mbids, nonNull(artistName)};
+
+        database.beginTransaction();
+        try {
+            Set<String> removedHashes = getHashes(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, where, whereArgs);
+            database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
+            database.insert(ArtistArtTable.TABLE_NAME, "", values);
+            database.setTransactionSuccessful();
+
+            removedHashes.remove(values.getAsString(ArtistArtTable.COLUMN_IMAGE_HASH));
+            removeUnreferencedImages(database, removedHashes);
+        } finally {
+            database.endTransaction();
+        }
     }
 
 
@@ -242,34 +427,8 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getAlbumImage(String albumName) throws ImageNotFoundException {
-        SQLiteDatabase database = getReadableDatabase();
-
-        String selection = AlbumArtTable.COLUMN_ALBUM_NAME + "=?";
-
-
-        Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_ALBUM_NAME, AlbumArtTable.COLUMN_IMAGE_DATA, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, new String[]{albumName}, null, null, null);
-
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
-            }
-            byte[] imageData = requestCursor.getBlob(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_DATA));
-
-            requestCursor.close();
-            database.close();
-            return imageData;
-        }
-
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
+    public byte[] getAlbumImage(String albumName) throws ImageNotFoundException {
+        return getImage(LOOKUP_ALBUM_NAME, NameNormalizer.normalize(albumName));
     }
 
     /**
@@ -279,142 +438,577 @@ public class ArtworkDatabaseManager extends SQLiteOpenHelper {
      * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
      * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
      */
-    public synchronized byte[] getAlbumImage(String albumName, String artistName) throws ImageNotFoundException {
-        SQLiteDatabase database = getReadableDatabase();
+    public byte[] getAlbumImage(String albumName, String artistName) throws ImageNotFoundException {
+        return getImage(LOOKUP_ALBUM_NAME_ARTIST_NAME, NameNormalizer.normalize(albumName), NameNormalizer.normalize(artistName));
+    }
 
-        String selection = AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=?";
+    /**
+     * Tries to fetch an image for the album of a track. Images for the MBID are preferred, then
+     * images for the album name with the album artist, with the track artist and with any artist.
+     *
+     * @param albumMBID       MBID of the album, can be empty
+     * @param albumName       The name of the album to search for.
+     * @param albumArtistName The name of the album artist
+     * @param artistName      The name of the track artist
+     * @return The byte[] containing the raw image file. This can be decoded with BitmapFactory.
+     * @throws ImageNotFoundException If the image is not in the database and it was not searched for before.
+     */
+    public byte[] getAlbumImageForTrack(String albumMBID, String albumName, String albumArtistName, String artistName) throws ImageNotFoundException {
+        // An empty MBID must not match the albums without MBID
+        String mbid = (null == albumMBID || albumMBID.isEmpty()) ? null : albumMBID;
+        return getImage(LOOKUP_ALBUM_TRACK, mbid, NameNormalizer.normalize(albumName),
+                NameNormalizer.normalize(albumArtistName), NameNormalizer.normalize(artistName));
+    }
 
+    /**
+     * Inserts the given byte[] image to the albums table.
+     *
+     * @param album Album for the associated image byte[].
+     * @param image byte[] containing the raw image that was downloaded. This can be null in which case
+     *              the database entry will have the not_found flag set.
+     */
+    public void insertAlbumImage(MPDAlbum album, byte[] image) {
+        if (null == image) {
+            insertAlbumImageNotFound(album, NOT_FOUND_REASON_NO_IMAGE);
+            return;
+        }
 
-        Cursor requestCursor = database.query(AlbumArtTable.TABLE_NAME, new String[]{AlbumArtTable.COLUMN_ALBUM_NAME, AlbumArtTable.COLUMN_IMAGE_DATA, AlbumArtTable.COLUMN_IMAGE_NOT_FOUND},
-                selection, new String[]{albumName, artistName}, null, null, null);
+        ContentValues values = new ContentValues();
 
-        // Check if an image was found
-        if (requestCursor.moveToFirst()) {
-            // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
-            if (requestCursor.getInt(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND)) == 1) {
-                requestCursor.close();
-                database.close();
-                return null;
+        values.put(AlbumArtTable.COLUMN_ALBUM_MBID, album.getMBID());
+        values.put(AlbumArtTable.COLUMN_ALBUM_NAME, album.getName());
+        values.put(AlbumArtTable.COLUMN_ARTIST_NAME, album.getArtistName());
+        values.put(AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED, NameNormalizer.normalize(album.getName()));
+        values.put(AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED, NameNormalizer.normalize(album.getArtistName()));
+        values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, 0);
+
+        synchronized (mWriteLock) {
+            String hash = mFileStore.store(image);
+            if (null == hash) {
+                return;
             }
-            byte[] imageData = requestCursor.getBlob(requestCursor.getColumnIndex(AlbumArtTable.COLUMN_IMAGE_DATA));
+            values.put(AlbumArtTable.COLUMN_IMAGE_HASH, hash);
+            values.put(AlbumArtTable.COLUMN_IMAGE_SIZE, image.length);
 
-            requestCursor.close();
-            database.close();
-            return imageData;
+            replaceAlbumEntry(getWritableDatabase(), album, values);
         }
-
-        // If we reach this, no entry was found for the given request. Throw an exception
-        requestCursor.close();
-        database.close();
-        throw new ImageNotFoundException();
     }
 
     /**
-     * Inserts the given byte[] image to the albums table.
+     * Sets the not_found flag for the album. The time of the next retry is increased
+     * exponentially with each unsuccessful search.
      *
-     * @param album Album for the associated image byte[].
-     * @param image byte[] containing the raw image that was downloaded. This can be null in which case
-     *              the database entry will have the not_found flag set.
+     * @param album  Album that no image was found for.
+     * @param reason {@link #NOT_FOUND_REASON_NO_IMAGE} or {@link #NOT_FOUND_REASON_ERROR}
      */
-    public synchronized void insertAlbumImage(MPDAlbum album, byte[] image) {
-        SQLiteDatabase database = getWritableDatabase();
-
+    public void insertAlbumImageNotFound(MPDAlbum album, int reason) {
         ContentValues values = new ContentValues();
 
         values.put(AlbumArtTable.COLUMN_ALBUM_MBID, album.getMBID());
         values.put(AlbumArtTable.COLUMN_ALBUM_NAME, album.getName());
         values.put(AlbumArtTable.COLUMN_ARTIST_NAME, album.getArtistName());
-        values.put(AlbumArtTable.COLUMN_IMAGE_DATA, image);
+        values.put(AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED, NameNormalizer.normalize(album.getName()));
+        values.put(AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED, NameNormalizer.normalize(album.getArtistName()));
+        values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, 1);
+        values.put(AlbumArtTable.COLUMN_NOT_FOUND_REASON, reason);
 
-        // If null was given as byte[] set the not_found flag for this entry.
-        values.put(AlbumArtTable.COLUMN_IMAGE_NOT_FOUND, image == null ? 1 : 0);
+        String where = AlbumArtTable.COLUMN_ALBUM_MBID + "=? AND " + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=?";
+        String whereArgs[] = {nonNull(album.getMBID()), nonNull(album.getName()), nonNull(album.getArtistName())};
 
-        database.replace(AlbumArtTable.TABLE_NAME, "", values);
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
 
-        database.close();
+            int failureCount = getFailureCount(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_FAILURE_COUNT, where, whereArgs) + 1;
+            values.put(AlbumArtTable.COLUMN_FAILURE_COUNT, failureCount);
+            values.put(AlbumArtTable.COLUMN_RETRY_TIME, System.currentTimeMillis() + getRetryDelay(reason, failureCount));
+
+            replaceAlbumEntry(database, album, values);
+        }
+    }
+
+    /**
+     * Replaces all rows of the album with a new row. Must be called with the write lock.
+     */
+    private void replaceAlbumEntry(SQLiteDatabase database, MPDAlbum album, ContentValues values) {
+        String where = AlbumArtTable.COLUMN_ALBUM_MBID + "=? AND " + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=?";
+        String whereArgs[] = {nonNull(album.getMBID()), nonNull(album.getName()), nonNull(album.getArtistName())};
+
+        database.beginTransaction();
+        try {
+            Set<String> removedHashes = getHashes(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, where, whereArgs);
+            database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+            database.insert(AlbumArtTable.TABLE_NAME, "", values);
+            database.setTransactionSuccessful();
+
+            removedHashes.remove(values.getAsString(AlbumArtTable.COLUMN_IMAGE_HASH));
+            removeUnreferencedImages(database, removedHashes);
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Returns the albums whose last unsuccessful search is old enough to be retried.
+     *
+     * @param limit Maximum number of albums to return
+     */
+    public List<MPDAlbum> getRetryableAlbums(int limit) {
+        List<MPDAlbum> albums = new ArrayList<>();
+
+        Cursor retryCursor = getReadableDatabase().query(AlbumArtTable.TABLE_NAME,
+                new String[]{AlbumArtTable.COLUMN_ALBUM_NAME, AlbumArtTable.COLUMN_ARTIST_NAME, AlbumArtTable.COLUMN_ALBUM_MBID},
+                AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 AND (" + AlbumArtTable.COLUMN_RETRY_TIME + " IS NULL OR " + AlbumArtTable.COLUMN_RETRY_TIME + "<=?)",
+                new String[]{String.valueOf(System.currentTimeMillis())}, null, null, AlbumArtTable.COLUMN_RETRY_TIME, String.valueOf(limit));
+        while (retryCursor.moveToNext()) {
+            MPDAlbum album = new MPDAlbum(nonNull(retryCursor.getString(0)));
+            album.setArtistName(nonNull(retryCursor.getString(1)));
+            album.setMBID(nonNull(retryCursor.getString(2)));
+            albums.add(album);
+        }
+        retryCursor.close();
+
+        return albums;
+    }
+
+    /**
+     * Returns the artists whose last unsuccessful search is old enough to be retried.
+     *
+     * @param limit Maximum number of artists to return
+     */
+    public List<MPDArtist> getRetryableArtists(int limit) {
+        List<MPDArtist> artists = new ArrayList<>();
+
+        Cursor retryCursor = getReadableDatabase().query(ArtistArtTable.TABLE_NAME,
+                new String[]{ArtistArtTable.COLUMN_ARTIST_NAME, ArtistArtTable.COLUMN_ARTIST_MBID},
+                ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=1 AND (" + ArtistArtTable.COLUMN_RETRY_TIME + " IS NULL OR " + ArtistArtTable.COLUMN_RETRY_TIME + "<=?)",
+                new String[]{String.valueOf(System.currentTimeMillis())}, null, null, ArtistArtTable.COLUMN_RETRY_TIME, String.valueOf(limit));
+        while (retryCursor.moveToNext()) {
+            MPDArtist artist = new MPDArtist(nonNull(retryCursor.getString(0)));
+            // The MBIDs are stored concatenated, but all have the same length
+            String mbids = nonNull(retryCursor.getString(1));
+            if (mbids.length() % MBID_LENGTH == 0) {
+                for (int i = 0; i < mbids.length(); i += MBID_LENGTH) {
+                    artist.addMBID(mbids.substring(i, i + MBID_LENGTH));
+                }
+            } else {
+                artist.addMBID(mbids);
+            }
+            artists.add(artist);
+        }
+        retryCursor.close();
+
+        return artists;
+    }
+
+    /**
+     * Calculates the time until an unsuccessful search may be retried.
+     *
+     * @param reason       Reason of the unsuccessful search
+     * @param failureCount Number of unsuccessful searches in a row
+     * @return The delay in ms
+     */
+    private static long getRetryDelay(int reason, int failureCount) {
+        long baseDelay = reason == NOT_FOUND_REASON_ERROR ? ERROR_RETRY_DELAY : NO_IMAGE_RETRY_DELAY;
+        long maxDelay = reason == NOT_FOUND_REASON_ERROR ? ERROR_MAX_RETRY_DELAY : NO_IMAGE_MAX_RETRY_DELAY;
+
+        // Limit the shift so that the delay can not overflow
+        long delay = baseDelay << Math.min(failureCount - 1, 16);
+        return Math.min(delay, maxDelay);
+    }
+
+    private static int getFailureCount(SQLiteDatabase database, String tableName, String failureCountColumn, String where, String[] whereArgs) {
+        Cursor countCursor = database.query(tableName, new String[]{"MAX(" + failureCountColumn + ")"}, where, whereArgs, null, null, null);
+        int failureCount = 0;
+        if (countCursor.moveToFirst() && !countCursor.isNull(0)) {
+            failureCount = countCursor.getInt(0);
+        }
+        countCursor.close();
+        return failureCount;
     }
 
     /**
      * Removes all lines from the artists table
      */
-    public synchronized void clearArtistImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    public void clearArtistImages() {
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
 
-        database.delete(ArtistArtTable.TABLE_NAME, null, null);
+            database.delete(ArtistArtTable.TABLE_NAME, null, null);
 
-        database.close();
+            mFileStore.removeUnreferenced(getReferencedHashes(database));
+        }
     }
 
     /**
      * Removes all lines from the albums table
      */
-    public synchronized void clearAlbumImages() {
-        SQLiteDatabase database = getWritableDatabase();
+    public void clearAlbumImages() {
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
 
-        database.delete(AlbumArtTable.TABLE_NAME, null, null);
+            database.delete(AlbumArtTable.TABLE_NAME, null, null);
 
-        database.close();
+            mFileStore.removeUnreferenced(getReferencedHashes(database));
+        }
     }
 
-    public synchronized void clearBlockedArtistImages() {
-        SQLiteDatabase database = getWritableDatabase();
-
+    public void clearBlockedArtistImages() {
         String where = ArtistArtTable.COLUMN_IMAGE_NOT_FOUND + "=?";
         String whereArgs[] = {"1"};
 
-        database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
-
-        database.close();
+        synchronized (mWriteLock) {
+            getWritableDatabase().delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
+        }
     }
 
-    public synchronized void clearBlockedAlbumImages() {
-        SQLiteDatabase database = getWritableDatabase();
-
+    public void clearBlockedAlbumImages() {
         String where = AlbumArtTable.COLUMN_IMAGE_NOT_FOUND + "=?";
         String whereArgs[] = {"1"};
 
-        database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
-
-        database.close();
+        synchronized (mWriteLock) {
+            getWritableDatabase().delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+        }
     }
 
-    public synchronized void removeArtistImage(MPDArtist artist) {
-        SQLiteDatabase database = getWritableDatabase();
-
+    public void removeArtistImage(MPDArtist artist) {
         String where;
         String whereArgs[];
 
+        // The normalized name also removes the entries that are found for other spellings of the name
         if (artist.getMBIDCount() == 0) {
-            where = ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
-            whereArgs = new String[]{artist.getArtistName()};
+            where = ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?";
+            whereArgs = new String[]{NameNormalizer.normalize(artist.getArtistName())};
         } else {
-            where = ArtistArtTable.COLUMN_ARTIST_MBID + "=? OR " + ArtistArtTable.COLUMN_ARTIST_NAME + "=?";
-            whereArgs = new String[]{artist.getMBID(0) , artist.getArtistName()};
+            where = ArtistArtTable.COLUMN_ARTIST_MBID + "=? OR " + ArtistArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=?";
+            whereArgs = new String[]{artist.getMBID(0) , NameNormalizer.normalize(artist.getArtistName())};
         }
 
-        database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
 
-        database.close();
-    }
+            Set<String> removedHashes = getHashes(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, where, whereArgs);
 
-    public synchronized void removeAlbumImage(MPDAlbum album) {
-        SQLiteDatabase database = getWritableDatabase();
+            database.delete(ArtistArtTable.TABLE_NAME, where, whereArgs);
 
+            removeUnreferencedImages(database, removedHashes);
+        }
+    }
+
+    public void removeAlbumImage(MPDAlbum album) {
         String where;
         String whereArgs[];
 
         // Check if a MBID is present or not
         if(album.getMBID().isEmpty()) {
-            where = "(" + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=? ) ";
-            whereArgs = new String[]{album.getName(), album.getArtistName()};
+            where = "(" + AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=? ) ";
+            whereArgs = new String[]{NameNormalizer.normalize(album.getName()), NameNormalizer.normalize(album.getArtistName())};
         } else {
-            where = AlbumArtTable.COLUMN_ALBUM_MBID + "=? OR (" + AlbumArtTable.COLUMN_ALBUM_NAME + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME + "=? ) ";
-            whereArgs = new String[]{album.getMBID(), album.getName(), album.getArtistName()};
+            where = AlbumArtTable.COLUMN_ALBUM_MBID + "=? OR (" + AlbumArtTable.COLUMN_ALBUM_NAME_NORMALIZED + "=? AND " + AlbumArtTable.COLUMN_ARTIST_NAME_NORMALIZED + "=? ) ";
+            whereArgs = new String[]{album.getMBID(), NameNormalizer.normalize(album.getName()), NameNormalizer.normalize(album.getArtistName())};
+        }
+
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
+
+            Set<String> removedHashes = getHashes(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, where, whereArgs);
+
+            database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+
+            removeUnreferencedImages(database, removedHashes);
+        }
+    }
+
+    /**
+     * Replaces the albums of the bulk download queue.
+     *
+     * @param albums Albums that should be handled by the bulk download
+     * @param server  Address of the server that the albums belong to
+     */
+    public void setBulkAlbums(List<MPDAlbum> albums, String server) {
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
+            database.beginTransaction();
+            try {
+                database.delete(BulkQueueTable.TABLE_NAME, BulkQueueTable.COLUMN_ITEM_TYPE + "=?",
+                        new String[]{String.valueOf(BulkQueueTable.ITEM_TYPE_ALBUM)});
+
+                SQLiteStatement insertStatement = compileBulkInsertStatement(database);
+                for (MPDAlbum album : albums) {
+                    insertStatement.bindLong(1, BulkQueueTable.ITEM_TYPE_ALBUM);
+                    insertStatement.bindString(2, nonNull(album.getName()));
+                    insertStatement.bindString(3, nonNull(album.getArtistName()));
+                    insertStatement.bindString(4, nonNull(album.getMBID()));
+                    insertStatement.bindString(5, nonNull(server));
+                    insertStatement.executeInsert();
+                }
+                insertStatement.close();
+
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * Replaces the artists of the bulk download queue.
+     *
+     * @param artists Artists that should be handled by the bulk download
+     * @param server  Address of the server that the artists belong to
+     */
+    public void setBulkArtists(List<MPDArtist> artists, String server) {
+        synchronized (mWriteLock) {
+            SQLiteDatabase database = getWritableDatabase();
+            database.beginTransaction();
+            try {
+                database.delete(BulkQueueTable.TABLE_NAME, BulkQueueTable.COLUMN_ITEM_TYPE + "=?",
+                        new String[]{String.valueOf(BulkQueueTable.ITEM_TYPE_ARTIST)});
+
+                SQLiteStatement insertStatement = compileBulkInsertStatement(database);
+                for (MPDArtist artist : artists) {
+                    insertStatement.bindLong(1, BulkQueueTable.ITEM_TYPE_ARTIST);
+                    insertStatement.bindString(2, "");
+                    insertStatement.bindString(3, nonNull(artist.getArtistName()));
+                    insertStatement.bindString(4, joinMBIDs(artist));
+                    insertStatement.bindString(5, nonNull(server));
+                    insertStatement.executeInsert();
+                }
+                insertStatement.close();
+
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+    }
+
+    /**
+     * @return All albums of the bulk download queue that are not handled yet.
+     */
+    public List<MPDAlbum> getPendingBulkAlbums() {
+        List<MPDAlbum> albums = new ArrayList<>();
+
+        Cursor queueCursor = getReadableDatabase().query(BulkQueueTable.TABLE_NAME,
+                new String[]{BulkQueueTable.COLUMN_ALBUM_NAME, BulkQueueTable.COLUMN_ARTIST_NAME, BulkQueueTable.COLUMN_MBID},
+                BulkQueueTable.COLUMN_ITEM_TYPE + "=? AND " + BulkQueueTable.COLUMN_DONE + " IS NULL",
+                new String[]{String.valueOf(BulkQueueTable.ITEM_TYPE_ALBUM)}, null, null, "rowid");
+        while (queueCursor.moveToNext()) {
+            MPDAlbum album = new MPDAlbum(queueCursor.getString(0));
+            album.setArtistName(queueCursor.getString(1));
+            album.setMBID(queueCursor.getString(2));
+            albums.add(album);
+        }
+        queueCursor.close();
+
+        return albums;
+    }
+
+    /**
+     * @return All artists of the bulk download queue that are not handled yet.
+     */
+    public List<MPDArtist> getPendingBulkArtists() {
+        List<MPDArtist> artists = new ArrayList<>();
+
+        Cursor queueCursor = getReadableDatabase().query(BulkQueueTable.TABLE_NAME,
+                new String[]{BulkQueueTable.COLUMN_ARTIST_NAME, BulkQueueTable.COLUMN_MBID},
+                BulkQueueTable.COLUMN_ITEM_TYPE + "=? AND " + BulkQueueTable.COLUMN_DONE + " IS NULL",
+                new String[]{String.valueOf(BulkQueueTable.ITEM_TYPE_ARTIST)}, null, null, "rowid");
+        while (queueCursor.moveToNext()) {
+            MPDArtist artist = new MPDArtist(queueCursor.getString(0));
+            String mbids = queueCursor.getString(1);
+            if (!mbids.isEmpty()) {
+                for (String mbid : mbids.split(BulkQueueTable.MBID_SEPARATOR)) {
+                    artist.addMBID(mbid);
+                }
+            }
+            artists.add(artist);
         }
+        queueCursor.close();
 
-        database.delete(AlbumArtTable.TABLE_NAME, where, whereArgs);
+        return artists;
+    }
+
+    /**
+     * @param itemType {@link BulkQueueTable#ITEM_TYPE_ALBUM} or {@link BulkQueueTable#ITEM_TYPE_ARTIST}
+     * @return Number of all items of the type in the bulk download queue, including the handled ones.
+     */
+    public int getBulkItemCount(int itemType) {
+        SQLiteStatement countStatement = getReadableDatabase().compileStatement("SELECT COUNT(*) FROM " + BulkQueueTable.TABLE_NAME
+                + " WHERE " + BulkQueueTable.COLUMN_ITEM_TYPE + "=?");
+        countStatement.bindLong(1, itemType);
+        int count = (int) countStatement.simpleQueryForLong();
+        countStatement.close();
+        return count;
+    }
+
+    /**
+     * Marks the album as handled in the bulk download queue.
+     */
+    public void setBulkAlbumDone(MPDAlbum album) {
+        setBulkItemDone(BulkQueueTable.ITEM_TYPE_ALBUM, nonNull(album.getName()), nonNull(album.getArtistName()), nonNull(album.getMBID()));
+    }
+
+    /**
+     * Marks the artist as handled in the bulk download queue.
+     */
+    public void setBulkArtistDone(MPDArtist artist) {
+        setBulkItemDone(BulkQueueTable.ITEM_TYPE_ARTIST, "", nonNull(artist.getArtistName()), joinMBIDs(artist));
+    }
+
+    /**
+     * @return Address of the server that the bulk download queue belongs to or null if the queue is empty.
+     */
+    public String getBulkQueueServer() {
+        String server = null;
+
+        Cursor queueCursor = getReadableDatabase().query(BulkQueueTable.TABLE_NAME,
+                new String[]{BulkQueueTable.COLUMN_SERVER}, null, null, null, null, null, "1");
+        if (queueCursor.moveToFirst()) {
+            server = queueCursor.getString(0);
+        }
+        queueCursor.close();
 
-        database.close();
+        return server;
+    }
+
+    /**
+     * Removes the complete bulk download queue, e.g. after the bulk download finished.
+     */
+    public void clearBulkQueue() {
+        synchronized (mWriteLock) {
+            getWritableDatabase().delete(BulkQueueTable.TABLE_NAME, null, null);
+        }
+    }
+
+    private void setBulkItemDone(int itemType, String albumName, String artistName, String mbid) {
+        ContentValues values = new ContentValues();
+        values.put(BulkQueueTable.COLUMN_DONE, 1);
+
+        String where = BulkQueueTable.COLUMN_ITEM_TYPE + "=? AND " + BulkQueueTable.COLUMN_ALBUM_NAME + "=? AND "
+                + BulkQueueTable.COLUMN_ARTIST_NAME + "=? AND " + BulkQueueTable.COLUMN_MBID + "=?";
+        String whereArgs[] = {String.valueOf(itemType), albumName, artistName, mbid};
+
+        synchronized (mWriteLock) {
+            getWritableDatabase().update(BulkQueueTable.TABLE_NAME, values, where, whereArgs);
+        }
+    }
+
+    private static SQLiteStatement compileBulkInsertStatement(SQLiteDatabase database) {
+        return database.compileStatement("INSERT INTO " + BulkQueueTable.TABLE_NAME + " ("
+                + BulkQueueTable.COLUMN_ITEM_TYPE + ", " + BulkQueueTable.COLUMN_ALBUM_NAME + ", "
+                + BulkQueueTable.COLUMN_ARTIST_NAME + ", " + BulkQueueTable.COLUMN_MBID + ", "
+                + BulkQueueTable.COLUMN_SERVER + ") VALUES (?, ?, ?, ?, ?)");
+    }
+
+    private static String joinMBIDs(MPDArtist artist) {
+        StringBuilder mbids = new StringBuilder();
+        for (int i = 0; i < artist.getMBIDCount(); i++) {
+            if (i > 0) {
+                mbids.append(BulkQueueTable.MBID_SEPARATOR);
+            }
+            mbids.append(artist.getMBID(i));
+        }
+        return mbids.toString();
     }
 
+    private static String nonNull(String value) {
+        return null == value ? "" : value;
+    }
+
+    private static String createLookupQuery(String tableName, String hashColumn, String notFoundColumn, String selection) {
+        return "SELECT CASE WHEN " + notFoundColumn + "=1 THEN '' ELSE " + hashColumn + " END FROM " + tableName
+                + " WHERE " + selection + " LIMIT 1";
+    }
+
+    /**
+     * Returns the compiled statement of the current thread for the given lookup.
+     */
+    private SQLiteStatement getLookupStatement(int lookup) {
+        SQLiteStatement[] statements = mLookupStatements.get();
+        if (null == statements[lookup]) {
+            statements[lookup] = getReadableDatabase().compileStatement(LOOKUP_QUERIES[lookup]);
+        }
+        return statements[lookup];
+    }
+
+    /**
+     * Runs the given lookup and reads the image from the {@link ArtworkFileStore}.
+     *
+     * @param lookup    Type of the lookup
+     * @param arguments Arguments for the selection of the lookup
+     * @return The byte[] containing the raw image file or null if the image was searched for before.
+     * @throws ImageNotFoundException If no row exists or the image file is missing.
+     */
+    private byte[] getImage(int lookup, String... arguments) throws ImageNotFoundException {
+        SQLiteStatement statement = getLookupStatement(lookup);
+
+        String hash;
+        try {
+            for (int i = 0; i < arguments.length; i++) {
+                if (null == arguments[i]) {
+                    statement.bindNull(i + 1);
+                } else {
+                    statement.bindString(i + 1, arguments[i]);
+                }
+            }
+            hash = statement.simpleQueryForString();
+        } catch (SQLiteDoneException e) {
+            // If we reach this, no entry was found for the given request. Throw an exception
+            throw new ImageNotFoundException();
+        } finally {
+            statement.clearBindings();
+        }
+
+        if (null == hash) {
+            throw new ImageNotFoundException();
+        }
+
+        // If the not_found flag is set then return null here, to indicate that the image is not here but was searched for before.
+        if (hash.isEmpty()) {
+            return null;
+        }
+
+        // A missing file is handled like a missing entry so that the image is downloaded again
+        byte[] imageData = mFileStore.read(hash);
+        if (null == imageData) {
+            throw new ImageNotFoundException();
+        }
+        return imageData;
+    }
+
+    private static Set<String> getHashes(SQLiteDatabase database, String tableName, String hashColumn, String where, String[] whereArgs) {
+        Set<String> hashes = new HashSet<>();
+        Cursor hashCursor = database.query(true, tableName, new String[]{hashColumn}, where, whereArgs, null, null, null, null);
+        while (hashCursor.moveToNext()) {
+            String hash = hashCursor.getString(0);
+            if (null != hash) {
+                hashes.add(hash);
+            }
+        }
+        hashCursor.close();
+        return hashes;
+    }
+
+    /**
+     * Returns the hashes of all images that are used by any of the tables.
+     */
+    private static Set<String> getReferencedHashes(SQLiteDatabase database) {
+        Set<String> hashes = getHashes(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, null, null);
+        hashes.addAll(getHashes(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, null, null));
+        return hashes;
+    }
+
+    /**
+     * Deletes the image files of the given hashes if no row of any table references them anymore.
+     * Images are shared between rows if the content is identical.
+     */
+    private void removeUnreferencedImages(SQLiteDatabase database, Set<String> hashes) {
+        for (String hash : hashes) {
+            String[] whereArgs = {hash};
+            if (getHashes(database, AlbumArtTable.TABLE_NAME, AlbumArtTable.COLUMN_IMAGE_HASH, AlbumArtTable.COLUMN_IMAGE_HASH + "=?", whereArgs).isEmpty()
+                    && getHashes(database, ArtistArtTable.TABLE_NAME, ArtistArtTable.COLUMN_IMAGE_HASH, ArtistArtTable.COLUMN_IMAGE_HASH + "=?", whereArgs).isEmpty()) {
+                mFileStore.delete(hash);
+            }
+        }
+    }
 }
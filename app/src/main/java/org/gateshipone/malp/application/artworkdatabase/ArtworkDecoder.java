@@ -0,0 +1,183 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.artworkdatabase;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Decodes stored artwork images to the size they are shown with.
+ * <p/>
+ * The image is downsampled by the decoder itself (inSampleSize) to the smallest power of two that
+ * is still bigger than the requested size, so that the full resolution image is never allocated.
+ * Only this intermediate image is scaled to the exact size afterwards. The intermediate bitmaps
+ * are not handed out, so they are kept in a small pool and reused as inBitmap for the next decode.
+ */
+public class ArtworkDecoder {
+    private static final String TAG = ArtworkDecoder.class.getSimpleName();
+
+    /**
+     * Maximum number of bitmaps kept for reuse. One per loader thread is enough.
+     */
+    private static final int MAX_REUSABLE_BITMAPS = 4;
+
+    /**
+     * Bytes per pixel of the default ARGB_8888 configuration
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final List<Bitmap> mReusableBitmaps = new ArrayList<>();
+
+    /**
+     * Decodes an image blob from the database.
+     *
+     * @param image Raw image data
+     * @param size  Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The decoded image, scaled down if necessary
+     */
+    public Bitmap decode(byte[] image, int size) {
+        if (size == ArtworkCache.ORIGINAL_SIZE) {
+            return BitmapFactory.decodeByteArray(image, 0, image.length);
+        }
+
+        // Read the dimensions of the image only
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        int width = options.outWidth;
+        int height = options.outHeight;
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        if (width <= size && height <= size) {
+            return BitmapFactory.decodeByteArray(image, 0, image.length);
+        }
+
+        // Keep the aspect ratio of the image
+        float scale = Math.min((float) size / width, (float) size / height);
+        int targetWidth = Math.max(1, Math.round(width * scale));
+        int targetHeight = Math.max(1, Math.round(height * scale));
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateSampleSize(width, height, targetWidth, targetHeight);
+        options.inMutable = true;
+
+        int sampledWidth = (width + options.inSampleSize - 1) / options.inSampleSize;
+        int sampledHeight = (height + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = getReusableBitmap(sampledWidth * sampledHeight * BYTES_PER_PIXEL);
+
+        Bitmap sampledBitmap;
+        try {
+            sampledBitmap = BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        } catch (IllegalArgumentException e) {
+            // The reusable bitmap was not suitable for this image, decode into a new one
+            options.inBitmap = null;
+            sampledBitmap = BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        }
+
+        if (null == sampledBitmap) {
+            if (null != options.inBitmap) {
+                addReusableBitmap(options.inBitmap);
+            }
+            return null;
+        }
+
+        if (sampledBitmap.getWidth() == targetWidth && sampledBitmap.getHeight() == targetHeight) {
+            // The sampled bitmap is handed out, so it must not be reused anymore
+            return sampledBitmap;
+        }
+
+        Bitmap bitmap = Bitmap.createScaledBitmap(sampledBitmap, targetWidth, targetHeight, true);
+        if (bitmap != sampledBitmap) {
+            addReusableBitmap(sampledBitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Calculates the biggest power of two sample size for which the decoded image is still
+     * at least as big as the target size.
+     */
+    private static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        while ((width / (sampleSize * 2)) >= targetWidth && (height / (sampleSize * 2)) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Removes the smallest pooled bitmap that can hold the given number of bytes from the pool.
+     *
+     * @return The bitmap or null if none is big enough.
+     */
+    private Bitmap getReusableBitmap(int byteCount) {
+        synchronized (mReusableBitmaps) {
+            Bitmap bestBitmap = null;
+            Iterator<Bitmap> iterator = mReusableBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.isRecycled()) {
+                    iterator.remove();
+                    continue;
+                }
+                if (bitmap.getAllocationByteCount() >= byteCount
+                        && (null == bestBitmap || bitmap.getAllocationByteCount() < bestBitmap.getAllocationByteCount())) {
+                    bestBitmap = bitmap;
+                }
+            }
+            if (null != bestBitmap) {
+                mReusableBitmaps.remove(bestBitmap);
+            }
+            return bestBitmap;
+        }
+    }
+
+    private void addReusableBitmap(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+
+        synchronized (mReusableBitmaps) {
+            if (mReusableBitmaps.size() >= MAX_REUSABLE_BITMAPS) {
+                // Keep the bigger bitmaps as they fit more images
+                Bitmap smallestBitmap = bitmap;
+                for (Bitmap reusableBitmap : mReusableBitmaps) {
+                    if (reusableBitmap.getAllocationByteCount() < smallestBitmap.getAllocationByteCount()) {
+                        smallestBitmap = reusableBitmap;
+                    }
+                }
+                if (smallestBitmap == bitmap) {
+                    return;
+                }
+                mReusableBitmaps.remove(smallestBitmap);
+            }
+            mReusableBitmaps.add(bitmap);
+        }
+    }
+}
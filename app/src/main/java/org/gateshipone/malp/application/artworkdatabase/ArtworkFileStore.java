@@ -0,0 +1,192 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.artworkdatabase;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+
+/**
+ * Stores the raw artwork images as files that are named after the SHA-1 hash of their content.
+ * The {@link ArtworkDatabaseManager} only keeps the hash of an image, so that the database stays
+ * small and identical images (e.g. the same cover for multiple albums) are only stored once.
+ */
+public class ArtworkFileStore {
+    private static final String TAG = ArtworkFileStore.class.getSimpleName();
+
+    /**
+     * Name of the directory inside the files directory for the images
+     */
+    private static final String DIRECTORY = "artwork";
+
+    /**
+     * Suffix for files that are not completely written yet
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+
+    public ArtworkFileStore(Context context) {
+        mDirectory = new File(context.getFilesDir(), DIRECTORY);
+    }
+
+    /**
+     * Saves the image to the store if it is not already present.
+     *
+     * @param image byte[] containing the raw image
+     * @return The content hash of the image or null if it could not be written.
+     */
+    public String store(byte[] image) {
+        String hash = createHash(image);
+        if (null == hash) {
+            return null;
+        }
+
+        File file = getFile(hash);
+        if (file.exists() && file.length() == image.length) {
+            return hash;
+        }
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(TAG, "Could not create artwork directory");
+            return null;
+        }
+
+        // Write to a temporary file first so that no partial images are visible under their hash
+        File tempFile = new File(mDirectory, hash + TEMP_SUFFIX + Thread.currentThread().getId());
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tempFile);
+            outputStream.write(image);
+            outputStream.close();
+            outputStream = null;
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return file.exists() ? hash : null;
+            }
+            return hash;
+        } catch (IOException e) {
+            e.printStackTrace();
+            tempFile.delete();
+            return null;
+        } finally {
+            if (null != outputStream) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the image with the given hash.
+     *
+     * @param hash Content hash of the image
+     * @return The byte[] containing the raw image or null if the file is missing.
+     */
+    public byte[] read(String hash) {
+        File file = getFile(hash);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            ByteArrayOutputStream imageData = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                imageData.write(buffer, 0, read);
+            }
+            return imageData.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (null != inputStream) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public File getFile(String hash) {
+        return new File(mDirectory, hash);
+    }
+
+    public void delete(String hash) {
+        getFile(hash).delete();
+    }
+
+    /**
+     * Deletes all files that are not part of the given set of hashes. This also removes leftover
+     * temporary files of interrupted writes.
+     *
+     * @param referencedHashes Hashes of all images that are still used by the database
+     */
+    public void removeUnreferenced(Set<String> referencedHashes) {
+        File[] files = mDirectory.listFiles();
+        if (null == files) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!referencedHashes.contains(file.getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates the hex encoded SHA-1 hash of the image data.
+     */
+    private static String createHash(byte[] image) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(image);
+            StringBuilder hexString = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hexString.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hexString.append(Character.forDigit(b & 0xF, 16));
+            }
+            return hexString.toString();
+        } catch (NoSuchAlgorithmException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumF
 import org.gateshipone.malp.application.artworkdatabase.network.responses.AlbumImageResponse;
 import org.gateshipone.malp.application.artworkdatabase.network.responses.ArtistFetchError;
 import org.gateshipone.malp.application.artworkdatabase.network.responses.ArtistImageResponse;
+import org.gateshipone.malp.mpdservice.ConnectionManager;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumList;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseArtistList;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
@@ -60,7 +61,10 @@ import org.json.JSONException;
 
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
     private static final String TAG = ArtworkManager.class.getSimpleName();
@@ -80,6 +84,16 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      */
     private ArtworkDatabaseManager mDBManager;
 
+    /**
+     * Cache for decoded images in front of the database
+     */
+    private final ArtworkCache mImageCache;
+
+    /**
+     * Decoder that downsamples the images to the requested size
+     */
+    private final ArtworkDecoder mImageDecoder = new ArtworkDecoder();
+
     /**
      * List of observers that needs updating if a new ArtistImage is downloaded.
      */
@@ -114,14 +128,33 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
     private final List<MPDArtist> mArtistList = new ArrayList<>();
 
     /**
-     * Current {@link MPDAlbum} handled by the bulk downloading
+     * Maximum number of albums and artists each that are fetched in parallel by the bulk downloading.
+     * The requests are limited per provider by the {@link MALPRequestQueue}.
+     */
+    private static final int BULK_PARALLEL_FETCHES = 4;
+
+    /**
+     * Maximum number of albums and artists each whose unsuccessful search is retried after a
+     * bulk download. The retries are fetched one after another.
      */
-    private MPDAlbum mCurrentBulkAlbum = null;
+    private static final int BULK_RETRY_LIMIT = 50;
 
     /**
-     * Current {@link MPDArtist} handled by the bulk downloading
+     * States of the retry of unsuccessful searches at the end of a bulk download.
      */
-    private MPDArtist mCurrentBulkArtist = null;
+    private static final int BULK_RETRY_NONE = 0;
+    private static final int BULK_RETRY_LOADING = 1;
+    private static final int BULK_RETRY_RUNNING = 2;
+
+    /**
+     * {@link MPDAlbum} objects currently handled by the bulk downloading
+     */
+    private final Set<MPDAlbum> mCurrentBulkAlbums = Collections.newSetFromMap(new IdentityHashMap<MPDAlbum, Boolean>());
+
+    /**
+     * {@link MPDArtist} objects currently handled by the bulk downloading
+     */
+    private final Set<MPDArtist> mCurrentBulkArtists = Collections.newSetFromMap(new IdentityHashMap<MPDArtist, Boolean>());
 
     /**
      * Callback for the bulkdownload observer (s. {@link BulkDownloadService})
@@ -153,6 +186,16 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      */
     private boolean mBulkLoadArtistsReady;
 
+    /**
+     * Set while a bulk loading is running. Guarded by mAlbumList.
+     */
+    private boolean mBulkLoadingActive;
+
+    /**
+     * State of the retry of unsuccessful searches. Guarded by mAlbumList.
+     */
+    private int mBulkRetryState;
+
 
     /*
      * Broadcast constants
@@ -175,6 +218,10 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
 
         mContext = context.getApplicationContext();
 
+        mImageCache = new ArtworkCache(mContext);
+        // Let the cache free memory if the system asks for it
+        mContext.registerComponentCallbacks(mImageCache);
+
         ConnectionStateReceiver receiver = new ConnectionStateReceiver();
         IntentFilter filter = new IntentFilter();
         filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
@@ -224,6 +271,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
 
         // Clear the old image
         mDBManager.removeAlbumImage(album);
+        mImageCache.clear(ArtworkCache.TYPE_ALBUM);
 
         // Reload the image from the internet
         fetchAlbumImage(album);
@@ -242,11 +290,35 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
 
         // Clear the old image
         mDBManager.removeArtistImage(artist);
+        mImageCache.clear(ArtworkCache.TYPE_ARTIST);
 
         // Reload the image from the internet
         fetchArtistImage(artist);
     }
 
+    /**
+     * Removes all album images from the database and the image cache.
+     */
+    public void clearAlbumImages() {
+        mDBManager.clearAlbumImages();
+        mImageCache.clear(ArtworkCache.TYPE_ALBUM);
+    }
+
+    /**
+     * Removes all artist images from the database and the image cache.
+     */
+    public void clearArtistImages() {
+        mDBManager.clearArtistImages();
+        mImageCache.clear(ArtworkCache.TYPE_ARTIST);
+    }
+
+    /**
+     * @return The cache for decoded images. Can be used to check the hit/miss counters.
+     */
+    public ArtworkCache getImageCache() {
+        return mImageCache;
+    }
+
     /**
      * Returns an artist image for the given artist.
      *
@@ -255,28 +327,58 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getArtistImage(final MPDArtist artist) throws ImageNotFoundException {
+        return getArtistImage(artist, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an artist image for the given artist.
+     *
+     * @param artist {@link MPDArtist} to get the image for-
+     * @param size   Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getArtistImage(final MPDArtist artist, int size) throws ImageNotFoundException {
         if (null == artist) {
             return null;
         }
 
-
-        byte[] image = null;
-
         /**
          * If no artist id is set for the album (possible with data set of Odyssey) check
          * the artist with name instead of id.
          */
+        String identity;
         if (artist.getMBIDCount() != 0) {
-            image = mDBManager.getArtistImage(artist);
+            StringBuilder mbids = new StringBuilder("mbid:");
+            for (int i = 0; i < artist.getMBIDCount(); i++) {
+                mbids.append(artist.getMBID(i));
+            }
+            identity = mbids.toString();
         } else if (!artist.getArtistName().isEmpty()) {
-            image = mDBManager.getArtistImage(artist.getArtistName());
+            identity = "name:" + artist.getArtistName();
+        } else {
+            return null;
+        }
+
+        // Check if the image was decoded before
+        Bitmap bitmap = mImageCache.get(ArtworkCache.TYPE_ARTIST, identity, size);
+        if (null != bitmap) {
+            return bitmap;
         }
 
+        byte[] image;
+        if (artist.getMBIDCount() != 0) {
+            image = mDBManager.getArtistImage(artist);
+        } else {
+            image = mDBManager.getArtistImage(artist.getArtistName());
+        }
 
         // Checks if the database has an image for the requested artist
         if (null != image) {
             // Create a bitmap from the data blob in the database
-            return BitmapFactory.decodeByteArray(image, 0, image.length);
+            bitmap = mImageDecoder.decode(image, size);
+            mImageCache.put(ArtworkCache.TYPE_ARTIST, identity, size, bitmap);
+            return bitmap;
         }
         return null;
     }
@@ -289,19 +391,38 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getAlbumImageFromMBID(final String mbid) throws ImageNotFoundException {
+        return getAlbumImageFromMBID(mbid, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an album image for the given album.
+     *
+     * @param mbid MusicBrainzID for the given album.
+     * @param size Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getAlbumImageFromMBID(final String mbid, int size) throws ImageNotFoundException {
         if (null == mbid) {
             return null;
         }
 
-        byte[] image;
+        String identity = "mbid:" + mbid;
+
+        // Check if the image was decoded before
+        Bitmap bitmap = mImageCache.get(ArtworkCache.TYPE_ALBUM, identity, size);
+        if (null != bitmap) {
+            return bitmap;
+        }
 
-        image = mDBManager.getAlbumImageFromMBID(mbid);
+        byte[] image = mDBManager.getAlbumImageFromMBID(mbid);
 
         // Checks if the database has an image for the requested album
         if (null != image) {
             // Create a bitmap from the data blob in the database
-            return BitmapFactory.decodeByteArray(image, 0, image.length);
-
+            bitmap = mImageDecoder.decode(image, size);
+            mImageCache.put(ArtworkCache.TYPE_ALBUM, identity, size, bitmap);
+            return bitmap;
         }
         return null;
     }
@@ -315,21 +436,39 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getAlbumImageFromAlbumNameArtistName(final String albumName, final String artistName) throws ImageNotFoundException {
+        return getAlbumImageFromAlbumNameArtistName(albumName, artistName, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an album image for the given album name and artist name.
+     *
+     * @param albumName  Name of the album to look for
+     * @param artistName Name of the albums artists
+     * @param size       Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getAlbumImageFromAlbumNameArtistName(final String albumName, final String artistName, int size) throws ImageNotFoundException {
         if (null == albumName || null == artistName) {
             return null;
         }
 
+        String identity = "name_artist:" + albumName + '\u0000' + artistName;
 
-        byte[] image;
-
+        // Check if the image was decoded before
+        Bitmap bitmap = mImageCache.get(ArtworkCache.TYPE_ALBUM, identity, size);
+        if (null != bitmap) {
+            return bitmap;
+        }
 
-        image = mDBManager.getAlbumImage(albumName, artistName);
+        byte[] image = mDBManager.getAlbumImage(albumName, artistName);
 
         // Checks if the database has an image for the requested album
         if (null != image) {
             // Create a bitmap from the data blob in the database
-            return BitmapFactory.decodeByteArray(image, 0, image.length);
-
+            bitmap = mImageDecoder.decode(image, size);
+            mImageCache.put(ArtworkCache.TYPE_ALBUM, identity, size, bitmap);
+            return bitmap;
         }
         return null;
     }
@@ -342,21 +481,38 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getAlbumImageFromName(final String albumName) throws ImageNotFoundException {
+        return getAlbumImageFromName(albumName, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an album image for the given album name.
+     *
+     * @param albumName Name of the album to look for
+     * @param size      Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getAlbumImageFromName(final String albumName, int size) throws ImageNotFoundException {
         if (null == albumName) {
             return null;
         }
 
+        String identity = "name:" + albumName;
 
-        byte[] image;
-
+        // Check if the image was decoded before
+        Bitmap bitmap = mImageCache.get(ArtworkCache.TYPE_ALBUM, identity, size);
+        if (null != bitmap) {
+            return bitmap;
+        }
 
-        image = mDBManager.getAlbumImage(albumName);
+        byte[] image = mDBManager.getAlbumImage(albumName);
 
         // Checks if the database has an image for the requested album
         if (null != image) {
             // Create a bitmap from the data blob in the database
-            return BitmapFactory.decodeByteArray(image, 0, image.length);
-
+            bitmap = mImageDecoder.decode(image, size);
+            mImageCache.put(ArtworkCache.TYPE_ALBUM, identity, size, bitmap);
+            return bitmap;
         }
         return null;
     }
@@ -369,47 +525,43 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getAlbumImageForTrack(final MPDTrack track) throws ImageNotFoundException {
+        return getAlbumImageForTrack(track, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an album image for the given track.
+     *
+     * @param track {@link MPDTrack} to get the album image for.
+     * @param size  Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getAlbumImageForTrack(final MPDTrack track, int size) throws ImageNotFoundException {
         if (null == track) {
             return null;
         }
-        Bitmap image = null;
-        if (!track.getTrackAlbumMBID().isEmpty()) {
-            try {
-                image = getAlbumImageFromMBID(track.getTrackAlbumMBID());
-            } catch (ImageNotFoundException e) {
-            }
-            if (null != image) {
-                return image;
-            }
-        }
 
-        // Try to get image from Albumname/Album artistname
-        try {
-            image = getAlbumImageFromAlbumNameArtistName(track.getTrackAlbum(), track.getTrackAlbumArtist());
-        } catch (ImageNotFoundException e) {
-        }
-        if (null != image) {
-            return image;
-        }
+        String identity = "track:" + track.getTrackAlbumMBID() + '\u0000' + track.getTrackAlbum() + '\u0000'
+                + track.getTrackAlbumArtist() + '\u0000' + track.getTrackArtist();
 
-        try {
-            image = getAlbumImageFromAlbumNameArtistName(track.getTrackAlbum(), track.getTrackArtist());
-        } catch (ImageNotFoundException e) {
-        }
-        if (null != image) {
-            return image;
+        // Check if the image was decoded before
+        Bitmap bitmap = mImageCache.get(ArtworkCache.TYPE_ALBUM, identity, size);
+        if (null != bitmap) {
+            return bitmap;
         }
 
-        // Last resort, try just the name
-
-        image = getAlbumImageFromName(track.getTrackAlbum());
+        // Resolves the MBID, album name + album artist, album name + artist and album name fallbacks at once
+        byte[] image = mDBManager.getAlbumImageForTrack(track.getTrackAlbumMBID(), track.getTrackAlbum(),
+                track.getTrackAlbumArtist(), track.getTrackArtist());
 
+        // Checks if the database has an image for the requested album
         if (null != image) {
-            return image;
-        } else {
-            return null;
+            // Create a bitmap from the data blob in the database
+            bitmap = mImageDecoder.decode(image, size);
+            mImageCache.put(ArtworkCache.TYPE_ALBUM, identity, size, bitmap);
+            return bitmap;
         }
-
+        return null;
     }
 
     /**
@@ -420,30 +572,31 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
      * @throws ImageNotFoundException If the image is not found and was not searched before.
      */
     public Bitmap getAlbumImage(final MPDAlbum album) throws ImageNotFoundException {
+        return getAlbumImage(album, ArtworkCache.ORIGINAL_SIZE);
+    }
+
+    /**
+     * Returns an album image for the given {@link MPDAlbum}
+     *
+     * @param album {@link MPDAlbum} to get the image for.
+     * @param size  Maximum width/height of the returned image or {@link ArtworkCache#ORIGINAL_SIZE}
+     * @return The image if found or null if it is not available and has been tried to download before.
+     * @throws ImageNotFoundException If the image is not found and was not searched before.
+     */
+    public Bitmap getAlbumImage(final MPDAlbum album, int size) throws ImageNotFoundException {
         if (null == album) {
             return null;
         }
 
-
-        byte[] image;
-
         if (album.getMBID().isEmpty()) {
             // Check if ID is available (should be the case). If not use the album name for
             // lookup.
             // FIXME use artistname also
-            image = mDBManager.getAlbumImage(album.getName());
+            return getAlbumImageFromName(album.getName(), size);
         } else {
             // If id is available use it.
-            image = mDBManager.getAlbumImage(album);
+            return getAlbumImageFromMBID(album.getMBID(), size);
         }
-
-        // Checks if the database has an image for the requested album
-        if (null != image) {
-            // Create a bitmap from the data blob in the database
-            return BitmapFactory.decodeByteArray(image, 0, image.length);
-
-        }
-        return null;
     }
 
     /**
@@ -597,6 +750,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         imageResponse.album = album;
         imageResponse.image = null;
         imageResponse.url = null;
+        imageResponse.notFoundReason = ArtworkDatabaseManager.NOT_FOUND_REASON_NO_IMAGE;
         new InsertAlbumImageTask().execute(imageResponse);
     }
 
@@ -633,6 +787,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         imageResponse.album = album;
         imageResponse.image = null;
         imageResponse.url = null;
+        imageResponse.notFoundReason = getNotFoundReason(error);
         new InsertAlbumImageTask().execute(imageResponse);
     }
 
@@ -647,6 +802,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         imageResponse.artist = artist;
         imageResponse.image = null;
         imageResponse.url = null;
+        imageResponse.notFoundReason = ArtworkDatabaseManager.NOT_FOUND_REASON_NO_IMAGE;
         new InsertArtistImageTask().execute(imageResponse);
     }
 
@@ -682,9 +838,29 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         imageResponse.artist = artist;
         imageResponse.image = null;
         imageResponse.url = null;
+        imageResponse.notFoundReason = getNotFoundReason(error);
         new InsertArtistImageTask().execute(imageResponse);
     }
 
+    /**
+     * Distinguishes a missing image from a failed download, so that failed downloads are
+     * retried earlier.
+     *
+     * @param error {@link VolleyError} that was emitted or null if the provider returned no image
+     * @return The reason to save in the database
+     */
+    private static int getNotFoundReason(VolleyError error) {
+        if (error == null) {
+            return ArtworkDatabaseManager.NOT_FOUND_REASON_NO_IMAGE;
+        }
+
+        NetworkResponse networkResponse = error.networkResponse;
+        if (networkResponse != null && networkResponse.statusCode == 404) {
+            return ArtworkDatabaseManager.NOT_FOUND_REASON_NO_IMAGE;
+        }
+        return ArtworkDatabaseManager.NOT_FOUND_REASON_ERROR;
+    }
+
     /**
      * AsyncTask to insert the images to the SQLdatabase. This is necessary as the Volley response
      * is handled in the UI thread.
@@ -700,13 +876,18 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         @Override
         protected MPDArtist doInBackground(ArtistImageResponse... params) {
             ArtistImageResponse response = params[0];
-            if (mCurrentBulkArtist == response.artist) {
+            boolean bulkArtist;
+            synchronized (mArtistList) {
+                bulkArtist = mCurrentBulkArtists.remove(response.artist);
+            }
+            if (bulkArtist) {
+                mDBManager.setBulkArtistDone(response.artist);
                 fetchNextBulkArtist();
             }
 
 
             if (response.image == null) {
-                mDBManager.insertArtistImage(response.artist, response.image);
+                mDBManager.insertArtistImageNotFound(response.artist, response.notFoundReason);
                 return response.artist;
             }
 
@@ -760,11 +941,16 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         @Override
         protected MPDAlbum doInBackground(AlbumImageResponse... params) {
             AlbumImageResponse response = params[0];
-            if (mCurrentBulkAlbum == response.album) {
+            boolean bulkAlbum;
+            synchronized (mAlbumList) {
+                bulkAlbum = mCurrentBulkAlbums.remove(response.album);
+            }
+            if (bulkAlbum) {
+                mDBManager.setBulkAlbumDone(response.album);
                 fetchNextBulkAlbum();
             }
             if (response.image == null) {
-                mDBManager.insertAlbumImage(response.album, response.image);
+                mDBManager.insertAlbumImageNotFound(response.album, response.notFoundReason);
                 return response.album;
             }
 
@@ -838,17 +1024,28 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
 
     /**
      * Asynchronous task that is called as a callback for the list of albums.
-     * Clears the old list and starts to download album images.
+     * Saves the albums without an image entry as the new bulk download queue and starts to
+     * download album images.
      */
     private class ParseMPDAlbumListTask extends AsyncTask<List<MPDAlbum>, Object, Object> {
 
         @Override
         protected Object doInBackground(List<MPDAlbum>... lists) {
-            List<MPDAlbum> albumList = lists[0];
+            List<MPDAlbum> albumList = new ArrayList<>();
+
+            // Skip albums that already have an image or were searched for before
+            for (MPDAlbum album : lists[0]) {
+                try {
+                    mDBManager.getAlbumImage(album);
+                } catch (ImageNotFoundException e) {
+                    albumList.add(album);
+                }
+            }
+            mDBManager.setBulkAlbums(albumList, ConnectionManager.getInstance().getServerAddress());
 
             mBulkProgressCallback.startAlbumLoading(albumList.size());
 
-            Log.v(TAG, "Received " + albumList.size() + " albums for bulk loading");
+            Log.v(TAG, "Received " + lists[0].size() + " albums for bulk loading, " + albumList.size() + " without image");
             synchronized (mAlbumList) {
                 mAlbumList.clear();
                 mAlbumList.addAll(albumList);
@@ -864,15 +1061,26 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
 
     /**
      * Asynchronous task that is called as a callback for the list of artists.
-     * Clears the old list and starts to download artist images.
+     * Saves the artists without an image entry as the new bulk download queue and starts to
+     * download artist images.
      */
     private class ParseMPDArtistListTask extends AsyncTask<List<MPDArtist>, Object, Object> {
 
         @Override
         protected Object doInBackground(List<MPDArtist>... lists) {
-            List<MPDArtist> artistList = lists[0];
+            List<MPDArtist> artistList = new ArrayList<>();
+
+            // Skip artists that already have an image or were searched for before
+            for (MPDArtist artist : lists[0]) {
+                try {
+                    mDBManager.getArtistImage(artist);
+                } catch (ImageNotFoundException e) {
+                    artistList.add(artist);
+                }
+            }
+            mDBManager.setBulkArtists(artistList, ConnectionManager.getInstance().getServerAddress());
 
-            Log.v(TAG, "Received " + artistList.size() + " artists for bulk loading");
+            Log.v(TAG, "Received " + lists[0].size() + " artists for bulk loading, " + artistList.size() + " without image");
             mBulkProgressCallback.startArtistLoading(artistList.size());
             synchronized (mArtistList) {
                 mArtistList.clear();
@@ -888,9 +1096,64 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
         }
     }
 
+    /**
+     * Asynchronous task that continues the bulk download from the queue in the database if a
+     * previous bulk download of the same server was stopped before it was finished. Otherwise a
+     * new bulk download is started for all albums and artists of the server.
+     */
+    private class ResumeBulkLoadingTask extends AsyncTask<Object, Object, Boolean> {
+
+        @Override
+        protected Boolean doInBackground(Object... params) {
+            // A queue of another server can not be resumed
+            String server = ConnectionManager.getInstance().getServerAddress();
+            String queueServer = mDBManager.getBulkQueueServer();
+            if (null != queueServer && !queueServer.equals(server)) {
+                Log.v(TAG, "Discard bulk loading queue of server: " + queueServer);
+                mDBManager.clearBulkQueue();
+            }
+
+            List<MPDAlbum> albumList = mDBManager.getPendingBulkAlbums();
+            List<MPDArtist> artistList = mDBManager.getPendingBulkArtists();
+
+            if (albumList.isEmpty() && artistList.isEmpty()) {
+                mDBManager.clearBulkQueue();
+                return false;
+            }
+
+            Log.v(TAG, "Resume bulk loading with " + albumList.size() + " albums and " + artistList.size() + " artists remaining");
+
+            // Report the progress of the whole job
+            mBulkProgressCallback.startAlbumLoading(mDBManager.getBulkItemCount(BulkQueueTable.ITEM_TYPE_ALBUM));
+            mBulkProgressCallback.albumsRemaining(albumList.size());
+            mBulkProgressCallback.startArtistLoading(mDBManager.getBulkItemCount(BulkQueueTable.ITEM_TYPE_ARTIST));
+            mBulkProgressCallback.artistsRemaining(artistList.size());
+
+            synchronized (mAlbumList) {
+                mAlbumList.addAll(albumList);
+            }
+            synchronized (mArtistList) {
+                mArtistList.addAll(artistList);
+            }
+
+            mBulkLoadAlbumsReady = true;
+            mBulkLoadArtistsReady = true;
+            fetchNextBulkAlbum();
+            fetchNextBulkArtist();
+            return true;
+        }
+
+        @Override
+        protected void onPostExecute(Boolean resumed) {
+            if (!resumed) {
+                startBulkLoading();
+            }
+        }
+    }
+
     /**
      * Entrance point to start downloading all images for the complete database of the current
-     * default MPD server.
+     * default MPD server. A bulk download that was stopped before is resumed.
      *
      * @param progressCallback Used callback interface to be notified about the download progress.
      */
@@ -899,12 +1162,38 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
             return;
         }
         mBulkProgressCallback = progressCallback;
-        mArtistList.clear();
-        mAlbumList.clear();
+        synchronized (mArtistList) {
+            mArtistList.clear();
+            mCurrentBulkArtists.clear();
+        }
+        synchronized (mAlbumList) {
+            mAlbumList.clear();
+            mCurrentBulkAlbums.clear();
+            mBulkLoadingActive = true;
+            mBulkRetryState = BULK_RETRY_NONE;
+        }
         mBulkLoadAlbumsReady = false;
         mBulkLoadArtistsReady = false;
+
+        new ResumeBulkLoadingTask().execute();
+    }
+
+    /**
+     * Requests the albums and artists of the server for a new bulk download.
+     */
+    private void startBulkLoading() {
         Log.v(TAG, "Start bulk loading");
-        if (!mAlbumProvider.equals(mContext.getString((R.string.pref_artwork_provider_none_key)))) {
+        String noProvider = mContext.getString(R.string.pref_artwork_provider_none_key);
+
+        // Nothing needs to be waited for if images of one type are not downloaded
+        mBulkLoadAlbumsReady = mAlbumProvider.equals(noProvider);
+        mBulkLoadArtistsReady = mArtistProvider.equals(noProvider);
+        if (mBulkLoadAlbumsReady && mBulkLoadArtistsReady) {
+            checkBulkLoadingFinished();
+            return;
+        }
+
+        if (!mBulkLoadAlbumsReady) {
             MPDQueryHandler.getAlbums(new MPDResponseAlbumList() {
                 @Override
                 public void handleAlbums(List<MPDAlbum> albumList) {
@@ -913,7 +1202,7 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
             });
         }
 
-        if (!mArtistProvider.equals(mContext.getString((R.string.pref_artwork_provider_none_key)))) {
+        if (!mBulkLoadArtistsReady) {
             MPDQueryHandler.getArtists(new MPDResponseArtistList() {
                 @Override
                 public void handleArtists(List<MPDArtist> artistList) {
@@ -924,78 +1213,172 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
     }
 
     /**
-     * Iterates over the list of albums and downloads images for them.
+     * Iterates over the list of albums and starts downloads for them until
+     * {@link #BULK_PARALLEL_FETCHES} albums are fetched at the same time.
      */
     private void fetchNextBulkAlbum() {
-        boolean isEmpty;
-        synchronized (mAlbumList) {
-            isEmpty = mAlbumList.isEmpty();
-        }
-
-        while (!isEmpty) {
+        while (true) {
             MPDAlbum album;
+            boolean retryPass;
             synchronized (mAlbumList) {
+                retryPass = mBulkRetryState == BULK_RETRY_RUNNING;
+                // Retries are fetched one after another to keep the load on the providers low
+                if (mAlbumList.isEmpty() || mCurrentBulkAlbums.size() >= (retryPass ? 1 : BULK_PARALLEL_FETCHES)) {
+                    break;
+                }
                 album = mAlbumList.remove(0);
                 Log.v(TAG, "Bulk load next album: " + album.getName() + ":" + album.getArtistName() + " remaining: " + mAlbumList.size());
                 mBulkProgressCallback.albumsRemaining(mAlbumList.size());
             }
-            mCurrentBulkAlbum = album;
+
+            // The retried albums are known to have no image, so they are always fetched again
+            if (retryPass) {
+                synchronized (mAlbumList) {
+                    mCurrentBulkAlbums.add(album);
+                }
+                fetchAlbumImage(album);
+                continue;
+            }
 
             // Check if image already there
             try {
                 mDBManager.getAlbumImage(album);
                 // If this does not throw the exception it already has an image.
+                mDBManager.setBulkAlbumDone(album);
             } catch (ImageNotFoundException e) {
+                synchronized (mAlbumList) {
+                    mCurrentBulkAlbums.add(album);
+                }
                 fetchAlbumImage(album);
-                return;
             }
-
-            synchronized (mAlbumList) {
-                isEmpty = mAlbumList.isEmpty();
-            }
-        }
-        if (mArtistList.isEmpty()) {
-            mBulkProgressCallback.finishedLoading();
         }
 
+        checkBulkLoadingFinished();
     }
 
     /**
-     * Iterates over the list of artists and downloads images for them.
+     * Iterates over the list of artists and starts downloads for them until
+     * {@link #BULK_PARALLEL_FETCHES} artists are fetched at the same time.
      */
     private void fetchNextBulkArtist() {
-        boolean isEmpty;
-        synchronized (mArtistList) {
-            isEmpty = mArtistList.isEmpty();
-        }
-
-        while (!isEmpty) {
+        while (true) {
             MPDArtist artist;
+            boolean retryPass;
+            synchronized (mAlbumList) {
+                retryPass = mBulkRetryState == BULK_RETRY_RUNNING;
+            }
             synchronized (mArtistList) {
+                // Retries are fetched one after another to keep the load on the providers low
+                if (mArtistList.isEmpty() || mCurrentBulkArtists.size() >= (retryPass ? 1 : BULK_PARALLEL_FETCHES)) {
+                    break;
+                }
                 artist = mArtistList.remove(0);
                 Log.v(TAG, "Bulk load next artist: " + artist.getArtistName() + " remaining: " + mArtistList.size());
                 mBulkProgressCallback.artistsRemaining(mArtistList.size());
             }
-            mCurrentBulkArtist = artist;
+
+            // The retried artists are known to have no image, so they are always fetched again
+            if (retryPass) {
+                synchronized (mArtistList) {
+                    mCurrentBulkArtists.add(artist);
+                }
+                fetchArtistImage(artist);
+                continue;
+            }
 
             // Check if image already there
             try {
                 mDBManager.getArtistImage(artist);
                 // If this does not throw the exception it already has an image.
+                mDBManager.setBulkArtistDone(artist);
             } catch (ImageNotFoundException e) {
+                synchronized (mArtistList) {
+                    mCurrentBulkArtists.add(artist);
+                }
                 fetchArtistImage(artist);
-                return;
             }
+        }
 
-            synchronized (mArtistList) {
-                isEmpty = mArtistList.isEmpty();
+        checkBulkLoadingFinished();
+    }
+
+    /**
+     * Notifies the bulk loading callback if no album or artist is left to fetch.
+     */
+    private void checkBulkLoadingFinished() {
+        boolean finished;
+        synchronized (mAlbumList) {
+            finished = mAlbumList.isEmpty() && mCurrentBulkAlbums.isEmpty();
+        }
+        synchronized (mArtistList) {
+            finished &= mArtistList.isEmpty() && mCurrentBulkArtists.isEmpty();
+        }
+
+        if (!finished) {
+            return;
+        }
+
+        boolean startRetry = false;
+        synchronized (mAlbumList) {
+            // Only finish once, also if both lists are finished at the same time
+            if (!mBulkLoadingActive || mBulkRetryState == BULK_RETRY_LOADING) {
+                return;
             }
+            if (mBulkRetryState == BULK_RETRY_NONE) {
+                mBulkRetryState = BULK_RETRY_LOADING;
+                startRetry = true;
+            } else {
+                mBulkLoadingActive = false;
+            }
+        }
+
+        if (startRetry) {
+            // The job is complete, the next bulk download starts with a new queue
+            mDBManager.clearBulkQueue();
+
+            retryBulkMisses();
+            return;
         }
 
-        if (mAlbumList.isEmpty()) {
+        if (null != mBulkProgressCallback) {
             mBulkProgressCallback.finishedLoading();
         }
+    }
+
+    /**
+     * Fetches the albums and artists again whose unsuccessful search is old enough to be retried
+     * (s. {@link ArtworkDatabaseManager#getRetryableAlbums(int)}). The bulk loading is finished
+     * afterwards.
+     */
+    private void retryBulkMisses() {
+        String noProvider = mContext.getString(R.string.pref_artwork_provider_none_key);
+
+        List<MPDAlbum> albumList = mAlbumProvider.equals(noProvider) ? new ArrayList<MPDAlbum>() : mDBManager.getRetryableAlbums(BULK_RETRY_LIMIT);
+        List<MPDArtist> artistList = mArtistProvider.equals(noProvider) ? new ArrayList<MPDArtist>() : mDBManager.getRetryableArtists(BULK_RETRY_LIMIT);
+
+        Log.v(TAG, "Retry " + albumList.size() + " albums and " + artistList.size() + " artists without image");
+
+        if (!albumList.isEmpty()) {
+            mBulkProgressCallback.startAlbumLoading(albumList.size());
+        }
+        if (!artistList.isEmpty()) {
+            mBulkProgressCallback.startArtistLoading(artistList.size());
+        }
+
+        synchronized (mAlbumList) {
+            if (mBulkRetryState != BULK_RETRY_LOADING) {
+                // Cancelled in the meantime
+                return;
+            }
+            mAlbumList.addAll(albumList);
+            mBulkRetryState = BULK_RETRY_RUNNING;
+        }
+        synchronized (mArtistList) {
+            mArtistList.addAll(artistList);
+        }
 
+        fetchNextBulkAlbum();
+        fetchNextBulkArtist();
     }
 
     /**
@@ -1052,12 +1435,16 @@ public class ArtworkManager implements ArtistFetchError, AlbumFetchError {
             }
         });
 
-        // Stop bulk loading as well
+        // Stop bulk loading as well. The queue in the database is kept so the bulk loading can be resumed.
         synchronized (mAlbumList) {
             mAlbumList.clear();
+            mCurrentBulkAlbums.clear();
+            mBulkLoadingActive = false;
+            mBulkRetryState = BULK_RETRY_NONE;
         }
         synchronized (mArtistList) {
             mArtistList.clear();
+            mCurrentBulkArtists.clear();
         }
 
         if (null != mBulkProgressCallback) {
@@ -169,6 +169,9 @@ public class BulkDownloadService extends Service implements ArtworkManager.BulkL
             // FIXME do some timeout checking. e.g. 5 minutes no new image then cancel the process
             mWakelock.acquire();
             ConnectionManager.getInstance().reconnectLastServer(this);
+
+            // Restart the service if it is killed, the bulk download resumes from its saved queue
+            return START_REDELIVER_INTENT;
         }
         return START_NOT_STICKY;
 
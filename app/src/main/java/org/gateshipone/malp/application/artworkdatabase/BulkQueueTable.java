@@ -0,0 +1,91 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.artworkdatabase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Work queue of the bulk download. Every album/artist of the job has a row that is marked as done
+ * when it was handled, so that the job can be resumed after the service was stopped.
+ */
+public class BulkQueueTable {
+    public static final String TABLE_NAME = "malp_bulk_download_queue";
+
+    /**
+     * Type of the item, {@link #ITEM_TYPE_ALBUM} or {@link #ITEM_TYPE_ARTIST}
+     */
+    public static final String COLUMN_ITEM_TYPE = "item_type";
+
+    public static final String COLUMN_ALBUM_NAME = "album_name";
+    public static final String COLUMN_ARTIST_NAME = "artist_name";
+
+    /**
+     * MBID of the album or all MBIDs of the artist separated by {@link #MBID_SEPARATOR}
+     */
+    public static final String COLUMN_MBID = "mbid";
+
+    public static final String COLUMN_DONE = "done";
+
+    /**
+     * Address of the server (hostname:port) that the items were requested from
+     */
+    public static final String COLUMN_SERVER = "server";
+
+    public static final int ITEM_TYPE_ALBUM = 0;
+    public static final int ITEM_TYPE_ARTIST = 1;
+
+    public static final String MBID_SEPARATOR = ",";
+
+    private static final String DATABASE_CREATE = "CREATE TABLE if not exists " + TABLE_NAME + " (" +
+            COLUMN_ITEM_TYPE + " integer," +
+            COLUMN_ALBUM_NAME + " text," + COLUMN_ARTIST_NAME + " text," +
+            COLUMN_MBID + " text," +
+            COLUMN_DONE + " integer," +
+            COLUMN_SERVER + " text" + ");";
+
+    public static void createTable(SQLiteDatabase database) {
+        // Create table if not already existing
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    /**
+     * Queues of older versions can not be assigned to a server. They are dropped and the
+     * table is created again.
+     */
+    public static void upgradeTable(SQLiteDatabase database) {
+        Cursor columns = database.rawQuery("PRAGMA table_info(" + TABLE_NAME + ")", null);
+        boolean hasServerColumn = false;
+        while (columns.moveToNext()) {
+            if (COLUMN_SERVER.equals(columns.getString(columns.getColumnIndex("name")))) {
+                hasServerColumn = true;
+            }
+        }
+        columns.close();
+
+        if (!hasServerColumn) {
+            database.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+            createTable(database);
+        }
+    }
+}
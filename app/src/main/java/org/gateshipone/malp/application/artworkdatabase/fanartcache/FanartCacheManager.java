@@ -24,23 +24,49 @@ package org.gateshipone.malp.application.artworkdatabase.fanartcache;
 
 
 import android.content.Context;
-import android.os.Environment;
 import android.util.Log;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Cache for the fanart images of artists. The cached files are kept in an in-memory index
+ * (files per MBID, sizes and LRU order) so that accesses do not need to list directories.
+ * Changes of the index are appended to a journal file from which the index is restored.
+ */
 public class FanartCacheManager {
     private static final String TAG = FanartCacheManager.class.getSimpleName();
     private static final String FANART_CACHE_SUFFIX = "/fanart";
 
-    private static final int SESSION_LRU_MAX = 10;
+    /**
+     * Name of the journal file inside the cache directory. MBIDs are directories, so it can
+     * not collide with an artist entry.
+     */
+    private static final String JOURNAL_FILE_NAME = "journal";
+    private static final String JOURNAL_TMP_FILE_NAME = "journal.tmp";
+
+    /**
+     * Journal entries. ADD: mbid name size, READ: mbid, REMOVE: mbid
+     */
+    private static final String JOURNAL_ADD = "ADD";
+    private static final String JOURNAL_READ = "READ";
+    private static final String JOURNAL_REMOVE = "REMOVE";
+
+    /**
+     * The journal is rewritten if it contains more than this number of redundant lines.
+     */
+    private static final int JOURNAL_MAX_REDUNDANT_LINES = 500;
 
     /**
      * The maximum size of the applications cache. If it gets too big it will be trimmed.
@@ -48,15 +74,59 @@ public class FanartCacheManager {
     // FIXME Replace with Android O Cache Quota when released
     private static final long MAX_CACHE_SIZE = 100 * 1024 * 1024;
 
+    /**
+     * Size the cache is trimmed to, so that not every following write trims it again.
+     */
+    private static final long TRIMMED_CACHE_SIZE = 80 * 1024 * 1024;
+
+    private static FanartCacheManager mInstance;
+
     private final String mCacheBasePath;
 
-    private List<String> mLastAccessedMBIDs;
+    /**
+     * Cached artists in LRU order, the least recently used artist first. An access moves the
+     * artist to the end by removing and adding it again.
+     */
+    private final LinkedHashMap<String, FanartEntry> mEntries;
+
+    /**
+     * MBID of the last entry of {@link #mEntries}
+     */
+    private String mMostRecentMBID;
+
+    /**
+     * Sum of the sizes of all cached files.
+     */
+    private long mCacheSize;
+
+    /**
+     * Number of journal lines that are not needed to restore the current index.
+     */
+    private int mRedundantJournalLines;
+
+    /**
+     * Cached files of one artist.
+     */
+    private static class FanartEntry {
+        final List<String> mFileNames = new ArrayList<>();
+        final List<Long> mFileSizes = new ArrayList<>();
+        long mSize;
+    }
 
-    public FanartCacheManager(Context context) {
+    private FanartCacheManager(Context context) {
         String cachePath = context.getCacheDir().getPath();
         mCacheBasePath = cachePath + FANART_CACHE_SUFFIX;
 
-        mLastAccessedMBIDs = new LinkedList<>();
+        mEntries = new LinkedHashMap<>();
+
+        readJournal();
+    }
+
+    public static synchronized FanartCacheManager getInstance(Context context) {
+        if (null == mInstance) {
+            mInstance = new FanartCacheManager(context.getApplicationContext());
+        }
+        return mInstance;
     }
 
     /**
@@ -66,13 +136,8 @@ public class FanartCacheManager {
      * @return number of cached entries for mbid
      */
     public synchronized int getFanartCount(String mbid) {
-        File artistDir = new File(mCacheBasePath + "/" + mbid);
-        if (!artistDir.exists()) {
-            return 0;
-        }
-
-
-        return artistDir.list().length;
+        FanartEntry entry = mEntries.get(mbid);
+        return null == entry ? 0 : entry.mFileNames.size();
     }
 
     /**
@@ -80,36 +145,64 @@ public class FanartCacheManager {
      *
      * @param mbid  MBID to get the cached fanart for
      * @param index Index of the fanart that is requested
-     * @return File object that contains the image
+     * @return File object that contains the image or null if it is not cached (anymore)
      */
     public synchronized File getFanart(String mbid, int index) {
-        if (index >= getFanartCount(mbid)) {
+        FanartEntry entry = mEntries.get(mbid);
+        if (null == entry || index >= entry.mFileNames.size()) {
             return null;
         }
 
-        // Remove from LRU list if it was in there
-        mLastAccessedMBIDs.remove(mbid);
-        mLastAccessedMBIDs.add(0, mbid);
-        File artistDir = new File(mCacheBasePath + "/" + mbid);
-        File[] subFiles = artistDir.listFiles(new FileFilter() {
-            @Override
-            public boolean accept(File file) {
-                return file.isFile();
-            }
-        });
-        return subFiles[index];
+        File fanartFile = new File(mCacheBasePath + "/" + mbid + "/" + entry.mFileNames.get(index));
+        if (!fanartFile.exists()) {
+            // The system deleted the cache directory
+            removeFanart(mbid);
+            return null;
+        }
+
+        // Only a change of the artist needs to be journaled, not every image of the slideshow
+        if (!mbid.equals(mMostRecentMBID)) {
+            touchIndexEntry(mbid);
+            appendJournal(JOURNAL_READ + ' ' + mbid);
+        }
+
+        return fanartFile;
     }
 
     /**
-     * Adds a new fanart. This should check if old entries can be removed.
-     * After the count reaches MAX_ARTISTS_CACHED it should remove the LRU entries
+     * Removes all fanart images of the artist, e.g. if an image file was deleted or can not be decoded.
+     * The images are downloaded again on the next sync.
      *
-     * @param mbid
-     * @param image
+     * @param mbid MBID of the artist
+     */
+    public synchronized void removeFanart(String mbid) {
+        FanartEntry entry = mEntries.get(mbid);
+        if (null == entry) {
+            return;
+        }
+
+        Log.v(TAG, "Removing cache entry for: " + mbid);
+        deleteDirectory(new File(mCacheBasePath + "/" + mbid));
+        removeIndexEntry(mbid);
+
+        mRedundantJournalLines += entry.mFileNames.size();
+        appendJournal(JOURNAL_REMOVE + ' ' + mbid);
+    }
+
+    /**
+     * Adds a new fanart. If the cache gets too big the least recently used artists are removed.
+     *
+     * @param mbid  MBID of the artist
+     * @param name  Name of the image file
+     * @param image Image data to save
      */
     public synchronized void addFanart(String mbid, String name, byte[] image) {
-        int newIndex = getFanartCount(mbid);
-        Log.v(TAG, "Add fanart: " + newIndex + "for mbid: " + mbid);
+        FanartEntry entry = mEntries.get(mbid);
+        if (null != entry && entry.mFileNames.contains(name)) {
+            return;
+        }
+
+        Log.v(TAG, "Add fanart: " + (null == entry ? 0 : entry.mFileNames.size()) + "for mbid: " + mbid);
 
         File outputDir = new File(mCacheBasePath + "/" + mbid);
         if (!outputDir.exists()) {
@@ -120,85 +213,255 @@ public class FanartCacheManager {
         }
 
         File outputFile = new File(mCacheBasePath + "/" + mbid + "/" + name);
-        if (!outputFile.exists()) {
-            FileOutputStream outputStream = null;
-            try {
-                outputStream = new FileOutputStream(outputFile);
-            } catch (FileNotFoundException e) {
-                Log.e(TAG, "Output file could not be created: " + mbid + ":" + name);
-                return;
-            }
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(outputFile);
+        } catch (FileNotFoundException e) {
+            Log.e(TAG, "Output file could not be created: " + mbid + ":" + name);
+            return;
+        }
 
-            try {
-                outputStream.write(image);
-                outputStream.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error during write of fanart image to cache: " + mbid + ":" + name);
-            }
+        try {
+            outputStream.write(image);
+            outputStream.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error during write of fanart image to cache: " + mbid + ":" + name);
+            outputFile.delete();
+            return;
         }
 
-        mLastAccessedMBIDs.add(mbid);
-        long cacheSize = getCacheSize();
-        Log.v(TAG, "Cache is now " + cacheSize / (1024 * 1024) + "MB in size");
-        if (cacheSize > MAX_CACHE_SIZE) {
+        addIndexEntry(mbid, name, image.length);
+        appendJournal(JOURNAL_ADD + ' ' + mbid + ' ' + name + ' ' + image.length);
+
+        Log.v(TAG, "Cache is now " + mCacheSize / (1024 * 1024) + "MB in size");
+        if (mCacheSize > MAX_CACHE_SIZE) {
             trimCache();
         }
     }
 
     public synchronized boolean inCache(String mbid, String name) {
-        Log.v(TAG, "Check if exists: " + mCacheBasePath + "/" + mbid + "/" + name);
-        File checkFile = new File(mCacheBasePath + "/" + mbid + "/" + name);
-        return checkFile.exists();
+        FanartEntry entry = mEntries.get(mbid);
+        if (null == entry || !entry.mFileNames.contains(name)) {
+            return false;
+        }
+
+        if (!new File(mCacheBasePath + "/" + mbid + "/" + name).exists()) {
+            // The system deleted the cache directory
+            removeFanart(mbid);
+            return false;
+        }
+        return true;
     }
 
+    /**
+     * Removes the least recently used artists until the cache is smaller than
+     * {@link #TRIMMED_CACHE_SIZE}. The most recently used artist is kept.
+     */
     private void trimCache() {
         Log.v(TAG, "Trim of cache started");
 
-        // Get a list of remaining MBIDs
-        List<String> lruEntries = new ArrayList<>();
-        for (int i = 0; i < SESSION_LRU_MAX && i < mLastAccessedMBIDs.size(); i++) {
-            lruEntries.add(mLastAccessedMBIDs.get(i));
-            Log.v(TAG, "Entry : " + mLastAccessedMBIDs.get(i) + "Should not be removed");
+        Iterator<Map.Entry<String, FanartEntry>> iterator = mEntries.entrySet().iterator();
+        while (mCacheSize > TRIMMED_CACHE_SIZE && mEntries.size() > 1) {
+            Map.Entry<String, FanartEntry> entry = iterator.next();
+
+            Log.v(TAG, "Removing cache entry for: " + entry.getKey());
+            deleteDirectory(new File(mCacheBasePath + "/" + entry.getKey()));
+            mCacheSize -= entry.getValue().mSize;
+            iterator.remove();
+
+            // The lines that added the files are not needed anymore as well
+            mRedundantJournalLines += entry.getValue().mFileNames.size();
+            appendJournal(JOURNAL_REMOVE + ' ' + entry.getKey());
         }
 
-        mLastAccessedMBIDs.clear();
-        mLastAccessedMBIDs.addAll(lruEntries);
+        if (mRedundantJournalLines > JOURNAL_MAX_REDUNDANT_LINES) {
+            rewriteJournal();
+        }
+    }
 
+    /**
+     * Moves the entry to the end of the LRU order.
+     */
+    private void touchIndexEntry(String mbid) {
+        FanartEntry entry = mEntries.remove(mbid);
+        if (null != entry) {
+            mEntries.put(mbid, entry);
+            mMostRecentMBID = mbid;
+        }
+    }
+
+    private void addIndexEntry(String mbid, String name, long size) {
+        FanartEntry entry = mEntries.remove(mbid);
+        if (null == entry) {
+            entry = new FanartEntry();
+        }
+        mEntries.put(mbid, entry);
+        mMostRecentMBID = mbid;
+
+        entry.mFileNames.add(name);
+        entry.mFileSizes.add(size);
+        entry.mSize += size;
+        mCacheSize += size;
+    }
+
+    private void removeIndexEntry(String mbid) {
+        FanartEntry entry = mEntries.remove(mbid);
+        if (null != entry) {
+            mCacheSize -= entry.mSize;
+        }
+        if (mbid.equals(mMostRecentMBID)) {
+            mMostRecentMBID = null;
+        }
+    }
+
+    /**
+     * Restores the index from the journal. If no journal exists yet the cache directory
+     * is scanned once.
+     */
+    private void readJournal() {
+        File journal = new File(mCacheBasePath + "/" + JOURNAL_FILE_NAME);
+        if (!journal.exists()) {
+            rebuildIndex();
+            return;
+        }
+
+        int lineCount = 0;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(journal));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                String[] parts = line.split(" ");
+                if (parts.length == 4 && parts[0].equals(JOURNAL_ADD)) {
+                    addIndexEntry(parts[1], parts[2], Long.parseLong(parts[3]));
+                } else if (parts.length == 2 && parts[0].equals(JOURNAL_READ)) {
+                    touchIndexEntry(parts[1]);
+                } else if (parts.length == 2 && parts[0].equals(JOURNAL_REMOVE)) {
+                    removeIndexEntry(parts[1]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Error reading the fanart journal, rebuilding the index");
+            mEntries.clear();
+            mMostRecentMBID = null;
+            mCacheSize = 0;
+            rebuildIndex();
+            return;
+        } finally {
+            if (null != reader) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        int fileCount = 0;
+        for (FanartEntry entry : mEntries.values()) {
+            fileCount += entry.mFileNames.size();
+        }
+        mRedundantJournalLines = lineCount - fileCount;
+    }
+
+    /**
+     * Creates the index from the files in the cache directory and writes a new journal.
+     */
+    private void rebuildIndex() {
         File cacheDir = new File(mCacheBasePath);
-        for (File subFile : cacheDir.listFiles()) {
-            Log.v(TAG, "Check entry: " + subFile.getName());
-            if (!lruEntries.contains(subFile.getName())) {
-                Log.v(TAG, "Removing cache entry for: " + subFile.getName());
-                deleteDirectory(subFile);
+        File[] artistDirs = cacheDir.listFiles();
+        if (null != artistDirs) {
+            for (File artistDir : artistDirs) {
+                File[] files = artistDir.listFiles();
+                if (null == files) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.isFile()) {
+                        addIndexEntry(artistDir.getName(), file.getName(), file.length());
+                    }
+                }
             }
         }
+        rewriteJournal();
     }
 
-    private void deleteDirectory(File url) {
-        for (File subFile : url.listFiles()) {
-            if (subFile.isFile()) {
-                Log.v(TAG, "Removing file: " + subFile.getPath());
-                subFile.delete();
-            } else {
-                deleteDirectory(subFile);
+    /**
+     * Writes a journal that only contains the current index, in LRU order.
+     */
+    private void rewriteJournal() {
+        File cacheDir = new File(mCacheBasePath);
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            Log.e(TAG, "Fanart cache directory could be created: " + cacheDir.getAbsolutePath());
+            return;
+        }
+
+        File tmpJournal = new File(cacheDir, JOURNAL_TMP_FILE_NAME);
+        BufferedWriter writer = null;
+        try {
+            writer = new BufferedWriter(new FileWriter(tmpJournal));
+            for (Map.Entry<String, FanartEntry> entry : mEntries.entrySet()) {
+                FanartEntry fanartEntry = entry.getValue();
+                for (int i = 0; i < fanartEntry.mFileNames.size(); i++) {
+                    writer.write(JOURNAL_ADD + ' ' + entry.getKey() + ' ' + fanartEntry.mFileNames.get(i) + ' ' + fanartEntry.mFileSizes.get(i));
+                    writer.newLine();
+                }
+            }
+            writer.close();
+            writer = null;
+
+            if (tmpJournal.renameTo(new File(cacheDir, JOURNAL_FILE_NAME))) {
+                mRedundantJournalLines = 0;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing the fanart journal");
+        } finally {
+            if (null != writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
         }
-        url.delete();
     }
 
-    private long getDirectorySize(File dir) {
-        long retSize = 0;
-        for (File subFile : dir.listFiles()) {
-            if (subFile.isFile()) {
-                retSize += subFile.length();
-            } else {
-                retSize += getDirectorySize(subFile);
+    private void appendJournal(String line) {
+        BufferedWriter writer = null;
+        try {
+            writer = new BufferedWriter(new FileWriter(mCacheBasePath + "/" + JOURNAL_FILE_NAME, true));
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing the fanart journal");
+        } finally {
+            if (null != writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
             }
         }
-        return retSize;
+
+        if (!line.startsWith(JOURNAL_ADD)) {
+            mRedundantJournalLines++;
+        }
     }
 
-    private long getCacheSize() {
-        return getDirectorySize(new File(mCacheBasePath));
+    private void deleteDirectory(File url) {
+        File[] subFiles = url.listFiles();
+        if (null != subFiles) {
+            for (File subFile : subFiles) {
+                if (subFile.isFile()) {
+                    Log.v(TAG, "Removing file: " + subFile.getPath());
+                    subFile.delete();
+                } else {
+                    deleteDirectory(subFile);
+                }
+            }
+        }
+        url.delete();
     }
 }
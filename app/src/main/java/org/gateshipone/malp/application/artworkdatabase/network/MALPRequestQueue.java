@@ -24,6 +24,7 @@ package org.gateshipone.malp.application.artworkdatabase.network;
 
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.volley.Cache;
@@ -34,34 +35,65 @@ import com.android.volley.toolbox.BasicNetwork;
 import com.android.volley.toolbox.DiskBasedCache;
 import com.android.volley.toolbox.HurlStack;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.LinkedBlockingQueue;
-
 
+/**
+ * Request queue for all artwork requests that limits the requests for each host separately.
+ * <p/>
+ * Every host has a token bucket that is refilled with the rate the provider allows and a maximum
+ * number of concurrent requests. Requests wait in a queue per host until both allow them to be
+ * passed to the volley dispatchers, so that a slow provider (e.g. MusicBrainz) does not slow down
+ * requests to the other providers.
+ */
 public class MALPRequestQueue extends RequestQueue implements RequestQueue.RequestFinishedListener {
     private static final String TAG = MALPRequestQueue.class.getSimpleName();
     private Cache mCache;
     private Network mNetwork;
 
-    private Timer mLimiterTimer;
-
     private static MALPRequestQueue mInstance;
 
-    private final Queue<Request<?>> mLimitingRequestQueue;
+    /**
+     * Number of volley network dispatcher threads. This is the upper bound for all concurrent requests.
+     */
+    private static final int NETWORK_THREAD_COUNT = 4;
+
+    /**
+     * Limits for hosts that are not listed in {@link #createHostLimiter(String)}: 4 requests per
+     * second and 2 concurrent requests.
+     */
+    private static final long DEFAULT_REQUEST_INTERVAL = 250;
+    private static final int DEFAULT_BURST_SIZE = 4;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 2;
+
+    /**
+     * Limiters of all hosts that requests were added for. Also used as lock for all limiters.
+     */
+    private final HashMap<String, HostLimiter> mHostLimiters;
+
+    /**
+     * Limiters of the requests that are passed to volley but not finished yet.
+     */
+    private final HashMap<Request<?>, HostLimiter> mActiveRequests;
+
+    private final Timer mLimiterTimer;
 
     /**
-     * Wait 1000ms between every request
+     * Pending task to dispatch requests once the next token is available. null if none is scheduled.
      */
-    private static final int REQUEST_RATE = 1000;
+    private TimerTask mDispatchTask;
 
     private MALPRequestQueue(Cache cache, Network network) {
-        super(cache, network, 1);
+        super(cache, network, NETWORK_THREAD_COUNT);
         mCache = cache;
         mNetwork = network;
-        mLimitingRequestQueue = new LinkedBlockingQueue<>();
-        mLimiterTimer = null;
+        mHostLimiters = new HashMap<>();
+        mActiveRequests = new HashMap<>();
+        mLimiterTimer = new Timer(TAG, true);
         super.addRequestFinishedListener(this);
     }
 
@@ -83,14 +115,16 @@ public class MALPRequestQueue extends RequestQueue implements RequestQueue.Reque
         if ( null == request ) {
             return null;
         }
-        // Add a request to the internal queue
-        synchronized (mLimitingRequestQueue ) {
-            mLimitingRequestQueue.add(request);
-            if (null == mLimiterTimer) {
-                // Timer currently not running
-                mLimiterTimer = new Timer();
-                mLimiterTimer.schedule(new LimiterTask(), 0, REQUEST_RATE);
+        // Add a request to the internal queue of its host
+        synchronized (mHostLimiters) {
+            String host = getHost(request.getUrl());
+            HostLimiter limiter = mHostLimiters.get(host);
+            if (null == limiter) {
+                limiter = createHostLimiter(host);
+                mHostLimiters.put(host, limiter);
             }
+            limiter.mRequests.add(request);
+            dispatchRequests();
         }
         return request;
     }
@@ -102,25 +136,60 @@ public class MALPRequestQueue extends RequestQueue implements RequestQueue.Reque
 
     @Override
     public void onRequestFinished(Request request) {
-        // Nothing done here
+        synchronized (mHostLimiters) {
+            HostLimiter limiter = mActiveRequests.remove(request);
+            if (null != limiter) {
+                limiter.mActiveRequests--;
+                dispatchRequests();
+            }
+        }
+    }
+
+    /**
+     * Passes all requests to volley that are allowed by the limiters of their hosts and schedules
+     * the next dispatch for the time the next token gets available.
+     * Must be called with the lock of mHostLimiters.
+     */
+    private void dispatchRequests() {
+        long now = SystemClock.elapsedRealtime();
+        long nextDelay = Long.MAX_VALUE;
+
+        for (HostLimiter limiter : mHostLimiters.values()) {
+            limiter.refill(now);
+            while (!limiter.mRequests.isEmpty() && limiter.mActiveRequests < limiter.mMaxConcurrentRequests && limiter.mTokens >= 1) {
+                Request<?> request = limiter.mRequests.poll();
+                limiter.mTokens--;
+                limiter.mActiveRequests++;
+                mActiveRequests.put(request, limiter);
+                // Forward the request to the volley request queue
+                realAddRequest(request);
+            }
+
+            // Requests that wait for a finished request are dispatched by onRequestFinished
+            if (!limiter.mRequests.isEmpty() && limiter.mActiveRequests < limiter.mMaxConcurrentRequests) {
+                nextDelay = Math.min(nextDelay, limiter.getTokenDelay());
+            }
+        }
+
+        if (null != mDispatchTask) {
+            mDispatchTask.cancel();
+            mDispatchTask = null;
+        }
+        if (nextDelay != Long.MAX_VALUE) {
+            mDispatchTask = new LimiterTask();
+            mLimiterTimer.schedule(mDispatchTask, Math.max(1, nextDelay));
+        }
     }
 
     private class LimiterTask extends TimerTask {
         @Override
         public void run() {
-            synchronized (mLimitingRequestQueue ) {
-                Request request = mLimitingRequestQueue.poll();
-                if (null != request) {
-                    // Forward the request to the volley request queue
-                    realAddRequest(request);
-                } else {
-                    // Stop the timer, no requests left
-                    mLimiterTimer.cancel();
-                    mLimiterTimer.purge();
-                    mLimiterTimer = null;
+            synchronized (mHostLimiters) {
+                if (mDispatchTask == this) {
+                    mDispatchTask = null;
+                    dispatchRequests();
                 }
             }
-
         }
     }
 
@@ -130,14 +199,100 @@ public class MALPRequestQueue extends RequestQueue implements RequestQueue.Reque
      */
     public void cancelAll(RequestFilter filter) {
         super.cancelAll(filter);
-        synchronized (mLimitingRequestQueue) {
-            for (Request<?> request : mLimitingRequestQueue) {
-                if (filter.apply(request)) {
-                    request.cancel();
-                    mLimitingRequestQueue.remove(request);
+        synchronized (mHostLimiters) {
+            for (HostLimiter limiter : mHostLimiters.values()) {
+                Iterator<Request<?>> iterator = limiter.mRequests.iterator();
+                while (iterator.hasNext()) {
+                    Request<?> request = iterator.next();
+                    if (filter.apply(request)) {
+                        request.cancel();
+                        iterator.remove();
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Creates the limiter with the published limits of the artwork providers.
+     *
+     * @param host Host name of the requests
+     */
+    private static HostLimiter createHostLimiter(String host) {
+        Log.v(TAG, "Create request limiter for: " + host);
+        if (host.endsWith("musicbrainz.org")) {
+            // MusicBrainz allows one request per second
+            return new HostLimiter(1000, 1, 1);
+        } else if (host.endsWith("coverartarchive.org")) {
+            return new HostLimiter(500, 2, 2);
+        } else if (host.endsWith("audioscrobbler.com")) {
+            // Last.fm allows 5 requests per second
+            return new HostLimiter(200, 5, 2);
+        } else if (host.endsWith("fanart.tv")) {
+            return new HostLimiter(500, 2, 2);
+        }
+        return new HostLimiter(DEFAULT_REQUEST_INTERVAL, DEFAULT_BURST_SIZE, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    private static String getHost(String url) {
+        if (null == url) {
+            return "";
+        }
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && url.charAt(end) != '/' && url.charAt(end) != '?' && url.charAt(end) != ':') {
+            end++;
+        }
+        return url.substring(start, end).toLowerCase();
+    }
+
+    /**
+     * Token bucket and concurrency limit for the requests to one host.
+     */
+    private static class HostLimiter {
+        /**
+         * Time in ms after which a new token is available
+         */
+        private final long mRequestInterval;
+
+        /**
+         * Maximum number of tokens that can be saved up
+         */
+        private final int mBurstSize;
+
+        private final int mMaxConcurrentRequests;
+
+        private final Queue<Request<?>> mRequests = new LinkedList<>();
+
+        private double mTokens;
+
+        private long mLastRefill;
+
+        private int mActiveRequests;
+
+        private HostLimiter(long requestInterval, int burstSize, int maxConcurrentRequests) {
+            mRequestInterval = requestInterval;
+            mBurstSize = burstSize;
+            mMaxConcurrentRequests = maxConcurrentRequests;
+            mTokens = burstSize;
+            mLastRefill = SystemClock.elapsedRealtime();
+        }
+
+        private void refill(long now) {
+            mTokens = Math.min(mBurstSize, mTokens + (double) (now - mLastRefill) / mRequestInterval);
+            mLastRefill = now;
+        }
+
+        /**
+         * @return Time in ms until the next token is available.
+         */
+        private long getTokenDelay() {
+            if (mTokens >= 1) {
+                return 0;
+            }
+            return (long) Math.ceil((1 - mTokens) * mRequestInterval);
+        }
+    }
+
 }
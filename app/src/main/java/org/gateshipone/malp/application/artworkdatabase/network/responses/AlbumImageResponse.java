@@ -28,4 +28,9 @@ public class AlbumImageResponse {
     public MPDAlbum album;
     public String url;
     public byte[] image;
+
+    /**
+     * Reason why no image is available, if {@link #image} is null.
+     */
+    public int notFoundReason;
 }
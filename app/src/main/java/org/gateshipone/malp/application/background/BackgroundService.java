@@ -231,7 +231,6 @@ public class BackgroundService extends Service implements AudioManager.OnAudioFo
 
         /* Register callback handlers to MPD service handlers */
         MPDCommandHandler.registerConnectionStateListener(mServerConnectionStateListener);
-        MPDStateMonitoringHandler.setRefreshInterval(60 * 1000);
         MPDStateMonitoringHandler.registerStatusListener(mServerStatusListener);
 
         mNotificationManager = new NotificationManager(this);
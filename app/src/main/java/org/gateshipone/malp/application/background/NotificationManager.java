@@ -359,20 +359,8 @@ public class NotificationManager implements CoverBitmapLoader.CoverBitmapListene
      */
     private synchronized void updateMetadata(MPDTrack track, MPDCurrentStatus.MPD_PLAYBACK_STATE playbackState) {
         if (track != null && mMediaSession != null) {
-            if (playbackState == MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING) {
-                mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().setState(PlaybackStateCompat.STATE_PLAYING, 0, 1.0f)
-                        .setActions(PlaybackStateCompat.ACTION_SKIP_TO_NEXT + PlaybackStateCompat.ACTION_PAUSE +
-                                PlaybackStateCompat.ACTION_PLAY + PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS +
-                                PlaybackStateCompat.ACTION_STOP + PlaybackStateCompat.ACTION_SEEK_TO).build());
+            updatePlaybackState(playbackState);
 
-            } else {
-                mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder().
-                        setState(PlaybackStateCompat.STATE_PAUSED, 0, 1.0f).setActions(PlaybackStateCompat.ACTION_SKIP_TO_NEXT +
-                        PlaybackStateCompat.ACTION_PAUSE + PlaybackStateCompat.ACTION_PLAY +
-                        PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS + PlaybackStateCompat.ACTION_STOP +
-                        PlaybackStateCompat.ACTION_SEEK_TO).build());
-
-            }
             // Try to get old metadata to save image retrieval.
             MediaMetadataCompat oldData = mMediaSession.getController().getMetadata();
             MediaMetadataCompat.Builder metaDataBuilder;
@@ -387,21 +375,43 @@ public class NotificationManager implements CoverBitmapLoader.CoverBitmapListene
             metaDataBuilder.putString(MediaMetadataCompat.METADATA_KEY_ALBUM_ARTIST, track.getTrackArtist());
             metaDataBuilder.putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_TITLE, track.getTrackTitle());
             metaDataBuilder.putLong(MediaMetadataCompat.METADATA_KEY_TRACK_NUMBER, track.getTrackNumber());
-            metaDataBuilder.putLong(MediaMetadataCompat.METADATA_KEY_DURATION, track.getLength());
+            metaDataBuilder.putLong(MediaMetadataCompat.METADATA_KEY_DURATION, track.getLength() * 1000L);
 
             mMediaSession.setMetadata(metaDataBuilder.build());
         }
     }
 
+    /**
+     * Updates the playback state of the media session. The position is passed together with the
+     * time it was reported by the server, so the session calculates the current position itself.
+     *
+     * @param playbackState State of the PlaybackService.
+     */
+    private synchronized void updatePlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE playbackState) {
+        if (mMediaSession == null) {
+            return;
+        }
+        int state = playbackState == MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED;
+        mMediaSession.setPlaybackState(new PlaybackStateCompat.Builder()
+                .setState(state, mLastStatus.getElapsedTimeMs(), mLastStatus.getPlaybackRate(), mLastStatus.getElapsedTimeBase())
+                .setActions(PlaybackStateCompat.ACTION_SKIP_TO_NEXT + PlaybackStateCompat.ACTION_PAUSE +
+                        PlaybackStateCompat.ACTION_PLAY + PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS +
+                        PlaybackStateCompat.ACTION_STOP + PlaybackStateCompat.ACTION_SEEK_TO).build());
+    }
+
     /**
      * Notifies about a change in MPDs status. If not shown this may be used later.
      *
      * @param status New MPD status
      */
     public synchronized void setMPDStatus(MPDCurrentStatus status) {
+        MPDCurrentStatus lastStatus = mLastStatus;
+        // Save for later usage
+        mLastStatus = status;
+
         if (mSessionActive) {
             // Only update the notification if playback state really changed
-            if ( mLastStatus.getPlaybackState() != status.getPlaybackState()) {
+            if ( lastStatus.getPlaybackState() != status.getPlaybackState()) {
                 updateNotification(mLastTrack, status.getPlaybackState());
 
                 // Check if playing or not. If activate the service as foreground
@@ -410,18 +420,19 @@ public class NotificationManager implements CoverBitmapLoader.CoverBitmapListene
                 } else {
                     mService.startForeground(NOTIFICATION_ID, mNotification);
                 }
+            } else if (lastStatus.getElapsedTimeMs() != status.getElapsedTimeMs() || lastStatus.getElapsedTimeBase() != status.getElapsedTimeBase()) {
+                // Position changed (seek or resync), the metadata stays the same
+                updatePlaybackState(status.getPlaybackState());
             }
             if (mVolumeControlProvider != null) {
                 // Notify the mediasession about the new volume
-                if (mLastStatus.getVolume() != status.getVolume()) {
+                if (lastStatus.getVolume() != status.getVolume()) {
                     mVolumeControlProvider.setCurrentVolume(status.getVolume());
                 }
             }
 
 
         }
-        // Save for later usage
-        mLastStatus = status;
     }
 
     /**
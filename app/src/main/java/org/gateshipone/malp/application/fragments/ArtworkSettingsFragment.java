@@ -56,7 +56,7 @@ public class ArtworkSettingsFragment extends PreferenceFragmentCompat implements
         clearAlbums.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
 
             public boolean onPreferenceClick(Preference preference) {
-                ArtworkDatabaseManager.getInstance(getContext()).clearAlbumImages();
+                ArtworkManager.getInstance(getContext().getApplicationContext()).clearAlbumImages();
                 return true;
             }
         });
@@ -66,7 +66,7 @@ public class ArtworkSettingsFragment extends PreferenceFragmentCompat implements
         clearArtist.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
 
             public boolean onPreferenceClick(Preference preference) {
-                ArtworkDatabaseManager.getInstance(getContext()).clearArtistImages();
+                ArtworkManager.getInstance(getContext().getApplicationContext()).clearArtistImages();
                 return true;
             }
         });
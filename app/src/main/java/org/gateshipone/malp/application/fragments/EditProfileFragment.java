@@ -48,6 +48,8 @@ import org.gateshipone.malp.application.callbacks.FABFragmentCallback;
 import org.gateshipone.malp.application.callbacks.ProfileManageCallbacks;
 import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.ConnectionManager;
+import org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerProfile;
 
 public class EditProfileFragment extends Fragment {
@@ -63,6 +65,9 @@ public class EditProfileFragment extends Fragment {
     private String mStreamingURL;
     private boolean mStreamingEnabled;
 
+    private boolean mLibraryMirrorEnabled;
+
+    private int mConnectionPoolSize;
 
     private TextInputEditText mProfilenameView;
     private TextInputEditText mHostnameView;
@@ -72,6 +77,10 @@ public class EditProfileFragment extends Fragment {
     private Switch mStreamingEnabledView;
     private TextInputEditText mStreamingURLView;
 
+    private Switch mLibraryMirrorEnabledView;
+
+    private TextInputEditText mConnectionPoolSizeView;
+
 
     private MPDServerProfile mOldProfile;
 
@@ -95,11 +104,19 @@ public class EditProfileFragment extends Fragment {
         mStreamingURLView = (TextInputEditText) rootView.findViewById(R.id.fragment_profile_streaming_url);
         mStreamingEnabledView = (Switch) rootView.findViewById(R.id.fragment_profile_streaming_enabled);
 
+        mLibraryMirrorEnabledView = (Switch) rootView.findViewById(R.id.fragment_profile_library_mirror_enabled);
+
+        mConnectionPoolSizeView = (TextInputEditText) rootView.findViewById(R.id.fragment_profile_connection_pool_size);
+
         // Set to maximum tcp port
-        InputFilter portFilter = new PortNumberFilter();
+        InputFilter portFilter = new NumberRangeFilter(1, 65535);
 
         mPortView.setFilters(new InputFilter[]{portFilter});
 
+        InputFilter poolSizeFilter = new NumberRangeFilter(0, MPDConnectionPool.MAX_POOL_SIZE);
+
+        mConnectionPoolSizeView.setFilters(new InputFilter[]{poolSizeFilter});
+
 
         /* Check if an artistname/albumame was given in the extras */
         Bundle args = getArguments();
@@ -114,6 +131,10 @@ public class EditProfileFragment extends Fragment {
                 mStreamingURL = mOldProfile.getStreamingURL();
                 mStreamingEnabled = mOldProfile.getStreamingEnabled();
 
+                mLibraryMirrorEnabled = mOldProfile.getLibraryMirrorEnabled();
+
+                mConnectionPoolSize = mOldProfile.getConnectionPoolSize();
+
                 mProfilenameView.setText(mProfilename);
             } else {
                 mHostname = "";
@@ -124,6 +145,10 @@ public class EditProfileFragment extends Fragment {
                 mStreamingEnabled = false;
                 mStreamingURL = "";
 
+                mLibraryMirrorEnabled = false;
+
+                mConnectionPoolSize = MPDConnectionPool.DEFAULT_POOL_SIZE;
+
                 mProfilenameView.setText(getString(R.string.fragment_profile_default_name));
             }
         }
@@ -155,6 +180,9 @@ public class EditProfileFragment extends Fragment {
         }
         mStreamingURLView.setText(mStreamingURL);
 
+        mLibraryMirrorEnabledView.setChecked(mLibraryMirrorEnabled);
+
+        mConnectionPoolSizeView.setText(String.valueOf(mConnectionPoolSize));
 
         mProfilenameView.setSelectAllOnFocus(true);
 
@@ -229,6 +257,14 @@ public class EditProfileFragment extends Fragment {
             profileChanged = true;
             mStreamingEnabled = mStreamingEnabledView.isChecked();
         }
+        if (mLibraryMirrorEnabledView.isChecked() != mLibraryMirrorEnabled) {
+            profileChanged = true;
+            mLibraryMirrorEnabled = mLibraryMirrorEnabledView.isChecked();
+        }
+        if (!mConnectionPoolSizeView.getText().toString().isEmpty() && Integer.parseInt(mConnectionPoolSizeView.getText().toString()) != mConnectionPoolSize) {
+            profileChanged = true;
+            mConnectionPoolSize = Integer.parseInt(mConnectionPoolSizeView.getText().toString());
+        }
 
         if (profileChanged) {
             if (null != mOldProfile) {
@@ -242,6 +278,8 @@ public class EditProfileFragment extends Fragment {
             mOldProfile.setPort(mPort);
             mOldProfile.setStreamingURL(mStreamingURL);
             mOldProfile.setStreamingEnabled(mStreamingEnabled);
+            mOldProfile.setLibraryMirrorEnabled(mLibraryMirrorEnabled);
+            mOldProfile.setConnectionPoolSize(mConnectionPoolSize);
             ConnectionManager.getInstance().addProfile(mOldProfile, getContext());
         }
     }
@@ -256,7 +294,18 @@ public class EditProfileFragment extends Fragment {
         }
     }
 
-    private class PortNumberFilter implements InputFilter {
+    /**
+     * Only allows numbers in the range [min, max]
+     */
+    private class NumberRangeFilter implements InputFilter {
+        private final int mMin;
+        private final int mMax;
+
+        NumberRangeFilter(int min, int max) {
+            mMin = min;
+            mMax = max;
+        }
+
         public CharSequence filter(CharSequence source, int start, int end,
                                    Spanned dest, int dstart, int dend) {
             if (end > start) {
@@ -265,11 +314,11 @@ public class EditProfileFragment extends Fragment {
                         source.subSequence(start, end) +
                         destTxt.substring(dend);
                 try {
-                    int port = Integer.parseInt(resultingTxt);
-                    if (port > 65535) {
+                    int number = Integer.parseInt(resultingTxt);
+                    if (number > mMax) {
                         return "";
                     }
-                    if (port < 1) {
+                    if (number < mMin) {
                         return "";
                     }
                 } catch (NumberFormatException e) {
@@ -324,6 +373,9 @@ public class EditProfileFragment extends Fragment {
                 return true;
             case R.id.action_delete:
                 ConnectionManager.getInstance().removeProfile(mOldProfile,getContext());
+                if (null != mOldProfile) {
+                    LibraryMirror.getInstance().deleteMirror(getContext(), mOldProfile);
+                }
                 mOptionsMenuHandled = true;
                 getActivity().onBackPressed();
                 return true;
@@ -52,6 +52,7 @@ import org.gateshipone.malp.application.callbacks.ProfileManageCallbacks;
 import org.gateshipone.malp.application.loaders.ProfilesLoader;
 import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.ConnectionManager;
+import org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDProfileManager;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerProfile;
 
@@ -251,7 +252,9 @@ public class ProfilesFragment extends Fragment implements LoaderManager.LoaderCa
 
     private void removeProfile(int index) {
         if ( null != mCallback ) {
-            ConnectionManager.getInstance().removeProfile((MPDServerProfile)mAdapter.getItem(index),getContext());
+            MPDServerProfile profile = (MPDServerProfile)mAdapter.getItem(index);
+            ConnectionManager.getInstance().removeProfile(profile,getContext());
+            LibraryMirror.getInstance().deleteMirror(getContext(), profile);
             mAdapter.swapModel(null);
             // Prepare loader ( start new one or reuse old )
             getLoaderManager().restartLoader(0, getArguments(), this);
@@ -132,6 +132,14 @@ public class AlbumTracksFragment extends GenericMPDFragment<List<MPDFileEntry>>
         return rootView;
     }
 
+    /**
+     * Reloads the album tracks when the database of the server changed.
+     */
+    @Override
+    protected void onDatabaseChanged() {
+        refreshContent();
+    }
+
     /**
      * Starts the loader to make sure the data is up-to-date after resuming the fragment (from background)
      */
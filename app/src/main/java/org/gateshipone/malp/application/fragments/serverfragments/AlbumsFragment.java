@@ -170,6 +170,14 @@ public class AlbumsFragment extends GenericMPDFragment<List<MPDAlbum>> implement
         return rootView;
     }
 
+    /**
+     * Reloads the albums when the database of the server changed.
+     */
+    @Override
+    protected void onDatabaseChanged() {
+        refreshContent();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
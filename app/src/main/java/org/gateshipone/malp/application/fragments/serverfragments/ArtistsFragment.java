@@ -132,6 +132,14 @@ public class ArtistsFragment extends GenericMPDFragment<List<MPDArtist>> impleme
         return rootView;
     }
 
+    /**
+     * Reloads the artists when the database of the server changed.
+     */
+    @Override
+    protected void onDatabaseChanged() {
+        refreshContent();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -91,6 +91,14 @@ public class ChoosePlaylistDialog extends GenericMPDFragment<List<MPDFileEntry>>
         mPlaylistsListViewAdapter.swapModel(data);
     }
 
+    /**
+     * Reloads the playlists when the saved playlists of the server changed.
+     */
+    @Override
+    protected void onStoredPlaylistsChanged() {
+        refreshContent();
+    }
+
     /**
      * If a loader is reset the model data should be cleared.
      *
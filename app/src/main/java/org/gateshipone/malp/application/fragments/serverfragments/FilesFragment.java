@@ -146,6 +146,22 @@ public class FilesFragment extends GenericMPDFragment<List<MPDFileEntry>> implem
         return rootView;
     }
 
+    /**
+     * Reloads the directory when the database of the server changed.
+     */
+    @Override
+    protected void onDatabaseChanged() {
+        refreshContent();
+    }
+
+    /**
+     * Reloads the directory when the saved playlists of the server changed.
+     */
+    @Override
+    protected void onStoredPlaylistsChanged() {
+        refreshContent();
+    }
+
     /**
      * Starts the loader to make sure the data is up-to-date after resuming the fragment (from background)
      */
@@ -33,18 +33,25 @@ import java.lang.ref.WeakReference;
 import java.util.List;
 
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
+import org.gateshipone.malp.mpdservice.handlers.MPDStatusChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
+import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 
 public abstract class GenericMPDFragment<T extends Object> extends DialogFragment implements LoaderManager.LoaderCallbacks<T> {
     private static final String TAG = GenericMPDFragment.class.getSimpleName();
 
     protected ConnectionStateListener mConnectionStateListener;
 
+    private LibraryChangeListener mLibraryChangeListener;
+
     protected SwipeRefreshLayout mSwipeRefreshLayout = null;
 
     protected GenericMPDFragment() {
         mConnectionStateListener = new ConnectionStateListener(this);
+        mLibraryChangeListener = new LibraryChangeListener(this);
     }
 
     @Override
@@ -52,7 +59,7 @@ public abstract class GenericMPDFragment<T extends Object> extends DialogFragmen
         super.onResume();
         refreshContent();
         MPDQueryHandler.registerConnectionStateListener(mConnectionStateListener);
-
+        MPDStateMonitoringHandler.registerStatusListener(mLibraryChangeListener);
     }
 
     @Override
@@ -61,9 +68,26 @@ public abstract class GenericMPDFragment<T extends Object> extends DialogFragmen
         synchronized (this) {
             getLoaderManager().destroyLoader(0);
             MPDQueryHandler.unregisterConnectionStateListener(mConnectionStateListener);
+            MPDStateMonitoringHandler.unregisterStatusListener(mLibraryChangeListener);
         }
     }
 
+    /**
+     * Called when the database of the server changed. Fragments showing browse results
+     * should reload them.
+     */
+    protected void onDatabaseChanged() {
+
+    }
+
+    /**
+     * Called when the saved playlists of the server changed. Fragments showing playlists
+     * should reload them.
+     */
+    protected void onStoredPlaylistsChanged() {
+
+    }
+
 
     protected void refreshContent() {
         if (mSwipeRefreshLayout != null) {
@@ -103,6 +127,43 @@ public abstract class GenericMPDFragment<T extends Object> extends DialogFragmen
         }
     }
 
+    /**
+     * Forwards the changes of the server library to the fragment. Status and track changes are not used.
+     */
+    private static class LibraryChangeListener extends MPDStatusChangeHandler {
+        private WeakReference<GenericMPDFragment> pFragment;
+
+        public LibraryChangeListener(GenericMPDFragment fragment) {
+            pFragment = new WeakReference<GenericMPDFragment>(fragment);
+        }
+
+        @Override
+        protected void onNewStatusReady(MPDCurrentStatus status) {
+
+        }
+
+        @Override
+        protected void onNewTrackReady(MPDTrack track) {
+
+        }
+
+        @Override
+        protected void onDatabaseChanged() {
+            GenericMPDFragment fragment = pFragment.get();
+            if (null != fragment && fragment.isResumed()) {
+                fragment.onDatabaseChanged();
+            }
+        }
+
+        @Override
+        protected void onStoredPlaylistsChanged() {
+            GenericMPDFragment fragment = pFragment.get();
+            if (null != fragment && fragment.isResumed()) {
+                fragment.onStoredPlaylistsChanged();
+            }
+        }
+    }
+
     private void finishedLoading() {
         if (null != mSwipeRefreshLayout) {
             mSwipeRefreshLayout.post(new Runnable() {
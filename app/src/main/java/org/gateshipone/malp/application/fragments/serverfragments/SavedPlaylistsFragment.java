@@ -108,6 +108,14 @@ public class SavedPlaylistsFragment extends GenericMPDFragment<List<MPDFileEntry
         return rootView;
     }
 
+    /**
+     * Reloads the playlists when the saved playlists of the server changed.
+     */
+    @Override
+    protected void onStoredPlaylistsChanged() {
+        refreshContent();
+    }
+
     /**
      * Starts the loader to make sure the data is up-to-date after resuming the fragment (from background)
      */
@@ -27,6 +27,7 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.v4.content.Loader;
 import android.support.v4.graphics.drawable.DrawableCompat;
@@ -40,6 +41,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
@@ -62,6 +64,27 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> implements AdapterView.OnItemClickListener, View.OnFocusChangeListener {
     public static final String TAG = SearchFragment.class.getSimpleName();
 
+    /**
+     * Search terms shorter than this are only searched after a longer pause while typing,
+     * as they match large parts of the library.
+     */
+    private static final int SHORT_SEARCH_TERM_LENGTH = 3;
+
+    /**
+     * Delay in ms after the last change of a short search term before it is searched
+     */
+    private static final int SHORT_SEARCH_TERM_DELAY = 800;
+
+    /**
+     * Delay in ms after the last change of the search term before it is searched
+     */
+    private static final int SEARCH_TERM_DELAY = 300;
+
+    /**
+     * Number of remaining rows below the visible ones that starts the request of the next result page
+     */
+    private static final int NEXT_PAGE_THRESHOLD = 20;
+
     /**
      * Adapter used by the ListView
      */
@@ -87,6 +110,13 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
 
     private MPDCommands.MPD_SEARCH_TYPE mSearchType;
 
+    /**
+     * Handler used to delay the search while the search term is typed
+     */
+    private Handler mSearchDelayHandler;
+
+    private Runnable mDelayedSearch;
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         // Inflate the layout for this fragment
@@ -102,6 +132,7 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
         // Combine the two to a happy couple
         mListView.setAdapter(mFileAdapter);
         mListView.setOnItemClickListener(this);
+        mListView.setOnScrollListener(new NextPageScrollListener());
         registerForContextMenu(mListView);
 
         mSelectSpinner = (Spinner) rootView.findViewById(R.id.search_criteria);
@@ -119,6 +150,13 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
         mSearchView.setOnQueryTextListener(new SearchViewQueryListener());
         mSearchView.setOnFocusChangeListener(this);
 
+        mSearchDelayHandler = new Handler();
+        mDelayedSearch = new Runnable() {
+            @Override
+            public void run() {
+                startSearch();
+            }
+        };
 
         // get swipe layout
         mSwipeRefreshLayout = (SwipeRefreshLayout) rootView.findViewById(R.id.refresh_layout);
@@ -226,6 +264,7 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
     @Override
     public void onPause() {
         super.onPause();
+        mSearchDelayHandler.removeCallbacks(mDelayedSearch);
         InputMethodManager imm = (InputMethodManager) getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
         View view = getView();
         if (null != view) {
@@ -339,6 +378,16 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
         songDetailsDialog.show(((AppCompatActivity) getContext()).getSupportFragmentManager(), "SongDetails");
     }
 
+    /**
+     * Starts the search for the current search term. Pending pages of the previous search
+     * are not requested anymore.
+     */
+    private void startSearch() {
+        mSearchDelayHandler.removeCallbacks(mDelayedSearch);
+        MPDQueryHandler.cancelSearches();
+        refreshContent();
+    }
+
     private void showFAB(boolean active) {
         if (null != mFABCallback) {
             mFABCallback.setupFAB(active, active ? new FABOnClickListener() : null);
@@ -412,14 +461,50 @@ public class SearchFragment extends GenericMPDFragment<List<MPDFileEntry>> imple
         @Override
         public boolean onQueryTextSubmit(String query) {
             mSearchText = query;
-            refreshContent();
+            startSearch();
             return false;
         }
 
         @Override
         public boolean onQueryTextChange(String newText) {
+            if (newText.equals(mSearchText)) {
+                return false;
+            }
+            mSearchText = newText;
+
+            // Search after the user stopped typing
+            mSearchDelayHandler.removeCallbacks(mDelayedSearch);
+            if (newText.isEmpty()) {
+                startSearch();
+            } else if (newText.length() < SHORT_SEARCH_TERM_LENGTH) {
+                mSearchDelayHandler.postDelayed(mDelayedSearch, SHORT_SEARCH_TERM_DELAY);
+            } else {
+                mSearchDelayHandler.postDelayed(mDelayedSearch, SEARCH_TERM_DELAY);
+            }
             return false;
         }
     }
 
+    /**
+     * Requests the next page of search results when the end of the list is reached.
+     */
+    private class NextPageScrollListener implements AbsListView.OnScrollListener {
+
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            if (totalItemCount == 0 || firstVisibleItem + visibleItemCount < totalItemCount - NEXT_PAGE_THRESHOLD) {
+                return;
+            }
+            Loader<List<MPDFileEntry>> loader = getLoaderManager().getLoader(0);
+            if (loader instanceof SearchResultLoader) {
+                ((SearchResultLoader) loader).loadNextPage();
+            }
+        }
+    }
+
 }
@@ -26,6 +26,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Pair;
 import android.view.LayoutInflater;
+import android.view.ViewGroup;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
@@ -79,12 +80,45 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
      */
     public void startCoverImageTask() {
         if (mLoaderTask == null && mHolder.artworkManager != null && mHolder.modelItem != null && !mCoverDone) {
+            // Request the image in the size of the view so that it is decoded downsampled and smaller images are cached.
+            mHolder.imageDimension = getImageDimension();
             mLoaderTask = new AsyncLoader();
             mLoaderTask.execute(mHolder);
         }
     }
 
 
+    /**
+     * Returns the size the image is shown with. Views that are not laid out yet (e.g. on the first
+     * bind in getView) fall back to the fixed sizes of the layout parameters.
+     *
+     * @return The maximum of width/height or 0 if it is not known.
+     */
+    private int getImageDimension() {
+        if (null == mImageView) {
+            return 0;
+        }
+
+        int dimension = Math.max(mImageView.getWidth(), mImageView.getHeight());
+        if (dimension > 0) {
+            return dimension;
+        }
+
+        ViewGroup.LayoutParams imageParams = mImageView.getLayoutParams();
+        if (null != imageParams) {
+            dimension = Math.max(imageParams.width, imageParams.height);
+        }
+        if (dimension <= 0) {
+            // Grid items get their size from the adapter
+            ViewGroup.LayoutParams itemParams = getLayoutParams();
+            if (null != itemParams) {
+                dimension = Math.max(itemParams.width, itemParams.height);
+            }
+        }
+        // Negative values are MATCH_PARENT/WRAP_CONTENT
+        return Math.max(0, dimension);
+    }
+
     /**
      * Prepares the view to load an image when the scrolling view deems it is ready (scrollspeed slow enough).
      * @param artworkManager ArtworkManager instance used to get the image.
@@ -108,7 +142,7 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         if (mLoaderTask != null) {
-            mLoaderTask.cancel(true);
+            mLoaderTask.cancel();
             mLoaderTask = null;
         }
     }
@@ -131,7 +165,7 @@ public abstract class AbsImageListViewItem extends RelativeLayout implements Cov
         } else {
             // Cancel old task
             if (mLoaderTask != null) {
-                mLoaderTask.cancel(true);
+                mLoaderTask.cancel();
             }
             mLoaderTask = null;
             mHolder.modelItem = null;
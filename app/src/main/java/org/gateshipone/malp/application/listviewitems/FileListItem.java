@@ -36,6 +36,7 @@ import org.gateshipone.malp.application.utils.FormatHelper;
 import org.gateshipone.malp.application.utils.ThemeUtils;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrackStore;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
 
 
@@ -292,54 +293,8 @@ public class FileListItem extends AbsImageListViewItem {
      */
     public void setTrack(MPDTrack track, Context context) {
         if ( track != null ) {
-            String trackNumber;
-
-            if (track.getAlbumDiscCount() > 0) {
-                trackNumber = String.valueOf(track.getDiscNumber()) + '-' + String.valueOf(track.getTrackNumber());
-            } else {
-                trackNumber = String.valueOf(track.getTrackNumber());
-            }
-
-        /* Extract the information from the track */
-            mNumberView.setText(trackNumber);
-
-            int trackLength = track.getLength();
-            if (trackLength > 0) {
-                // Get the preformatted duration of the track.
-                mDurationView.setText(FormatHelper.formatTracktimeFromS(track.getLength()));
-                mDurationView.setVisibility(VISIBLE);
-            } else {
-                mDurationView.setVisibility(GONE);
-            }
-            // Get track title
-            String trackTitle = track.getTrackTitle();
-
-            // If no trackname is available (e.g. streaming URLs) show path
-            if (null == trackTitle || trackTitle.isEmpty()) {
-                trackTitle = FormatHelper.getFilenameFromPath(track.getPath());
-            }
-            mTitleView.setText(trackTitle);
-
-            // additional information (artist + album)
-            String trackInformation;
-
-            String trackAlbum = track.getTrackAlbum();
-
-            // Check which information is available and set the separator accordingly.
-            if (!track.getTrackArtist().isEmpty() && !track.getTrackAlbum().isEmpty()) {
-                trackInformation = track.getTrackArtist() + context.getResources().getString(R.string.track_item_separator) + trackAlbum;
-            } else if (track.getTrackArtist().isEmpty() && !track.getTrackAlbum().isEmpty()) {
-                trackInformation = trackAlbum;
-            } else if (track.getTrackAlbum().isEmpty() && !track.getTrackArtist().isEmpty()) {
-                trackInformation = track.getTrackArtist();
-            } else {
-                trackInformation = track.getPath();
-            }
-
-            mAdditionalInfoView.setText(trackInformation);
-            mSeparator.setVisibility(VISIBLE);
-            mAdditionalInfoView.setVisibility(VISIBLE);
-            mNumberView.setVisibility(VISIBLE);
+            setTrackInformation(track.getTrackTitle(), track.getTrackArtist(), track.getTrackAlbum(), track.getPath(),
+                    track.getLength(), track.getTrackNumber(), track.getDiscNumber(), track.getAlbumDiscCount(), context);
         } else {
             /* Show loading text */
             mSeparator.setVisibility(GONE);
@@ -349,6 +304,71 @@ public class FileListItem extends AbsImageListViewItem {
             mAdditionalInfoView.setVisibility(GONE);
         }
 
+        setFileIcon(context);
+    }
+
+    /**
+     * Extracts the information from a row of a {@link MPDTrackStore} without creating a MPDTrack object.
+     * @param store Store containing the track information. The row needs to be loaded.
+     * @param row Row of the track to show the view for.
+     * @param context Context used for String extraction
+     */
+    public void setTrack(MPDTrackStore store, int row, Context context) {
+        setTrackInformation(store.getTrackTitle(row), store.getTrackArtist(row), store.getTrackAlbum(row), store.getPath(row),
+                store.getLength(row), store.getTrackNumber(row), store.getDiscNumber(row), store.getAlbumDiscCount(row), context);
+
+        setFileIcon(context);
+    }
+
+    private void setTrackInformation(String title, String artist, String album, String path, int length,
+                                     int trackNo, int discNo, int discCount, Context context) {
+        String trackNumber;
+
+        if (discCount > 0) {
+            trackNumber = String.valueOf(discNo) + '-' + String.valueOf(trackNo);
+        } else {
+            trackNumber = String.valueOf(trackNo);
+        }
+
+        /* Extract the information from the track */
+        mNumberView.setText(trackNumber);
+
+        if (length > 0) {
+            // Get the preformatted duration of the track.
+            mDurationView.setText(FormatHelper.formatTracktimeFromS(length));
+            mDurationView.setVisibility(VISIBLE);
+        } else {
+            mDurationView.setVisibility(GONE);
+        }
+
+        // If no trackname is available (e.g. streaming URLs) show path
+        String trackTitle = title;
+        if (null == trackTitle || trackTitle.isEmpty()) {
+            trackTitle = FormatHelper.getFilenameFromPath(path);
+        }
+        mTitleView.setText(trackTitle);
+
+        // additional information (artist + album)
+        String trackInformation;
+
+        // Check which information is available and set the separator accordingly.
+        if (!artist.isEmpty() && !album.isEmpty()) {
+            trackInformation = artist + context.getResources().getString(R.string.track_item_separator) + album;
+        } else if (artist.isEmpty() && !album.isEmpty()) {
+            trackInformation = album;
+        } else if (album.isEmpty() && !artist.isEmpty()) {
+            trackInformation = artist;
+        } else {
+            trackInformation = path;
+        }
+
+        mAdditionalInfoView.setText(trackInformation);
+        mSeparator.setVisibility(VISIBLE);
+        mAdditionalInfoView.setVisibility(VISIBLE);
+        mNumberView.setVisibility(VISIBLE);
+    }
+
+    private void setFileIcon(Context context) {
         if (mShowIcon) {
             Drawable icon = context.getDrawable(R.drawable.ic_file_48dp);
 
@@ -360,8 +380,6 @@ public class FileListItem extends AbsImageListViewItem {
             }
             mItemIcon.setImageDrawable(icon);
         }
-
-
     }
 
     /**
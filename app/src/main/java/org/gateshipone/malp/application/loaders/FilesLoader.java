@@ -26,6 +26,7 @@ package org.gateshipone.malp.application.loaders;
 import android.content.Context;
 import android.support.v4.content.Loader;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
@@ -48,6 +49,11 @@ public class FilesLoader extends Loader<List<MPDFileEntry>> {
      */
     String mPath;
 
+    /**
+     * Entries of the running request that were received so far
+     */
+    private List<MPDFileEntry> mReceivedEntries;
+
     public FilesLoader(Context context, String path) {
         super(context);
         mContext = context;
@@ -66,6 +72,30 @@ public class FilesLoader extends Loader<List<MPDFileEntry>> {
         public void handleTracks(List<MPDFileEntry> fileList, int start, int end) {
             deliverResult(fileList);
         }
+
+        /**
+         * Shows the entries of large directories while the rest is still received. The batches
+         * are appended, so entries that are already shown keep their position.
+         */
+        @Override
+        public void handlePartialTracks(List<MPDFileEntry> fileList, boolean lastBatch) {
+            // Ignore batches of a request that was replaced by a newer one
+            if (this != mFilesResponseHandler) {
+                return;
+            }
+            if (null == fileList) {
+                mReceivedEntries = null;
+                deliverResult(null);
+                return;
+            }
+
+            mReceivedEntries.addAll(fileList);
+            // The LoaderManager ignores results that are the same object as the last one, so deliver copies until the last batch
+            deliverResult(lastBatch ? mReceivedEntries : new ArrayList<>(mReceivedEntries));
+            if (lastBatch) {
+                mReceivedEntries = null;
+            }
+        }
     }
 
 
@@ -91,6 +121,9 @@ public class FilesLoader extends Loader<List<MPDFileEntry>> {
      */
     @Override
     public void onForceLoad() {
+        // A new handler for every request, so that batches of a previous request can be told apart
+        mFilesResponseHandler = new FilesResponseHandler();
+        mReceivedEntries = new ArrayList<>();
         MPDQueryHandler.getFiles(mFilesResponseHandler,mPath);
     }
 }
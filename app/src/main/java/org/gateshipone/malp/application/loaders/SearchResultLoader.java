@@ -26,6 +26,7 @@ package org.gateshipone.malp.application.loaders;
 import android.content.Context;
 import android.support.v4.content.Loader;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
@@ -34,13 +35,20 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 
 /**
- * Loader class for search result tracks
+ * Loader class for search result tracks. The results are requested in pages of
+ * {@link #PAGE_SIZE} entries, further pages are requested with {@link #loadNextPage()}.
  */
 public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
     /**
-     * Response handler used for the asynchronous callback of the networking thread
+     * Number of search results requested at once
      */
-    private MPDResponseFileList pTrackResponseHandler;
+    private static final int PAGE_SIZE = 250;
+
+    /**
+     * Response handler used for the asynchronous callback of the networking thread.
+     * A new one is created for every search, so that responses of old searches are ignored.
+     */
+    private TrackResponseHandler pTrackResponseHandler;
 
     /**
      * String to instruct the server to search for
@@ -52,16 +60,30 @@ public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
      */
     private MPDCommands.MPD_SEARCH_TYPE mSearchType;
 
+    /**
+     * Results of all pages received so far
+     */
+    private List<MPDFileEntry> mResults;
+
+    /**
+     * True while a page is requested
+     */
+    private boolean mPageRequested;
+
+    /**
+     * True if the last page was received
+     */
+    private boolean mResultsComplete;
+
 
     public SearchResultLoader(Context context, String searchTerm, MPDCommands.MPD_SEARCH_TYPE type) {
         super(context);
 
-        // Create a new Handler for asynchronous callback
-        pTrackResponseHandler = new TrackResponseHandler();
-
         // Set the playlist properties
         mSearchString = searchTerm;
         mSearchType = type;
+
+        mResults = new ArrayList<>();
     }
 
 
@@ -71,10 +93,36 @@ public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
     private class TrackResponseHandler extends MPDResponseFileList {
         @Override
         public void handleTracks(List<MPDFileEntry> trackList, int start, int end) {
-            deliverResult(trackList);
+            if (this != pTrackResponseHandler || start != mResults.size()) {
+                // Response of an old search
+                return;
+            }
+            mPageRequested = false;
+
+            if (null == trackList) {
+                mResultsComplete = true;
+                deliverResult(new ArrayList<>(mResults));
+                return;
+            }
+
+            mResults.addAll(trackList);
+            mResultsComplete = trackList.size() < end - start;
+            deliverResult(new ArrayList<>(mResults));
         }
     }
 
+    /**
+     * Requests the next page of results if the last page is not yet received.
+     */
+    public void loadNextPage() {
+        if (mPageRequested || mResultsComplete || null == pTrackResponseHandler) {
+            return;
+        }
+        mPageRequested = true;
+        int start = mResults.size();
+        MPDQueryHandler.searchFiles(mSearchString, mSearchType, start, start + PAGE_SIZE, pTrackResponseHandler);
+    }
+
 
     /**
      * Starts the loading process
@@ -93,13 +141,36 @@ public class SearchResultLoader extends Loader<List<MPDFileEntry>> {
     }
 
     /**
-     * Start the actual laoding process. Check if an playlistpath is provided.
-     * If not it will just fetch the current playlist.
+     * Ignores the pending pages when the loader is replaced by a new search.
+     */
+    @Override
+    public void onAbandon() {
+        pTrackResponseHandler = null;
+        mPageRequested = false;
+    }
+
+    /**
+     * Ignores the pending pages when the loader is not used anymore.
+     */
+    @Override
+    public void onReset() {
+        pTrackResponseHandler = null;
+        mPageRequested = false;
+    }
+
+    /**
+     * Start the actual loading process by requesting the first page of results.
      */
     @Override
     public void onForceLoad() {
+        pTrackResponseHandler = null;
+        mResults.clear();
+        mPageRequested = false;
+        mResultsComplete = false;
         if (null != mSearchString && !mSearchString.isEmpty()) {
-            MPDQueryHandler.searchFiles(mSearchString, mSearchType, pTrackResponseHandler);
+            // Create a new Handler for asynchronous callback
+            pTrackResponseHandler = new TrackResponseHandler();
+            loadNextPage();
         } else {
             deliverResult(null);
         }
@@ -0,0 +1,262 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.utils;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared executor for all artwork loads (list items, now playing view, notification, widget).
+ * <p/>
+ * It uses a small fixed number of background threads. Waiting loads are processed in LIFO order,
+ * so that the images of the views that became visible last are loaded first while flinging through
+ * a list. The queue is bounded, the oldest waiting load is dropped when it is full.
+ * Loads with the same key are only executed once and the result is delivered to all listeners.
+ */
+public class ArtworkLoadExecutor {
+    private static final String TAG = ArtworkLoadExecutor.class.getSimpleName();
+
+    /**
+     * Maximum number of loads that wait for a free thread
+     */
+    private static final int MAX_QUEUED_LOADS = 64;
+
+    /**
+     * Time after which idle threads are stopped
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static ArtworkLoadExecutor mInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * Loads that are waiting or running, identified by their key
+     */
+    private final HashMap<String, LoadTask> mPendingLoads;
+
+    /**
+     * Loads the image in the background. Any exception handling (e.g. requesting a download of
+     * missing images) must happen inside the load.
+     */
+    public interface ArtworkLoad {
+        Bitmap loadImage();
+    }
+
+    /**
+     * Receives the result of a load. This is called on the loader thread or, for dropped loads,
+     * on the thread that submitted the load that replaced it.
+     */
+    public interface ArtworkLoadListener {
+        /**
+         * @param image The loaded image or null if the image is not available or the load was dropped.
+         */
+        void onArtworkLoaded(Bitmap image);
+    }
+
+    /**
+     * Handle of a submitted load which can be used to cancel it.
+     */
+    public static class LoadHandle {
+        private final LoadTask mTask;
+        private final ArtworkLoadListener mListener;
+
+        private LoadHandle(LoadTask task, ArtworkLoadListener listener) {
+            mTask = task;
+            mListener = listener;
+        }
+    }
+
+    private ArtworkLoadExecutor() {
+        int threadCount = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+        mPendingLoads = new HashMap<>();
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LIFOLoadQueue(), new LoaderThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized ArtworkLoadExecutor getInstance() {
+        if (null == mInstance) {
+            mInstance = new ArtworkLoadExecutor();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Submits a load. If a load with the same key is already waiting or running the listener
+     * is attached to it instead.
+     *
+     * @param key      Key that identifies the image (type, identity and size)
+     * @param load     Load to execute
+     * @param listener Listener for the result
+     * @return Handle to cancel the load for this listener.
+     */
+    public LoadHandle submit(String key, ArtworkLoad load, ArtworkLoadListener listener) {
+        LoadTask task;
+        synchronized (mPendingLoads) {
+            task = mPendingLoads.get(key);
+            if (null != task) {
+                task.mListeners.add(listener);
+                return new LoadHandle(task, listener);
+            }
+
+            task = new LoadTask(key, load);
+            task.mListeners.add(listener);
+            mPendingLoads.put(key, task);
+        }
+
+        mExecutor.execute(task);
+        return new LoadHandle(task, listener);
+    }
+
+    /**
+     * Removes the listener of the handle from its load. The load itself is removed from the queue
+     * if no other listener is waiting for it. Loads that are already running are finished but
+     * the result is not delivered to the removed listener.
+     *
+     * @param handle Handle of the load to cancel
+     */
+    public void cancel(LoadHandle handle) {
+        LoadTask task = handle.mTask;
+        synchronized (mPendingLoads) {
+            task.mListeners.remove(handle.mListener);
+            if (!task.mListeners.isEmpty() || task.mStarted) {
+                return;
+            }
+            if (mPendingLoads.get(task.mKey) == task) {
+                mPendingLoads.remove(task.mKey);
+            }
+        }
+
+        mExecutor.remove(task);
+    }
+
+    /**
+     * Removes the task from the pending loads.
+     *
+     * @return The listeners that were waiting for the task.
+     */
+    private List<ArtworkLoadListener> finishTask(LoadTask task) {
+        synchronized (mPendingLoads) {
+            if (mPendingLoads.get(task.mKey) == task) {
+                mPendingLoads.remove(task.mKey);
+            }
+            List<ArtworkLoadListener> listeners = new ArrayList<>(task.mListeners);
+            task.mListeners.clear();
+            return listeners;
+        }
+    }
+
+    private class LoadTask implements Runnable {
+        private final String mKey;
+        private final ArtworkLoad mLoad;
+
+        /**
+         * Guarded by mPendingLoads
+         */
+        private final List<ArtworkLoadListener> mListeners = new ArrayList<>(1);
+
+        /**
+         * Guarded by mPendingLoads
+         */
+        private boolean mStarted;
+
+        private LoadTask(String key, ArtworkLoad load) {
+            mKey = key;
+            mLoad = load;
+        }
+
+        @Override
+        public void run() {
+            synchronized (mPendingLoads) {
+                // All listeners were cancelled while waiting
+                if (mListeners.isEmpty()) {
+                    if (mPendingLoads.get(mKey) == this) {
+                        mPendingLoads.remove(mKey);
+                    }
+                    return;
+                }
+                mStarted = true;
+            }
+
+            Bitmap image = mLoad.loadImage();
+
+            for (ArtworkLoadListener listener : finishTask(this)) {
+                listener.onArtworkLoaded(image);
+            }
+        }
+
+        private void drop() {
+            for (ArtworkLoadListener listener : finishTask(this)) {
+                listener.onArtworkLoaded(null);
+            }
+        }
+    }
+
+    /**
+     * Bounded queue that hands out the newest load first. If the queue is full the oldest load
+     * is dropped to make room for the new one.
+     */
+    private class LIFOLoadQueue extends LinkedBlockingDeque<Runnable> {
+        private LIFOLoadQueue() {
+            super(MAX_QUEUED_LOADS);
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            while (!offerFirst(runnable)) {
+                Runnable droppedLoad = pollLast();
+                if (droppedLoad instanceof LoadTask) {
+                    ((LoadTask) droppedLoad).drop();
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private int mThreadCount;
+
+        @Override
+        public synchronized Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // Keep the loading of images from interfering with the GUI thread
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, TAG + "-" + mThreadCount++);
+            return thread;
+        }
+    }
+}
@@ -23,7 +23,8 @@
 package org.gateshipone.malp.application.utils;
 
 import android.graphics.Bitmap;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 
 
 import org.gateshipone.malp.application.adapters.ScrollSpeedAdapter;
@@ -36,11 +37,26 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 
 /*
- * Loaderclass for covers
+ * Loaderclass for covers. The images are loaded by the shared {@link ArtworkLoadExecutor}.
  */
-public class AsyncLoader extends AsyncTask<AsyncLoader.CoverViewHolder, Void, Bitmap> {
+public class AsyncLoader implements ArtworkLoadExecutor.ArtworkLoadListener {
     private static final String TAG = AsyncLoader.class.getSimpleName();
-    private CoverViewHolder mCover;
+
+    /**
+     * Handler to deliver the loaded images to the GUI thread
+     */
+    private static final Handler mGUIHandler = new Handler(Looper.getMainLooper());
+
+    private CoverLoadable mCoverLoadable;
+
+    private ScrollSpeedAdapter mAdapter;
+
+    private ArtworkLoadExecutor.LoadHandle mLoadHandle;
+
+    /**
+     * Only accessed from the GUI thread
+     */
+    private boolean mCancelled;
 
     /**
      * Time when loading of the image started to determine the loading speed of images.
@@ -55,84 +71,151 @@ public class AsyncLoader extends AsyncTask<AsyncLoader.CoverViewHolder, Void, Bi
         public ArtworkManager artworkManager;
         public MPDGenericItem modelItem;
         public ScrollSpeedAdapter mAdapter;
+        /**
+         * Maximum width/height the image is shown with. 0 if not known.
+         */
+        public int imageDimension;
     }
 
     /**
-     * Asynchronous task in parallel to the GUI thread.
-     * @param params Input parameter containing all the necessary informaton to fetch the image.
-     * @return Bitmap loaded from the database.
+     * Starts loading the image. Must be called from the GUI thread. The values of the holder
+     * are copied, so it can be reused afterwards.
+     *
+     * @param cover Holder containing all the necessary informaton to fetch the image.
      */
-    @Override
-    protected Bitmap doInBackground(CoverViewHolder... params) {
+    public void execute(CoverViewHolder cover) {
         // Save the time when loading started for later duration calculation
         mStartTime = System.currentTimeMillis();
-        mCover = params[0];
+        mCoverLoadable = cover.coverLoadable;
+        mAdapter = cover.mAdapter;
+
+        final ArtworkManager artworkManager = cover.artworkManager;
+        final MPDGenericItem modelItem = cover.modelItem;
+        final int imageDimension = cover.imageDimension;
+
+        mLoadHandle = ArtworkLoadExecutor.getInstance().submit(createKey(modelItem, imageDimension), new ArtworkLoadExecutor.ArtworkLoad() {
+            @Override
+            public Bitmap loadImage() {
+                return AsyncLoader.loadImage(artworkManager, modelItem, imageDimension);
+            }
+        }, this);
+    }
+
+    /**
+     * Cancels the loading, e.g. because the view was recycled for another item.
+     * Must be called from the GUI thread.
+     */
+    public void cancel() {
+        mCancelled = true;
+        if (null != mLoadHandle) {
+            ArtworkLoadExecutor.getInstance().cancel(mLoadHandle);
+            mLoadHandle = null;
+        }
+    }
+
+    /**
+     * Called when the image was loaded. This is called from the loader thread.
+     * @param image Bitmap that was loaded.
+     */
+    @Override
+    public void onArtworkLoaded(final Bitmap image) {
+        mGUIHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCancelled) {
+                    return;
+                }
+
+                // Check if an image was loaded
+                if (null != image) {
+                    // Check how long image loading took and notify the adapter about the time.
+                    if (mAdapter != null) {
+                        mAdapter.addImageLoadTime(System.currentTimeMillis() - mStartTime);
+                    }
+
+                }
+                // Set the newly loaded image to the view.
+                mCoverLoadable.setImage(image);
+            }
+        });
+    }
+
+    /**
+     * Creates the key for the de-duplication of loads for the same image.
+     */
+    private static String createKey(MPDGenericItem modelItem, int imageDimension) {
+        StringBuilder key = new StringBuilder();
+        if (modelItem instanceof MPDArtist) {
+            MPDArtist artist = (MPDArtist) modelItem;
+            key.append("artist:").append(artist.getArtistName());
+            for (int i = 0; i < artist.getMBIDCount(); i++) {
+                key.append('\u0000').append(artist.getMBID(i));
+            }
+        } else if (modelItem instanceof MPDAlbum) {
+            MPDAlbum album = (MPDAlbum) modelItem;
+            key.append("album:").append(album.getName()).append('\u0000').append(album.getArtistName())
+                    .append('\u0000').append(album.getMBID());
+        } else if (modelItem instanceof MPDTrack) {
+            MPDTrack track = (MPDTrack) modelItem;
+            key.append("track:").append(track.getTrackAlbum()).append('\u0000').append(track.getTrackAlbumArtist())
+                    .append('\u0000').append(track.getTrackArtist()).append('\u0000').append(track.getTrackAlbumMBID());
+        } else {
+            key.append(modelItem.getClass().getSimpleName()).append(':').append(System.identityHashCode(modelItem));
+        }
+        key.append('@').append(imageDimension);
+        return key.toString();
+    }
+
+    /**
+     * Loads the image for the model item. Runs on a loader thread.
+     * @return Bitmap loaded from the database.
+     */
+    private static Bitmap loadImage(ArtworkManager artworkManager, MPDGenericItem modelItem, int imageDimension) {
         Bitmap image = null;
         // Check if model item is artist or album
-        if (mCover.modelItem instanceof MPDArtist) {
-            MPDArtist artist = (MPDArtist)mCover.modelItem;
+        if (modelItem instanceof MPDArtist) {
+            MPDArtist artist = (MPDArtist)modelItem;
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getArtistImage(artist);
+                image = artworkManager.getArtistImage(artist, imageDimension);
             } catch (ImageNotFoundException e) {
                 // Check if fetching for this item is already ongoing
                 if (!artist.getFetching()) {
                     // If not set it as ongoing and request the image fetch.
-                    mCover.artworkManager.fetchArtistImage(artist);
+                    artworkManager.fetchArtistImage(artist);
                     artist.setFetching(true);
                 }
             }
-        } else if (mCover.modelItem instanceof MPDAlbum) {
-            MPDAlbum album = (MPDAlbum)mCover.modelItem;
+        } else if (modelItem instanceof MPDAlbum) {
+            MPDAlbum album = (MPDAlbum)modelItem;
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception.
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getAlbumImage(album);
+                image = artworkManager.getAlbumImage(album, imageDimension);
             } catch (ImageNotFoundException e) {
                 // Check if fetching for this item is already ongoing
                 if (!album.getFetching()) {
                     // If not set it as ongoing and request the image fetch.
-                    mCover.artworkManager.fetchAlbumImage(album);
+                    artworkManager.fetchAlbumImage(album);
                     album.setFetching(true);
                 }
             }
-        } else if (mCover.modelItem instanceof MPDTrack) {
-            MPDTrack track = (MPDTrack)mCover.modelItem;
+        } else if (modelItem instanceof MPDTrack) {
+            MPDTrack track = (MPDTrack)modelItem;
             try {
                 // Check if image is available. If it is not yet fetched it will throw an exception.
                 // If it was already searched for and not found, this will be null.
-                image = mCover.artworkManager.getAlbumImageForTrack(track);
+                image = artworkManager.getAlbumImageForTrack(track, imageDimension);
             } catch (ImageNotFoundException e) {
                 // Check if fetching for this item is already ongoing
                 if (!track.getFetching()) {
                     // If not set it as ongoing and request the image fetch.
-                    mCover.artworkManager.fetchAlbumImage(track);
+                    artworkManager.fetchAlbumImage(track);
                     track.setFetching(true);
                 }
             }
         }
         return image;
     }
-
-
-    /**
-     * Called when the asynchronous task finishes. This is called inside the GUI context.
-     * @param result Bitmap that was loaded.
-     */
-    @Override
-    protected void onPostExecute(Bitmap result) {
-        super.onPostExecute(result);
-
-        // set mCover if exists
-        if ( null != result ) {
-            // Check how long image loading took and notify the adapter about the time.
-            if ( mCover.mAdapter != null) {
-                mCover.mAdapter.addImageLoadTime(System.currentTimeMillis() - mStartTime);
-            }
-
-        }
-        // Set the newly loaded image to the view.
-        mCover.coverLoadable.setImage(result);
-    }
-}
\ No newline at end of file
+}
@@ -36,7 +36,6 @@ public class CoverBitmapLoader {
     private static final String TAG = CoverBitmapLoader.class.getSimpleName();
     private final CoverBitmapListener mListener;
     private final Context mContext;
-    private MPDTrack mTrack;
 
     public CoverBitmapLoader(Context context, CoverBitmapListener listener) {
         mContext = context;
@@ -56,10 +55,10 @@ public class CoverBitmapLoader {
      */
     public void getImage(MPDTrack track, boolean fetchImage) {
         if (track != null) {
-            mTrack = track;
-            // start the loader thread to load the image async
-            Thread loaderThread = new Thread(new ImageRunner(fetchImage));
-            loaderThread.start();
+            // load the image async on the shared loader threads
+            String key = "track_album:" + track.getTrackAlbum() + '\u0000' + track.getTrackAlbumArtist() + '\u0000'
+                    + track.getTrackArtist() + '\u0000' + track.getTrackAlbumMBID() + '@' + fetchImage;
+            ArtworkLoadExecutor.getInstance().submit(key, new ImageRunner(track, fetchImage), new ImageReceiver(IMAGE_TYPE.ALBUM_IMAGE));
         }
     }
 
@@ -68,9 +67,9 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        Thread loaderThread = new Thread(new ArtistImageRunner(artist, fetchImage));
-        loaderThread.start();
+        // load the image async on the shared loader threads
+        ArtworkLoadExecutor.getInstance().submit(createArtistKey(artist, fetchImage), new ArtistImageRunner(artist, fetchImage),
+                new ImageReceiver(IMAGE_TYPE.ARTIST_IMAGE));
     }
 
     public void getArtistImage(MPDTrack track, boolean fetchImage) {
@@ -78,9 +77,14 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        Thread loaderThread = new Thread(new TrackArtistImageRunner(track, fetchImage));
-        loaderThread.start();
+        MPDArtist artist = new MPDArtist(track.getTrackArtist());
+        if ( !track.getTrackArtistMBID().isEmpty()) {
+            artist.addMBID(track.getTrackArtistMBID());
+        }
+
+        // load the image async on the shared loader threads
+        ArtworkLoadExecutor.getInstance().submit(createArtistKey(artist, fetchImage), new ArtistImageRunner(artist, fetchImage),
+                new ImageReceiver(IMAGE_TYPE.ARTIST_IMAGE));
     }
 
     public void getAlbumImage(MPDAlbum album, boolean fetchImage) {
@@ -88,42 +92,44 @@ public class CoverBitmapLoader {
             return;
         }
 
-        // start the loader thread to load the image async
-        Thread loaderThread = new Thread(new AlbumImageRunner(album, fetchImage));
-        loaderThread.start();
+        // load the image async on the shared loader threads
+        String key = "album:" + album.getName() + '\u0000' + album.getArtistName() + '\u0000' + album.getMBID() + '@' + fetchImage;
+        ArtworkLoadExecutor.getInstance().submit(key, new AlbumImageRunner(album, fetchImage), new ImageReceiver(IMAGE_TYPE.ALBUM_IMAGE));
     }
 
-    private class ImageRunner implements Runnable {
+    private static String createArtistKey(MPDArtist artist, boolean fetchImage) {
+        StringBuilder key = new StringBuilder("artist:").append(artist.getArtistName());
+        for (int i = 0; i < artist.getMBIDCount(); i++) {
+            key.append('\u0000').append(artist.getMBID(i));
+        }
+        key.append('@').append(fetchImage);
+        return key.toString();
+    }
 
-        private boolean mFetchImage;
+    /**
+     * Forwards the loaded image to the listener of this loader.
+     */
+    private class ImageReceiver implements ArtworkLoadExecutor.ArtworkLoadListener {
 
-        public ImageRunner(boolean fetchImage) {
-            mFetchImage = fetchImage;
+        private final IMAGE_TYPE mType;
+
+        public ImageReceiver(IMAGE_TYPE type) {
+            mType = type;
         }
 
-        /**
-         * Load the image for the given track from the mediastore.
-         */
         @Override
-        public void run() {
-            try {
-                Bitmap albumImage = ArtworkManager.getInstance(mContext.getApplicationContext()).getAlbumImageForTrack(mTrack);
-                mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
-            } catch (ImageNotFoundException e) {
-                if (mFetchImage) {
-                    ArtworkManager.getInstance(mContext.getApplicationContext()).fetchAlbumImage(mTrack);
-                }
-            }
+        public void onArtworkLoaded(Bitmap image) {
+            mListener.receiveBitmap(image, mType);
         }
     }
 
-    private class ArtistImageRunner implements Runnable {
+    private class ImageRunner implements ArtworkLoadExecutor.ArtworkLoad {
 
-        private MPDArtist mArtist;
+        private MPDTrack mTrack;
         private boolean mFetchImage;
 
-        public ArtistImageRunner(MPDArtist artist, boolean fetchImage) {
-            mArtist = artist;
+        public ImageRunner(MPDTrack track, boolean fetchImage) {
+            mTrack = track;
             mFetchImage = fetchImage;
         }
 
@@ -131,28 +137,25 @@ public class CoverBitmapLoader {
          * Load the image for the given track from the mediastore.
          */
         @Override
-        public void run() {
+        public Bitmap loadImage() {
             try {
-                Bitmap artistImage = ArtworkManager.getInstance(mContext.getApplicationContext()).getArtistImage(mArtist);
-                mListener.receiveBitmap(artistImage, IMAGE_TYPE.ARTIST_IMAGE);
+                return ArtworkManager.getInstance(mContext.getApplicationContext()).getAlbumImageForTrack(mTrack);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
-                    ArtworkManager.getInstance(mContext.getApplicationContext()).fetchArtistImage(mArtist);
+                    ArtworkManager.getInstance(mContext.getApplicationContext()).fetchAlbumImage(mTrack);
                 }
             }
+            return null;
         }
     }
 
-    private class TrackArtistImageRunner implements Runnable {
+    private class ArtistImageRunner implements ArtworkLoadExecutor.ArtworkLoad {
 
         private MPDArtist mArtist;
         private boolean mFetchImage;
 
-        public TrackArtistImageRunner(MPDTrack track, boolean fetchImage) {
-            mArtist = new MPDArtist(track.getTrackArtist());
-            if ( !track.getTrackArtistMBID().isEmpty()) {
-                mArtist.addMBID(track.getTrackArtistMBID());
-            }
+        public ArtistImageRunner(MPDArtist artist, boolean fetchImage) {
+            mArtist = artist;
             mFetchImage = fetchImage;
         }
 
@@ -160,19 +163,19 @@ public class CoverBitmapLoader {
          * Load the image for the given track from the mediastore.
          */
         @Override
-        public void run() {
+        public Bitmap loadImage() {
             try {
-                Bitmap artistImage = ArtworkManager.getInstance(mContext.getApplicationContext()).getArtistImage(mArtist);
-                mListener.receiveBitmap(artistImage, IMAGE_TYPE.ARTIST_IMAGE);
+                return ArtworkManager.getInstance(mContext.getApplicationContext()).getArtistImage(mArtist);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
                     ArtworkManager.getInstance(mContext.getApplicationContext()).fetchArtistImage(mArtist);
                 }
             }
+            return null;
         }
     }
 
-    private class AlbumImageRunner implements Runnable {
+    private class AlbumImageRunner implements ArtworkLoadExecutor.ArtworkLoad {
 
         private MPDAlbum mAlbum;
         private boolean mFetchImage;
@@ -186,15 +189,15 @@ public class CoverBitmapLoader {
          * Load the image for the given track from the mediastore.
          */
         @Override
-        public void run() {
+        public Bitmap loadImage() {
             try {
-                Bitmap albumImage = ArtworkManager.getInstance(mContext.getApplicationContext()).getAlbumImage(mAlbum);
-                mListener.receiveBitmap(albumImage, IMAGE_TYPE.ALBUM_IMAGE);
+                return ArtworkManager.getInstance(mContext.getApplicationContext()).getAlbumImage(mAlbum);
             } catch (ImageNotFoundException e) {
                 if (mFetchImage) {
                     ArtworkManager.getInstance(mContext.getApplicationContext()).fetchAlbumImage(mAlbum);
                 }
             }
+            return null;
         }
     }
 
@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes album and artist names so that different spellings of the same name can be matched,
+ * e.g. "The Beatles" and "Beatles" or "AC/DC" and "ac dc".
+ */
+public class NameNormalizer {
+
+    /**
+     * Combining marks that remain after the decomposition of accented characters
+     */
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{Mn}+");
+
+    /**
+     * Everything that is not a letter or a digit
+     */
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Leading articles that are ignored. They are only removed if something remains.
+     */
+    private static final String[] ARTICLES = {"the ", "a ", "an ", "der ", "die ", "das ", "le ", "la ", "les ", "l'", "el ", "los ", "las "};
+
+    /**
+     * Returns the name case folded and without diacritics. In contrast to {@link #normalize(String)}
+     * punctuation and articles are kept, so it can be used for substring matching.
+     *
+     * @param name Name to fold, may be null
+     * @return The folded name, an empty string for null
+     */
+    public static String fold(String name) {
+        if (null == name) {
+            return "";
+        }
+
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        folded = DIACRITICS.matcher(folded).replaceAll("");
+        return folded.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the normalized form of the given name: case folded, without diacritics,
+     * punctuation and leading article.
+     *
+     * @param name Name to normalize, may be null
+     * @return The normalized name, an empty string for null
+     */
+    public static String normalize(String name) {
+        if (null == name) {
+            return "";
+        }
+
+        String normalized = fold(name).trim();
+
+        for (String article : ARTICLES) {
+            if (normalized.startsWith(article) && normalized.length() > article.length()) {
+                normalized = normalized.substring(article.length());
+                break;
+            }
+        }
+
+        normalized = PUNCTUATION.matcher(normalized).replaceAll(" ").trim();
+
+        if (normalized.isEmpty()) {
+            // Names like "!!!" consist only of punctuation. Keep them distinguishable.
+            return name.toLowerCase(Locale.ROOT).trim();
+        }
+
+        return normalized;
+    }
+}
@@ -36,6 +36,7 @@ import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.support.v4.view.MenuItemCompat;
@@ -230,6 +231,17 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
     private MPDCurrentStatus mLastStatus;
     private MPDTrack mLastTrack;
 
+    /**
+     * Updates the position views once per second while playing. The position is calculated
+     * from the last status of the server.
+     */
+    private PositionUpdater mPositionUpdater;
+
+    /**
+     * True while the view is resumed and the position should be updated
+     */
+    private boolean mPositionUpdatesActive;
+
     private boolean mUseEnglishWikipedia;
 
     public NowPlayingView(Context context) {
@@ -247,6 +259,7 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         mConnectionStateListener = new ServerConnectionListener();
         mLastStatus = new MPDCurrentStatus();
         mLastTrack = new MPDTrack("");
+        mPositionUpdater = new PositionUpdater();
     }
 
     /**
@@ -1264,6 +1277,10 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
      * Unregister the receiver for NowPlayingInformation intends, not needed anylonger.
      */
     public void onPause() {
+        // Stop the position updates
+        mPositionUpdatesActive = false;
+        removeCallbacks(mPositionUpdater);
+
         // Unregister listener
         MPDStateMonitoringHandler.unregisterStatusListener(mStateListener);
         MPDStateMonitoringHandler.unregisterConnectionStateListener(mConnectionStateListener);
@@ -1318,6 +1335,9 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         MPDStateMonitoringHandler.registerStatusListener(mStateListener);
         MPDStateMonitoringHandler.registerConnectionStateListener(mConnectionStateListener);
 
+        mPositionUpdatesActive = true;
+        updatePosition();
+
         mPlaylistView.onResume();
         ArtworkManager.getInstance(getContext().getApplicationContext()).registerOnNewAlbumImageListener(this);
         ArtworkManager.getInstance(getContext().getApplicationContext()).registerOnNewArtistImageListener(this);
@@ -1377,11 +1397,8 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
                 break;
         }
 
-        // Update position seekbar & textviews
+        // Update position seekbar & textviews. The position itself is updated after the status is saved.
         mPositionSeekbar.setMax(status.getTrackLength());
-        mPositionSeekbar.setProgress(status.getElapsedTime());
-
-        mElapsedTime.setText(FormatHelper.formatTracktimeFromS(status.getElapsedTime()));
         mDuration.setText(FormatHelper.formatTracktimeFromS(status.getTrackLength()));
 
         // Update volume seekbar
@@ -1410,6 +1427,7 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
                 String.valueOf(status.getPlaylistLength()));
 
         mLastStatus = status;
+        updatePosition();
 
         mBitrate.setText(status.getBitrate() + getResources().getString(R.string.bitrate_unit_kilo_bits));
 
@@ -1581,6 +1599,30 @@ public class NowPlayingView extends RelativeLayout implements PopupMenu.OnMenuIt
         void onStartDrag();
     }
 
+    /**
+     * Shows the current position calculated from the last status. While playing the next
+     * update is scheduled for the moment the displayed second changes.
+     */
+    private void updatePosition() {
+        removeCallbacks(mPositionUpdater);
+
+        long elapsedMs = mLastStatus.getElapsedTimeMsAt(SystemClock.elapsedRealtime());
+        int elapsed = (int) (elapsedMs / 1000);
+        mPositionSeekbar.setProgress(elapsed);
+        mElapsedTime.setText(FormatHelper.formatTracktimeFromS(elapsed));
+
+        if (mPositionUpdatesActive && mLastStatus.getPlaybackState() == MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING) {
+            postDelayed(mPositionUpdater, 1000 - (elapsedMs % 1000));
+        }
+    }
+
+    private class PositionUpdater implements Runnable {
+        @Override
+        public void run() {
+            updatePosition();
+        }
+    }
+
     private class ServerStatusListener extends MPDStatusChangeHandler {
 
         @Override
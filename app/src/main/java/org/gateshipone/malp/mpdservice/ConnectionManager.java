@@ -38,7 +38,9 @@ import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDCommandHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDGenericHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDQueryHandler;
 import org.gateshipone.malp.mpdservice.handlers.serverhandler.MPDStateMonitoringHandler;
+import org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDProfileManager;
 import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerProfile;
@@ -120,6 +122,12 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
         int port = getInstance().mPort;
         mConnectionManager.mServerProfile = profile;
 
+        // Number of additional connections used for queries to this server
+        MPDConnectionPool.getInstance().setPoolSize(profile.getConnectionPoolSize());
+
+        // Open (or remove) the local library mirror of the profile
+        LibraryMirror.getInstance().setProfile(context, profile);
+
         MPDCommandHandler.setServerParameters(hostname, password, port);
     }
 
@@ -213,6 +221,9 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
             mReconnectTimer.purge();
             mReconnectTimer = null;
         }
+
+        // Check if the server database changed while disconnected
+        LibraryMirror.getInstance().requestSync();
     }
 
     public synchronized static void setAutoconnect(boolean enabled) {
@@ -319,6 +330,16 @@ public class ConnectionManager extends MPDConnectionStateChangeHandler {
     }
 
 
+    /**
+     * @return Address (hostname:port) of the current server or null if no server was set
+     */
+    public String getServerAddress() {
+        if (null == mHostname) {
+            return null;
+        }
+        return mHostname + ':' + mPort;
+    }
+
     public String getProfileName() {
         return mServerProfile.getProfileName();
     }
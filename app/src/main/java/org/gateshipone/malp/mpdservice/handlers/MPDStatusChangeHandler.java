@@ -35,6 +35,8 @@ public abstract class MPDStatusChangeHandler extends Handler {
     public enum MPD_STATUS_RESPONSE_ACTION {
         MPD_STATUS_RESPONSE_ACTION_NEW_STATUS,
         MPD_STATUS_RESPONSE_ACTION_NEW_TRACK,
+        MPD_STATUS_RESPONSE_ACTION_DATABASE_CHANGED,
+        MPD_STATUS_RESPONSE_ACTION_STORED_PLAYLISTS_CHANGED,
     }
 
     /**
@@ -48,6 +50,10 @@ public abstract class MPDStatusChangeHandler extends Handler {
             onNewStatusReady((MPDCurrentStatus)msg.obj);
         } else if ( msg.obj instanceof MPDTrack) {
             onNewTrackReady((MPDTrack) msg.obj);
+        } else if ( msg.obj == MPD_STATUS_RESPONSE_ACTION.MPD_STATUS_RESPONSE_ACTION_DATABASE_CHANGED) {
+            onDatabaseChanged();
+        } else if ( msg.obj == MPD_STATUS_RESPONSE_ACTION.MPD_STATUS_RESPONSE_ACTION_STORED_PLAYLISTS_CHANGED) {
+            onStoredPlaylistsChanged();
         }
 
 
@@ -67,6 +73,34 @@ public abstract class MPDStatusChangeHandler extends Handler {
         this.sendMessage(msg);
     }
 
+    public void databaseChanged() {
+        Message msg = this.obtainMessage();
+        msg.obj = MPD_STATUS_RESPONSE_ACTION.MPD_STATUS_RESPONSE_ACTION_DATABASE_CHANGED;
+
+        this.sendMessage(msg);
+    }
+
+    public void storedPlaylistsChanged() {
+        Message msg = this.obtainMessage();
+        msg.obj = MPD_STATUS_RESPONSE_ACTION.MPD_STATUS_RESPONSE_ACTION_STORED_PLAYLISTS_CHANGED;
+
+        this.sendMessage(msg);
+    }
+
     abstract protected void onNewStatusReady(MPDCurrentStatus status);
     abstract protected void onNewTrackReady(MPDTrack track);
+
+    /**
+     * Called when the database of the server changed. Cached browse results should be dropped.
+     */
+    protected void onDatabaseChanged() {
+
+    }
+
+    /**
+     * Called when the saved playlists of the server changed.
+     */
+    protected void onStoredPlaylistsChanged() {
+
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.gateshipone.malp.mpdservice.handlers.responsehandler;
+
+
+import android.os.Message;
+
+import java.util.List;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+/**
+ * Response class for the combined state request (status, current song and a window of the
+ * current playlist) that is fetched with one pipelined network round trip.
+ */
+public abstract class MPDResponseCurrentState extends MPDResponseHandler {
+
+    /**
+     * Container for the combined results. Used as the message payload.
+     */
+    public static class CurrentState {
+        public final MPDCurrentStatus mStatus;
+        public final MPDTrack mTrack;
+        public final List<MPDFileEntry> mPlaylistWindow;
+        public final int mWindowStart;
+        public final int mWindowEnd;
+
+        public CurrentState(MPDCurrentStatus status, MPDTrack track, List<MPDFileEntry> playlistWindow, int windowStart, int windowEnd) {
+            mStatus = status;
+            mTrack = track;
+            mPlaylistWindow = playlistWindow;
+            mWindowStart = windowStart;
+            mWindowEnd = windowEnd;
+        }
+    }
+
+    public MPDResponseCurrentState() {
+
+    }
+
+    /**
+     * Handle function for the combined state. This only calls the abstract method
+     * which needs to get implemented by the user of this class.
+     * @param msg Message object containing a CurrentState object.
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+
+        CurrentState state = (CurrentState)msg.obj;
+        handleCurrentState(state.mStatus, state.mTrack, state.mPlaylistWindow, state.mWindowStart, state.mWindowEnd);
+    }
+
+    /**
+     * Abstract method to be implemented by the user of the MPD implementation.
+     * This should be a callback for the UI thread and run in the UI thread.
+     * @param status Current status of the server
+     * @param track Currently playing track. Can be null if nothing is played.
+     * @param playlistWindow Requested window of the current playlist
+     * @param windowStart Start of the requested window
+     * @param windowEnd End of the requested window
+     */
+    abstract public void handleCurrentState(MPDCurrentStatus status, MPDTrack track, List<MPDFileEntry> playlistWindow, int windowStart, int windowEnd);
+}
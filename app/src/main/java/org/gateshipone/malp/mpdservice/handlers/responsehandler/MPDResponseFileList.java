@@ -26,6 +26,7 @@ package org.gateshipone.malp.mpdservice.handlers.responsehandler;
 import android.os.Bundle;
 import android.os.Message;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
@@ -34,6 +35,21 @@ public abstract class MPDResponseFileList extends MPDResponseHandler {
     public static final String EXTRA_WINDOW_START = "windowstart";
     public static final String EXTRA_WINDOW_END = "windowend";
 
+    /**
+     * Set if the message only contains a batch of a response that is delivered in parts
+     */
+    public static final String EXTRA_PARTIAL = "partial";
+
+    /**
+     * Set together with {@link #EXTRA_PARTIAL} for the last batch of the response
+     */
+    public static final String EXTRA_PARTIAL_LAST = "partial_last";
+
+    /**
+     * Batches received so far by the default implementation of {@link #handlePartialTracks(List, boolean)}
+     */
+    private List<MPDFileEntry> mPartialEntries;
+
     public MPDResponseFileList() {
 
     }
@@ -53,9 +69,35 @@ public abstract class MPDResponseFileList extends MPDResponseHandler {
 
         /* Call album response handler */
         List<MPDFileEntry> trackList = (List<MPDFileEntry>)msg.obj;
+        if (args.getBoolean(EXTRA_PARTIAL)) {
+            handlePartialTracks(trackList, args.getBoolean(EXTRA_PARTIAL_LAST));
+            return;
+        }
         handleTracks(trackList, windowStart, windowEnd);
     }
 
+    /**
+     * Called with the batches of a response that is delivered in parts (e.g. file listings), in the
+     * order of the server. The default implementation collects the batches and calls
+     * {@link #handleTracks(List, int, int)} with the complete list after the last batch.
+     * Can be overridden to show the first entries while the rest is still received. Runs in the UI thread.
+     * @param fileList Batch of entries or null if the request failed (only for the last batch).
+     * @param lastBatch True if no further batches follow.
+     */
+    public void handlePartialTracks(List<MPDFileEntry> fileList, boolean lastBatch) {
+        if (null == mPartialEntries) {
+            mPartialEntries = new ArrayList<>();
+        }
+        if (null != fileList) {
+            mPartialEntries.addAll(fileList);
+        }
+        if (lastBatch) {
+            List<MPDFileEntry> completeList = null == fileList ? null : mPartialEntries;
+            mPartialEntries = null;
+            handleTracks(completeList, 0, 0);
+        }
+    }
+
     /**
      * Abstract method to be implemented by the user of the MPD implementation.
      * This should be a callback for the UI thread and run in the UI thread.
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.handlers.responsehandler;
+
+
+import android.os.Message;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylistChanges;
+
+public abstract class MPDResponsePlaylistChanges extends MPDResponseHandler {
+    public static final String EXTRA_PLAYLIST_VERSION = "playlistversion";
+
+    public MPDResponsePlaylistChanges() {
+
+    }
+
+    /**
+     * Handle function for the playlist changes. This only calls the abstract method
+     * which needs to get implemented by the user of this class.
+     * @param msg Message object containing a MPDPlaylistChanges object.
+     */
+    @Override
+    public void handleMessage(Message msg) {
+        super.handleMessage(msg);
+
+        int version = msg.getData().getInt(EXTRA_PLAYLIST_VERSION);
+
+        /* Call playlist changes response handler */
+        MPDPlaylistChanges changes = (MPDPlaylistChanges) msg.obj;
+        handlePlaylistChanges(changes, version);
+    }
+
+    /**
+     * Abstract method to be implemented by the user of the MPD implementation.
+     * This should be a callback for the UI thread and run in the UI thread.
+     * @param changes Changed positions of the current playlist or null if the request failed.
+     * @param version Playlist version the changes were requested for.
+     */
+    abstract public void handlePlaylistChanges(MPDPlaylistChanges changes, int version);
+}
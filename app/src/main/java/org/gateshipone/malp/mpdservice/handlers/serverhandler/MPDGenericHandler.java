@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 
 /**
  * This class is a base class for all derived handlers that talk to the MPD server.
@@ -49,6 +50,7 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
  * <p/>
  * All handlers are static singletons and run in a new spawned thread. You can get the singleton via
  * an static method. Each handler has one MPDConnection object, that is used for talking to the mpd server.
+ * The MPDQueryHandler additionally uses connections of the {@link MPDConnectionPool} for its queries.
  */
 public abstract class MPDGenericHandler extends Handler implements MPDConnection.MPDConnectionStateChangeListener {
 
@@ -123,6 +125,8 @@ public abstract class MPDGenericHandler extends Handler implements MPDConnection
                 return;
             }
             mMPDConnection.setServerParameters(hostname, password, port);
+            // Additional connections of the pool connect to the same server
+            MPDConnectionPool.getInstance().setServerParameters(hostname, password, port);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CONNECT_MPD_SERVER) {
             // Connect to the mpd server. Server parameters have to be set before.
             mMPDConnection.connectToServer();
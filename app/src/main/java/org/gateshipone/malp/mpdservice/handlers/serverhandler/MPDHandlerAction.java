@@ -50,6 +50,8 @@ public class MPDHandlerAction {
         ACTION_GET_SERVER_STATISTICS,
         ACTION_GET_CURRENT_PLAYLIST,
         ACTION_GET_CURRENT_PLAYLIST_WINDOW,
+        ACTION_GET_CURRENT_PLAYLIST_CHANGES,
+        ACTION_GET_CURRENT_STATE,
         ACTION_GET_SAVED_PLAYLIST,
         ACTION_GET_SAVED_PLAYLISTS,
         ACTION_GET_FILES,
@@ -96,6 +98,7 @@ public class MPDHandlerAction {
         ACTION_DISABLE_OUTPUT,
         ACTION_UPDATE_DATABASE,
         ACTION_SEARCH_FILES,
+        ACTION_SEARCH_FILES_WINDOW,
         ACTION_ADD_SEARCH_FILES,
         ACTION_PLAY_SEARCH_FILES
     }
@@ -135,6 +138,7 @@ public class MPDHandlerAction {
         EXTRA_WINDOW_END,
         EXTRA_OUTPUT_ID,
         EXTRA_SEARCH_TYPE,
+        EXTRA_PLAYLIST_VERSION,
     }
 
     /**
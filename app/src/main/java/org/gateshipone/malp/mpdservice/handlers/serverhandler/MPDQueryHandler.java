@@ -32,21 +32,33 @@ import android.util.Log;
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseAlbumList;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseArtistList;
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseCurrentState;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseFileList;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseOutputList;
+import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponsePlaylistChanges;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseServerStatistics;
+import org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCapabilities;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDPipelinedCommand;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylistChanges;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This handler is used for all long running queries to the mpd server. This includes:
@@ -67,6 +79,21 @@ public class MPDQueryHandler extends MPDGenericHandler {
      */
     private static final String THREAD_NAME = "AndroMPD-QueryHandler";
 
+    /**
+     * Message type of windowed search requests, so that pending ones can be removed when the
+     * search is changed before they are processed.
+     */
+    private static final int MSG_SEARCH_WINDOW = 1;
+
+    /**
+     * Number of entries sent at once to the response handler while a file listing is received.
+     */
+    private static final int FILE_BATCH_SIZE = 500;
+
+    /**
+     * Time after that idle query threads are stopped (time in ms)
+     */
+    private static final int QUERY_THREAD_KEEP_ALIVE = 30 * 1000;
 
     /**
      * HandlerThread that is used by the looper. This ensures that all requests to this handler
@@ -75,6 +102,18 @@ public class MPDQueryHandler extends MPDGenericHandler {
     private static HandlerThread mHandlerThread = null;
     private static MPDQueryHandler mHandlerSingleton = null;
 
+    /**
+     * Threads that handle the read-only queries in parallel, one for each connection of the
+     * {@link MPDConnectionPool}. Requests that modify the server state are still handled
+     * in order by the thread of this handler.
+     */
+    private final ThreadPoolExecutor mQueryExecutor;
+
+    /**
+     * Increased by {@link #cancelSearches()}. Windowed searches requested before are dropped.
+     */
+    private volatile int mSearchGeneration;
+
     /**
      * Private constructor for use in singleton. Called by the static singleton retrieval method.
      *
@@ -83,6 +122,9 @@ public class MPDQueryHandler extends MPDGenericHandler {
     protected MPDQueryHandler(Looper looper) {
         super(looper);
         mMPDConnection.setID("Query");
+
+        mQueryExecutor = new ThreadPoolExecutor(1, 1, QUERY_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        mQueryExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -129,6 +171,192 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
         MPDHandlerAction mpdAction = (MPDHandlerAction) msg.obj;
 
+        MPDHandlerAction.NET_HANDLER_ACTION action = mpdAction.getAction();
+        // Connection state actions are already handled by the baseclass on the primary connection
+        if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SET_SERVER_PARAMETERS ||
+                action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CONNECT_MPD_SERVER ||
+                action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_DISCONNECT_MPD_SERVER) {
+            return;
+        }
+
+        // Read-only queries do not depend on each other and can run in parallel on the pooled connections
+        if (isReadOnlyQuery(action)) {
+            dispatchQuery(mpdAction);
+            return;
+        }
+
+        // Commands that modify the server state use the primary connection, so that they are
+        // never delayed by queries that hold all pooled connections.
+        handleQuery(mpdAction, mMPDConnection);
+    }
+
+    /**
+     * Checks if the action only reads from the server. Those actions can be handled in parallel,
+     * while actions that modify the server state (e.g. the current playlist) have to keep their order.
+     * The current playlist queries are kept in order as well, so that the changes are received
+     * in the same order as they happened.
+     *
+     * @param action Action to check
+     * @return True if the action can be handled in parallel to other actions.
+     */
+    private static boolean isReadOnlyQuery(MPDHandlerAction.NET_HANDLER_ACTION action) {
+        switch (action) {
+            case ACTION_GET_ALBUMS:
+            case ACTION_GET_ALBUMS_IN_PATH:
+            case ACTION_GET_ARTIST_ALBUMS:
+            case ACTION_GET_ARTISTS:
+            case ACTION_GET_ALBUMARTISTS:
+            case ACTION_GET_ALBUM_TRACKS:
+            case ACTION_GET_ARTIST_ALBUM_TRACKS:
+            case ACTION_GET_FILES:
+            case ACTION_GET_SAVED_PLAYLIST:
+            case ACTION_GET_SAVED_PLAYLISTS:
+            case ACTION_GET_OUTPUTS:
+            case ACTION_GET_SERVER_STATISTICS:
+            case ACTION_SEARCH_FILES:
+            case ACTION_SEARCH_FILES_WINDOW:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Hands the action over to the query threads. The number of threads follows the size of the
+     * connection pool, because more threads would only wait for a free connection.
+     *
+     * @param mpdAction Action to handle
+     */
+    private void dispatchQuery(final MPDHandlerAction mpdAction) {
+        int threadCount = Math.max(1, MPDConnectionPool.getInstance().getPoolSize());
+        if (threadCount > mQueryExecutor.getMaximumPoolSize()) {
+            mQueryExecutor.setMaximumPoolSize(threadCount);
+            mQueryExecutor.setCorePoolSize(threadCount);
+        } else if (threadCount < mQueryExecutor.getMaximumPoolSize()) {
+            mQueryExecutor.setCorePoolSize(threadCount);
+            mQueryExecutor.setMaximumPoolSize(threadCount);
+        }
+
+        final int searchGeneration = mSearchGeneration;
+        mQueryExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Drop windowed searches that were cancelled while waiting for a free thread
+                if (mpdAction.getAction() == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_WINDOW &&
+                        searchGeneration != mSearchGeneration) {
+                    return;
+                }
+                runQuery(mpdAction);
+            }
+        });
+    }
+
+    /**
+     * Handles the read-only action with the library mirror or a connection of the pool.
+     *
+     * @param mpdAction Action to handle
+     */
+    private void runQuery(MPDHandlerAction mpdAction) {
+        // Browse queries are answered by the local library mirror without the server if it is available
+        if (handleMirrorQuery(mpdAction)) {
+            return;
+        }
+
+        // Use a separate connection of the pool, so that long running queries do not block
+        // playback commands and state monitoring on the primary connection.
+        MPDConnection connection = MPDConnectionPool.getInstance().checkout();
+        try {
+            handleQuery(mpdAction, connection);
+        } finally {
+            MPDConnectionPool.getInstance().checkin(connection);
+        }
+    }
+
+    /**
+     * Answers the browse queries (albums, artists, album tracks, searches) from the {@link LibraryMirror}.
+     *
+     * @param mpdAction Action to handle
+     * @return True if the action was answered, false if it has to be handled with a connection to the server.
+     */
+    private boolean handleMirrorQuery(MPDHandlerAction mpdAction) {
+        LibraryMirror mirror = LibraryMirror.getInstance();
+        if (!mirror.isReady()) {
+            return false;
+        }
+
+        MPDResponseHandler responseHandler = mpdAction.getResponseHandler();
+        MPDHandlerAction.NET_HANDLER_ACTION action = mpdAction.getAction();
+        List<?> result = null;
+        Bundle data = null;
+        if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMS && responseHandler instanceof MPDResponseAlbumList) {
+            result = mirror.getAlbums();
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMS_IN_PATH && responseHandler instanceof MPDResponseAlbumList) {
+            String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
+            if (null != path) {
+                result = mirror.getAlbumsInPath(path);
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUMS && responseHandler instanceof MPDResponseAlbumList) {
+            String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
+            if (null != artistName) {
+                result = mirror.getArtistAlbums(artistName);
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTISTS && responseHandler instanceof MPDResponseArtistList) {
+            result = mirror.getArtists();
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUMARTISTS && responseHandler instanceof MPDResponseArtistList) {
+            result = mirror.getAlbumArtists();
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ALBUM_TRACKS && responseHandler instanceof MPDResponseFileList) {
+            String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
+            String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
+            if (null != albumName) {
+                result = mirror.getAlbumTracks(albumName, albumMBID);
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_ARTIST_ALBUM_TRACKS && responseHandler instanceof MPDResponseFileList) {
+            String artistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
+            String albumName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
+            String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
+            if (null != albumName && null != artistName) {
+                result = mirror.getArtistAlbumTracks(albumName, artistName, albumMBID);
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES && responseHandler instanceof MPDResponseFileList) {
+            String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+            MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
+            if (null != term) {
+                result = mirror.searchFiles(term, type);
+            }
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_WINDOW && responseHandler instanceof MPDResponseFileList) {
+            String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+            MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
+            int start = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START);
+            int end = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END);
+            if (null != term) {
+                result = mirror.searchFiles(term, type, start, end);
+                data = new Bundle();
+                data.putInt(MPDResponseFileList.EXTRA_WINDOW_START, start);
+                data.putInt(MPDResponseFileList.EXTRA_WINDOW_END, end);
+            }
+        }
+
+        if (null == result) {
+            return false;
+        }
+
+        Message responseMessage = this.obtainMessage();
+        responseMessage.obj = result;
+        if (null != data) {
+            responseMessage.setData(data);
+        }
+        responseHandler.sendMessage(responseMessage);
+        return true;
+    }
+
+    /**
+     * Handles one query action with the given connection.
+     *
+     * @param mpdAction  Action to handle
+     * @param connection Connection (checked out from the {@link MPDConnectionPool}) to use
+     */
+    private void handleQuery(MPDHandlerAction mpdAction, MPDConnection connection) {
+
         // ResponseHandler used to return the requested items to the caller
         MPDResponseHandler responseHandler;
 
@@ -147,7 +375,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDAlbum> albumList = mMPDConnection.getAlbums();
+            List<MPDAlbum> albumList = connection.getAlbums();
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
@@ -158,7 +386,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
             String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
-            List<MPDAlbum> albumList = mMPDConnection.getAlbumsInPath(path);
+            List<MPDAlbum> albumList = connection.getAlbumsInPath(path);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
@@ -170,7 +398,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDAlbum> albumList = mMPDConnection.getArtistAlbums(artistName);
+            List<MPDAlbum> albumList = connection.getArtistAlbums(artistName);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = albumList;
@@ -182,7 +410,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDArtist> artistList = mMPDConnection.getArtists();
+            List<MPDArtist> artistList = connection.getArtists();
 
             Message artistResponseMsg = this.obtainMessage();
             artistResponseMsg.obj = artistList;
@@ -194,14 +422,14 @@ public class MPDQueryHandler extends MPDGenericHandler {
             if (!(responseHandler instanceof MPDResponseArtistList)) {
                 return;
             }
-            MPDCapabilities caps = mMPDConnection.getServerCapabilities();
+            MPDCapabilities caps = connection.getServerCapabilities();
             List<MPDArtist> artistList;
             // Check if server supports the right tag, otherwise use fallback list
             if (null != caps && caps.hasTagAlbumArtist()) {
-                artistList = mMPDConnection.getAlbumArtists();
+                artistList = connection.getAlbumArtists();
             } else {
                 // If server does not support the albumartist tag
-                artistList = mMPDConnection.getArtists();
+                artistList = connection.getArtists();
             }
 
             Message artistResponseMsg = this.obtainMessage();
@@ -216,7 +444,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getAlbumTracks(albumName, albumMBID);
+            List<MPDFileEntry> trackList = connection.getAlbumTracks(albumName, albumMBID);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
@@ -230,7 +458,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getArtistAlbumTracks(albumName, artistName, albumMBID);
+            List<MPDFileEntry> trackList = connection.getArtistAlbumTracks(albumName, artistName, albumMBID);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
@@ -241,7 +469,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getCurrentPlaylist();
+            List<MPDFileEntry> trackList = connection.getCurrentPlaylist();
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
@@ -254,7 +482,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getCurrentPlaylistWindow(start, end);
+            List<MPDFileEntry> trackList = connection.getCurrentPlaylistWindow(start, end);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
@@ -263,6 +491,43 @@ public class MPDQueryHandler extends MPDGenericHandler {
             data.putInt(MPDResponseFileList.EXTRA_WINDOW_END, end);
             responseMessage.setData(data);
             responseHandler.sendMessage(responseMessage);
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST_CHANGES) {
+            int version = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_PLAYLIST_VERSION);
+            responseHandler = mpdAction.getResponseHandler();
+            if (!(responseHandler instanceof MPDResponsePlaylistChanges)) {
+                return;
+            }
+
+            MPDPlaylistChanges changes = connection.getCurrentPlaylistChanges(version);
+
+            Message responseMessage = this.obtainMessage();
+            responseMessage.obj = changes;
+            Bundle data = new Bundle();
+            data.putInt(MPDResponsePlaylistChanges.EXTRA_PLAYLIST_VERSION, version);
+            responseMessage.setData(data);
+            responseHandler.sendMessage(responseMessage);
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_STATE) {
+            int start = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START);
+            int end = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END);
+            responseHandler = mpdAction.getResponseHandler();
+            if (!(responseHandler instanceof MPDResponseCurrentState)) {
+                return;
+            }
+
+            // Fetch status, current song and the playlist window in one round trip
+            MPDPipelinedCommand<MPDCurrentStatus> statusCommand = MPDPipelinedCommand.createStatusCommand();
+            MPDPipelinedCommand<MPDTrack> songCommand = MPDPipelinedCommand.createCurrentSongCommand();
+            MPDPipelinedCommand<List<MPDFileEntry>> windowCommand = MPDPipelinedCommand.createCurrentPlaylistWindowCommand(start, end);
+
+            List<MPDPipelinedCommand<?>> commands = new ArrayList<>();
+            commands.add(statusCommand);
+            commands.add(songCommand);
+            commands.add(windowCommand);
+            connection.executePipeline(commands);
+
+            Message responseMessage = this.obtainMessage();
+            responseMessage.obj = new MPDResponseCurrentState.CurrentState(statusCommand.getResult(), songCommand.getResult(), windowCommand.getResult(), start, end);
+            responseHandler.sendMessage(responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_SAVED_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
             responseHandler = mpdAction.getResponseHandler();
@@ -270,7 +535,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> trackList = mMPDConnection.getSavedPlaylist(playlistName);
+            List<MPDFileEntry> trackList = connection.getSavedPlaylist(playlistName);
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = trackList;
@@ -281,7 +546,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> playlistList = mMPDConnection.getPlaylists();
+            List<MPDFileEntry> playlistList = connection.getPlaylists();
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = playlistList;
@@ -289,72 +554,72 @@ public class MPDQueryHandler extends MPDGenericHandler {
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SAVE_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
 
-            mMPDConnection.savePlaylist(playlistName);
+            connection.savePlaylist(playlistName);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SONG_TO_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
             String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
 
-            mMPDConnection.addSongToPlaylist(playlistName, path);
+            connection.addSongToPlaylist(playlistName, path);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_REMOVE_SONG_FROM_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
             int position = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SONG_INDEX);
 
-            mMPDConnection.removeSongFromPlaylist(playlistName, position);
+            connection.removeSongFromPlaylist(playlistName, position);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_REMOVE_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
 
-            mMPDConnection.removePlaylist(playlistName);
+            connection.removePlaylist(playlistName);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_LOAD_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
 
 
-            mMPDConnection.loadPlaylist(playlistName);
+            connection.loadPlaylist(playlistName);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_PLAYLIST) {
             String playlistName = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PLAYLIST_NAME);
 
-            mMPDConnection.clearPlaylist();
-            mMPDConnection.loadPlaylist(playlistName);
-            mMPDConnection.playSongIndex(0);
+            connection.clearPlaylist();
+            connection.loadPlaylist(playlistName);
+            connection.playSongIndex(0);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_ARTIST_ALBUM) {
             String albumname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
             String artistname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
             String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
 
-            mMPDConnection.addAlbumTracks(albumname, artistname, albumMBID);
+            connection.addAlbumTracks(albumname, artistname, albumMBID);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_ARTIST_ALBUM) {
             String albumname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_NAME);
             String artistname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
             String albumMBID = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ALBUM_MBID);
 
-            mMPDConnection.clearPlaylist();
-            mMPDConnection.addAlbumTracks(albumname, artistname, albumMBID);
-            mMPDConnection.playSongIndex(0);
+            connection.clearPlaylist();
+            connection.addAlbumTracks(albumname, artistname, albumMBID);
+            connection.playSongIndex(0);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_ARTIST) {
             String artistname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
 
-            mMPDConnection.addArtist(artistname);
+            connection.addArtist(artistname);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_ARTIST) {
             String artistname = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_ARTIST_NAME);
 
-            mMPDConnection.clearPlaylist();
-            mMPDConnection.addArtist(artistname);
-            mMPDConnection.playSongIndex(0);
+            connection.clearPlaylist();
+            connection.addArtist(artistname);
+            connection.playSongIndex(0);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_PATH) {
             String url = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SONG_URL);
 
-            mMPDConnection.addSong(url);
+            connection.addSong(url);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_SONG_NEXT) {
             String url = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SONG_URL);
 
 
-            MPDCurrentStatus status = mMPDConnection.getCurrentServerStatus();
-            mMPDConnection.addSongatIndex(url, status.getCurrentSongIndex() + 1);
+            MPDCurrentStatus status = connection.getCurrentServerStatus();
+            connection.addSongatIndex(url, status.getCurrentSongIndex() + 1);
 
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_SONG) {
             String url = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SONG_URL);
@@ -365,37 +630,37 @@ public class MPDQueryHandler extends MPDGenericHandler {
              *
              * Otherwise add it to the last playlist position and jump there.
              */
-            List<MPDFileEntry> playlistFindTracks = mMPDConnection.getPlaylistFindTrack(url);
+            List<MPDFileEntry> playlistFindTracks = connection.getPlaylistFindTrack(url);
             if (playlistFindTracks.size() > 0) {
                 // Song already found in the playlist. Jump there.
-                mMPDConnection.playSongIndex(((MPDTrack) playlistFindTracks.get(0)).getSongPosition());
+                connection.playSongIndex(((MPDTrack) playlistFindTracks.get(0)).getSongPosition());
             } else {
                 // Not part of the current playlist. Add it at the end of the playlist and play it from there.
-                mMPDConnection.addSong(url);
-                MPDCurrentStatus status = mMPDConnection.getCurrentServerStatus();
-                mMPDConnection.playSongIndex(status.getPlaylistLength() - 1);
+                connection.addSong(url);
+                MPDCurrentStatus status = connection.getCurrentServerStatus();
+                connection.playSongIndex(status.getPlaylistLength() - 1);
             }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_CLEAR_CURRENT_PLAYLIST) {
-            mMPDConnection.clearPlaylist();
+            connection.clearPlaylist();
         }  else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SHUFFLE_CURRENT_PLAYLIST) {
-            mMPDConnection.shufflePlaylist();
+            connection.shufflePlaylist();
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_MOVE_SONG_AFTER_CURRENT) {
 
-            MPDCurrentStatus status = mMPDConnection.getCurrentServerStatus();
+            MPDCurrentStatus status = connection.getCurrentServerStatus();
             int index = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SONG_INDEX);
             if (index < status.getCurrentSongIndex()) {
-                mMPDConnection.moveSongFromTo(index, status.getCurrentSongIndex());
+                connection.moveSongFromTo(index, status.getCurrentSongIndex());
             } else if (index > status.getCurrentSongIndex()) {
-                mMPDConnection.moveSongFromTo(index, status.getCurrentSongIndex() + 1);
+                connection.moveSongFromTo(index, status.getCurrentSongIndex() + 1);
             }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_REMOVE_SONG_FROM_CURRENT_PLAYLIST) {
             int index = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SONG_INDEX);
-            mMPDConnection.removeIndex(index);
+            connection.removeIndex(index);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_REMOVE_RANGE_FROM_CURRENT_PLAYLIST) {
             int start = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START);
             int end = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END);
 
-            mMPDConnection.removeRange(start, end);
+            connection.removeRange(start, end);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_FILES) {
             String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
 
@@ -404,21 +669,20 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> fileList = mMPDConnection.getFiles(path);
-
-            Message responseMessage = this.obtainMessage();
-            responseMessage.obj = fileList;
-            responseHandler.sendMessage(responseMessage);
+            // Forward the entries in batches while they are received, so that the first entries can be shown early
+            FileBatchForwarder forwarder = new FileBatchForwarder(responseHandler);
+            boolean success = connection.getFiles(path, FILE_BATCH_SIZE, forwarder);
+            forwarder.finish(success);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_DIRECTORY) {
             String path = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
 
-            mMPDConnection.clearPlaylist();
-            mMPDConnection.addSong(path);
-            mMPDConnection.playSongIndex(0);
+            connection.clearPlaylist();
+            connection.addSong(path);
+            connection.playSongIndex(0);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_OUTPUTS) {
             responseHandler = mpdAction.getResponseHandler();
 
-            List<MPDOutput> outputList = mMPDConnection.getOutputs();
+            List<MPDOutput> outputList = connection.getOutputs();
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = outputList;
@@ -427,7 +691,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
             responseHandler = mpdAction.getResponseHandler();
 
             MPDStatistics stats = null;
-            stats = mMPDConnection.getServerStatistics();
+            stats = connection.getServerStatistics();
 
 
             Message responseMessage = this.obtainMessage();
@@ -437,7 +701,7 @@ public class MPDQueryHandler extends MPDGenericHandler {
 
             String updatePath = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_PATH);
 
-            mMPDConnection.updateDatabase(updatePath);
+            connection.updateDatabase(updatePath);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES) {
             String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
             MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
@@ -447,41 +711,72 @@ public class MPDQueryHandler extends MPDGenericHandler {
                 return;
             }
 
-            List<MPDFileEntry> fileList = mMPDConnection.getSearchedFiles(term, type);
+            List<MPDFileEntry> fileList = connection.getSearchedFiles(term, type);
+
+            Message responseMessage = this.obtainMessage();
+            responseMessage.obj = fileList;
+            responseHandler.sendMessage(responseMessage);
+        } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_WINDOW) {
+            String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
+            MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
+            int start = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START);
+            int end = mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END);
+
+            responseHandler = mpdAction.getResponseHandler();
+            if (!(responseHandler instanceof MPDResponseFileList)) {
+                return;
+            }
+
+            MPDCapabilities caps = connection.getServerCapabilities();
+
+            List<MPDFileEntry> fileList;
+            if (null != caps && caps.hasSearchWindow()) {
+                fileList = connection.getSearchedFiles(term, type, start, end);
+            } else if (start == 0) {
+                // Server can not limit the result, the first window contains all matches.
+                fileList = connection.getSearchedFiles(term, type);
+            } else {
+                // All matches were already sent with the first window
+                fileList = new ArrayList<>();
+            }
 
             Message responseMessage = this.obtainMessage();
             responseMessage.obj = fileList;
+            Bundle data = new Bundle();
+            data.putInt(MPDResponseFileList.EXTRA_WINDOW_START, start);
+            data.putInt(MPDResponseFileList.EXTRA_WINDOW_END, end);
+            responseMessage.setData(data);
             responseHandler.sendMessage(responseMessage);
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_ADD_SEARCH_FILES) {
             String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
             MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
 
-            MPDCapabilities caps = mMPDConnection.getServerCapabilities();
+            MPDCapabilities caps = connection.getServerCapabilities();
 
             // Check if server has the add search result capability
             if (null != caps && caps.hasSearchAdd()) {
-                mMPDConnection.addSearchedFiles(term, type);
+                connection.addSearchedFiles(term, type);
             } else {
                 // Fetch search results and add them
-                List<MPDFileEntry> searchResults = mMPDConnection.getSearchedFiles(term, type);
-                mMPDConnection.addTrackList(searchResults);
+                List<MPDFileEntry> searchResults = connection.getSearchedFiles(term, type);
+                connection.addTrackList(searchResults);
             }
         } else if (action == MPDHandlerAction.NET_HANDLER_ACTION.ACTION_PLAY_SEARCH_FILES) {
             String term = mpdAction.getStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM);
             MPDCommands.MPD_SEARCH_TYPE type = MPDCommands.MPD_SEARCH_TYPE.values()[mpdAction.getIntExtra(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE)];
 
-            mMPDConnection.clearPlaylist();
+            connection.clearPlaylist();
 
             // Check if server has the add search result capability
-            if (mMPDConnection.getServerCapabilities().hasSearchAdd()) {
-                mMPDConnection.addSearchedFiles(term, type);
+            if (connection.getServerCapabilities().hasSearchAdd()) {
+                connection.addSearchedFiles(term, type);
             } else {
                 // Fetch search results and add them
-                List<MPDFileEntry> searchResults = mMPDConnection.getSearchedFiles(term, type);
-                mMPDConnection.addTrackList(searchResults);
+                List<MPDFileEntry> searchResults = connection.getSearchedFiles(term, type);
+                connection.addTrackList(searchResults);
             }
 
-            mMPDConnection.playSongIndex(0);
+            connection.playSongIndex(0);
         }
     }
 
@@ -688,6 +983,48 @@ public class MPDQueryHandler extends MPDGenericHandler {
         MPDQueryHandler.getHandler().sendMessage(msg);
     }
 
+    /**
+     * Requests the positions of the current playlist that changed since the given playlist version.
+     * This can be used to update a local copy of the playlist without fetching it again.
+     *
+     * @param responseHandler The handler used to send the requested data
+     * @param version Playlist version of the local copy
+     */
+    public static void getCurrentPlaylistChanges(MPDResponsePlaylistChanges responseHandler, int version) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_PLAYLIST_CHANGES);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setResponseHandler(responseHandler);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_PLAYLIST_VERSION, version);
+        msg.obj = action;
+
+        MPDQueryHandler.getHandler().sendMessage(msg);
+    }
+
+    /**
+     * Requests the current status, the currently playing song and a window of the current
+     * playlist. All three are fetched with one pipelined network round trip.
+     *
+     * @param responseHandler The handler used to send the requested data
+     * @param start           Start of the playlist window
+     * @param end             End of the playlist window
+     */
+    public static void getCurrentState(MPDResponseCurrentState responseHandler, int start, int end) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_GET_CURRENT_STATE);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setResponseHandler(responseHandler);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START, start);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END, end);
+        msg.obj = action;
+
+        MPDQueryHandler.getHandler().sendMessage(msg);
+    }
+
     /**
      * Requests a list of playlists saved on the server.
      *
@@ -1113,6 +1450,45 @@ public class MPDQueryHandler extends MPDGenericHandler {
         MPDQueryHandler.getHandler().sendMessage(msg);
     }
 
+    /**
+     * Requests the window [start, end) of the files matching the search term and type. If the server
+     * is not able to limit search results the request for the first window returns all matches and
+     * requests for later windows return empty lists.
+     *
+     * @param term            The string to search for
+     * @param type            The type of items to search for
+     * @param start           Index of the first match to return
+     * @param end             Index after the last match to return
+     * @param responseHandler The handler used to send the requested data.
+     */
+    public static void searchFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, int start, int end, MPDResponseFileList responseHandler) {
+        MPDHandlerAction action = new MPDHandlerAction(MPDHandlerAction.NET_HANDLER_ACTION.ACTION_SEARCH_FILES_WINDOW);
+        Message msg = Message.obtain();
+        if (null == msg) {
+            return;
+        }
+        action.setResponseHandler(responseHandler);
+        action.setStringExtra(MPDHandlerAction.NET_HANDLER_EXTRA_STRING.EXTRA_SEARCH_TERM, term);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_SEARCH_TYPE, type.ordinal());
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_START, start);
+        action.setIntExtras(MPDHandlerAction.NET_HANDLER_EXTRA_INT.EXTRA_WINDOW_END, end);
+
+        msg.what = MSG_SEARCH_WINDOW;
+        msg.obj = action;
+
+        MPDQueryHandler.getHandler().sendMessage(msg);
+    }
+
+    /**
+     * Removes all windowed search requests that are not yet processed. Used when the search
+     * is changed and the pending results are not needed anymore.
+     */
+    public static void cancelSearches() {
+        MPDQueryHandler handler = MPDQueryHandler.getHandler();
+        handler.removeMessages(MSG_SEARCH_WINDOW);
+        handler.mSearchGeneration++;
+    }
+
     /**
      * Requests to add a search request
      *
@@ -1164,4 +1540,63 @@ public class MPDQueryHandler extends MPDGenericHandler {
     public static void unregisterConnectionStateListener(MPDConnectionStateChangeHandler stateHandler) {
         getHandler().internalUnregisterConnectionStateListener(stateHandler);
     }
+
+    /**
+     * Sends the batches of a file listing to a {@link MPDResponseFileList} as partial messages.
+     * One batch is held back, so that the last batch can be marked when the listing is complete.
+     * <p/>
+     * Listings that fit in one batch are sorted like {@link MPDConnection#getFiles(String)}. Larger
+     * listings keep the order of the server (directories, files and playlists, each sorted by name),
+     * so that entries that are already shown are not reordered.
+     */
+    private static class FileBatchForwarder implements MPDConnection.MPDFileEntryListener {
+        private final MPDResponseHandler mResponseHandler;
+
+        /**
+         * Last received batch that is not sent yet
+         */
+        private List<MPDFileEntry> mPendingBatch;
+
+        private boolean mBatchSent;
+
+        FileBatchForwarder(MPDResponseHandler responseHandler) {
+            mResponseHandler = responseHandler;
+        }
+
+        @Override
+        public void onFileEntries(List<MPDFileEntry> entries) {
+            if (null != mPendingBatch) {
+                sendBatch(mPendingBatch, false);
+                mBatchSent = true;
+            }
+            mPendingBatch = entries;
+        }
+
+        /**
+         * Sends the remaining entries as the last batch.
+         *
+         * @param success False if the listing could not be received completely
+         */
+        void finish(boolean success) {
+            List<MPDFileEntry> lastBatch = null;
+            if (success) {
+                lastBatch = null == mPendingBatch ? new ArrayList<MPDFileEntry>() : mPendingBatch;
+                if (!mBatchSent) {
+                    Collections.sort(lastBatch);
+                }
+            }
+            mPendingBatch = null;
+            sendBatch(lastBatch, true);
+        }
+
+        private void sendBatch(List<MPDFileEntry> batch, boolean last) {
+            Message message = Message.obtain();
+            message.obj = batch;
+            Bundle args = new Bundle();
+            args.putBoolean(MPDResponseFileList.EXTRA_PARTIAL, true);
+            args.putBoolean(MPDResponseFileList.EXTRA_PARTIAL_LAST, last);
+            message.setData(args);
+            mResponseHandler.sendMessage(message);
+        }
+    }
 }
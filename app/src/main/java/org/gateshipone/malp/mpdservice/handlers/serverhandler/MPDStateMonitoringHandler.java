@@ -29,13 +29,15 @@ import android.os.Message;
 import android.util.Log;
 
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
+import java.util.Set;
 
 import org.gateshipone.malp.mpdservice.handlers.MPDConnectionStateChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.MPDStatusChangeHandler;
 import org.gateshipone.malp.mpdservice.handlers.responsehandler.MPDResponseHandler;
+import org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror;
 import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDPipelinedCommand;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 
@@ -45,16 +47,21 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
 
 
     /**
-     * Time to idle before resyncing the state with the MPD host (30 seconds).
+     * Shortest time to idle before resyncing the state with the MPD host (30 seconds).
      */
-    private static final int IDLE_TIME = 30 * 1000;
+    private static final int MIN_RESYNC_INTERVAL = 30 * 1000;
 
     /**
-     * Time used to send interpolated states to the listener (1 second)
+     * Longest time to idle before resyncing the state with the MPD host (5 minutes). Also used
+     * if nothing is playing, as changes are announced by the idle connection.
      */
-    private static final int INTERPOLATE_INTERVAL = 1 * 1000;
+    private static final int MAX_RESYNC_INTERVAL = 5 * 60 * 1000;
 
-    private int mRefreshInterval = INTERPOLATE_INTERVAL;
+    /**
+     * Difference between the calculated and the reported position (in ms) that is still
+     * considered to be in sync.
+     */
+    private static final int MAX_POSITION_DRIFT = 500;
 
 
     private static HandlerThread mHandlerThread = null;
@@ -66,17 +73,21 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
     private static ArrayList<MPDStatusChangeHandler> mStatusListeners;
 
     /**
-     * Timer used to periodically resync the state with the mpd server between interpolating
-     * the time values.
+     * Periodically resyncs the state with the mpd server. The position in between is calculated
+     * by the listeners from the elapsed time and its time base in {@link MPDCurrentStatus}.
      */
-    private Timer mResyncTimer = null;
-
-    private Timer mInterpolateTimer = null;
+    private final Runnable mResyncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            resyncState(true, true);
+        }
+    };
 
     /**
-     * Last unix time used to interpolate the time as accurate as possible
+     * Current time between two periodic resyncs. Doubled while the calculated position matches
+     * the position of the server and reset if it drifts away.
      */
-    private Long mLastTimeBase;
+    private int mResyncInterval = MIN_RESYNC_INTERVAL;
 
     /**
      * Used to check if a new file is playing
@@ -166,75 +177,94 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         getHandler().resyncState();
     }
 
+    /**
+     * Fetches the complete state (status and current song) from the server.
+     */
     private void resyncState() {
-        synchronized (this) {
-
-            // Stop the interpolation
-            if (null != mInterpolateTimer) {
-                mInterpolateTimer.cancel();
-                mInterpolateTimer.purge();
-                mInterpolateTimer = null;
-            }
-
-            // If a resync timer is running kill it also. It will be restarted when idling again
+        resyncState(true, false);
+    }
 
-            if (null != mResyncTimer) {
-                mResyncTimer.cancel();
-                mResyncTimer.purge();
-                mResyncTimer = null;
-            }
+    /**
+     * Fetches the state from the server.
+     *
+     * @param fetchTrack True if the current song should be fetched together with the status. If false
+     *                   it is only fetched when the status shows that the current song changed.
+     * @param checkDrift True if the calculated position should be compared to the position of
+     *                   the server to adapt the resync interval (periodic resyncs only).
+     */
+    private void resyncState(boolean fetchTrack, boolean checkDrift) {
+        // The resync is scheduled again when the new state is known
+        removeCallbacks(mResyncRunnable);
+
+        // Request the status and the current song in one round trip. The song is only distributed
+        // if it changed, but fetching it together with the status is cheaper than a second request.
+        MPDPipelinedCommand<MPDCurrentStatus> statusCommand = MPDPipelinedCommand.createStatusCommand();
+        MPDPipelinedCommand<MPDTrack> songCommand = null;
+        List<MPDPipelinedCommand<?>> commands = new ArrayList<>();
+        commands.add(statusCommand);
+        if (fetchTrack) {
+            songCommand = MPDPipelinedCommand.createCurrentSongCommand();
+            commands.add(songCommand);
         }
-        mLastTimeBase = System.nanoTime();
+        mMPDConnection.executePipeline(commands);
 
-        MPDCurrentStatus status = mMPDConnection.getCurrentServerStatus();
+        MPDCurrentStatus status = statusCommand.getResult();
+        if (null == status) {
+            status = new MPDCurrentStatus();
+        }
 
+        if (checkDrift) {
+            adaptResyncInterval(mLastStatus, status);
+        }
 
         if (status.getCurrentSongIndex() != mLastStatus.getCurrentSongIndex() || status.getPlaylistVersion() != mLastStatus.getPlaylistVersion()) {
-            // New track started playing. Get it and inform the listener.
-            mLastFile = mMPDConnection.getCurrentSong();
+            // New track started playing. Get it (if not already done) and inform the listener.
+            mLastFile = null != songCommand ? songCommand.getResult() : mMPDConnection.getCurrentSong();
             distributeNewTrack(mLastFile);
         }
 
         mLastStatus = status;
         distributeNewStatus(status);
 
-        startInterpolation();
+        scheduleResync();
     }
 
-    private void interpolateState() {
-        // Generate a new dummy state
-        if (null != mLastStatus) {
-            MPDCurrentStatus status = new MPDCurrentStatus(mLastStatus);
-            long timeDiff = (System.nanoTime() - mLastTimeBase) / (1000 * 1000 * 1000);
-
-            // FIXME move timestamp to MPDConnection and MPDCurrentStatus (more precise, less time until saved)
+    /**
+     * Compares the position calculated from the last state with the position reported by the server.
+     * If both match the resync interval is doubled, otherwise it is reset to the shortest interval.
+     *
+     * @param lastStatus Previously received state
+     * @param status     Newly received state
+     */
+    private synchronized void adaptResyncInterval(MPDCurrentStatus lastStatus, MPDCurrentStatus status) {
+        if (lastStatus.getPlaybackState() != MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING ||
+                status.getPlaybackState() != MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING ||
+                lastStatus.getCurrentSongIndex() != status.getCurrentSongIndex() ||
+                lastStatus.getPlaylistVersion() != status.getPlaylistVersion()) {
+            // Positions are not comparable
+            return;
+        }
 
-            status.setElapsedTime(mLastStatus.getElapsedTime() + (int) timeDiff);
-            distributeNewStatus(status);
+        long drift = Math.abs(lastStatus.getElapsedTimeMsAt(status.getElapsedTimeBase()) - status.getElapsedTimeMs());
+        if (drift <= MAX_POSITION_DRIFT) {
+            mResyncInterval = Math.min(mResyncInterval * 2, MAX_RESYNC_INTERVAL);
+        } else {
+            mResyncInterval = MIN_RESYNC_INTERVAL;
         }
     }
 
-    private synchronized void startInterpolation() {
+    /**
+     * Schedules the next periodic resync. Without playback nothing needs to be corrected,
+     * so the longest interval is used.
+     */
+    private synchronized void scheduleResync() {
+        removeCallbacks(mResyncRunnable);
         if (mMPDConnection.isConnected()) {
             if (mLastStatus.getPlaybackState() == MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING) {
-                if (null != mInterpolateTimer) {
-                    mInterpolateTimer.cancel();
-                    mInterpolateTimer.purge();
-                    mInterpolateTimer = null;
-                }
-                mInterpolateTimer = new Timer();
-
-                mInterpolateTimer.schedule(new InterpolateTask(), 0, mRefreshInterval);
-            }
-
-            if (null != mResyncTimer) {
-                mResyncTimer.cancel();
-                mResyncTimer.purge();
-                mResyncTimer = null;
+                postDelayed(mResyncRunnable, mResyncInterval);
+            } else {
+                postDelayed(mResyncRunnable, MAX_RESYNC_INTERVAL);
             }
-
-            mResyncTimer = new Timer();
-            mResyncTimer.schedule(new ResyncTask(), IDLE_TIME);
         }
     }
 
@@ -278,11 +308,24 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         }
     }
 
+    private void distributeDatabaseChanged() {
+        for (MPDStatusChangeHandler handler : mStatusListeners) {
+            handler.databaseChanged();
+        }
+    }
+
+    private void distributeStoredPlaylistsChanged() {
+        for (MPDStatusChangeHandler handler : mStatusListeners) {
+            handler.storedPlaylistsChanged();
+        }
+    }
+
     @Override
     public void onConnected() {
         super.onConnected();
         mLastStatus = new MPDCurrentStatus();
         mLastFile = new MPDTrack("");
+        mResyncInterval = MIN_RESYNC_INTERVAL;
         distributeNewStatus(mLastStatus);
         distributeNewTrack(mLastFile);
         resyncState();
@@ -291,19 +334,8 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
     @Override
     public void onDisconnected() {
         super.onDisconnected();
-        synchronized (this) {
-            // Stop the interpolation
-            if (null != mInterpolateTimer) {
-                mInterpolateTimer.cancel();
-                mInterpolateTimer = null;
-            }
-
-            // Stop the resync timeout timer
-            if (null != mResyncTimer) {
-                mResyncTimer.cancel();
-                mResyncTimer = null;
-            }
-        }
+        // Stop the periodic resync
+        removeCallbacks(mResyncRunnable);
     }
 
     @Override
@@ -317,24 +349,30 @@ public class MPDStateMonitoringHandler extends MPDGenericHandler implements MPDC
         resyncState();
     }
 
-    public static void setRefreshInterval(int interval) {
-        getHandler().mRefreshInterval = interval;
-    }
-
-
-    private class ResyncTask extends TimerTask {
-
-        @Override
-        public void run() {
-            resyncState();
+    /**
+     * Refreshes only the parts of the state that belong to the changed subsystems.
+     *
+     * @param subsystems Set of subsystems that changed.
+     */
+    @Override
+    public void onSubsystemsChanged(Set<MPDConnection.MPD_SUBSYSTEM> subsystems) {
+        if (subsystems.contains(MPDConnection.MPD_SUBSYSTEM.PLAYER) || subsystems.contains(MPDConnection.MPD_SUBSYSTEM.PLAYLIST)) {
+            // Song, position or queue changed, fetch the complete state.
+            resyncState(true, false);
+        } else if (subsystems.contains(MPDConnection.MPD_SUBSYSTEM.MIXER) || subsystems.contains(MPDConnection.MPD_SUBSYSTEM.OPTIONS)
+                || subsystems.contains(MPDConnection.MPD_SUBSYSTEM.UPDATE)) {
+            // Volume, playback options or the database update job changed. The current song is unaffected.
+            resyncState(false, false);
         }
-    }
 
-    private class InterpolateTask extends TimerTask {
+        if (subsystems.contains(MPDConnection.MPD_SUBSYSTEM.DATABASE)) {
+            // Invalidate the mirror first, so that listeners reloading their data get it from the server
+            LibraryMirror.getInstance().onDatabaseChanged();
+            distributeDatabaseChanged();
+        }
 
-        @Override
-        public void run() {
-            interpolateState();
+        if (subsystems.contains(MPDConnection.MPD_SUBSYSTEM.STORED_PLAYLIST)) {
+            distributeStoredPlaylistsChanged();
         }
     }
 }
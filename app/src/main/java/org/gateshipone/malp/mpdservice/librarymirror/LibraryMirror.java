@@ -0,0 +1,827 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.librarymirror;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDCommands;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnection;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDSortHelper;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+import org.gateshipone.malp.mpdservice.profilemanagement.MPDServerProfile;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Local copy of the library of the current server, used to answer the browse queries (albums, artists,
+ * album tracks, searches) without a round trip to the server. This is enabled per server profile
+ * ({@link MPDServerProfile#getLibraryMirrorEnabled()}).
+ * <p/>
+ * The mirror is filled with a streamed listallinfo response on a pooled connection. The db_update time
+ * of the server statistics is stored with it, so that the complete library is only transferred again
+ * if the server database changed. The state of the server is checked after connecting and, at most
+ * once per {@link #SYNC_CHECK_INTERVAL}, when a query is answered from the mirror.
+ * <p/>
+ * All modifications are done in a separate thread. Until the first synchronization is finished
+ * all query methods return null and the caller has to ask the server instead.
+ */
+public class LibraryMirror {
+    private static final String TAG = LibraryMirror.class.getSimpleName();
+
+    /**
+     * Name of the thread that synchronizes the mirror.
+     */
+    private static final String THREAD_NAME = "AndroMPD-LibraryMirror";
+
+    /**
+     * Number of tracks received from the listallinfo response before they are inserted.
+     */
+    private static final int TRACK_BATCH_SIZE = 500;
+
+    /**
+     * Minimum time between two checks of the server database state (time in ms)
+     */
+    private static final long SYNC_CHECK_INTERVAL = 60 * 1000;
+
+    /**
+     * Statistics without db_update contain their creation time in ms instead of the update time
+     * in seconds. Values after this time (in s) in the future can not be a server timestamp.
+     */
+    private static final long MAX_DB_UPDATE_OFFSET = 24 * 60 * 60;
+
+    private static LibraryMirror mInstance;
+
+    private final Handler mHandler;
+
+    /**
+     * Database of the current profile. Null if the mirror is disabled for the current profile.
+     * Only replaced in the mirror thread, readers lock this object while they use it.
+     */
+    private LibraryMirrorDBHelper mDBHelper;
+
+    /**
+     * Creation date of the profile of {@link #mDBHelper}
+     */
+    private long mProfileID;
+
+    /**
+     * Address (hostname:port) of the profile, part of the stored synchronization state
+     */
+    private String mServerAddress;
+
+    /**
+     * True if the mirror contains a completely synchronized library of the current server
+     */
+    private boolean mReady;
+
+    private boolean mSyncPending;
+
+    private long mLastSyncCheck;
+
+    private final Runnable mSyncRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronize();
+        }
+    };
+
+    private LibraryMirror() {
+        HandlerThread thread = new HandlerThread(THREAD_NAME);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized LibraryMirror getInstance() {
+        if (null == mInstance) {
+            mInstance = new LibraryMirror();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Sets the profile that is used for the following connections. Opens the mirror of the profile
+     * if it is enabled, otherwise the mirror of the profile is removed.
+     *
+     * @param context Context used to open the database
+     * @param profile Profile of the server
+     */
+    public void setProfile(Context context, final MPDServerProfile profile) {
+        final Context appContext = context.getApplicationContext();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                openProfile(appContext, profile);
+            }
+        });
+    }
+
+    /**
+     * Removes the mirror of a profile. Should be called if the profile is deleted.
+     *
+     * @param context Context used to remove the database
+     * @param profile Profile to remove the mirror of
+     */
+    public void deleteMirror(Context context, final MPDServerProfile profile) {
+        final Context appContext = context.getApplicationContext();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (profile.getCreationDate() == mProfileID) {
+                    closeMirror();
+                }
+                appContext.deleteDatabase(LibraryMirrorDBHelper.createDatabaseName(profile.getCreationDate()));
+            }
+        });
+    }
+
+    /**
+     * Checks the state of the server database and synchronizes the mirror if it changed.
+     * Should be called after a connection to the server was established.
+     */
+    public synchronized void requestSync() {
+        if (null == mDBHelper || mSyncPending) {
+            return;
+        }
+        mSyncPending = true;
+        mLastSyncCheck = SystemClock.elapsedRealtime();
+        mHandler.post(mSyncRunnable);
+    }
+
+    /**
+     * Called when the server announced a changed database. The mirror is not used until it is
+     * synchronized again, so that queries in the meantime are answered by the server.
+     */
+    public synchronized void onDatabaseChanged() {
+        if (null == mDBHelper) {
+            return;
+        }
+        mReady = false;
+        requestSync();
+    }
+
+    /**
+     * Requests a synchronization if the last check of the server state was some time ago.
+     * Called for every query answered from the mirror, so that changes are noticed while it is used.
+     */
+    private synchronized void checkForUpdates() {
+        if (SystemClock.elapsedRealtime() - mLastSyncCheck > SYNC_CHECK_INTERVAL) {
+            requestSync();
+        }
+    }
+
+    /**
+     * @return True if queries can be answered by the mirror.
+     */
+    public synchronized boolean isReady() {
+        return mReady;
+    }
+
+    private void openProfile(Context context, MPDServerProfile profile) {
+        long profileID = profile.getCreationDate();
+        String serverAddress = profile.getHostname() + ':' + profile.getPort();
+
+        if (!profile.getLibraryMirrorEnabled()) {
+            if (profileID == mProfileID) {
+                closeMirror();
+            }
+            // Free the space if the user disabled the mirror
+            context.deleteDatabase(LibraryMirrorDBHelper.createDatabaseName(profileID));
+            return;
+        }
+
+        LibraryMirrorDBHelper helper;
+        synchronized (this) {
+            helper = mDBHelper;
+        }
+        if (null == helper || profileID != mProfileID) {
+            closeMirror();
+            helper = new LibraryMirrorDBHelper(context, profileID);
+        }
+
+        String syncState = readSyncState(helper.getReadableDatabase());
+        synchronized (this) {
+            mDBHelper = helper;
+            mProfileID = profileID;
+            mServerAddress = serverAddress;
+            // A mirror of a different server address (edited profile) is not used until it is synchronized again
+            mReady = null != syncState && syncState.startsWith(serverAddress + '/');
+            mLastSyncCheck = 0;
+        }
+    }
+
+    private void closeMirror() {
+        synchronized (this) {
+            if (null != mDBHelper) {
+                mDBHelper.close();
+            }
+            mDBHelper = null;
+            mProfileID = 0;
+            mReady = false;
+        }
+    }
+
+    /**
+     * Compares the db_update time of the server with the synchronized state and transfers the
+     * library again if it changed. Runs in the mirror thread.
+     */
+    private void synchronize() {
+        LibraryMirrorDBHelper helper;
+        String serverAddress;
+        synchronized (this) {
+            mSyncPending = false;
+            helper = mDBHelper;
+            serverAddress = mServerAddress;
+        }
+        if (null == helper) {
+            return;
+        }
+
+        MPDConnection connection = MPDConnectionPool.getInstance().checkout();
+        try {
+            // Never block the primary connection, used for playback commands, with the complete library
+            if (connection == MPDConnection.getInstance()) {
+                Log.v(TAG, "No pooled connection available, synchronization skipped");
+                return;
+            }
+
+            MPDStatistics stats = connection.getServerStatistics();
+            if (!connection.isConnected()) {
+                return;
+            }
+            if (stats.getLastDBUpdate() > System.currentTimeMillis() / 1000 + MAX_DB_UPDATE_OFFSET) {
+                Log.w(TAG, "Server statistics contain no database update time");
+                return;
+            }
+
+            String syncState = serverAddress + '/' + stats.getLastDBUpdate();
+            SQLiteDatabase database = helper.getWritableDatabase();
+            if (syncState.equals(readSyncState(database))) {
+                synchronized (this) {
+                    mReady = helper == mDBHelper;
+                }
+                return;
+            }
+
+            long startTime = SystemClock.elapsedRealtime();
+            if (writeMirror(database, connection, syncState)) {
+                Log.v(TAG, "Library mirror synchronized in " + (SystemClock.elapsedRealtime() - startTime) + " ms");
+                synchronized (this) {
+                    mReady = helper == mDBHelper;
+                }
+            }
+        } finally {
+            MPDConnectionPool.getInstance().checkin(connection);
+        }
+    }
+
+    /**
+     * Replaces the content of the mirror with the listallinfo response of the server. Everything is
+     * written in one transaction, readers still see the old content until it is finished.
+     *
+     * @return True if the complete library was received and written.
+     */
+    private static boolean writeMirror(SQLiteDatabase database, MPDConnection connection, String syncState) {
+        database.beginTransaction();
+        try {
+            database.delete(LibraryMirrorTables.TRACK_TABLE_NAME, null, null);
+            database.delete(LibraryMirrorTables.ALBUM_TABLE_NAME, null, null);
+            database.delete(LibraryMirrorTables.ARTIST_TABLE_NAME, null, null);
+
+            MirrorWriter writer = new MirrorWriter(database);
+            if (!connection.getAllTracks(TRACK_BATCH_SIZE, writer) || !connection.isConnected()) {
+                return false;
+            }
+            writer.finish();
+
+            SQLiteStatement stateStatement = database.compileStatement("INSERT OR REPLACE INTO " + LibraryMirrorTables.INFO_TABLE_NAME
+                    + " (" + LibraryMirrorTables.COLUMN_INFO_KEY + "," + LibraryMirrorTables.COLUMN_INFO_VALUE + ") VALUES (?,?)");
+            stateStatement.bindString(1, LibraryMirrorTables.INFO_KEY_SYNC_STATE);
+            stateStatement.bindString(2, syncState);
+            stateStatement.execute();
+            stateStatement.close();
+
+            database.setTransactionSuccessful();
+            return true;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static String readSyncState(SQLiteDatabase database) {
+        Cursor cursor = database.query(LibraryMirrorTables.INFO_TABLE_NAME, new String[]{LibraryMirrorTables.COLUMN_INFO_VALUE},
+                LibraryMirrorTables.COLUMN_INFO_KEY + "=?", new String[]{LibraryMirrorTables.INFO_KEY_SYNC_STATE}, null, null, null);
+        String state = null;
+        if (cursor.moveToFirst()) {
+            state = cursor.getString(0);
+        }
+        cursor.close();
+        return state;
+    }
+
+    /*
+     * **********************
+     * * Query functions    *
+     * **********************
+     */
+
+    /**
+     * @return All albums (without the empty album) sorted like {@link MPDConnection#getAlbums()} or null if the mirror is not ready.
+     */
+    public synchronized List<MPDAlbum> getAlbums() {
+        if (!mReady) {
+            return null;
+        }
+        List<MPDAlbum> albums = queryAlbums(LibraryMirrorTables.COLUMN_ALBUM_NAME + "!=''", null);
+        checkForUpdates();
+        return albums;
+    }
+
+    /**
+     * @param path Directory to get the albums of
+     * @return All albums with tracks below the path or null if the mirror is not ready.
+     */
+    public synchronized List<MPDAlbum> getAlbumsInPath(String path) {
+        if (!mReady) {
+            return null;
+        }
+        if (path.isEmpty()) {
+            // The root directory contains all albums
+            return getAlbums();
+        }
+
+        // All paths below the directory are between "path/" and "path0" ('0' follows '/')
+        String selection = LibraryMirrorTables.COLUMN_ALBUM_NAME + "!='' AND " + LibraryMirrorTables.COLUMN_ALBUM_ID + " IN (SELECT "
+                + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ID + " FROM " + LibraryMirrorTables.TRACK_TABLE_NAME + " WHERE "
+                + LibraryMirrorTables.COLUMN_TRACK_FILE + ">=? AND " + LibraryMirrorTables.COLUMN_TRACK_FILE + "<?)";
+        List<MPDAlbum> albums = queryAlbums(selection, new String[]{path + '/', path + '0'});
+        checkForUpdates();
+        return albums;
+    }
+
+    /**
+     * @param artistName Artist to get the albums of
+     * @return All albums where the artist is the artist or album artist of a track or null if the mirror is not ready.
+     */
+    public synchronized List<MPDAlbum> getArtistAlbums(String artistName) {
+        if (!mReady) {
+            return null;
+        }
+        String selection = LibraryMirrorTables.COLUMN_ALBUM_ID + " IN (SELECT " + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ID
+                + " FROM " + LibraryMirrorTables.TRACK_TABLE_NAME + " WHERE " + LibraryMirrorTables.COLUMN_TRACK_ARTIST + "=?"
+                + " UNION SELECT " + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ID + " FROM " + LibraryMirrorTables.TRACK_TABLE_NAME
+                + " WHERE " + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ARTIST + "=?)";
+        List<MPDAlbum> albums = queryAlbums(selection, new String[]{artistName, artistName});
+        checkForUpdates();
+        return albums;
+    }
+
+    /**
+     * @return All artists sorted like {@link MPDConnection#getArtists()} or null if the mirror is not ready.
+     */
+    public synchronized List<MPDArtist> getArtists() {
+        if (!mReady) {
+            return null;
+        }
+        List<MPDArtist> artists = queryArtists(false);
+        checkForUpdates();
+        return artists;
+    }
+
+    /**
+     * @return All album artists or the artists if no track has an album artist tag. Null if the mirror is not ready.
+     */
+    public synchronized List<MPDArtist> getAlbumArtists() {
+        if (!mReady) {
+            return null;
+        }
+        List<MPDArtist> artists = queryArtists(true);
+        if (artists.isEmpty()) {
+            artists = queryArtists(false);
+        }
+        checkForUpdates();
+        return artists;
+    }
+
+    /**
+     * @param albumName Album to get the tracks of
+     * @param mbid      MBID of the album, empty to get the tracks of all albums with the name
+     * @return Tracks of the album sorted by disc and track number or null if the mirror is not ready.
+     */
+    public synchronized List<MPDFileEntry> getAlbumTracks(String albumName, String mbid) {
+        return getArtistAlbumTracks(albumName, "", mbid);
+    }
+
+    /**
+     * @param albumName  Album to get the tracks of
+     * @param artistName Artist or album artist of the tracks, empty to get the tracks of all artists
+     * @param mbid       MBID of the album, empty to get the tracks of all albums with the name
+     * @return Tracks of the album sorted by disc and track number or null if the mirror is not ready.
+     */
+    public synchronized List<MPDFileEntry> getArtistAlbumTracks(String albumName, String artistName, String mbid) {
+        if (!mReady) {
+            return null;
+        }
+        String selection = LibraryMirrorTables.COLUMN_TRACK_ALBUM + "=?";
+        List<String> args = new ArrayList<>();
+        args.add(albumName);
+        if (null != artistName && !artistName.isEmpty()) {
+            selection += " AND (" + LibraryMirrorTables.COLUMN_TRACK_ARTIST + "=? OR " + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ARTIST + "=?)";
+            args.add(artistName);
+            args.add(artistName);
+        }
+        if (null != mbid && !mbid.isEmpty()) {
+            selection += " AND " + LibraryMirrorTables.COLUMN_TRACK_ALBUM_MBID + "=?";
+            args.add(mbid);
+        }
+
+        List<MPDFileEntry> tracks = queryTracks(selection, args.toArray(new String[args.size()]), null);
+        MPDSortHelper.sortFileListNumeric(tracks);
+        checkForUpdates();
+        return tracks;
+    }
+
+    /**
+     * Case insensitive substring search like the search command of MPD. The "any" search is not
+     * supported, because MPD searches all tags for it and the mirror only contains some of them.
+     *
+     * @param term Search term
+     * @param type Tag to search in
+     * @return Matching tracks in library order or null if the mirror is not ready or the search
+     * type is not supported.
+     */
+    public synchronized List<MPDFileEntry> searchFiles(String term, MPDCommands.MPD_SEARCH_TYPE type) {
+        return searchFiles(term, type, 0, -1);
+    }
+
+    /**
+     * Same as {@link #searchFiles(String, MPDCommands.MPD_SEARCH_TYPE)} but only returns the
+     * matches in the range [start, end).
+     *
+     * @param term  Search term
+     * @param type  Tag to search in
+     * @param start Index of the first match to return
+     * @param end   Index after the last match to return, negative for all remaining matches
+     * @return Matching tracks in library order or null if the mirror is not ready or the search
+     * type is not supported.
+     */
+    public synchronized List<MPDFileEntry> searchFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, int start, int end) {
+        if (!mReady) {
+            return null;
+        }
+        String[] columns;
+        switch (type) {
+            case MPD_SEARCH_TRACK:
+                columns = new String[]{LibraryMirrorTables.COLUMN_TRACK_TITLE_SEARCH};
+                break;
+            case MPD_SEARCH_ALBUM:
+                columns = new String[]{LibraryMirrorTables.COLUMN_TRACK_ALBUM_SEARCH};
+                break;
+            case MPD_SEARCH_ARTIST:
+                columns = new String[]{LibraryMirrorTables.COLUMN_TRACK_ARTIST_SEARCH};
+                break;
+            case MPD_SEARCH_FILE:
+                columns = new String[]{LibraryMirrorTables.COLUMN_TRACK_FILE_SEARCH};
+                break;
+            default:
+                // MPD also searches the tags that are not mirrored (e.g. genre, composer, comment)
+                return null;
+        }
+
+        // instr() avoids the escaping of LIKE patterns, the search columns are already lower case
+        String selection = "";
+        String[] args = new String[columns.length];
+        String searchTerm = toSearchString(term);
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                selection += " OR ";
+            }
+            selection += "instr(" + columns[i] + ",?)>0";
+            args[i] = searchTerm;
+        }
+
+        String limit = null;
+        if (end >= 0) {
+            limit = String.valueOf(start) + ',' + String.valueOf(Math.max(0, end - start));
+        }
+
+        List<MPDFileEntry> tracks = queryTracks(selection, args, limit);
+        checkForUpdates();
+        return tracks;
+    }
+
+    private List<MPDAlbum> queryAlbums(String selection, String[] selectionArgs) {
+        SQLiteDatabase database = mDBHelper.getReadableDatabase();
+        Cursor cursor = database.query(LibraryMirrorTables.ALBUM_TABLE_NAME, LibraryMirrorTables.PROJECTION_ALBUMS,
+                selection, selectionArgs, null, null, LibraryMirrorTables.COLUMN_ALBUM_SORT_INDEX);
+
+        List<MPDAlbum> albums = new ArrayList<>(cursor.getCount());
+        SimpleDateFormat format = new SimpleDateFormat("yyyy");
+        while (cursor.moveToNext()) {
+            MPDAlbum album = new MPDAlbum(cursor.getString(0));
+            album.setMBID(cursor.getString(1));
+            album.setArtistName(cursor.getString(2));
+            String date = cursor.getString(3);
+            if (!date.isEmpty()) {
+                try {
+                    album.setDate(format.parse(date));
+                } catch (ParseException e) {
+                    Log.w(TAG, "Error parsing date: " + date);
+                }
+            }
+            albums.add(album);
+        }
+        cursor.close();
+        return albums;
+    }
+
+    private List<MPDArtist> queryArtists(boolean albumArtists) {
+        SQLiteDatabase database = mDBHelper.getReadableDatabase();
+        Cursor cursor = database.query(LibraryMirrorTables.ARTIST_TABLE_NAME,
+                new String[]{LibraryMirrorTables.COLUMN_ARTIST_NAME, LibraryMirrorTables.COLUMN_ARTIST_MBID, LibraryMirrorTables.COLUMN_ARTIST_SORT_INDEX},
+                LibraryMirrorTables.COLUMN_ARTIST_ALBUM_ARTIST + "=?", new String[]{albumArtists ? "1" : "0"},
+                null, null, LibraryMirrorTables.COLUMN_ARTIST_SORT_INDEX + ",rowid");
+
+        // Each MBID of an artist is a separate row with the same sort index
+        List<MPDArtist> artists = new ArrayList<>();
+        MPDArtist artist = null;
+        int lastIndex = -1;
+        while (cursor.moveToNext()) {
+            int index = cursor.getInt(2);
+            if (null == artist || index != lastIndex) {
+                artist = new MPDArtist(cursor.getString(0));
+                artists.add(artist);
+                lastIndex = index;
+            }
+            String mbid = cursor.getString(1);
+            if (!mbid.isEmpty()) {
+                artist.addMBID(mbid);
+            }
+        }
+        cursor.close();
+        return artists;
+    }
+
+    private List<MPDFileEntry> queryTracks(String selection, String[] selectionArgs, String limit) {
+        SQLiteDatabase database = mDBHelper.getReadableDatabase();
+        Cursor cursor = database.query(LibraryMirrorTables.TRACK_TABLE_NAME, LibraryMirrorTables.PROJECTION_TRACKS,
+                selection, selectionArgs, null, null, "rowid", limit);
+
+        List<MPDFileEntry> tracks = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            MPDTrack track = new MPDTrack(cursor.getString(0));
+            track.setTrackTitle(cursor.getString(1));
+            track.setTrackArtist(cursor.getString(2));
+            track.setTrackArtistMBID(cursor.getString(3));
+            track.setTrackAlbum(cursor.getString(4));
+            track.setTrackAlbumMBID(cursor.getString(5));
+            track.setTrackAlbumArtist(cursor.getString(6));
+            track.setTrackAlbumArtistMBID(cursor.getString(7));
+            track.setTrackMBID(cursor.getString(8));
+            track.setDate(cursor.getString(9));
+            track.setLength(cursor.getInt(10));
+            track.setTrackNumber(cursor.getInt(11));
+            track.setAlbumTrackCount(cursor.getInt(12));
+            track.setDiscNumber(cursor.getInt(13));
+            track.psetAlbumDiscCount(cursor.getInt(14));
+            tracks.add(track);
+        }
+        cursor.close();
+        return tracks;
+    }
+
+    private static String toSearchString(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Inserts the tracks of the listallinfo response while they are received and collects the albums
+     * and artists. These are sorted and inserted with their list positions by {@link #finish()}.
+     */
+    private static class MirrorWriter implements MPDConnection.MPDFileEntryListener {
+        private final SQLiteDatabase mDatabase;
+
+        private final SQLiteStatement mTrackStatement;
+
+        /**
+         * Albums by name, MBID and album artist (the groups of the album list command)
+         */
+        private final LinkedHashMap<String, AlbumEntry> mAlbums = new LinkedHashMap<>();
+
+        private final LinkedHashMap<String, MPDArtist> mArtists = new LinkedHashMap<>();
+
+        private final LinkedHashMap<String, MPDArtist> mAlbumArtists = new LinkedHashMap<>();
+
+        MirrorWriter(SQLiteDatabase database) {
+            mDatabase = database;
+            mTrackStatement = database.compileStatement("INSERT INTO " + LibraryMirrorTables.TRACK_TABLE_NAME + " ("
+                    + LibraryMirrorTables.COLUMN_TRACK_FILE + "," + LibraryMirrorTables.COLUMN_TRACK_TITLE + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ARTIST + "," + LibraryMirrorTables.COLUMN_TRACK_ARTIST_MBID + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ALBUM + "," + LibraryMirrorTables.COLUMN_TRACK_ALBUM_MBID + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ARTIST + "," + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ARTIST_MBID + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_MBID + "," + LibraryMirrorTables.COLUMN_TRACK_DATE + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_LENGTH + "," + LibraryMirrorTables.COLUMN_TRACK_NUMBER + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ALBUM_TRACK_COUNT + "," + LibraryMirrorTables.COLUMN_TRACK_DISC_NUMBER + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ALBUM_DISC_COUNT + "," + LibraryMirrorTables.COLUMN_TRACK_ALBUM_ID + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_TITLE_SEARCH + "," + LibraryMirrorTables.COLUMN_TRACK_ARTIST_SEARCH + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_ALBUM_SEARCH + ","
+                    + LibraryMirrorTables.COLUMN_TRACK_FILE_SEARCH
+                    + ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+        }
+
+        @Override
+        public void onFileEntries(List<MPDFileEntry> entries) {
+            for (MPDFileEntry entry : entries) {
+                // Directories and playlists are not part of the mirror
+                if (entry instanceof MPDTrack) {
+                    insertTrack((MPDTrack) entry);
+                }
+            }
+        }
+
+        private void insertTrack(MPDTrack track) {
+            AlbumEntry album = addAlbum(track);
+            addArtist(mArtists, track.getTrackArtist(), track.getTrackArtistMBID());
+            addArtist(mAlbumArtists, track.getTrackAlbumArtist(), track.getTrackAlbumArtistMBID());
+
+            SQLiteStatement statement = mTrackStatement;
+            statement.bindString(1, track.getPath());
+            statement.bindString(2, track.getTrackTitle());
+            statement.bindString(3, track.getTrackArtist());
+            statement.bindString(4, track.getTrackArtistMBID());
+            statement.bindString(5, track.getTrackAlbum());
+            statement.bindString(6, track.getTrackAlbumMBID());
+            statement.bindString(7, track.getTrackAlbumArtist());
+            statement.bindString(8, track.getTrackAlbumArtistMBID());
+            statement.bindString(9, track.getTrackMBID());
+            statement.bindString(10, track.getDate());
+            statement.bindLong(11, track.getLength());
+            statement.bindLong(12, track.getTrackNumber());
+            statement.bindLong(13, track.getAlbumTrackCount());
+            statement.bindLong(14, track.getDiscNumber());
+            statement.bindLong(15, track.getAlbumDiscCount());
+            statement.bindLong(16, album.mID);
+            statement.bindString(17, toSearchString(track.getTrackTitle()));
+            statement.bindString(18, toSearchString(track.getTrackArtist()));
+            statement.bindString(19, toSearchString(track.getTrackAlbum()));
+            statement.bindString(20, toSearchString(track.getPath()));
+            statement.executeInsert();
+        }
+
+        private AlbumEntry addAlbum(MPDTrack track) {
+            String key = track.getTrackAlbum() + '\0' + track.getTrackAlbumMBID() + '\0' + track.getTrackAlbumArtist();
+            AlbumEntry album = mAlbums.get(key);
+            if (null == album) {
+                album = new AlbumEntry(mAlbums.size() + 1, track);
+                mAlbums.put(key, album);
+            }
+
+            // Use the earliest date of the tracks as the date of the album
+            String date = track.getDate();
+            if (!date.isEmpty() && (album.mDate.isEmpty() || date.compareTo(album.mDate) < 0)) {
+                album.mDate = date;
+            }
+            return album;
+        }
+
+        private static void addArtist(HashMap<String, MPDArtist> artists, String name, String mbid) {
+            if (name.isEmpty()) {
+                return;
+            }
+            MPDArtist artist = artists.get(name);
+            if (null == artist) {
+                artist = new MPDArtist(name);
+                artists.put(name, artist);
+            }
+            if (mbid.isEmpty()) {
+                return;
+            }
+            for (int i = 0; i < artist.getMBIDCount(); i++) {
+                if (artist.getMBID(i).equals(mbid)) {
+                    return;
+                }
+            }
+            artist.addMBID(mbid);
+        }
+
+        /**
+         * Inserts the sorted albums and artists after all tracks were received.
+         */
+        void finish() {
+            mTrackStatement.close();
+
+            // Sorts by name like the album list of the server, equal names stay in the order they were found
+            List<AlbumEntry> albums = new ArrayList<>(mAlbums.values());
+            Collections.sort(albums);
+
+            SQLiteStatement albumStatement = mDatabase.compileStatement("INSERT INTO " + LibraryMirrorTables.ALBUM_TABLE_NAME + " ("
+                    + LibraryMirrorTables.COLUMN_ALBUM_ID + "," + LibraryMirrorTables.COLUMN_ALBUM_NAME + ","
+                    + LibraryMirrorTables.COLUMN_ALBUM_MBID + "," + LibraryMirrorTables.COLUMN_ALBUM_ARTIST + ","
+                    + LibraryMirrorTables.COLUMN_ALBUM_DATE + "," + LibraryMirrorTables.COLUMN_ALBUM_SORT_INDEX
+                    + ") VALUES (?,?,?,?,?,?)");
+            for (int i = 0; i < albums.size(); i++) {
+                AlbumEntry album = albums.get(i);
+                albumStatement.bindLong(1, album.mID);
+                albumStatement.bindString(2, album.mName);
+                albumStatement.bindString(3, album.mMBID);
+                albumStatement.bindString(4, album.mArtist);
+                albumStatement.bindString(5, album.mDate);
+                albumStatement.bindLong(6, i);
+                albumStatement.executeInsert();
+            }
+            albumStatement.close();
+
+            SQLiteStatement artistStatement = mDatabase.compileStatement("INSERT INTO " + LibraryMirrorTables.ARTIST_TABLE_NAME + " ("
+                    + LibraryMirrorTables.COLUMN_ARTIST_NAME + "," + LibraryMirrorTables.COLUMN_ARTIST_MBID + ","
+                    + LibraryMirrorTables.COLUMN_ARTIST_ALBUM_ARTIST + "," + LibraryMirrorTables.COLUMN_ARTIST_SORT_INDEX
+                    + ") VALUES (?,?,?,?)");
+            insertArtists(artistStatement, mArtists, false);
+            insertArtists(artistStatement, mAlbumArtists, true);
+            artistStatement.close();
+        }
+
+        private static void insertArtists(SQLiteStatement statement, HashMap<String, MPDArtist> artistMap, boolean albumArtists) {
+            List<MPDArtist> artists = new ArrayList<>(artistMap.values());
+            Collections.sort(artists);
+
+            for (int i = 0; i < artists.size(); i++) {
+                MPDArtist artist = artists.get(i);
+                int rows = Math.max(1, artist.getMBIDCount());
+                for (int j = 0; j < rows; j++) {
+                    statement.bindString(1, artist.getArtistName());
+                    statement.bindString(2, j < artist.getMBIDCount() ? artist.getMBID(j) : "");
+                    statement.bindLong(3, albumArtists ? 1 : 0);
+                    statement.bindLong(4, i);
+                    statement.executeInsert();
+                }
+            }
+        }
+    }
+
+    /**
+     * Album found in the track list with its id in the album table
+     */
+    private static class AlbumEntry implements Comparable<AlbumEntry> {
+        final int mID;
+        final String mName;
+        final String mMBID;
+        final String mArtist;
+        final String mSortName;
+        String mDate;
+
+        AlbumEntry(int id, MPDTrack track) {
+            mID = id;
+            mName = track.getTrackAlbum();
+            mMBID = track.getTrackAlbumMBID();
+            mArtist = track.getTrackAlbumArtist();
+            mSortName = mName.toLowerCase();
+            mDate = "";
+        }
+
+        /**
+         * Same order as {@link MPDAlbum#compareTo(MPDAlbum)}
+         */
+        @Override
+        public int compareTo(AlbumEntry another) {
+            return mSortName.compareTo(another.mSortName);
+        }
+    }
+}
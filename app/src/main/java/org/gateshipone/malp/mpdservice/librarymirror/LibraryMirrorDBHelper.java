@@ -0,0 +1,74 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.librarymirror;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Database of the {@link LibraryMirror} of one server profile.
+ */
+public class LibraryMirrorDBHelper extends SQLiteOpenHelper {
+    /**
+     * Prefix of the database name. The creation date of the profile is appended.
+     */
+    private static final String DATABASE_NAME_PREFIX = "malp_library_mirror_";
+
+    /**
+     * Database version, used for migrating to new versions.
+     */
+    private static final int DATABASE_VERSION = 2;
+
+    /**
+     * Constructor to create the database.
+     *
+     * @param context   Application context to create the database in.
+     * @param profileId Creation date of the profile that identifies it.
+     */
+    public LibraryMirrorDBHelper(Context context, long profileId) {
+        super(context, createDatabaseName(profileId), null, DATABASE_VERSION);
+
+        // Write ahead logging allows the browse queries to read the last state while a synchronization is written
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static String createDatabaseName(long profileId) {
+        return DATABASE_NAME_PREFIX + profileId;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase database) {
+        LibraryMirrorTables.createTables(database);
+    }
+
+    /**
+     * The mirror only contains a copy of the server database, so it is just recreated
+     * and filled again with the next synchronization.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        LibraryMirrorTables.dropTables(database);
+        LibraryMirrorTables.createTables(database);
+    }
+}
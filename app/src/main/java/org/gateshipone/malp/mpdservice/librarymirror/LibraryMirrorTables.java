@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.librarymirror;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Tables of the {@link LibraryMirror}. The tracks table contains every track of the server database,
+ * the album and artist tables are derived from it during the synchronization and contain the
+ * position of the entries in the sorted lists, so that they can be read without sorting again.
+ */
+public class LibraryMirrorTables {
+
+    /**
+     * Track table. Contains the tags of all tracks of the listallinfo response.
+     */
+    public static final String TRACK_TABLE_NAME = "mirror_tracks";
+
+    public static final String COLUMN_TRACK_FILE = "file";
+    public static final String COLUMN_TRACK_TITLE = "title";
+    public static final String COLUMN_TRACK_ARTIST = "artist";
+    public static final String COLUMN_TRACK_ARTIST_MBID = "artist_mbid";
+    public static final String COLUMN_TRACK_ALBUM = "album";
+    public static final String COLUMN_TRACK_ALBUM_MBID = "album_mbid";
+    public static final String COLUMN_TRACK_ALBUM_ARTIST = "album_artist";
+    public static final String COLUMN_TRACK_ALBUM_ARTIST_MBID = "album_artist_mbid";
+    public static final String COLUMN_TRACK_MBID = "track_mbid";
+    public static final String COLUMN_TRACK_DATE = "date";
+    public static final String COLUMN_TRACK_LENGTH = "length";
+    public static final String COLUMN_TRACK_NUMBER = "track_number";
+    public static final String COLUMN_TRACK_ALBUM_TRACK_COUNT = "album_track_count";
+    public static final String COLUMN_TRACK_DISC_NUMBER = "disc_number";
+    public static final String COLUMN_TRACK_ALBUM_DISC_COUNT = "album_disc_count";
+
+    /**
+     * Row id of the album entry in the album table
+     */
+    public static final String COLUMN_TRACK_ALBUM_ID = "album_id";
+
+    /**
+     * Lower case versions of the searchable tags. MPD searches case insensitive.
+     */
+    public static final String COLUMN_TRACK_TITLE_SEARCH = "title_search";
+    public static final String COLUMN_TRACK_ARTIST_SEARCH = "artist_search";
+    public static final String COLUMN_TRACK_ALBUM_SEARCH = "album_search";
+    public static final String COLUMN_TRACK_FILE_SEARCH = "file_search";
+
+    /**
+     * Projection used to create {@link org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack} objects
+     */
+    public static final String[] PROJECTION_TRACKS = {COLUMN_TRACK_FILE, COLUMN_TRACK_TITLE,
+            COLUMN_TRACK_ARTIST, COLUMN_TRACK_ARTIST_MBID, COLUMN_TRACK_ALBUM, COLUMN_TRACK_ALBUM_MBID,
+            COLUMN_TRACK_ALBUM_ARTIST, COLUMN_TRACK_ALBUM_ARTIST_MBID, COLUMN_TRACK_MBID, COLUMN_TRACK_DATE,
+            COLUMN_TRACK_LENGTH, COLUMN_TRACK_NUMBER, COLUMN_TRACK_ALBUM_TRACK_COUNT, COLUMN_TRACK_DISC_NUMBER,
+            COLUMN_TRACK_ALBUM_DISC_COUNT
+    };
+
+    /**
+     * Album table. One entry for each combination of album name, album MBID and album artist.
+     */
+    public static final String ALBUM_TABLE_NAME = "mirror_albums";
+
+    public static final String COLUMN_ALBUM_ID = "album_id";
+    public static final String COLUMN_ALBUM_NAME = "name";
+    public static final String COLUMN_ALBUM_MBID = "mbid";
+    public static final String COLUMN_ALBUM_ARTIST = "artist";
+    public static final String COLUMN_ALBUM_DATE = "date";
+
+    /**
+     * Position of the album in the list sorted by {@link org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum#compareTo}
+     */
+    public static final String COLUMN_ALBUM_SORT_INDEX = "sort_index";
+
+    public static final String[] PROJECTION_ALBUMS = {COLUMN_ALBUM_NAME, COLUMN_ALBUM_MBID,
+            COLUMN_ALBUM_ARTIST, COLUMN_ALBUM_DATE
+    };
+
+    /**
+     * Artist table. One entry for each MBID of an artist (or one entry without MBID).
+     */
+    public static final String ARTIST_TABLE_NAME = "mirror_artists";
+
+    public static final String COLUMN_ARTIST_NAME = "name";
+    public static final String COLUMN_ARTIST_MBID = "mbid";
+
+    /**
+     * 1 if the entry is part of the album artist list, 0 if it is part of the artist list
+     */
+    public static final String COLUMN_ARTIST_ALBUM_ARTIST = "album_artist";
+
+    /**
+     * Position of the artist in the list sorted by {@link org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDArtist#compareTo}
+     */
+    public static final String COLUMN_ARTIST_SORT_INDEX = "sort_index";
+
+    /**
+     * Key value table for the state of the mirror
+     */
+    public static final String INFO_TABLE_NAME = "mirror_info";
+
+    public static final String COLUMN_INFO_KEY = "key";
+    public static final String COLUMN_INFO_VALUE = "value";
+
+    /**
+     * Identifies the synchronized server database (server address and db_update time of the server statistics)
+     */
+    public static final String INFO_KEY_SYNC_STATE = "sync_state";
+
+    private static final String TRACK_TABLE_CREATE = "CREATE TABLE if not exists " + TRACK_TABLE_NAME + " (" +
+            COLUMN_TRACK_FILE + " text," + COLUMN_TRACK_TITLE + " text," +
+            COLUMN_TRACK_ARTIST + " text," + COLUMN_TRACK_ARTIST_MBID + " text," +
+            COLUMN_TRACK_ALBUM + " text," + COLUMN_TRACK_ALBUM_MBID + " text," +
+            COLUMN_TRACK_ALBUM_ARTIST + " text," + COLUMN_TRACK_ALBUM_ARTIST_MBID + " text," +
+            COLUMN_TRACK_MBID + " text," + COLUMN_TRACK_DATE + " text," +
+            COLUMN_TRACK_LENGTH + " integer," + COLUMN_TRACK_NUMBER + " integer," +
+            COLUMN_TRACK_ALBUM_TRACK_COUNT + " integer," + COLUMN_TRACK_DISC_NUMBER + " integer," +
+            COLUMN_TRACK_ALBUM_DISC_COUNT + " integer," + COLUMN_TRACK_ALBUM_ID + " integer," +
+            COLUMN_TRACK_TITLE_SEARCH + " text," + COLUMN_TRACK_ARTIST_SEARCH + " text," +
+            COLUMN_TRACK_ALBUM_SEARCH + " text," +
+            COLUMN_TRACK_FILE_SEARCH + " text" + ");";
+
+    private static final String ALBUM_TABLE_CREATE = "CREATE TABLE if not exists " + ALBUM_TABLE_NAME + " (" +
+            COLUMN_ALBUM_ID + " integer PRIMARY KEY," +
+            COLUMN_ALBUM_NAME + " text," + COLUMN_ALBUM_MBID + " text," +
+            COLUMN_ALBUM_ARTIST + " text," + COLUMN_ALBUM_DATE + " text," +
+            COLUMN_ALBUM_SORT_INDEX + " integer" + ");";
+
+    private static final String ARTIST_TABLE_CREATE = "CREATE TABLE if not exists " + ARTIST_TABLE_NAME + " (" +
+            COLUMN_ARTIST_NAME + " text," + COLUMN_ARTIST_MBID + " text," +
+            COLUMN_ARTIST_ALBUM_ARTIST + " integer," + COLUMN_ARTIST_SORT_INDEX + " integer" + ");";
+
+    private static final String INFO_TABLE_CREATE = "CREATE TABLE if not exists " + INFO_TABLE_NAME + " (" +
+            COLUMN_INFO_KEY + " text PRIMARY KEY," + COLUMN_INFO_VALUE + " text" + ");";
+
+    /**
+     * Indices for the album/artist filters of the track lookups, the path ranges and the sorted lists
+     */
+    private static final String[] INDICES_CREATE = {
+            "CREATE INDEX if not exists " + TRACK_TABLE_NAME + "_file_index ON " + TRACK_TABLE_NAME + " (" + COLUMN_TRACK_FILE + ");",
+            "CREATE INDEX if not exists " + TRACK_TABLE_NAME + "_album_index ON " + TRACK_TABLE_NAME + " (" + COLUMN_TRACK_ALBUM + ");",
+            "CREATE INDEX if not exists " + TRACK_TABLE_NAME + "_artist_index ON " + TRACK_TABLE_NAME + " (" + COLUMN_TRACK_ARTIST + ");",
+            "CREATE INDEX if not exists " + TRACK_TABLE_NAME + "_album_artist_index ON " + TRACK_TABLE_NAME + " (" + COLUMN_TRACK_ALBUM_ARTIST + ");",
+            "CREATE INDEX if not exists " + ALBUM_TABLE_NAME + "_sort_index ON " + ALBUM_TABLE_NAME + " (" + COLUMN_ALBUM_SORT_INDEX + ");",
+            "CREATE INDEX if not exists " + ARTIST_TABLE_NAME + "_sort_index ON " + ARTIST_TABLE_NAME + " (" + COLUMN_ARTIST_ALBUM_ARTIST + "," + COLUMN_ARTIST_SORT_INDEX + ");"
+    };
+
+    private static final String[] TABLE_NAMES = {TRACK_TABLE_NAME, ALBUM_TABLE_NAME, ARTIST_TABLE_NAME, INFO_TABLE_NAME};
+
+    public static void createTables(SQLiteDatabase database) {
+        database.execSQL(TRACK_TABLE_CREATE);
+        database.execSQL(ALBUM_TABLE_CREATE);
+        database.execSQL(ARTIST_TABLE_CREATE);
+        database.execSQL(INFO_TABLE_CREATE);
+
+        for (String index : INDICES_CREATE) {
+            database.execSQL(index);
+        }
+    }
+
+    public static void dropTables(SQLiteDatabase database) {
+        for (String table : TABLE_NAMES) {
+            database.execSQL("DROP TABLE if exists " + table);
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class MPDCapabilities {
     private static final String TAG = MPDCapabilities.class.getSimpleName();
 
     private static final String MPD_TAG_TYPE_MUSICBRAINZ = "musicbrainz";
+    private static final String MPD_TAG_TYPE_MUSICBRAINZ_ALBUMID = "musicbrainz_albumid";
     private static final String MPD_TAG_TYPE_ALBUMARTIST = "albumartist";
     private static final String MPD_TAG_TYPE_DATE = "date";
 
@@ -42,10 +43,15 @@ public class MPDCapabilities {
     private boolean mHasSearchAdd;
 
     private boolean mHasMusicBrainzTags;
+    private boolean mHasMusicBrainzAlbumId;
     private boolean mHasListGroup;
 
     private boolean mHasListFiltering;
 
+    private boolean mHasFilterExpressions;
+
+    private boolean mHasSearchWindow;
+
     private boolean mHasCurrentPlaylistRemoveRange;
 
     private boolean mHasToggleOutput;
@@ -82,6 +88,16 @@ public class MPDCapabilities {
             mHasListFiltering = true;
         }
 
+        // Ranged results of the find and search commands ("window start:end")
+        if (mMinorVersion >= 20 || mMajorVersion > 0) {
+            mHasSearchWindow = true;
+        }
+
+        // Filter expressions for find and search commands (e.g. "(artist != 'name')")
+        if (mMinorVersion >= 21 || mMajorVersion > 0) {
+            mHasFilterExpressions = true;
+        }
+
 
 
         if (null != commands) {
@@ -104,7 +120,9 @@ public class MPDCapabilities {
                 String tagLC = tag.toLowerCase();
                 if (tagLC.contains(MPD_TAG_TYPE_MUSICBRAINZ)) {
                     mHasMusicBrainzTags = true;
-                    break;
+                    if (tagLC.equals(MPD_TAG_TYPE_MUSICBRAINZ_ALBUMID)) {
+                        mHasMusicBrainzAlbumId = true;
+                    }
                 } else if (tagLC.equals(MPD_TAG_TYPE_ALBUMARTIST)) {
                     mTagAlbumArtist = true;
                 } else if (tagLC.equals(MPD_TAG_TYPE_DATE)) {
@@ -134,6 +152,14 @@ public class MPDCapabilities {
         return mHasListFiltering;
     }
 
+    public boolean hasFilterExpressions() {
+        return mHasFilterExpressions;
+    }
+
+    public boolean hasSearchWindow() {
+        return mHasSearchWindow;
+    }
+
     public int getMajorVersion() {
         return mMajorVersion;
     }
@@ -146,6 +172,13 @@ public class MPDCapabilities {
         return mHasMusicBrainzTags;
     }
 
+    /**
+     * @return True if the server supports the musicbrainz_albumid tag, that is used to group and filter albums.
+     */
+    public boolean hasMusicBrainzAlbumId() {
+        return mHasMusicBrainzAlbumId;
+    }
+
     public boolean hasCurrentPlaylistRemoveRange() {
         return mHasCurrentPlaylistRemoveRange;
     }
@@ -166,6 +199,7 @@ public class MPDCapabilities {
         return "MPD protocol version: " + mMajorVersion + '.' + mMinorVersion + '\n'
                 + "TAGS:" + '\n'
                 + "MUSICBRAINZ: " + mHasMusicBrainzTags + '\n'
+                + "MUSICBRAINZ_ALBUMID: " + mHasMusicBrainzAlbumId + '\n'
                 + "AlbumArtist: " + mTagAlbumArtist + '\n'
                 + "Date: " + mTagDate + '\n'
                 + "IDLE support: " + mHasIdle + '\n'
@@ -173,6 +207,8 @@ public class MPDCapabilities {
                 + "Fast search add: " + mHasSearchAdd + '\n'
                 + "List grouping: " + mHasListGroup + '\n'
                 + "List filtering: " + mHasListFiltering + '\n'
+                + "Filter expressions: " + mHasFilterExpressions + '\n'
+                + "Windowed search: " + mHasSearchWindow + '\n'
                 + "Fast ranged currentplaylist delete: " + mHasCurrentPlaylistRemoveRange
                 + (mMopidyDetected ? "\nMopidy detected, consider using the real MPD server (www.musicpd.org)!" : "");
     }
@@ -181,6 +217,8 @@ public class MPDCapabilities {
         Log.w(TAG, "Enabling workarounds for detected Mopidy server");
         mHasListGroup = false;
         mHasListFiltering = false;
+        mHasFilterExpressions = false;
+        mHasSearchWindow = false;
         mMopidyDetected = true;
     }
 }
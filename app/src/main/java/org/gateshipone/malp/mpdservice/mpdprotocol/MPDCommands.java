@@ -35,7 +35,7 @@ public class MPDCommands {
         if (caps.hasTagAlbumArtist()) {
             groups += " group albumartist";
         }
-        if (caps.hasMusicBrainzTags()) {
+        if (caps.hasMusicBrainzAlbumId()) {
             groups += " group musicbrainz_albumid";
         }
         if (caps.hasTagDate()) {
@@ -74,8 +74,56 @@ public class MPDCommands {
         return "list album AlbumArtist \"" + artistName.replaceAll("\"","\\\\\"") + "\"" + createAlbumGroupString(caps);
     }
 
-    public static String MPD_COMMAND_REQUEST_ALBUM_TRACKS(String albumName) {
-        return "find album \"" + albumName.replaceAll("\"","\\\\\"") + "\"";
+    /**
+     * Requests the tracks of an album. If a MBID is given the server only returns the tracks of this album.
+     */
+    public static String MPD_COMMAND_REQUEST_ALBUM_TRACKS(String albumName, String mbid, MPDCapabilities caps) {
+        return "find album " + quoteArgument(albumName) + createAlbumMBIDFilter(mbid, caps);
+    }
+
+    /**
+     * Requests the tracks of an album where artistName is the given artist tag (artistTag is "artist" or "albumartist").
+     */
+    public static String MPD_COMMAND_REQUEST_ARTIST_ALBUM_TRACKS(String albumName, String artistTag, String artistName, String mbid, MPDCapabilities caps) {
+        return "find album " + quoteArgument(albumName) + ' ' + artistTag + ' ' + quoteArgument(artistName) + createAlbumMBIDFilter(mbid, caps);
+    }
+
+    /**
+     * Requests the tracks of an album where artistName is the artist but not the album artist. Together
+     * with the album artist variant of {@link #MPD_COMMAND_REQUEST_ARTIST_ALBUM_TRACKS} this returns the tracks
+     * matching either tag without duplicates. Needs filter expressions ({@link MPDCapabilities#hasFilterExpressions()}).
+     */
+    public static String MPD_COMMAND_REQUEST_ARTIST_ONLY_ALBUM_TRACKS(String albumName, String artistName, String mbid, MPDCapabilities caps) {
+        String expression = "((album == " + quoteExpressionValue(albumName) + ")"
+                + " AND (artist == " + quoteExpressionValue(artistName) + ")"
+                + " AND (albumartist != " + quoteExpressionValue(artistName) + ")";
+        if (null != mbid && !mbid.isEmpty() && caps.hasMusicBrainzAlbumId()) {
+            expression += " AND (musicbrainz_albumid == " + quoteExpressionValue(mbid) + ")";
+        }
+        expression += ")";
+        return "find " + quoteArgument(expression);
+    }
+
+    private static String createAlbumMBIDFilter(String mbid, MPDCapabilities caps) {
+        if (null != mbid && !mbid.isEmpty() && caps.hasMusicBrainzAlbumId()) {
+            return " musicbrainz_albumid " + quoteArgument(mbid);
+        }
+        return "";
+    }
+
+    /**
+     * Quotes a command argument. Backslashes and double quotes are escaped.
+     */
+    private static String quoteArgument(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    /**
+     * Quotes a value inside of a filter expression. The complete expression has to be quoted
+     * again with {@link #quoteArgument(String)}.
+     */
+    private static String quoteExpressionValue(String value) {
+        return '\'' + value.replace("\\", "\\\\").replace("'", "\\'") + '\'';
     }
 
     public static String MPD_COMMAND_REQUEST_ARTISTS(boolean groupMBID) {
@@ -116,6 +164,10 @@ public class MPDCommands {
         return "playlistinfo " + String.valueOf(start) + ':' + String.valueOf(end);
     }
 
+    public static String MPD_COMMAND_GET_CURRENT_PLAYLIST_CHANGES_POSID(int version) {
+        return "plchangesposid " + String.valueOf(version);
+    }
+
     public static String MPD_COMMAND_GET_SAVED_PLAYLIST(String playlistName) {
         return "listplaylistinfo \"" + playlistName + "\"";
     }
@@ -149,6 +201,8 @@ public class MPDCommands {
     public static final String MPD_COMMAND_START_IDLE = "idle";
     public static final String MPD_COMMAND_STOP_IDLE = "noidle";
 
+    public static final String MPD_COMMAND_PING = "ping";
+
     public static final String MPD_START_COMMAND_LIST = "command_list_begin";
     public static final String MPD_END_COMMAND_LIST = "command_list_end";
 
@@ -254,6 +308,14 @@ public class MPDCommands {
         return "ping";
     }
 
+    /**
+     * Search command that only returns the matches in the range [start, end) of the result.
+     * Requires MPD 0.20 ({@link MPDCapabilities#hasSearchWindow()}).
+     */
+    public static String MPD_COMMAND_SEARCH_FILES_WINDOW(String searchTerm, MPD_SEARCH_TYPE type, int start, int end) {
+        return MPD_COMMAND_SEARCH_FILES(searchTerm, type) + " window " + String.valueOf(start) + ':' + String.valueOf(end);
+    }
+
     public static final String MPD_COMMAND_ADD_SEARCH_FILES_CMD_NAME = "searchadd";
 
     public static final String MPD_COMMAND_ADD_SEARCH_FILES(String searchTerm, MPD_SEARCH_TYPE type) {
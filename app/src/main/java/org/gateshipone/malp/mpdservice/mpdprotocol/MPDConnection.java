@@ -22,6 +22,7 @@
 
 package org.gateshipone.malp.mpdservice.mpdprotocol;
 
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDAlbum;
@@ -31,6 +32,7 @@ import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDDirectory;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDOutput;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylistChanges;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDPlaylist;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDStatistics;
 
@@ -42,10 +44,12 @@ import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
@@ -71,6 +75,15 @@ import java.util.concurrent.locks.ReentrantLock;
  * This mpd connection needs to be run in a different thread than the UI otherwise the UI will block
  * (or android will just throw an exception).
  * <p/>
+ * If the server supports idling a second connection ({@link MPDIdleConnection}) is opened that
+ * only idles. In this mode the command connection never idles, no deidling is necessary before
+ * sending commands. Instead a "ping" is sent after {@link #KEEPALIVE_INTERVAL} of inactivity to
+ * prevent the server from closing the connection. If the idle connection is lost the
+ * connection falls back to the single socket idling described above.
+ * <p/>
+ * Additional connections created for the {@link MPDConnectionPool} never idle at all. They are only
+ * kept alive with pings while they are not used.
+ * <p/>
  * For more information check the protocol definition of the mpd server or contact me via mail.
  */
 
@@ -96,17 +109,18 @@ public class MPDConnection {
 
     /**
      * Time to wait for response from server. If server is not answering this prevents a livelock
-     * after 5 seconds. (time in ns)
+     * after 5 seconds. (time in ms)
      */
-    private static final long RESPONSE_TIMEOUT = 5L * 1000L * 1000L * 1000L;
+    private static final int RESPONSE_TIMEOUT = 5 * 1000;
+
+    private static final int IDLE_WAIT_TIME = 500;
 
     /**
-     * Time to sleep the process waiting for a server response. This reduces the busy-waiting to
-     * a bit more efficent sleep/check pattern.
+     * Time after which a ping is sent to the server if the dedicated idle connection is used.
+     * MPD closes inactive, non-idling connections after its "connection_timeout" (default 60s).
+     * (time in ms)
      */
-    private static int RESPONSE_WAIT_SLEEP_TIME = 250;
-
-    private static final int IDLE_WAIT_TIME = 500;
+    private static final int KEEPALIVE_INTERVAL = 30 * 1000;
 
     /* Internal server parameters used for initiating the connection */
     private String pHostname;
@@ -194,6 +208,38 @@ public class MPDConnection {
 
     private ReentrantLock mDeIdleTimerLock;
 
+    /**
+     * Second connection that only idles. Used if {@link #mDedicatedIdleEnabled} is set and the
+     * server supports idling.
+     */
+    private MPDIdleConnection mIdleConnection;
+
+    /**
+     * Set if the dedicated idle connection should be used when available.
+     */
+    private boolean mDedicatedIdleEnabled = true;
+
+    /**
+     * True while the dedicated idle connection is connected. The command connection will not idle then.
+     */
+    private boolean mDedicatedIdleActive;
+
+    /**
+     * Set for connections of the {@link MPDConnectionPool}. These connections never idle and only
+     * send keepalive pings.
+     */
+    private boolean mIdlingDisabled;
+
+    /**
+     * Tokenizer reused for all response lines of this connection
+     */
+    private MPDResponseTokenizer mTokenizer;
+
+    /**
+     * Shared tag values (artist, album, ...) of the responses of this connection
+     */
+    private MPDTagDictionary mTagDictionary;
+
     public static synchronized MPDConnection getInstance() {
         if (null == mInstance) {
             mInstance = new MPDConnection("global");
@@ -201,6 +247,20 @@ public class MPDConnection {
         return mInstance;
     }
 
+    /**
+     * Creates a new disconnected connection for the {@link MPDConnectionPool}. The connection
+     * does not idle and does not use a dedicated idle connection.
+     *
+     * @param id Identifier used for debug output
+     * @return New connection object
+     */
+    static MPDConnection createPooledConnection(String id) {
+        MPDConnection connection = new MPDConnection(id);
+        connection.mIdlingDisabled = true;
+        connection.mDedicatedIdleEnabled = false;
+        return connection;
+    }
+
     /**
      * Creates disconnected MPDConnection with following parameters
      */
@@ -215,6 +275,11 @@ public class MPDConnection {
         pStateListeners = new ArrayList<>();
 
         mDeIdleTimerLock = new ReentrantLock();
+
+        mIdleConnection = new MPDIdleConnection(new IdleConnectionListener());
+
+        mTokenizer = new MPDResponseTokenizer();
+        mTagDictionary = new MPDTagDictionary();
     }
 
     /**
@@ -224,6 +289,10 @@ public class MPDConnection {
     private synchronized void handleSocketError() {
         printDebug("Read error exception. Disconnecting and cleaning up");
         new Exception().printStackTrace();
+
+        // Also close the dedicated idle connection
+        stopDedicatedIdleConnection();
+
         try {
             /* Clear reader/writer up */
             if (null != pReader) {
@@ -267,6 +336,9 @@ public class MPDConnection {
         }
         pPort = port;
         mCapabilitiesChanged = true;
+
+        // Tag values of the old server are not needed anymore
+        mTagDictionary.clear();
     }
 
     /**
@@ -384,6 +456,12 @@ public class MPDConnection {
             }
 
 
+            // Try to use a separate connection for idling, so that this connection never needs to idle.
+            if (mDedicatedIdleEnabled && mServerCapabilities.hasIdling()) {
+                mDedicatedIdleActive = mIdleConnection.connect(pHostname, pPassword, pPort);
+                printDebug("Dedicated idle connection: " + mDedicatedIdleActive);
+            }
+
             // Start the initial idling procedure.
             startIdleWait();
 
@@ -445,6 +523,9 @@ public class MPDConnection {
         // Stop possible timers waiting for the timeout to go idle
         stopIdleWait();
 
+        // Close the dedicated idle connection first
+        stopDedicatedIdleConnection();
+
         // Check if the connection is currently idling, if then deidle.
         if (pMPDConnectionIdle) {
             stopIdleing();
@@ -481,6 +562,39 @@ public class MPDConnection {
         notifyDisconnect();
     }
 
+    /**
+     * Enables or disables the use of a dedicated idle connection. Takes effect on the next connect.
+     *
+     * @param enabled True if a second connection should be used for idling.
+     */
+    public synchronized void setDedicatedIdleConnection(boolean enabled) {
+        mDedicatedIdleEnabled = enabled;
+    }
+
+    /**
+     * Closes the dedicated idle connection (if used).
+     */
+    private synchronized void stopDedicatedIdleConnection() {
+        mDedicatedIdleActive = false;
+        mIdleConnection.disconnect();
+    }
+
+    /**
+     * Sends a ping to the server to prevent a server side timeout of this connection. Only
+     * used while the dedicated idle connection is active or for pooled connections.
+     */
+    private synchronized void sendKeepAlive() {
+        if (!pMPDConnectionReady) {
+            return;
+        }
+        sendMPDCommand(MPDCommands.MPD_COMMAND_PING);
+        try {
+            checkResponse();
+        } catch (IOException e) {
+            handleSocketError();
+        }
+    }
+
     /**
      * Access to the currently server capabilities
      *
@@ -699,28 +813,45 @@ public class MPDConnection {
     }
 
     /**
-     * Function only actively waits for reader to get ready for
-     * the response.
+     * Function waits for the reader to get ready for the response. Instead of polling the reader
+     * this blocks the calling thread in a read operation on the socket until either data is
+     * available or the socket timeout ({@link #RESPONSE_TIMEOUT}) expires. The read character
+     * is pushed back to the reader afterwards so that the parsing methods see the full response.
      */
     private void waitForResponse() throws IOException {
         printDebug("Waiting for response");
-        if (null != pReader) {
-            long currentTime = System.nanoTime();
-
-            while (!readyRead()) {
-                long compareTime = System.nanoTime() - currentTime;
-                // Terminate waiting after waiting to long. This indicates that the server is not responding
-                if (compareTime > RESPONSE_TIMEOUT) {
-                    printDebug("Stuck waiting for server response");
-                    printStackTrace();
-                    throw new IOException();
-                }
-//                if ( compareTime > 500L * 1000L * 1000L ) {
-//                    SystemClock.sleep(RESPONSE_WAIT_SLEEP_TIME);
-//                }
+        // Use local copies because a socket error on another thread could clear the fields.
+        BufferedReader reader = pReader;
+        Socket socket = pSocket;
+        if (null == reader || null == socket) {
+            throw new IOException();
+        }
+
+        // Data already buffered, no need to block
+        if (reader.ready()) {
+            return;
+        }
+
+        int oldTimeout = socket.getSoTimeout();
+        try {
+            // Let the socket wake this thread when data arrives or the timeout expires.
+            socket.setSoTimeout(RESPONSE_TIMEOUT);
+
+            reader.mark(1);
+            if (reader.read() == -1) {
+                printDebug("Server closed the connection while waiting for response");
+                throw new IOException();
             }
-        } else {
+            reader.reset();
+        } catch (SocketTimeoutException e) {
+            // Terminate waiting after waiting to long. This indicates that the server is not responding
+            printDebug("Stuck waiting for server response");
+            printStackTrace();
             throw new IOException();
+        } finally {
+            if (!socket.isClosed()) {
+                socket.setSoTimeout(oldTimeout);
+            }
         }
     }
 
@@ -785,34 +916,42 @@ public class MPDConnection {
         /* Parse the MPD response and create a list of MPD albums */
         String response = readLine();
 
-        boolean emptyAlbum = false;
-        String albumName = "";
+        SimpleDateFormat format = new SimpleDateFormat("yyyy");
 
         MPDAlbum tempAlbum = null;
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            /* Check if the response is an album */
-            if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_NAME)) {
-                /* We found an album, add it to the list. */
-                if (null != tempAlbum) {
-                    albumList.add(tempAlbum);
-                }
-                albumName = response.substring(MPDResponses.MPD_RESPONSE_ALBUM_NAME.length());
-                tempAlbum = new MPDAlbum(albumName);
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_MBID)) {
-                // FIXME this crashed with a null-ptr. This should not happen. Investigate if repeated. (Protocol should always send "Album:" first
-                tempAlbum.setMBID(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_MBID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME)) {
-                /* Check if the response is a albumartist. */
-                tempAlbum.setArtistName(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_DATE)) {
-                // Try to parse Date
-                String dateString = response.substring(MPDResponses.MPD_RESPONSE_DATE.length());
-                SimpleDateFormat format = new SimpleDateFormat("yyyy");
-                try {
-                    tempAlbum.setDate(format.parse(dateString));
-                } catch (ParseException e) {
-                    Log.w(TAG,"Error parsing date: " + dateString);
-                }
+            switch (mTokenizer.setLine(response)) {
+                case ALBUM:
+                    /* We found an album, add it to the list. */
+                    if (null != tempAlbum) {
+                        albumList.add(tempAlbum);
+                    }
+                    tempAlbum = new MPDAlbum(mTokenizer.getPooledValue(mTagDictionary));
+                    break;
+                case ALBUM_MBID:
+                    // Protocol should always send "Album:" first
+                    if (null != tempAlbum) {
+                        tempAlbum.setMBID(mTokenizer.getPooledValue(mTagDictionary));
+                    }
+                    break;
+                case ALBUM_ARTIST:
+                    if (null != tempAlbum) {
+                        tempAlbum.setArtistName(mTokenizer.getPooledValue(mTagDictionary));
+                    }
+                    break;
+                case DATE:
+                    // Try to parse Date
+                    if (null != tempAlbum) {
+                        String dateString = mTokenizer.getValue();
+                        try {
+                            tempAlbum.setDate(format.parse(dateString));
+                        } catch (ParseException e) {
+                            Log.w(TAG, "Error parsing date: " + dateString);
+                        }
+                    }
+                    break;
+                default:
+                    break;
             }
             response = readLine();
         }
@@ -852,36 +991,24 @@ public class MPDConnection {
         /* Parse MPD artist return values and create a list of MPDArtist objects */
         String response = readLine();
 
-        /* Artist properties */
-        String artistName = null;
-        String artistMBID = "";
-
         MPDArtist tempArtist = null;
 
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-
-            if (response == null) {
-                /* skip this invalid (empty) response */
-                continue;
-            }
-
-            if (response.startsWith(MPDResponses.MPD_RESPONSE_ARTIST_NAME)) {
-                if (null != tempArtist) {
-                    artistList.add(tempArtist);
-                }
-                artistName = response.substring(MPDResponses.MPD_RESPONSE_ARTIST_NAME.length());
-                tempArtist = new MPDArtist(artistName);
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUMARTIST_NAME)) {
-                if (null != tempArtist) {
-                    artistList.add(tempArtist);
-                }
-                artistName = response.substring(MPDResponses.MPD_RESPONSE_ALBUMARTIST_NAME.length());
-                tempArtist = new MPDArtist(artistName);
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ARTIST_MBID)) {
-                artistMBID = response.substring(MPDResponses.MPD_RESPONSE_ARTIST_MBID.length());
-                tempArtist.addMBID(artistMBID);
-            } else if (response.startsWith("OK")) {
-                break;
+            switch (mTokenizer.setLine(response)) {
+                case ARTIST:
+                case ALBUM_ARTIST:
+                    if (null != tempArtist) {
+                        artistList.add(tempArtist);
+                    }
+                    tempArtist = new MPDArtist(mTokenizer.getPooledValue(mTagDictionary));
+                    break;
+                case ARTIST_MBID:
+                    if (null != tempArtist) {
+                        tempArtist.addMBID(mTokenizer.getPooledValue(mTagDictionary));
+                    }
+                    break;
+                default:
+                    break;
             }
             response = readLine();
         }
@@ -927,6 +1054,102 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Parses the response of MPD to the status command.
+     *
+     * @return The CurrentStatus object with all gathered information.
+     * @throws IOException
+     */
+    MPDCurrentStatus parseMPDCurrentStatus() throws IOException {
+        MPDCurrentStatus status = new MPDCurrentStatus();
+        if (!isConnected()) {
+            return status;
+        }
+
+        /* Response line from MPD */
+        String response = readLine();
+
+        // Time at which the elapsed time was valid, used to calculate the current position later
+        status.setElapsedTimeBase(SystemClock.elapsedRealtime());
+
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            switch (mTokenizer.setLine(response)) {
+                case VOLUME:
+                    status.setVolume(mTokenizer.getIntValue(status.getVolume()));
+                    break;
+                case REPEAT:
+                    status.setRepeat(mTokenizer.getIntValue(status.getRepeat()));
+                    break;
+                case RANDOM:
+                    status.setRandom(mTokenizer.getIntValue(status.getRandom()));
+                    break;
+                case SINGLE:
+                    status.setSinglePlayback(mTokenizer.getIntValue(status.getSinglePlayback()));
+                    break;
+                case CONSUME:
+                    status.setConsume(mTokenizer.getIntValue(status.getConsume()));
+                    break;
+                case PLAYLIST:
+                    status.setPlaylistVersion(mTokenizer.getIntValue(status.getPlaylistVersion()));
+                    break;
+                case PLAYLIST_LENGTH:
+                    status.setPlaylistLength(mTokenizer.getIntValue(status.getPlaylistLength()));
+                    break;
+                case PLAYBACK_STATE:
+                    if (mTokenizer.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PLAY)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING);
+                    } else if (mTokenizer.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PAUSE)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PAUSING);
+                    } else if (mTokenizer.valueEquals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_STOP)) {
+                        status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_STOPPED);
+                    }
+                    break;
+                case CURRENT_SONG_INDEX:
+                    status.setCurrentSongIndex(mTokenizer.getIntValue(status.getCurrentSongIndex()));
+                    break;
+                case NEXT_SONG_INDEX:
+                    status.setNextSongIndex(mTokenizer.getIntValue(status.getNextSongIndex()));
+                    break;
+                case TIME_INFORMATION_OLD:
+                    // Format: "elapsed:length"
+                    status.setElapsedTime(mTokenizer.getIntValuePart(0, ':', status.getElapsedTime()));
+                    status.setTrackLength(mTokenizer.getIntValuePart(1, ':', status.getTrackLength()));
+                    break;
+                case ELAPSED_TIME:
+                    status.setElapsedTimeMs(mTokenizer.getMillisecondsValue(status.getElapsedTimeMs()));
+                    break;
+                case DURATION:
+                    status.setTrackLength(mTokenizer.getRoundedDecimalValue(status.getTrackLength()));
+                    break;
+                case BITRATE:
+                    status.setBitrate(mTokenizer.getIntValue(status.getBitrate()));
+                    break;
+                case AUDIO_INFORMATION:
+                    // Format: "samplerate:bits:channels"
+                    String bitDepth = mTokenizer.getValuePart(1, ':');
+                    if (null != bitDepth) {
+                        status.setSamplerate(mTokenizer.getIntValuePart(0, ':', status.getSamplerate()));
+                        status.setBitDepth(bitDepth);
+                        status.setChannelCount(mTokenizer.getIntValuePart(2, ':', status.getChannelCount()));
+                    }
+                    break;
+                case UPDATING_DB:
+                    status.setUpdateDBJob(mTokenizer.getIntValue(status.getUpdateDBJob()));
+                    break;
+                default:
+                    break;
+            }
+
+            response = readLine();
+
+        }
+
+
+        startIdleWait();
+
+        return status;
+    }
+
     /**
      * Parses the response of mpd on requests that return track items. This is also used
      * for MPD file, directory and playlist responses. This allows the GUI to develop
@@ -943,137 +1166,79 @@ public class MPDConnection {
      * @return List of MPDFileEntry objects
      * @throws IOException
      */
-    private ArrayList<MPDFileEntry> parseMPDTracks(String filterArtist, String filterAlbumMBID) throws IOException {
-        ArrayList<MPDFileEntry> trackList = new ArrayList<MPDFileEntry>();
+    ArrayList<MPDFileEntry> parseMPDTracks(String filterArtist, String filterAlbumMBID) throws IOException {
+        final ArrayList<MPDFileEntry> trackList = new ArrayList<>();
+        parseMPDTracks(filterArtist, filterAlbumMBID, Integer.MAX_VALUE, new MPDFileEntryListener() {
+            @Override
+            public void onFileEntries(List<MPDFileEntry> entries) {
+                trackList.addAll(entries);
+            }
+        });
+        return trackList;
+    }
+
+    /**
+     * Streaming version of {@link #parseMPDTracks(String, String)}. Instead of collecting the complete
+     * response in one list the parsed objects are passed to the listener in batches of batchSize
+     * entries while the response is still read. Only the current batch is held by this method.
+     *
+     * @param filterArtist    Artist used for filtering against the Artist AND AlbumArtist tag. Non matching tracks
+     *                        will be discarded.
+     * @param filterAlbumMBID MusicBrainzID of the album that is also used as a filter criteria.
+     * @param batchSize       Maximum number of entries passed to the listener at once.
+     * @param listener        Listener that receives the parsed entries. Called in the thread of the caller.
+     * @throws IOException
+     */
+    void parseMPDTracks(String filterArtist, String filterAlbumMBID, int batchSize, MPDFileEntryListener listener) throws IOException {
         if (!isConnected()) {
-            return trackList;
+            return;
         }
 
+        ArrayList<MPDFileEntry> batch = new ArrayList<>();
+
         /* Temporary track item (added to list later */
         MPDFileEntry tempFileEntry = null;
-
+        /* Same object as tempFileEntry if it is a track, otherwise null */
+        MPDTrack tempTrack = null;
 
         /* Response line from MPD */
         String response = readLine();
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            /* This if block will just check all the different response possible by MPDs file/dir/playlist response */
-            if (response.startsWith(MPDResponses.MPD_RESPONSE_FILE)) {
-                if (null != tempFileEntry) {
-                    /* Check the artist filter criteria here */
-                    if (tempFileEntry instanceof MPDTrack) {
-                        MPDTrack file = (MPDTrack) tempFileEntry;
-                        if ((filterArtist.isEmpty() || filterArtist.equals(file.getTrackAlbumArtist()) || filterArtist.equals(file.getTrackArtist()))
-                                && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(file.getTrackAlbumMBID()))) {
-                            trackList.add(tempFileEntry);
-                        }
-                    } else {
-                        trackList.add(tempFileEntry);
-                    }
-                }
-                tempFileEntry = new MPDTrack(response.substring(MPDResponses.MPD_RESPONSE_FILE.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_TRACK_TITLE)) {
-                ((MPDTrack) tempFileEntry).setTrackTitle(response.substring(MPDResponses.MPD_RESPONSE_TRACK_TITLE.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ARTIST_NAME)) {
-                ((MPDTrack) tempFileEntry).setTrackArtist(response.substring(MPDResponses.MPD_RESPONSE_ARTIST_NAME.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME)) {
-                ((MPDTrack) tempFileEntry).setTrackAlbumArtist(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_NAME)) {
-                ((MPDTrack) tempFileEntry).setTrackAlbum(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_NAME.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_DATE)) {
-                ((MPDTrack) tempFileEntry).setDate(response.substring(MPDResponses.MPD_RESPONSE_DATE.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_MBID)) {
-                ((MPDTrack) tempFileEntry).setTrackAlbumMBID(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_MBID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ARTIST_MBID)) {
-                ((MPDTrack) tempFileEntry).setTrackArtistMBID(response.substring(MPDResponses.MPD_RESPONSE_ARTIST_MBID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_MBID)) {
-                ((MPDTrack) tempFileEntry).setTrackAlbumArtistMBID(response.substring(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_MBID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_TRACK_MBID)) {
-                ((MPDTrack) tempFileEntry).setTrackMBID(response.substring(MPDResponses.MPD_RESPONSE_TRACK_MBID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_TRACK_TIME)) {
-                ((MPDTrack) tempFileEntry).setLength(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_TRACK_TIME.length())));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_SONG_ID)) {
-                ((MPDTrack) tempFileEntry).setSongID(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_SONG_ID.length())));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_SONG_POS)) {
-                ((MPDTrack) tempFileEntry).setSongPosition(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_SONG_POS.length())));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_DISC_NUMBER)) {
-                /*
-                * Check if MPD returned a discnumber like: "1" or "1/3" and set disc count accordingly.
-                */
-                String discNumber = response.substring(MPDResponses.MPD_RESPONSE_DISC_NUMBER.length());
-                discNumber = discNumber.replaceAll(" ", "");
-                String[] discNumberSep = discNumber.split("/");
-                if (discNumberSep.length > 0) {
-                    try {
-                        ((MPDTrack) tempFileEntry).setDiscNumber(Integer.valueOf(discNumberSep[0]));
-                    } catch (NumberFormatException e) {
-                    }
-
-                    if (discNumberSep.length > 1) {
-                        try {
-                            ((MPDTrack) tempFileEntry).psetAlbumDiscCount(Integer.valueOf(discNumberSep[1]));
-                        } catch (NumberFormatException e) {
-                        }
-                    }
-                } else {
-                    try {
-                        ((MPDTrack) tempFileEntry).setDiscNumber(Integer.valueOf(discNumber));
-                    } catch (NumberFormatException e) {
-                    }
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_TRACK_NUMBER)) {
-                /*
-                 * Check if MPD returned a tracknumber like: "12" or "12/42" and set albumtrack count accordingly.
-                 */
-                String trackNumber = response.substring(MPDResponses.MPD_RESPONSE_TRACK_NUMBER.length());
-                trackNumber = trackNumber.replaceAll(" ", "");
-                String[] trackNumbersSep = trackNumber.split("/");
-                if (trackNumbersSep.length > 0) {
-                    try {
-                        ((MPDTrack) tempFileEntry).setTrackNumber(Integer.valueOf(trackNumbersSep[0]));
-                    } catch (NumberFormatException e) {
-                    }
-                    if (trackNumbersSep.length > 1) {
-                        try {
-                            ((MPDTrack) tempFileEntry).setAlbumTrackCount(Integer.valueOf(trackNumbersSep[1]));
-                        } catch (NumberFormatException e) {
+            /* This switch will just check all the different response possible by MPDs file/dir/playlist response */
+            MPDResponseTokenizer.KEY key = mTokenizer.setLine(response);
+            switch (key) {
+                case FILE:
+                case PLAYLIST:
+                case DIRECTORY:
+                    // A new entry starts, the previous one is complete
+                    if (null != tempFileEntry && isFilterMatch(tempFileEntry, filterArtist, filterAlbumMBID)) {
+                        batch.add(tempFileEntry);
+                        if (batch.size() >= batchSize) {
+                            listener.onFileEntries(batch);
+                            batch = new ArrayList<>();
                         }
                     }
-                } else {
-                    try {
-                        ((MPDTrack) tempFileEntry).setTrackNumber(Integer.valueOf(trackNumber));
-                    } catch (NumberFormatException e) {
-                    }
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_LAST_MODIFIED)) {
-                tempFileEntry.setLastModified(response.substring(MPDResponses.MPD_RESPONSE_LAST_MODIFIED.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_PLAYLIST)) {
-                if (null != tempFileEntry) {
-                    /* Check the artist filter criteria here */
-                    if (tempFileEntry instanceof MPDTrack) {
-                        MPDTrack file = (MPDTrack) tempFileEntry;
-                        if ((filterArtist.isEmpty() || filterArtist.equals(file.getTrackAlbumArtist()) || filterArtist.equals(file.getTrackArtist()))
-                                && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(file.getTrackAlbumMBID()))) {
-                            trackList.add(tempFileEntry);
-                        }
+                    if (key == MPDResponseTokenizer.KEY.FILE) {
+                        tempTrack = new MPDTrack(mTokenizer.getValue());
+                        tempFileEntry = tempTrack;
+                    } else if (key == MPDResponseTokenizer.KEY.PLAYLIST) {
+                        tempTrack = null;
+                        tempFileEntry = new MPDPlaylist(mTokenizer.getValue());
                     } else {
-                        trackList.add(tempFileEntry);
+                        tempTrack = null;
+                        tempFileEntry = new MPDDirectory(mTokenizer.getValue());
                     }
-                }
-                tempFileEntry = new MPDPlaylist(response.substring(MPDResponses.MPD_RESPONSE_PLAYLIST.length()));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_DIRECTORY)) {
-                if (null != tempFileEntry) {
-                    /* Check the artist filter criteria here */
-                    if (tempFileEntry instanceof MPDTrack) {
-                        MPDTrack file = (MPDTrack) tempFileEntry;
-                        if ((filterArtist.isEmpty() || filterArtist.equals(file.getTrackAlbumArtist()) || filterArtist.equals(file.getTrackArtist()))
-                                && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(file.getTrackAlbumMBID()))) {
-                            trackList.add(tempFileEntry);
-                        }
-                    } else {
-                        trackList.add(tempFileEntry);
+                    break;
+                case LAST_MODIFIED:
+                    if (null != tempFileEntry) {
+                        tempFileEntry.setLastModified(mTokenizer.getValue());
                     }
-                }
-                tempFileEntry = new MPDDirectory(response.substring(MPDResponses.MPD_RESPONSE_DIRECTORY.length()));
+                    break;
+                default:
+                    if (null != tempTrack) {
+                        parseTrackTag(tempTrack, key);
+                    }
+                    break;
             }
 
             // Move to the next line.
@@ -1081,21 +1246,104 @@ public class MPDConnection {
 
         }
 
-        /* Add last remaining track to list. */
-        if (null != tempFileEntry) {
-                    /* Check the artist filter criteria here */
-            if (tempFileEntry instanceof MPDTrack) {
-                MPDTrack file = (MPDTrack) tempFileEntry;
-                if ((filterArtist.isEmpty() || filterArtist.equals(file.getTrackAlbumArtist()) || filterArtist.equals(file.getTrackArtist()))
-                        && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(file.getTrackAlbumMBID()))) {
-                    trackList.add(tempFileEntry);
+        /* Add last remaining track to the last batch. */
+        if (null != tempFileEntry && isFilterMatch(tempFileEntry, filterArtist, filterAlbumMBID)) {
+            batch.add(tempFileEntry);
+        }
+        if (!batch.isEmpty()) {
+            listener.onFileEntries(batch);
+        }
+        startIdleWait();
+    }
+
+    /**
+     * Applies the tag of the current tokenizer line to the track.
+     *
+     * @param track Track to fill
+     * @param key   Key of the current line
+     */
+    private void parseTrackTag(MPDTrack track, MPDResponseTokenizer.KEY key) {
+        switch (key) {
+            case TITLE:
+                track.setTrackTitle(mTokenizer.getValue());
+                break;
+            case ARTIST:
+                track.setTrackArtist(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case ALBUM_ARTIST:
+                track.setTrackAlbumArtist(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case ALBUM:
+                track.setTrackAlbum(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case DATE:
+                track.setDate(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case ALBUM_MBID:
+                track.setTrackAlbumMBID(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case ARTIST_MBID:
+                track.setTrackArtistMBID(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case ALBUM_ARTIST_MBID:
+                track.setTrackAlbumArtistMBID(mTokenizer.getPooledValue(mTagDictionary));
+                break;
+            case TRACK_MBID:
+                track.setTrackMBID(mTokenizer.getValue());
+                break;
+            case TRACK_TIME:
+                track.setLength(mTokenizer.getIntValue(0));
+                break;
+            case SONG_ID:
+                track.setSongID(mTokenizer.getIntValue(-1));
+                break;
+            case SONG_POS:
+                track.setSongPosition(mTokenizer.getIntValue(-1));
+                break;
+            case DISC_NUMBER: {
+                /*
+                 * Check if MPD returned a discnumber like: "1" or "1/3" and set disc count accordingly.
+                 */
+                int discNumber = mTokenizer.getIntValuePart(0, '/', -1);
+                if (discNumber >= 0) {
+                    track.setDiscNumber(discNumber);
                 }
-            } else {
-                trackList.add(tempFileEntry);
+                int discCount = mTokenizer.getIntValuePart(1, '/', -1);
+                if (discCount >= 0) {
+                    track.psetAlbumDiscCount(discCount);
+                }
+                break;
+            }
+            case TRACK_NUMBER: {
+                /*
+                 * Check if MPD returned a tracknumber like: "12" or "12/42" and set albumtrack count accordingly.
+                 */
+                int trackNumber = mTokenizer.getIntValuePart(0, '/', -1);
+                if (trackNumber >= 0) {
+                    track.setTrackNumber(trackNumber);
+                }
+                int trackCount = mTokenizer.getIntValuePart(1, '/', -1);
+                if (trackCount >= 0) {
+                    track.setAlbumTrackCount(trackCount);
+                }
+                break;
             }
+            default:
+                break;
         }
-        startIdleWait();
-        return trackList;
+    }
+
+    /**
+     * Checks if the entry matches the artist and album MBID filter of {@link #parseMPDTracks(String, String)}.
+     * Directories and playlists always match.
+     */
+    private static boolean isFilterMatch(MPDFileEntry entry, String filterArtist, String filterAlbumMBID) {
+        if (!(entry instanceof MPDTrack)) {
+            return true;
+        }
+        MPDTrack track = (MPDTrack) entry;
+        return (filterArtist.isEmpty() || filterArtist.equals(track.getTrackAlbumArtist()) || filterArtist.equals(track.getTrackArtist()))
+                && (filterAlbumMBID.isEmpty() || filterAlbumMBID.equals(track.getTrackAlbumMBID()));
     }
 
      /*
@@ -1270,6 +1518,25 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Gets all tracks from MPD server and passes them to the listener in batches while they are received.
+     * The complete track list is never held by this connection.
+     *
+     * @param batchSize Maximum number of entries per batch
+     * @param listener  Listener to receive the batches of tracks
+     * @return True if the complete response was received, false on errors.
+     */
+    public synchronized boolean getAllTracks(int batchSize, MPDFileEntryListener listener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALL_FILES);
+        try {
+            parseMPDTracks("", "", batchSize, listener);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
 
     /**
      * Returns the list of tracks that are part of albumName
@@ -1278,7 +1545,8 @@ public class MPDConnection {
      * @return List of MPDTrack track objects
      */
     public synchronized List<MPDFileEntry> getAlbumTracks(String albumName, String mbid) {
-        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName));
+        // The MBID is filtered by the server, the client side filter only remains for servers without the tag
+        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName, mbid, mServerCapabilities));
         try {
             List<MPDFileEntry> result = parseMPDTracks("", mbid);
             MPDSortHelper.sortFileListNumeric(result);
@@ -1299,10 +1567,28 @@ public class MPDConnection {
      * @return List of MPDTrack track objects
      */
     public synchronized List<MPDFileEntry> getArtistAlbumTracks(String albumName, String artistName, String mbid) {
-        sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName));
+        if (artistName.isEmpty()) {
+            return getAlbumTracks(albumName, mbid);
+        }
         try {
-            /* Filter tracks with artistName */
-            List<MPDFileEntry> result = parseMPDTracks(artistName, mbid);
+            List<MPDFileEntry> result;
+            if (!mServerCapabilities.hasTagAlbumArtist()) {
+                // Only the artist tag needs to match, this can be filtered by the server
+                sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTIST_ALBUM_TRACKS(albumName, "artist", artistName, mbid, mServerCapabilities));
+                result = parseMPDTracks("", mbid);
+            } else if (mServerCapabilities.hasFilterExpressions()) {
+                // Find has no OR, so request the album artist matches and the remaining artist matches separately.
+                // Both results are disjoint.
+                sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTIST_ALBUM_TRACKS(albumName, "albumartist", artistName, mbid, mServerCapabilities));
+                result = parseMPDTracks("", mbid);
+                sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ARTIST_ONLY_ALBUM_TRACKS(albumName, artistName, mbid, mServerCapabilities));
+                result.addAll(parseMPDTracks("", mbid));
+            } else {
+                // Without filter expressions all tracks of the album are requested and filtered with artistName
+                // for the Artist OR AlbumArtist tag. Two overlapping find commands would transfer most tracks twice.
+                sendMPDCommand(MPDCommands.MPD_COMMAND_REQUEST_ALBUM_TRACKS(albumName, mbid, mServerCapabilities));
+                result = parseMPDTracks(artistName, mbid);
+            }
             // Sort with disc & track number
             MPDSortHelper.sortFileListNumeric(result);
             return result;
@@ -1344,6 +1630,24 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Requests the positions of the current playlist that changed since the given playlist version.
+     * Only the position and song id of each changed entry is transferred.
+     *
+     * @param version Playlist version the client knows
+     * @return Changed positions with their new song ids or null in case of an error.
+     */
+    public synchronized MPDPlaylistChanges getCurrentPlaylistChanges(int version) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_CHANGES_POSID(version));
+        try {
+            /* Parse the return */
+            return parseMPDPlaylistChanges();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Requests the current playlist of the server
      *
@@ -1378,6 +1682,27 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Requests the files for a specific path with info and passes them to the listener in batches
+     * while they are received. In contrast to {@link #getFiles(String)} the entries are not sorted,
+     * they are passed in the order of the server.
+     *
+     * @param path      Path to list
+     * @param batchSize Maximum number of entries per batch
+     * @param listener  Listener to receive the batches of entries
+     * @return True if the complete response was received, false on errors.
+     */
+    public synchronized boolean getFiles(String path, int batchSize, MPDFileEntryListener listener) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_GET_FILES_INFO(path));
+        try {
+            parseMPDTracks("", "", batchSize, listener);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * Requests the files for a specific search term and type
      *
@@ -1396,6 +1721,27 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Requests one window of the files for a specific search term and type. The server must support
+     * {@link MPDCapabilities#hasSearchWindow()}.
+     *
+     * @param term  The search term to use
+     * @param type  The type of items to search
+     * @param start Index of the first match to return
+     * @param end   Index after the last match to return
+     * @return List of MPDTrack items with the matches within the window
+     */
+    public synchronized List<MPDFileEntry> getSearchedFiles(String term, MPDCommands.MPD_SEARCH_TYPE type, int start, int end) {
+        sendMPDCommand(MPDCommands.MPD_COMMAND_SEARCH_FILES_WINDOW(term, type, start, end));
+        try {
+            /* Parse the return */
+            return parseMPDTracks("", "");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Searches a URL in the current playlist. If available the track is part of the returned list.
      *
@@ -1419,136 +1765,15 @@ public class MPDConnection {
      * @return The CurrentStatus object with all gathered information.
      */
     public synchronized MPDCurrentStatus getCurrentServerStatus() {
-        MPDCurrentStatus status = new MPDCurrentStatus();
-
         /* Request status */
         sendMPDCommand(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS);
 
         try {
-            if (!readyRead()) {
-                return status;
-            }
-        } catch (IOException e) {
-            handleSocketError();
-            return status;
-        }
-        /* Response line from MPD */
-        String response = null;
-        try {
-            response = readLine();
+            return parseMPDCurrentStatus();
         } catch (IOException e) {
             handleSocketError();
-            return status;
+            return new MPDCurrentStatus();
         }
-
-        while (!response.startsWith("OK") && !response.startsWith("ACK") && !pSocket.isClosed()) {
-            if (response.startsWith(MPDResponses.MPD_RESPONSE_VOLUME)) {
-                try {
-                    status.setVolume(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_VOLUME.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_REPEAT)) {
-                try {
-                    status.setRepeat(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_REPEAT.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_RANDOM)) {
-                try {
-                    status.setRandom(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_RANDOM.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_SINGLE)) {
-                try {
-                    status.setSinglePlayback(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_SINGLE.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_CONSUME)) {
-                try {
-                    status.setConsume(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_CONSUME.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_PLAYLIST_VERSION)) {
-                try {
-                    status.setPlaylistVersion(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_PLAYLIST_VERSION.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_PLAYLIST_LENGTH)) {
-                try {
-                    status.setPlaylistLength(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_PLAYLIST_LENGTH.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_PLAYBACK_STATE)) {
-                String state = response.substring(MPDResponses.MPD_RESPONSE_PLAYBACK_STATE.length());
-
-                if (state.equals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PLAY)) {
-                    status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PLAYING);
-                } else if (state.equals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_PAUSE)) {
-                    status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_PAUSING);
-                } else if (state.equals(MPDResponses.MPD_PLAYBACK_STATE_RESPONSE_STOP)) {
-                    status.setPlaybackState(MPDCurrentStatus.MPD_PLAYBACK_STATE.MPD_STOPPED);
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_CURRENT_SONG_INDEX)) {
-                status.setCurrentSongIndex(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_CURRENT_SONG_INDEX.length())));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_NEXT_SONG_INDEX)) {
-                status.setNextSongIndex(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_NEXT_SONG_INDEX.length())));
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_TIME_INFORMATION_OLD)) {
-                String timeInfo = response.substring(MPDResponses.MPD_RESPONSE_TIME_INFORMATION_OLD.length());
-
-                String timeInfoSep[] = timeInfo.split(":");
-                if (timeInfoSep.length == 2) {
-                    status.setElapsedTime(Integer.valueOf(timeInfoSep[0]));
-                    status.setTrackLength(Integer.valueOf(timeInfoSep[1]));
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_ELAPSED_TIME)) {
-                try {
-                    status.setElapsedTime(Math.round(Float.valueOf(response.substring(MPDResponses.MPD_RESPONSE_ELAPSED_TIME.length()))));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_DURATION)) {
-                try {
-                    status.setTrackLength(Math.round(Float.valueOf(response.substring(MPDResponses.MPD_RESPONSE_DURATION.length()))));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_BITRATE)) {
-                try {
-                    status.setBitrate(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_BITRATE.length())));
-                } catch (NumberFormatException e) {
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_AUDIO_INFORMATION)) {
-                String audioInfo = response.substring(MPDResponses.MPD_RESPONSE_AUDIO_INFORMATION.length());
-
-                String audioInfoSep[] = audioInfo.split(":");
-                if (audioInfoSep.length == 3) {
-                /* Extract the separate pieces */
-                    try {
-                /* First is sampleRate */
-                        status.setSamplerate(Integer.valueOf(audioInfoSep[0]));
-                /* Second is bitresolution */
-                        status.setBitDepth(audioInfoSep[1]);
-                /* Third is channel count */
-                        status.setChannelCount(Integer.valueOf(audioInfoSep[2]));
-                    } catch (NumberFormatException e) {
-                    }
-                }
-            } else if (response.startsWith(MPDResponses.MPD_RESPONSE_UPDATING_DB)) {
-                try {
-                    status.setUpdateDBJob(Integer.valueOf(response.substring(MPDResponses.MPD_RESPONSE_UPDATING_DB.length())));
-                } catch (NumberFormatException e) {
-                }
-            }
-
-            try {
-                response = readLine();
-            } catch (IOException e) {
-                handleSocketError();
-                return status;
-            }
-
-        }
-
-        startIdleWait();
-
-        return status;
     }
 
     /**
@@ -1581,20 +1806,30 @@ public class MPDConnection {
         }
 
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            if (response.startsWith(MPDResponses.MPD_STATS_UPTIME)) {
-                stats.setServerUptime(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_UPTIME.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_PLAYTIME)) {
-                stats.setPlayDuration(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_PLAYTIME.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_ARTISTS)) {
-                stats.setArtistsCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_ARTISTS.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_ALBUMS)) {
-                stats.setAlbumCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_ALBUMS.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_SONGS)) {
-                stats.setSongCount(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_SONGS.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_DB_PLAYTIME)) {
-                stats.setAllSongDuration(Integer.valueOf(response.substring(MPDResponses.MPD_STATS_DB_PLAYTIME.length())));
-            } else if (response.startsWith(MPDResponses.MPD_STATS_DB_LAST_UPDATE)) {
-                stats.setLastDBUpdate(Long.valueOf(response.substring(MPDResponses.MPD_STATS_DB_LAST_UPDATE.length())));
+            switch (mTokenizer.setLine(response)) {
+                case STATS_UPTIME:
+                    stats.setServerUptime(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_PLAYTIME:
+                    stats.setPlayDuration(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_ARTISTS:
+                    stats.setArtistsCount(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_ALBUMS:
+                    stats.setAlbumCount(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_SONGS:
+                    stats.setSongCount(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_DB_PLAYTIME:
+                    stats.setAllSongDuration(mTokenizer.getIntValue(0));
+                    break;
+                case STATS_DB_LAST_UPDATE:
+                    stats.setLastDBUpdate(mTokenizer.getLongValue(0));
+                    break;
+                default:
+                    break;
             }
 
             try {
@@ -1638,6 +1873,60 @@ public class MPDConnection {
     }
 
 
+    /**
+     * Executes a list of commands in one network round trip. All commands are written to the socket
+     * back-to-back before the first response is read. MPD handles the commands in the order they
+     * were received, so the OK/ACK terminated responses are matched in FIFO order to the
+     * commands. Each command parses exactly its own response and stores the result in the
+     * {@link MPDPipelinedCommand} object. A failing command (ACK) does not affect the following ones.
+     *
+     * @param commands List of commands to execute.
+     * @return True if all responses were read, false if the connection failed in between. Results
+     * of commands that were not reached stay null.
+     */
+    public synchronized boolean executePipeline(List<MPDPipelinedCommand<?>> commands) {
+        if (null == commands || commands.isEmpty()) {
+            return true;
+        }
+
+        // Stop possible idling timeout tasks.
+        stopIdleWait();
+
+        if (!pMPDConnectionReady) {
+            printDebug("Connection not ready, pipeline not sent");
+            return false;
+        }
+
+        if (pMPDConnectionIdle) {
+            stopIdleing();
+        }
+
+        // During deidle a disconnect could happen, check again if connection is ready
+        if (!pMPDConnectionReady) {
+            return false;
+        }
+
+        // Write all commands before flushing the socket once.
+        List<String> commandStrings = new ArrayList<>(commands.size());
+        for (MPDPipelinedCommand<?> command : commands) {
+            commandStrings.add(command.getCommand());
+        }
+        writeLines(commandStrings);
+
+        try {
+            waitForResponse();
+            for (MPDPipelinedCommand<?> command : commands) {
+                command.execute(this);
+            }
+        } catch (IOException e) {
+            handleSocketError();
+            return false;
+        }
+
+        startIdleWait();
+        return true;
+    }
+
     /*
      ***********************
      *    Control commands *
@@ -2181,21 +2470,22 @@ public class MPDConnection {
         /* Response line from MPD */
         String response = readLine();
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            if (response.startsWith(MPDResponses.MPD_OUTPUT_ID)) {
-                if (null != outputName) {
-                    MPDOutput tempOutput = new MPDOutput(outputName, outputActive, outputId);
-                    outputList.add(tempOutput);
-                }
-                outputId = Integer.valueOf(response.substring(MPDResponses.MPD_OUTPUT_ID.length()));
-            } else if (response.startsWith(MPDResponses.MPD_OUTPUT_NAME)) {
-                outputName = response.substring(MPDResponses.MPD_OUTPUT_NAME.length());
-            } else if (response.startsWith(MPDResponses.MPD_OUTPUT_ACTIVE)) {
-                String activeRespsonse = response.substring(MPDResponses.MPD_OUTPUT_ACTIVE.length());
-                if (activeRespsonse.equals("1")) {
-                    outputActive = true;
-                } else {
-                    outputActive = false;
-                }
+            switch (mTokenizer.setLine(response)) {
+                case OUTPUT_ID:
+                    if (null != outputName) {
+                        MPDOutput tempOutput = new MPDOutput(outputName, outputActive, outputId);
+                        outputList.add(tempOutput);
+                    }
+                    outputId = mTokenizer.getIntValue(-1);
+                    break;
+                case OUTPUT_NAME:
+                    outputName = mTokenizer.getValue();
+                    break;
+                case OUTPUT_ACTIVE:
+                    outputActive = mTokenizer.getIntValue(0) == 1;
+                    break;
+                default:
+                    break;
             }
             response = readLine();
         }
@@ -2210,6 +2500,45 @@ public class MPDConnection {
 
     }
 
+    /**
+     * Parses the response of a "plchangesposid" command.
+     *
+     * @return Changed positions of the current playlist or null if the server responded with an error.
+     * @throws IOException
+     */
+    private MPDPlaylistChanges parseMPDPlaylistChanges() throws IOException {
+        if (!isConnected()) {
+            return null;
+        }
+        MPDPlaylistChanges changes = new MPDPlaylistChanges();
+        int position = -1;
+
+        /* Response line from MPD */
+        String response = readLine();
+        while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
+            switch (mTokenizer.setLine(response)) {
+                case CHANGED_SONG_POS:
+                    position = mTokenizer.getIntValue(-1);
+                    break;
+                case SONG_ID:
+                    // The id is sent after the position of an entry
+                    if (position >= 0) {
+                        changes.addChange(position, mTokenizer.getIntValue(-1));
+                    }
+                    position = -1;
+                    break;
+                default:
+                    break;
+            }
+            response = readLine();
+        }
+
+        if (null == response || response.startsWith("ACK")) {
+            return null;
+        }
+        return changes;
+    }
+
     /**
      * Private parsing method for MPDs command list
      *
@@ -2227,8 +2556,8 @@ public class MPDConnection {
         /* Response line from MPD */
         String response = readLine();
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            if (response.startsWith(MPDResponses.MPD_COMMAND)) {
-                commandName = response.substring(MPDResponses.MPD_COMMAND.length());
+            if (mTokenizer.setLine(response) == MPDResponseTokenizer.KEY.COMMAND) {
+                commandName = mTokenizer.getValue();
                 commandList.add(commandName);
             }
             response = readLine();
@@ -2255,8 +2584,8 @@ public class MPDConnection {
         /* Response line from MPD */
         String response = readLine();
         while (isConnected() && response != null && !response.startsWith("OK") && !response.startsWith("ACK")) {
-            if (response.startsWith(MPDResponses.MPD_TAGTYPE)) {
-                tagName = response.substring(MPDResponses.MPD_TAGTYPE.length());
+            if (mTokenizer.setLine(response) == MPDResponseTokenizer.KEY.TAGTYPE) {
+                tagName = mTokenizer.getValue();
                 tagList.add(tagName);
             }
             response = readLine();
@@ -2425,13 +2754,78 @@ public class MPDConnection {
         void onDisconnected();
     }
 
+    /**
+     * Interface to receive parsed {@link MPDFileEntry} objects in batches while a response is still read.
+     */
+    public interface MPDFileEntryListener {
+        /**
+         * Called for every batch of parsed entries.
+         *
+         * @param entries Batch of entries. The list is not reused by the connection.
+         */
+        void onFileEntries(List<MPDFileEntry> entries);
+    }
+
     /**
      * Interface to be used to be informed about connection idle state changes.
      */
     public interface MPDConnectionIdleChangeListener {
         void onIdle();
 
+        /**
+         * Called when the idle state ended without known changes on the server (e.g. deidled
+         * to send a command).
+         */
         void onNonIdle();
+
+        /**
+         * Called when the server reported changes of the given subsystems.
+         *
+         * @param subsystems Set of subsystems that changed. Never empty.
+         */
+        void onSubsystemsChanged(Set<MPD_SUBSYSTEM> subsystems);
+    }
+
+    /**
+     * Subsystems of the MPD server as reported by the idle command ("changed: ...").
+     */
+    public enum MPD_SUBSYSTEM {
+        DATABASE("database"),
+        UPDATE("update"),
+        STORED_PLAYLIST("stored_playlist"),
+        PLAYLIST("playlist"),
+        PLAYER("player"),
+        MIXER("mixer"),
+        OUTPUT("output"),
+        OPTIONS("options"),
+        // Subsystems not handled by this client (sticker, subscription, message, ...)
+        OTHER("");
+
+        private final String mName;
+
+        MPD_SUBSYSTEM(String name) {
+            mName = name;
+        }
+
+        /**
+         * Parses one "changed: " line of the idle response.
+         *
+         * @param response Response line from the server
+         * @return The changed subsystem or null if the line is no "changed: " line.
+         */
+        public static MPD_SUBSYSTEM fromIdleResponse(String response) {
+            if (!response.startsWith(MPDResponses.MPD_CHANGED)) {
+                return null;
+            }
+            // Compare the name in place, without extracting it
+            int start = MPDResponses.MPD_CHANGED.length();
+            for (MPD_SUBSYSTEM subsystem : values()) {
+                if (response.length() - start == subsystem.mName.length() && response.startsWith(subsystem.mName, start)) {
+                    return subsystem;
+                }
+            }
+            return OTHER;
+        }
     }
 
 
@@ -2473,6 +2867,9 @@ public class MPDConnection {
              */
             boolean externalDeIdle = false;
 
+            // Subsystems reported as changed by the server
+            Set<MPD_SUBSYSTEM> changedSubsystems = EnumSet.noneOf(MPD_SUBSYSTEM.class);
+
             // This will block this thread until the server has some data available to read again.
             String response = null;
             try {
@@ -2577,10 +2974,14 @@ public class MPDConnection {
             if (response.startsWith("changed")) {
                 printDebug("Externally deidled!");
                 externalDeIdle = true;
+                changedSubsystems.add(MPD_SUBSYSTEM.fromIdleResponse(response));
                 try {
                     while (readyRead()) {
                         response = readLine();
-                        if (response.startsWith("OK")) {
+                        MPD_SUBSYSTEM subsystem = MPD_SUBSYSTEM.fromIdleResponse(response);
+                        if (null != subsystem) {
+                            changedSubsystems.add(subsystem);
+                        } else if (response.startsWith("OK")) {
                             printDebug("Deidled with status ok");
                         } else if (response.startsWith("ACK")) {
                             printDebug("Server response error: " + response);
@@ -2609,7 +3010,11 @@ public class MPDConnection {
 
             // Notify a possible listener for deidling.
             for (MPDConnectionIdleChangeListener listener : pIdleListeners) {
-                listener.onNonIdle();
+                if (changedSubsystems.isEmpty()) {
+                    listener.onNonIdle();
+                } else {
+                    listener.onSubsystemsChanged(changedSubsystems);
+                }
             }
             printDebug("Idling over");
 
@@ -2634,12 +3039,20 @@ public class MPDConnection {
             mIdleWait.cancel();
             mIdleWait.purge();
         }
-        // Start the new timer with a new Idle Task.
+        // Start the new timer with a new Idle Task. If a dedicated idle connection is used this
+        // connection only needs to be kept alive.
         mIdleWait = new Timer();
-        mIdleWait.schedule(new IdleWaitTimeoutTask(), IDLE_WAIT_TIME);
+        mIdleWait.schedule(new IdleWaitTimeoutTask(), isKeepAliveOnly() ? KEEPALIVE_INTERVAL : IDLE_WAIT_TIME);
         printDebug("IdleWait scheduled");
     }
 
+    /**
+     * @return True if this connection should not idle but only be kept alive.
+     */
+    private boolean isKeepAliveOnly() {
+        return mDedicatedIdleActive || mIdlingDisabled;
+    }
+
     /**
      * This will stop a potential running timeout task.
      */
@@ -2653,15 +3066,46 @@ public class MPDConnection {
     }
 
     /**
-     * Task that will trigger the idle state of this MPDConnection.
+     * Task that will trigger the idle state of this MPDConnection or keep the connection alive
+     * if the dedicated idle connection is used.
      */
     private class IdleWaitTimeoutTask extends TimerTask {
 
         @Override
         public void run() {
-            startIdleing();
+            if (isKeepAliveOnly()) {
+                sendKeepAlive();
+            } else {
+                startIdleing();
+            }
+        }
+
+    }
+
+    /**
+     * Receives the events of the dedicated idle connection.
+     */
+    private class IdleConnectionListener implements MPDIdleConnection.MPDIdleConnectionListener {
+
+        @Override
+        public void onIdleChange(Set<MPD_SUBSYSTEM> subsystems) {
+            printDebug("Change reported by idle connection");
+            // Notify the listeners like an external deidle of this connection would do.
+            for (MPDConnectionIdleChangeListener listener : pIdleListeners) {
+                listener.onSubsystemsChanged(subsystems);
+            }
         }
 
+        @Override
+        public void onIdleConnectionLost() {
+            synchronized (MPDConnection.this) {
+                printDebug("Dedicated idle connection lost, fall back to idling on command connection");
+                mDedicatedIdleActive = false;
+                if (pMPDConnectionReady) {
+                    startIdleWait();
+                }
+            }
+        }
     }
 
     public void setID(String id) {
@@ -2696,6 +3140,22 @@ public class MPDConnection {
         }
     }
 
+    /**
+     * Writes multiple lines to the sockets writer and flushes only once afterwards. This allows
+     * sending several commands in one TCP segment.
+     *
+     * @param lines Lines to write to the socket.
+     */
+    private void writeLines(List<String> lines) {
+        if (pWriter != null) {
+            for (String line : lines) {
+                pWriter.println(line);
+                printDebug("Write line: " + line);
+            }
+            pWriter.flush();
+        }
+    }
+
     private void printDebug(String debug) {
         if (!DEBUG_ENABLED) {
             return;
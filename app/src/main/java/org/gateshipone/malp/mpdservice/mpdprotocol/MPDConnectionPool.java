@@ -0,0 +1,396 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Bounded pool of additional {@link MPDConnection} objects to the currently configured server.
+ * <p/>
+ * The primary connection ({@link MPDConnection#getInstance()}) is still used for playback commands
+ * and state monitoring. Long running queries (e.g. listing the complete database) can check out
+ * a separate connection so that they do not block the primary connection with its synchronized methods.
+ * <p/>
+ * Connections are created lazily on {@link #checkout()} and must be returned with {@link #checkin(MPDConnection)}.
+ * Returned connections are kept open (with keepalive pings) and are closed after {@link #CONNECTION_IDLE_TIMEOUT}
+ * without use. If no pooled connection can be provided (pool exhausted, server refuses further connections,
+ * not connected) the primary connection is returned instead, so callers never need to handle a missing connection.
+ */
+public class MPDConnectionPool implements MPDConnection.MPDConnectionStateChangeListener {
+    private static final String TAG = MPDConnectionPool.class.getSimpleName();
+
+    /**
+     * Number of pooled connections used if not configured otherwise.
+     */
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    /**
+     * Maximum number of pooled connections. MPD limits the number of clients (max_connections)
+     * so this should stay small.
+     */
+    public static final int MAX_POOL_SIZE = 8;
+
+    /**
+     * Time to wait for a connection to be returned if the pool is exhausted (time in ms)
+     */
+    private static final int CHECKOUT_TIMEOUT = 2 * 1000;
+
+    /**
+     * Time after that an unused pooled connection is closed (time in ms)
+     */
+    private static final int CONNECTION_IDLE_TIMEOUT = 2 * 60 * 1000;
+
+    /**
+     * Interval to check for unused connections (time in ms)
+     */
+    private static final int EVICTION_INTERVAL = 30 * 1000;
+
+    /**
+     * Time to wait after a failed connection attempt before new connections are tried again (time in ms)
+     */
+    private static final int CONNECT_RETRY_TIME = 30 * 1000;
+
+    /**
+     * Singleton instance
+     */
+    private static MPDConnectionPool mInstance;
+
+    /**
+     * Connection that is returned if no pooled connection is available
+     */
+    private final MPDConnection mPrimaryConnection;
+
+    /**
+     * Connections that are currently not used. Used as a stack, so that recently used connections
+     * are reused first and unused connections can time out.
+     */
+    private final ArrayList<PoolEntry> mFreeConnections;
+
+    /**
+     * Connections currently checked out with the generation they were created for.
+     */
+    private final HashMap<MPDConnection, Integer> mCheckedOutConnections;
+
+    /**
+     * Number of open (free, checked out or currently connecting) pooled connections.
+     */
+    private int mOpenConnections;
+
+    private int mPoolSize = DEFAULT_POOL_SIZE;
+
+    private String mHostname;
+    private String mPassword;
+    private int mPort;
+
+    /**
+     * Increased every time the server parameters change or the primary connection is lost.
+     * Connections of older generations are closed when they are returned.
+     */
+    private int mGeneration;
+
+    /**
+     * Time of the last failed connection attempt
+     */
+    private long mLastConnectFailure;
+
+    /**
+     * Counter used for the connection ids in debug output
+     */
+    private int mConnectionCounter;
+
+    private Timer mEvictionTimer;
+
+    private MPDConnectionPool() {
+        mFreeConnections = new ArrayList<>();
+        mCheckedOutConnections = new HashMap<>();
+        mPrimaryConnection = MPDConnection.getInstance();
+
+        // Close all pooled connections if the primary connection is lost
+        mPrimaryConnection.setStateListener(this);
+    }
+
+    public static synchronized MPDConnectionPool getInstance() {
+        if (null == mInstance) {
+            mInstance = new MPDConnectionPool();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Sets the server parameters for new pooled connections. Connections to the old server are closed.
+     *
+     * @param hostname Hostname or ip address of the server
+     * @param password Password of the server (empty if none)
+     * @param port     TCP port of the server
+     */
+    public void setServerParameters(String hostname, String password, int port) {
+        List<MPDConnection> closedConnections;
+        synchronized (this) {
+            mHostname = hostname;
+            mPassword = password;
+            mPort = port;
+            mLastConnectFailure = 0;
+            closedConnections = invalidateConnections();
+        }
+        closeConnections(closedConnections);
+    }
+
+    /**
+     * Sets the maximum number of pooled connections. A size of 0 disables the pool and
+     * {@link #checkout()} always returns the primary connection.
+     *
+     * @param size Number of connections (clamped to {@link #MAX_POOL_SIZE})
+     */
+    public void setPoolSize(int size) {
+        List<MPDConnection> closedConnections = new ArrayList<>();
+        synchronized (this) {
+            mPoolSize = Math.max(0, Math.min(size, MAX_POOL_SIZE));
+
+            // Close free connections that exceed the new size. Checked out connections are closed on checkin.
+            while (mOpenConnections > mPoolSize && !mFreeConnections.isEmpty()) {
+                closedConnections.add(mFreeConnections.remove(0).mConnection);
+                mOpenConnections--;
+            }
+            notifyAll();
+        }
+        closeConnections(closedConnections);
+    }
+
+    /**
+     * @return Maximum number of pooled connections. 0 if the pool is disabled.
+     */
+    public synchronized int getPoolSize() {
+        return mPoolSize;
+    }
+
+    /**
+     * Returns a connection to use exclusively until it is returned with {@link #checkin(MPDConnection)}.
+     * Blocks for at most {@link #CHECKOUT_TIMEOUT} if all pooled connections are in use and
+     * new connections are established on demand (in the calling thread).
+     *
+     * @return A connected pooled connection or the primary connection as a fallback.
+     */
+    public MPDConnection checkout() {
+        String hostname;
+        String password;
+        int port;
+        int generation;
+        String id;
+
+        synchronized (this) {
+            long deadline = SystemClock.elapsedRealtime() + CHECKOUT_TIMEOUT;
+            while (true) {
+                // Without a connected server no pooled connection can be created
+                if (mPoolSize == 0 || !mPrimaryConnection.isConnected() || null == mHostname) {
+                    return mPrimaryConnection;
+                }
+
+                // Health check of free connections. Connections lost during keepalive are not ready anymore.
+                while (!mFreeConnections.isEmpty()) {
+                    PoolEntry entry = mFreeConnections.remove(mFreeConnections.size() - 1);
+                    if (entry.mConnection.isConnected()) {
+                        mCheckedOutConnections.put(entry.mConnection, mGeneration);
+                        return entry.mConnection;
+                    }
+                    mOpenConnections--;
+                }
+
+                // Open a new connection if the pool is not exhausted and the server did not refuse connections recently
+                if (mOpenConnections < mPoolSize) {
+                    if (mLastConnectFailure != 0 && SystemClock.elapsedRealtime() - mLastConnectFailure < CONNECT_RETRY_TIME) {
+                        return mPrimaryConnection;
+                    }
+                    mOpenConnections++;
+                    hostname = mHostname;
+                    password = mPassword;
+                    port = mPort;
+                    generation = mGeneration;
+                    id = "Pool-" + mConnectionCounter++;
+                    break;
+                }
+
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) {
+                    Log.v(TAG, "Pool exhausted, using primary connection");
+                    return mPrimaryConnection;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    return mPrimaryConnection;
+                }
+            }
+        }
+
+        // Connect outside of the lock, so that other threads can still check out and return connections
+        MPDConnection connection = MPDConnection.createPooledConnection(id);
+        connection.setServerParameters(hostname, password, port);
+        connection.connectToServer();
+
+        boolean close = false;
+        synchronized (this) {
+            if (!connection.isConnected()) {
+                Log.v(TAG, "Could not open pooled connection, using primary connection");
+                mLastConnectFailure = SystemClock.elapsedRealtime();
+                mOpenConnections--;
+                notifyAll();
+                return mPrimaryConnection;
+            }
+            if (generation != mGeneration) {
+                // Server changed while connecting
+                mOpenConnections--;
+                notifyAll();
+                close = true;
+            } else {
+                mCheckedOutConnections.put(connection, generation);
+            }
+        }
+        if (close) {
+            connection.disconnectFromServer();
+            return mPrimaryConnection;
+        }
+        return connection;
+    }
+
+    /**
+     * Returns a connection received by {@link #checkout()} to the pool. The primary connection is ignored.
+     *
+     * @param connection Connection to return
+     */
+    public void checkin(MPDConnection connection) {
+        if (null == connection || connection == mPrimaryConnection) {
+            return;
+        }
+
+        boolean close;
+        synchronized (this) {
+            Integer generation = mCheckedOutConnections.remove(connection);
+            if (null == generation) {
+                return;
+            }
+            close = generation != mGeneration || !connection.isConnected() || mOpenConnections > mPoolSize;
+            if (close) {
+                mOpenConnections--;
+            } else {
+                mFreeConnections.add(new PoolEntry(connection, SystemClock.elapsedRealtime()));
+                startEvictionTimer();
+            }
+            notifyAll();
+        }
+        if (close) {
+            connection.disconnectFromServer();
+        }
+    }
+
+    @Override
+    public void onConnected() {
+        // Pooled connections are created on demand
+    }
+
+    @Override
+    public void onDisconnected() {
+        List<MPDConnection> closedConnections;
+        synchronized (this) {
+            closedConnections = invalidateConnections();
+        }
+        closeConnections(closedConnections);
+    }
+
+    /**
+     * Marks all checked out connections as outdated and removes all free connections from the pool.
+     * Must be called with the lock of this object held.
+     *
+     * @return List of connections to close (outside of the lock).
+     */
+    private List<MPDConnection> invalidateConnections() {
+        mGeneration++;
+        List<MPDConnection> closedConnections = new ArrayList<>();
+        for (PoolEntry entry : mFreeConnections) {
+            closedConnections.add(entry.mConnection);
+        }
+        mOpenConnections -= mFreeConnections.size();
+        mFreeConnections.clear();
+        stopEvictionTimer();
+        notifyAll();
+        return closedConnections;
+    }
+
+    private void closeConnections(List<MPDConnection> connections) {
+        for (MPDConnection connection : connections) {
+            connection.disconnectFromServer();
+        }
+    }
+
+    private synchronized void startEvictionTimer() {
+        if (null == mEvictionTimer) {
+            mEvictionTimer = new Timer();
+            mEvictionTimer.schedule(new EvictionTask(), EVICTION_INTERVAL, EVICTION_INTERVAL);
+        }
+    }
+
+    private synchronized void stopEvictionTimer() {
+        if (null != mEvictionTimer) {
+            mEvictionTimer.cancel();
+            mEvictionTimer.purge();
+            mEvictionTimer = null;
+        }
+    }
+
+    /**
+     * Closes connections that were not used for {@link #CONNECTION_IDLE_TIMEOUT}.
+     */
+    private class EvictionTask extends TimerTask {
+        @Override
+        public void run() {
+            List<MPDConnection> closedConnections = new ArrayList<>();
+            synchronized (MPDConnectionPool.this) {
+                long now = SystemClock.elapsedRealtime();
+                // Oldest entries are at the beginning of the list
+                while (!mFreeConnections.isEmpty() && now - mFreeConnections.get(0).mLastUsed > CONNECTION_IDLE_TIMEOUT) {
+                    closedConnections.add(mFreeConnections.remove(0).mConnection);
+                    mOpenConnections--;
+                }
+                if (mFreeConnections.isEmpty()) {
+                    stopEvictionTimer();
+                }
+            }
+            closeConnections(closedConnections);
+        }
+    }
+
+    private static class PoolEntry {
+        private final MPDConnection mConnection;
+        private final long mLastUsed;
+
+        private PoolEntry(MPDConnection connection, long lastUsed) {
+            mConnection = connection;
+            mLastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Second connection to the MPD server that is only used for the idle command. While this
+ * connection is active the command connection ({@link MPDConnection}) never needs to idle, which
+ * removes the deidle handshake ("noidle", deidle timeout, semaphores) from every user action.
+ * <p/>
+ * A separate thread sends "idle" to the server and blocks until the server reports changes.
+ * Every change is reported to the {@link MPDIdleConnectionListener} and idling is restarted
+ * immediately afterwards.
+ */
+public class MPDIdleConnection {
+    private static final String TAG = MPDIdleConnection.class.getSimpleName();
+
+    /**
+     * Timeout to wait for socket operations during the connection setup (time in ms)
+     */
+    private static final int SOCKET_TIMEOUT = 5 * 1000;
+
+    /**
+     * Listener that gets notified about changes on the server and about the loss of this connection.
+     */
+    public interface MPDIdleConnectionListener {
+        /**
+         * Called when the server reported a change (changed: ...) from any client.
+         *
+         * @param subsystems Set of changed subsystems. Never empty.
+         */
+        void onIdleChange(Set<MPDConnection.MPD_SUBSYSTEM> subsystems);
+
+        /**
+         * Called when the connection was lost unexpectedly. It is not called after {@link #disconnect()}.
+         */
+        void onIdleConnectionLost();
+    }
+
+    private final MPDIdleConnectionListener mListener;
+
+    private Socket mSocket;
+
+    private IdleLoopThread mIdleThread;
+
+    public MPDIdleConnection(MPDIdleConnectionListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Connects to the server and starts the idling thread. An existing connection is closed before.
+     *
+     * @param hostname Hostname to connect to. Can also be an ip.
+     * @param password Password for the server to authenticate with. Can be null or empty.
+     * @param port     TCP port to connect to.
+     * @return True if the connection is established and idling, false otherwise.
+     */
+    public synchronized boolean connect(String hostname, String password, int port) {
+        disconnect();
+
+        Socket socket = new Socket();
+        BufferedReader reader;
+        PrintWriter writer;
+        try {
+            socket.connect(new InetSocketAddress(hostname, port), SOCKET_TIMEOUT);
+            socket.setSoTimeout(SOCKET_TIMEOUT);
+
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()));
+
+            // Check the greeting message
+            String response = reader.readLine();
+            if (null == response || !response.startsWith("OK MPD ")) {
+                closeSocket(socket);
+                return false;
+            }
+
+            if (null != password && !password.isEmpty()) {
+                writer.println(MPDCommands.MPD_COMMAND_PASSWORD(password));
+                writer.flush();
+                response = reader.readLine();
+                if (null == response || !response.startsWith("OK")) {
+                    Log.e(TAG, "Could not authenticate idle connection");
+                    closeSocket(socket);
+                    return false;
+                }
+            }
+
+            // Block indefinitely while idling
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            closeSocket(socket);
+            return false;
+        }
+
+        mSocket = socket;
+        mIdleThread = new IdleLoopThread(reader, writer);
+        mIdleThread.start();
+        return true;
+    }
+
+    /**
+     * Stops the idling thread and closes the connection. The listener is not notified.
+     */
+    public synchronized void disconnect() {
+        if (null != mIdleThread) {
+            mIdleThread.mRunning = false;
+            mIdleThread = null;
+        }
+        if (null != mSocket) {
+            // This will also abort the blocking read of the idle thread
+            closeSocket(mSocket);
+            mSocket = null;
+        }
+    }
+
+    public synchronized boolean isConnected() {
+        return null != mSocket && mSocket.isConnected() && !mSocket.isClosed();
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing idle connection: " + e.toString());
+        }
+    }
+
+    /**
+     * Thread that sends the idle command and waits (blocking) for the response of the server.
+     */
+    private class IdleLoopThread extends Thread {
+        private final BufferedReader mReader;
+
+        private final PrintWriter mWriter;
+
+        private volatile boolean mRunning;
+
+        IdleLoopThread(BufferedReader reader, PrintWriter writer) {
+            super("MPDIdleConnection");
+            mReader = reader;
+            mWriter = writer;
+            mRunning = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (mRunning) {
+                    mWriter.println(MPDCommands.MPD_COMMAND_START_IDLE);
+                    mWriter.flush();
+
+                    // Blocks until another client (or the command connection) changed something
+                    Set<MPDConnection.MPD_SUBSYSTEM> subsystems = EnumSet.noneOf(MPDConnection.MPD_SUBSYSTEM.class);
+                    String response = mReader.readLine();
+                    while (null != response && !response.startsWith("OK") && !response.startsWith("ACK")) {
+                        MPDConnection.MPD_SUBSYSTEM subsystem = MPDConnection.MPD_SUBSYSTEM.fromIdleResponse(response);
+                        if (null != subsystem) {
+                            subsystems.add(subsystem);
+                        }
+                        response = mReader.readLine();
+                    }
+
+                    if (null == response) {
+                        throw new IOException("Idle connection closed by server");
+                    }
+
+                    if (!subsystems.isEmpty() && mRunning) {
+                        mListener.onIdleChange(subsystems);
+                    }
+                }
+            } catch (IOException e) {
+                if (mRunning) {
+                    Log.w(TAG, "Idle connection lost: " + e.toString());
+                    mRunning = false;
+                    boolean lost = false;
+                    synchronized (MPDIdleConnection.this) {
+                        // Only clean up if no disconnect/reconnect happened in the meantime
+                        if (mIdleThread == this) {
+                            mIdleThread = null;
+                            if (null != mSocket) {
+                                closeSocket(mSocket);
+                                mSocket = null;
+                            }
+                            lost = true;
+                        }
+                    }
+                    if (lost) {
+                        mListener.onIdleConnectionLost();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDCurrentStatus;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDFileEntry;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDTrack;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One command of a pipelined request (see {@link MPDConnection#executePipeline(List)}).
+ * It combines the command string with the typed parser for its response. After the pipeline
+ * was executed the parsed result is available via {@link #getResult()}.
+ * <p/>
+ * Use the static factory methods to create commands for the supported response types.
+ *
+ * @param <T> Type of the parsed response
+ */
+public abstract class MPDPipelinedCommand<T> {
+    /**
+     * Command string that is sent to the server
+     */
+    private final String mCommand;
+
+    /**
+     * Parsed response. Null until the pipeline was executed successfully.
+     */
+    private T mResult;
+
+    protected MPDPipelinedCommand(String command) {
+        mCommand = command;
+    }
+
+    public String getCommand() {
+        return mCommand;
+    }
+
+    /**
+     * @return The parsed response of the server or null if the command was not executed (yet).
+     */
+    public T getResult() {
+        return mResult;
+    }
+
+    /**
+     * Called by the {@link MPDConnection} when the response of this command is next in the
+     * socket buffer.
+     *
+     * @param connection Connection to read the response from
+     * @throws IOException
+     */
+    void execute(MPDConnection connection) throws IOException {
+        mResult = parseResponse(connection);
+    }
+
+    /**
+     * Parses exactly the response of this command (up to and including the terminating OK or ACK).
+     *
+     * @param connection Connection to read the response from
+     * @return The parsed response
+     * @throws IOException
+     */
+    abstract T parseResponse(MPDConnection connection) throws IOException;
+
+    /**
+     * @return Command that requests the current status of the server.
+     */
+    public static MPDPipelinedCommand<MPDCurrentStatus> createStatusCommand() {
+        return new MPDPipelinedCommand<MPDCurrentStatus>(MPDCommands.MPD_COMMAND_GET_CURRENT_STATUS) {
+            @Override
+            MPDCurrentStatus parseResponse(MPDConnection connection) throws IOException {
+                return connection.parseMPDCurrentStatus();
+            }
+        };
+    }
+
+    /**
+     * @return Command that requests the currently playing song of the server.
+     */
+    public static MPDPipelinedCommand<MPDTrack> createCurrentSongCommand() {
+        return new MPDPipelinedCommand<MPDTrack>(MPDCommands.MPD_COMMAND_GET_CURRENT_SONG) {
+            @Override
+            MPDTrack parseResponse(MPDConnection connection) throws IOException {
+                List<MPDFileEntry> retList = connection.parseMPDTracks("", "");
+                if (retList.size() == 1 && retList.get(0) instanceof MPDTrack) {
+                    return (MPDTrack) retList.get(0);
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @param start Start of the window (inclusive)
+     * @param end   End of the window (exclusive)
+     * @return Command that requests a range of the current playlist.
+     */
+    public static MPDPipelinedCommand<List<MPDFileEntry>> createCurrentPlaylistWindowCommand(int start, int end) {
+        return new MPDPipelinedCommand<List<MPDFileEntry>>(MPDCommands.MPD_COMMAND_GET_CURRENT_PLAYLIST_WINDOW(start, end)) {
+            @Override
+            List<MPDFileEntry> parseResponse(MPDConnection connection) throws IOException {
+                return connection.parseMPDTracks("", "");
+            }
+        };
+    }
+}
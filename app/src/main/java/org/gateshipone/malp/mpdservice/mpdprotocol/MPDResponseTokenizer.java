@@ -0,0 +1,381 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+/**
+ * Splits MPD response lines ("key: value") without creating temporary objects.
+ * <p/>
+ * The key of a line is resolved to a {@link KEY} constant by hashing the characters in front of the
+ * colon and looking them up in a small open addressing table. This allows the parsers to use a
+ * switch statement instead of a chain of startsWith() calls. Numeric values are parsed directly from
+ * the line, without substring(), split() or boxed Integer objects.
+ * <p/>
+ * One tokenizer object is reused for all lines of a connection and must only be used by one thread
+ * at a time (the parsers of {@link MPDConnection} are synchronized).
+ */
+class MPDResponseTokenizer {
+
+    /**
+     * Known keys of MPD responses. The key names are taken from {@link MPDResponses}.
+     */
+    enum KEY {
+        FILE(MPDResponses.MPD_RESPONSE_FILE),
+        DIRECTORY(MPDResponses.MPD_RESPONSE_DIRECTORY),
+        PLAYLIST(MPDResponses.MPD_RESPONSE_PLAYLIST),
+        LAST_MODIFIED(MPDResponses.MPD_RESPONSE_LAST_MODIFIED),
+        TITLE(MPDResponses.MPD_RESPONSE_TRACK_TITLE),
+        ARTIST(MPDResponses.MPD_RESPONSE_ARTIST_NAME),
+        ALBUM_ARTIST(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_NAME),
+        ALBUM(MPDResponses.MPD_RESPONSE_ALBUM_NAME),
+        DATE(MPDResponses.MPD_RESPONSE_DATE),
+        TRACK_TIME(MPDResponses.MPD_RESPONSE_TRACK_TIME),
+        TRACK_NUMBER(MPDResponses.MPD_RESPONSE_TRACK_NUMBER),
+        DISC_NUMBER(MPDResponses.MPD_RESPONSE_DISC_NUMBER),
+        SONG_POS(MPDResponses.MPD_RESPONSE_SONG_POS),
+        SONG_ID(MPDResponses.MPD_RESPONSE_SONG_ID),
+        CHANGED_SONG_POS(MPDResponses.MPD_RESPONSE_CHANGED_SONG_POS),
+        TRACK_MBID(MPDResponses.MPD_RESPONSE_TRACK_MBID),
+        ALBUM_MBID(MPDResponses.MPD_RESPONSE_ALBUM_MBID),
+        ARTIST_MBID(MPDResponses.MPD_RESPONSE_ARTIST_MBID),
+        ALBUM_ARTIST_MBID(MPDResponses.MPD_RESPONSE_ALBUM_ARTIST_MBID),
+
+        VOLUME(MPDResponses.MPD_RESPONSE_VOLUME),
+        REPEAT(MPDResponses.MPD_RESPONSE_REPEAT),
+        RANDOM(MPDResponses.MPD_RESPONSE_RANDOM),
+        SINGLE(MPDResponses.MPD_RESPONSE_SINGLE),
+        CONSUME(MPDResponses.MPD_RESPONSE_CONSUME),
+        PLAYLIST_LENGTH(MPDResponses.MPD_RESPONSE_PLAYLIST_LENGTH),
+        PLAYBACK_STATE(MPDResponses.MPD_RESPONSE_PLAYBACK_STATE),
+        CURRENT_SONG_INDEX(MPDResponses.MPD_RESPONSE_CURRENT_SONG_INDEX),
+        CURRENT_SONG_ID(MPDResponses.MPD_RESPONSE_CURRENT_SONG_ID),
+        NEXT_SONG_INDEX(MPDResponses.MPD_RESPONSE_NEXT_SONG_INDEX),
+        NEXT_SONG_ID(MPDResponses.MPD_RESPONSE_NEXT_SONG_ID),
+        TIME_INFORMATION_OLD(MPDResponses.MPD_RESPONSE_TIME_INFORMATION_OLD),
+        ELAPSED_TIME(MPDResponses.MPD_RESPONSE_ELAPSED_TIME),
+        DURATION(MPDResponses.MPD_RESPONSE_DURATION),
+        BITRATE(MPDResponses.MPD_RESPONSE_BITRATE),
+        AUDIO_INFORMATION(MPDResponses.MPD_RESPONSE_AUDIO_INFORMATION),
+        UPDATING_DB(MPDResponses.MPD_RESPONSE_UPDATING_DB),
+        ERROR(MPDResponses.MPD_RESPONSE_ERROR),
+
+        OUTPUT_ID(MPDResponses.MPD_OUTPUT_ID),
+        OUTPUT_NAME(MPDResponses.MPD_OUTPUT_NAME),
+        OUTPUT_ACTIVE(MPDResponses.MPD_OUTPUT_ACTIVE),
+
+        STATS_UPTIME(MPDResponses.MPD_STATS_UPTIME),
+        STATS_PLAYTIME(MPDResponses.MPD_STATS_PLAYTIME),
+        STATS_ARTISTS(MPDResponses.MPD_STATS_ARTISTS),
+        STATS_ALBUMS(MPDResponses.MPD_STATS_ALBUMS),
+        STATS_SONGS(MPDResponses.MPD_STATS_SONGS),
+        STATS_DB_PLAYTIME(MPDResponses.MPD_STATS_DB_PLAYTIME),
+        STATS_DB_LAST_UPDATE(MPDResponses.MPD_STATS_DB_LAST_UPDATE),
+
+        CHANGED(MPDResponses.MPD_CHANGED),
+        COMMAND(MPDResponses.MPD_COMMAND),
+        TAGTYPE(MPDResponses.MPD_TAGTYPE),
+
+        /**
+         * Returned for lines without a known key (e.g. "OK" or unsupported tags).
+         */
+        UNKNOWN(null);
+
+        private final String mName;
+
+        KEY(String response) {
+            // Strip the ": " separator of the response prefix
+            mName = null == response ? null : response.substring(0, response.length() - 2);
+        }
+    }
+
+    /**
+     * Size of the key lookup table. Must be a power of two and much larger than the number of keys.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    private static final KEY[] KEY_TABLE = new KEY[TABLE_SIZE];
+
+    static {
+        for (KEY key : KEY.values()) {
+            if (key == KEY.UNKNOWN) {
+                continue;
+            }
+            int index = hash(key.mName, key.mName.length());
+            while (null != KEY_TABLE[index]) {
+                index = (index + 1) & (TABLE_SIZE - 1);
+            }
+            KEY_TABLE[index] = key;
+        }
+    }
+
+    /**
+     * Current line
+     */
+    private String mLine;
+
+    /**
+     * Key of the current line
+     */
+    private KEY mKey;
+
+    /**
+     * Index of the first character of the value in the current line
+     */
+    private int mValueStart;
+
+    /**
+     * Sets the line to tokenize and resolves its key.
+     *
+     * @param line Response line read from MPD
+     * @return The key of the line
+     */
+    KEY setLine(String line) {
+        mLine = line;
+        int colon = line.indexOf(':');
+        if (colon <= 0) {
+            mKey = KEY.UNKNOWN;
+            mValueStart = line.length();
+            return mKey;
+        }
+
+        mValueStart = colon + 1;
+        if (mValueStart < line.length() && line.charAt(mValueStart) == ' ') {
+            mValueStart++;
+        }
+
+        mKey = KEY.UNKNOWN;
+        int index = hash(line, colon);
+        KEY candidate;
+        while (null != (candidate = KEY_TABLE[index])) {
+            if (candidate.mName.length() == colon && line.regionMatches(0, candidate.mName, 0, colon)) {
+                mKey = candidate;
+                break;
+            }
+            index = (index + 1) & (TABLE_SIZE - 1);
+        }
+        return mKey;
+    }
+
+    KEY getKey() {
+        return mKey;
+    }
+
+    /**
+     * @return The value of the current line as a new String.
+     */
+    String getValue() {
+        return mLine.substring(mValueStart);
+    }
+
+    /**
+     * Returns the value of the current line as the shared String object of the dictionary.
+     * Used for tag values that repeat often (artist, album, ...).
+     *
+     * @param dictionary Dictionary of the connection
+     * @return The canonical value
+     */
+    String getPooledValue(MPDTagDictionary dictionary) {
+        return dictionary.get(mLine, mValueStart);
+    }
+
+    /**
+     * Compares the value of the current line without extracting it.
+     *
+     * @param value String to compare to
+     * @return True if the value equals the given string
+     */
+    boolean valueEquals(String value) {
+        return mLine.length() - mValueStart == value.length() && mLine.startsWith(value, mValueStart);
+    }
+
+    /**
+     * Parses the value of the current line as an integer. Parsing stops at the first character
+     * that is not a digit, so "12/42" will return 12.
+     *
+     * @param defaultValue Value to return if no number is found
+     * @return The parsed value
+     */
+    int getIntValue(int defaultValue) {
+        return getIntValuePart(0, '\0', defaultValue);
+    }
+
+    /**
+     * Parses one part of a value consisting of numbers separated by a separator character,
+     * like "12/42" (track number) or "44100:24:2" (audio format). Spaces are ignored.
+     *
+     * @param part         Index of the part to parse (starting with 0)
+     * @param separator    Separator character between the parts
+     * @param defaultValue Value to return if the part does not exist or contains no number
+     * @return The parsed value
+     */
+    int getIntValuePart(int part, char separator, int defaultValue) {
+        int index = findPart(part, separator);
+        if (index < 0) {
+            return defaultValue;
+        }
+        return (int) parseLong(index, defaultValue);
+    }
+
+    /**
+     * Parses the value of the current line as a long.
+     *
+     * @param defaultValue Value to return if no number is found
+     * @return The parsed value
+     */
+    long getLongValue(long defaultValue) {
+        return parseLong(mValueStart, defaultValue);
+    }
+
+    /**
+     * Parses a decimal value (e.g. "123.456") and rounds it to the nearest integer.
+     *
+     * @param defaultValue Value to return if no number is found
+     * @return The rounded value
+     */
+    int getRoundedDecimalValue(int defaultValue) {
+        int index = skipSpaces(mValueStart);
+        int length = mLine.length();
+        if (index >= length || !Character.isDigit(mLine.charAt(index))) {
+            return defaultValue;
+        }
+        int value = (int) parseLong(index, defaultValue);
+
+        // Round by the first digit after the decimal point
+        while (index < length && Character.isDigit(mLine.charAt(index))) {
+            index++;
+        }
+        if (index + 1 < length && mLine.charAt(index) == '.' && mLine.charAt(index + 1) >= '5' && mLine.charAt(index + 1) <= '9') {
+            value++;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a decimal value of seconds (e.g. "123.456") as milliseconds.
+     *
+     * @param defaultValue Value to return if no number is found
+     * @return The value in milliseconds
+     */
+    int getMillisecondsValue(int defaultValue) {
+        int index = skipSpaces(mValueStart);
+        int length = mLine.length();
+        if (index >= length || !Character.isDigit(mLine.charAt(index))) {
+            return defaultValue;
+        }
+        int value = (int) parseLong(index, defaultValue) * 1000;
+
+        while (index < length && Character.isDigit(mLine.charAt(index))) {
+            index++;
+        }
+        if (index < length && mLine.charAt(index) == '.') {
+            index++;
+            for (int factor = 100; factor > 0; factor /= 10) {
+                if (index >= length || !Character.isDigit(mLine.charAt(index))) {
+                    break;
+                }
+                value += (mLine.charAt(index) - '0') * factor;
+                index++;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns one part of a value separated by the separator character as a new String.
+     *
+     * @param part      Index of the part (starting with 0)
+     * @param separator Separator character between the parts
+     * @return The part or null if it does not exist
+     */
+    String getValuePart(int part, char separator) {
+        int start = findPart(part, separator);
+        if (start < 0) {
+            return null;
+        }
+        int end = mLine.indexOf(separator, start);
+        return mLine.substring(start, end < 0 ? mLine.length() : end);
+    }
+
+    /**
+     * Finds the start index of a part of the value.
+     *
+     * @return Index of the first character of the part or -1 if not available
+     */
+    private int findPart(int part, char separator) {
+        int index = mValueStart;
+        for (int i = 0; i < part; i++) {
+            index = mLine.indexOf(separator, index);
+            if (index < 0) {
+                return -1;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private int skipSpaces(int index) {
+        while (index < mLine.length() && mLine.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private long parseLong(int index, long defaultValue) {
+        int length = mLine.length();
+        index = skipSpaces(index);
+
+        boolean negative = false;
+        if (index < length && mLine.charAt(index) == '-') {
+            negative = true;
+            index++;
+        }
+
+        long value = 0;
+        boolean digitFound = false;
+        while (index < length) {
+            char c = mLine.charAt(index);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            digitFound = true;
+            index++;
+        }
+
+        if (!digitFound) {
+            return defaultValue;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Hash of the first length characters of the string (same function as {@link String#hashCode()})
+     * reduced to the table size.
+     */
+    private static int hash(String string, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + string.charAt(i);
+        }
+        hash ^= (hash >>> 16);
+        return (hash ^ (hash >>> 8)) & (TABLE_SIZE - 1);
+    }
+}
@@ -43,6 +43,7 @@ public class MPDResponses {
     public static final String MPD_RESPONSE_DISC_NUMBER = "Disc: ";
     public static final String MPD_RESPONSE_SONG_POS = "Pos: ";
     public static final String MPD_RESPONSE_SONG_ID = "Id: ";
+    public static final String MPD_RESPONSE_CHANGED_SONG_POS = "cpos: ";
 
 
     public static final String MPD_RESPONSE_PLAYLIST = "playlist: ";
@@ -85,6 +86,8 @@ public class MPDResponses {
     public static final String MPD_STATS_DB_PLAYTIME = "db_playtime: ";
     public static final String MPD_STATS_DB_LAST_UPDATE = "db_update: ";
 
+    public static final String MPD_CHANGED = "changed: ";
+
     public static final String MPD_COMMAND = "command: ";
     public static final String MPD_TAGTYPE = "tagtype: ";
 
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+/**
+ * Dictionary of tag values (artist, album, date, MBIDs ...) used to canonicalize them during parsing.
+ * <p/>
+ * In a large library the same artist and album names are repeated for every track. Instead of
+ * creating a new String for every response line, the parser looks up the value in this dictionary
+ * and all tracks share one String object per distinct value. The lookup is done directly on the
+ * characters of the response line, so no temporary String is created for values already known.
+ * <p/>
+ * The dictionary belongs to one {@link MPDConnection} and is not thread safe.
+ */
+class MPDTagDictionary {
+
+    /**
+     * Initial capacity of the hash table. Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Maximum number of values. The dictionary is cleared when it grows beyond this, so
+     * it can not grow unbounded over a long running connection.
+     */
+    private static final int MAX_ENTRIES = 64 * 1024;
+
+    /**
+     * Values longer than this are not pooled (e.g. comments), they are unlikely to repeat.
+     */
+    private static final int MAX_VALUE_LENGTH = 256;
+
+    private String[] mValues;
+
+    private int[] mHashes;
+
+    private int mSize;
+
+    MPDTagDictionary() {
+        clear();
+    }
+
+    /**
+     * Removes all values. Should be called when the server changes.
+     */
+    void clear() {
+        mValues = new String[INITIAL_CAPACITY];
+        mHashes = new int[INITIAL_CAPACITY];
+        mSize = 0;
+    }
+
+    /**
+     * @return Number of distinct values in the dictionary
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the canonical String object for the characters [start, line.length()) of the line.
+     *
+     * @param line  Line containing the value
+     * @param start Index of the first character of the value
+     * @return Shared String object with the value
+     */
+    String get(String line, int start) {
+        int length = line.length() - start;
+        if (length > MAX_VALUE_LENGTH) {
+            return line.substring(start);
+        }
+
+        int hash = 0;
+        for (int i = start; i < line.length(); i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+
+        int mask = mValues.length - 1;
+        int index = spread(hash) & mask;
+        String value;
+        while (null != (value = mValues[index])) {
+            if (mHashes[index] == hash && value.length() == length && line.startsWith(value, start)) {
+                return value;
+            }
+            index = (index + 1) & mask;
+        }
+
+        // New value
+        value = line.substring(start);
+        if (mSize >= MAX_ENTRIES) {
+            clear();
+            mask = mValues.length - 1;
+            index = spread(hash) & mask;
+        }
+        mValues[index] = value;
+        mHashes[index] = hash;
+        mSize++;
+
+        // Keep the load factor below 0.5
+        if (mSize * 2 > mValues.length) {
+            resize();
+        }
+        return value;
+    }
+
+    private void resize() {
+        String[] oldValues = mValues;
+        int[] oldHashes = mHashes;
+        mValues = new String[oldValues.length * 2];
+        mHashes = new int[oldValues.length * 2];
+        int mask = mValues.length - 1;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (null != oldValues[i]) {
+                int index = spread(oldHashes[i]) & mask;
+                while (null != mValues[index]) {
+                    index = (index + 1) & mask;
+                }
+                mValues[index] = oldValues[i];
+                mHashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -25,6 +25,7 @@ package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 
 public class MPDCurrentStatus implements Parcelable{
 
@@ -105,6 +106,17 @@ public class MPDCurrentStatus implements Parcelable{
      */
     private int pElapsedTime;
 
+    /**
+     * Position of the player in current song in milliseconds
+     */
+    private int pElapsedTimeMs;
+
+    /**
+     * Time ({@link SystemClock#elapsedRealtime()}) at which the server reported the elapsed time.
+     * Used to calculate the current position while playing.
+     */
+    private long pElapsedTimeBase;
+
     /**
      * Length of the currently playing song.
      */
@@ -137,6 +149,8 @@ public class MPDCurrentStatus implements Parcelable{
         pChannelCount = in.readInt();
         pBitrate = in.readInt();
         pElapsedTime = in.readInt();
+        pElapsedTimeMs = in.readInt();
+        pElapsedTimeBase = in.readLong();
         pTrackLength = in.readInt();
         pUpdateDBJob = in.readInt();
         pPlaybackState = MPD_PLAYBACK_STATE.values()[in.readInt()];
@@ -157,6 +171,8 @@ public class MPDCurrentStatus implements Parcelable{
         pChannelCount = 0;
         pBitrate = 0;
         pElapsedTime = 0;
+        pElapsedTimeMs = 0;
+        pElapsedTimeBase = 0;
         pTrackLength = 0;
         pUpdateDBJob = -1;
         pPlaybackState = MPD_PLAYBACK_STATE.MPD_STOPPED;
@@ -181,6 +197,8 @@ public class MPDCurrentStatus implements Parcelable{
         pChannelCount = status.pChannelCount;
         pBitrate = status.pBitrate;
         pElapsedTime = status.pElapsedTime;
+        pElapsedTimeMs = status.pElapsedTimeMs;
+        pElapsedTimeBase = status.pElapsedTimeBase;
         pTrackLength = status.pTrackLength;
         pUpdateDBJob = status.pUpdateDBJob;
         pPlaybackState = status.pPlaybackState;
@@ -301,6 +319,48 @@ public class MPDCurrentStatus implements Parcelable{
 
     public void setElapsedTime(int pElapsedTime) {
         this.pElapsedTime = pElapsedTime;
+        pElapsedTimeMs = pElapsedTime * 1000;
+    }
+
+    public int getElapsedTimeMs() {
+        return pElapsedTimeMs;
+    }
+
+    public void setElapsedTimeMs(int elapsedTimeMs) {
+        pElapsedTimeMs = elapsedTimeMs;
+        pElapsedTime = (elapsedTimeMs + 500) / 1000;
+    }
+
+    public long getElapsedTimeBase() {
+        return pElapsedTimeBase;
+    }
+
+    public void setElapsedTimeBase(long elapsedTimeBase) {
+        pElapsedTimeBase = elapsedTimeBase;
+    }
+
+    /**
+     * Rate at which the position advances, 1.0 while playing and 0 otherwise.
+     */
+    public float getPlaybackRate() {
+        return pPlaybackState == MPD_PLAYBACK_STATE.MPD_PLAYING ? 1.0f : 0.0f;
+    }
+
+    /**
+     * Calculates the position of the player at the given time from the reported elapsed time.
+     *
+     * @param realtime Time in {@link SystemClock#elapsedRealtime()} base
+     * @return Position in milliseconds, limited to the length of the track
+     */
+    public long getElapsedTimeMsAt(long realtime) {
+        long position = pElapsedTimeMs;
+        if (pElapsedTimeBase > 0 && realtime > pElapsedTimeBase) {
+            position += (long) (getPlaybackRate() * (realtime - pElapsedTimeBase));
+        }
+        if (pTrackLength > 0) {
+            position = Math.min(position, pTrackLength * 1000L);
+        }
+        return position;
     }
 
     public int getTrackLength() {
@@ -345,6 +405,8 @@ public class MPDCurrentStatus implements Parcelable{
         dest.writeInt(pChannelCount);
         dest.writeInt(pBitrate);
         dest.writeInt(pElapsedTime);
+        dest.writeInt(pElapsedTimeMs);
+        dest.writeLong(pElapsedTimeBase);
         dest.writeInt(pTrackLength);
         dest.writeInt(pUpdateDBJob);
         /* Convert enum-type to int here and back when deserializing */
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
+
+
+import java.util.Arrays;
+
+/**
+ * Positions of the current playlist that changed since a given playlist version together with
+ * the song ids that are now at these positions (response of "plchangesposid").
+ */
+public class MPDPlaylistChanges {
+    private int[] mPositions;
+    private int[] mSongIDs;
+    private int mCount;
+
+    public MPDPlaylistChanges() {
+        mPositions = new int[16];
+        mSongIDs = new int[16];
+        mCount = 0;
+    }
+
+    public void addChange(int position, int songID) {
+        if (mCount == mPositions.length) {
+            mPositions = Arrays.copyOf(mPositions, mCount * 2);
+            mSongIDs = Arrays.copyOf(mSongIDs, mCount * 2);
+        }
+        mPositions[mCount] = position;
+        mSongIDs[mCount] = songID;
+        mCount++;
+    }
+
+    /**
+     * @return Number of changed positions
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getPosition(int index) {
+        return mPositions[index];
+    }
+
+    public int getSongID(int index) {
+        return mSongIDs[index];
+    }
+}
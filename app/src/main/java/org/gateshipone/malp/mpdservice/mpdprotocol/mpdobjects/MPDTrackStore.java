@@ -0,0 +1,365 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact column oriented storage for a list of tracks (e.g. MPDs current playlist).
+ * Numeric properties are kept in primitive arrays and strings that repeat a lot between rows
+ * (artist, album, ...) are stored only once in a dictionary and referenced by their id.
+ * This avoids holding one {@link MPDTrack} object (and its strings) per row in the memory.
+ * <p/>
+ * Rows are not loaded until {@link #setTracks(int, List)} was called for them. The class is
+ * not thread-safe, callers have to synchronize access themselves.
+ */
+public class MPDTrackStore {
+    /**
+     * Dictionary id of the empty string. Used for not set values.
+     */
+    private static final int EMPTY_VALUE = 0;
+
+    /**
+     * Indices of the numeric columns. Columns from COLUMN_ARTIST on contain dictionary ids.
+     */
+    private static final int COLUMN_SONG_ID = 0;
+    private static final int COLUMN_LENGTH = 1;
+    private static final int COLUMN_TRACK_NUMBER = 2;
+    private static final int COLUMN_ALBUM_TRACK_COUNT = 3;
+    private static final int COLUMN_DISC_NUMBER = 4;
+    private static final int COLUMN_ALBUM_DISC_COUNT = 5;
+    private static final int COLUMN_ARTIST = 6;
+    private static final int COLUMN_ALBUM_ARTIST = 7;
+    private static final int COLUMN_ALBUM = 8;
+    private static final int COLUMN_DATE = 9;
+    private static final int COLUMN_ARTIST_MBID = 10;
+    private static final int COLUMN_ALBUM_ARTIST_MBID = 11;
+    private static final int COLUMN_ALBUM_MBID = 12;
+    private static final int INT_COLUMN_COUNT = 13;
+
+    /**
+     * Indices of the string columns. These are (nearly) unique per row and therefore not worth
+     * to be shared. A path of null marks a row that is not loaded.
+     */
+    private static final int COLUMN_PATH = 0;
+    private static final int COLUMN_TITLE = 1;
+    private static final int COLUMN_TRACK_MBID = 2;
+    private static final int STRING_COLUMN_COUNT = 3;
+
+    /**
+     * Number of rows of this store.
+     */
+    private int mSize;
+
+    /**
+     * Number of rows that currently contain track data.
+     */
+    private int mLoadedRows;
+
+    private int[][] mIntColumns;
+
+    private String[][] mStringColumns;
+
+    /**
+     * Dictionary of all shared string values. The index in the list is the id of the value.
+     */
+    private final ArrayList<String> mDictionary;
+    private final HashMap<String, Integer> mDictionaryIDs;
+
+    /**
+     * Creates an empty store with the given number of (not loaded) rows.
+     *
+     * @param size Number of rows
+     */
+    public MPDTrackStore(int size) {
+        mDictionary = new ArrayList<>();
+        mDictionaryIDs = new HashMap<>();
+
+        mSize = size;
+        mIntColumns = new int[INT_COLUMN_COUNT][size];
+        mStringColumns = new String[STRING_COLUMN_COUNT][size];
+
+        clearDictionary();
+    }
+
+    /**
+     * @return The number of rows of this store (loaded or not)
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Checks if the row at the given position contains track data.
+     *
+     * @param row Row to check
+     * @return True if the row is available, false otherwise
+     */
+    public boolean isLoaded(int row) {
+        return row >= 0 && row < mSize && mStringColumns[COLUMN_PATH][row] != null;
+    }
+
+    /**
+     * Saves the tracks of the list to the rows starting at the given position. Entries that are
+     * not {@link MPDTrack}s or exceed the size of the store are ignored.
+     *
+     * @param start Row of the first entry in the list
+     * @param entries List of tracks to save
+     */
+    public void setTracks(int start, List<MPDFileEntry> entries) {
+        int row = start;
+        for (MPDFileEntry entry : entries) {
+            if (row >= mSize) {
+                break;
+            }
+            if (entry instanceof MPDTrack) {
+                setTrack(row, (MPDTrack) entry);
+            }
+            row++;
+        }
+    }
+
+    /**
+     * Saves the information of one track into the given row.
+     *
+     * @param row Row to save the track to
+     * @param track Track to save
+     */
+    public void setTrack(int row, MPDTrack track) {
+        if (mStringColumns[COLUMN_PATH][row] == null) {
+            mLoadedRows++;
+        }
+        mStringColumns[COLUMN_PATH][row] = track.getPath();
+        mStringColumns[COLUMN_TITLE][row] = track.getTrackTitle();
+        mStringColumns[COLUMN_TRACK_MBID][row] = track.getTrackMBID();
+
+        mIntColumns[COLUMN_SONG_ID][row] = track.getSongID();
+        mIntColumns[COLUMN_LENGTH][row] = track.getLength();
+        mIntColumns[COLUMN_TRACK_NUMBER][row] = track.getTrackNumber();
+        mIntColumns[COLUMN_ALBUM_TRACK_COUNT][row] = track.getAlbumTrackCount();
+        mIntColumns[COLUMN_DISC_NUMBER][row] = track.getDiscNumber();
+        mIntColumns[COLUMN_ALBUM_DISC_COUNT][row] = track.getAlbumDiscCount();
+
+        mIntColumns[COLUMN_ARTIST][row] = getValueID(track.getTrackArtist());
+        mIntColumns[COLUMN_ALBUM_ARTIST][row] = getValueID(track.getTrackAlbumArtist());
+        mIntColumns[COLUMN_ALBUM][row] = getValueID(track.getTrackAlbum());
+        mIntColumns[COLUMN_DATE][row] = getValueID(track.getDate());
+        mIntColumns[COLUMN_ARTIST_MBID][row] = getValueID(track.getTrackArtistMBID());
+        mIntColumns[COLUMN_ALBUM_ARTIST_MBID][row] = getValueID(track.getTrackAlbumArtistMBID());
+        mIntColumns[COLUMN_ALBUM_MBID][row] = getValueID(track.getTrackAlbumMBID());
+    }
+
+    /**
+     * Unloads the rows in the range [start, end). The dictionary is dropped as well if no row
+     * is loaded anymore.
+     *
+     * @param start First row to clear
+     * @param end Row after the last row to clear
+     */
+    public void clearRange(int start, int end) {
+        end = Math.min(end, mSize);
+        for (int row = Math.max(start, 0); row < end; row++) {
+            if (mStringColumns[COLUMN_PATH][row] != null) {
+                mLoadedRows--;
+            }
+            for (String[] column : mStringColumns) {
+                column[row] = null;
+            }
+        }
+
+        if (mLoadedRows == 0) {
+            clearDictionary();
+        }
+    }
+
+    /**
+     * Updates the store to a new version of the list. Rows that are not part of the changes keep
+     * their data. A changed row takes the data of the loaded row that had the same song id before,
+     * which makes moves, swaps and removals cheap. Changed rows with an unknown song id are unloaded.
+     *
+     * @param size New number of rows
+     * @param changes Positions that changed together with their new song ids
+     */
+    public void applyChanges(int size, MPDPlaylistChanges changes) {
+        // Remember where the loaded song ids are found before anything is moved
+        HashMap<Integer, Integer> loadedRows = new HashMap<>();
+        for (int row = 0; row < mSize; row++) {
+            if (mStringColumns[COLUMN_PATH][row] != null) {
+                loadedRows.put(mIntColumns[COLUMN_SONG_ID][row], row);
+            }
+        }
+
+        // Copy the columns so that rows can be moved onto each other.
+        int[][] oldIntColumns = mIntColumns;
+        String[][] oldStringColumns = mStringColumns;
+        mIntColumns = new int[INT_COLUMN_COUNT][];
+        mStringColumns = new String[STRING_COLUMN_COUNT][];
+        for (int i = 0; i < INT_COLUMN_COUNT; i++) {
+            mIntColumns[i] = Arrays.copyOf(oldIntColumns[i], size);
+        }
+        for (int i = 0; i < STRING_COLUMN_COUNT; i++) {
+            mStringColumns[i] = Arrays.copyOf(oldStringColumns[i], size);
+        }
+        mSize = size;
+
+        for (int i = 0; i < changes.getCount(); i++) {
+            int row = changes.getPosition(i);
+            if (row < 0 || row >= mSize) {
+                continue;
+            }
+            Integer oldRow = loadedRows.get(changes.getSongID(i));
+            if (null != oldRow) {
+                for (int column = 0; column < INT_COLUMN_COUNT; column++) {
+                    mIntColumns[column][row] = oldIntColumns[column][oldRow];
+                }
+                for (int column = 0; column < STRING_COLUMN_COUNT; column++) {
+                    mStringColumns[column][row] = oldStringColumns[column][oldRow];
+                }
+            } else {
+                for (String[] column : mStringColumns) {
+                    column[row] = null;
+                }
+            }
+        }
+
+        mLoadedRows = 0;
+        for (int row = 0; row < mSize; row++) {
+            if (mStringColumns[COLUMN_PATH][row] != null) {
+                mLoadedRows++;
+            }
+        }
+        if (mLoadedRows == 0) {
+            clearDictionary();
+        }
+    }
+
+    public String getPath(int row) {
+        return mStringColumns[COLUMN_PATH][row];
+    }
+
+    public String getTrackTitle(int row) {
+        return mStringColumns[COLUMN_TITLE][row];
+    }
+
+    public String getTrackArtist(int row) {
+        return mDictionary.get(mIntColumns[COLUMN_ARTIST][row]);
+    }
+
+    public String getTrackAlbum(int row) {
+        return mDictionary.get(mIntColumns[COLUMN_ALBUM][row]);
+    }
+
+    /**
+     * Returns an id of the album name of the given row. Rows with the same album name share
+     * the same id, so this can be used for cheap comparisons.
+     *
+     * @param row Row to get the album id for
+     * @return Dictionary id of the album name
+     */
+    public int getTrackAlbumID(int row) {
+        return mIntColumns[COLUMN_ALBUM][row];
+    }
+
+    public int getLength(int row) {
+        return mIntColumns[COLUMN_LENGTH][row];
+    }
+
+    public int getTrackNumber(int row) {
+        return mIntColumns[COLUMN_TRACK_NUMBER][row];
+    }
+
+    public int getDiscNumber(int row) {
+        return mIntColumns[COLUMN_DISC_NUMBER][row];
+    }
+
+    public int getAlbumDiscCount(int row) {
+        return mIntColumns[COLUMN_ALBUM_DISC_COUNT][row];
+    }
+
+    public int getSongID(int row) {
+        return mIntColumns[COLUMN_SONG_ID][row];
+    }
+
+    /**
+     * Creates a new {@link MPDTrack} object with the information of the given row. This should
+     * only be used if an object is really needed (e.g. to hand it to other components).
+     *
+     * @param row Row to create the track for
+     * @return New MPDTrack or null if the row is not loaded
+     */
+    public MPDTrack createTrack(int row) {
+        if (!isLoaded(row)) {
+            return null;
+        }
+        MPDTrack track = new MPDTrack(mStringColumns[COLUMN_PATH][row]);
+        track.setTrackTitle(mStringColumns[COLUMN_TITLE][row]);
+        track.setTrackMBID(mStringColumns[COLUMN_TRACK_MBID][row]);
+
+        track.setSongPosition(row);
+        track.setSongID(mIntColumns[COLUMN_SONG_ID][row]);
+        track.setLength(mIntColumns[COLUMN_LENGTH][row]);
+        track.setTrackNumber(mIntColumns[COLUMN_TRACK_NUMBER][row]);
+        track.setAlbumTrackCount(mIntColumns[COLUMN_ALBUM_TRACK_COUNT][row]);
+        track.setDiscNumber(mIntColumns[COLUMN_DISC_NUMBER][row]);
+        track.psetAlbumDiscCount(mIntColumns[COLUMN_ALBUM_DISC_COUNT][row]);
+
+        track.setTrackArtist(mDictionary.get(mIntColumns[COLUMN_ARTIST][row]));
+        track.setTrackAlbumArtist(mDictionary.get(mIntColumns[COLUMN_ALBUM_ARTIST][row]));
+        track.setTrackAlbum(mDictionary.get(mIntColumns[COLUMN_ALBUM][row]));
+        track.setDate(mDictionary.get(mIntColumns[COLUMN_DATE][row]));
+        track.setTrackArtistMBID(mDictionary.get(mIntColumns[COLUMN_ARTIST_MBID][row]));
+        track.setTrackAlbumArtistMBID(mDictionary.get(mIntColumns[COLUMN_ALBUM_ARTIST_MBID][row]));
+        track.setTrackAlbumMBID(mDictionary.get(mIntColumns[COLUMN_ALBUM_MBID][row]));
+        return track;
+    }
+
+    private void clearDictionary() {
+        mDictionary.clear();
+        mDictionaryIDs.clear();
+        mDictionary.add("");
+        mDictionaryIDs.put("", EMPTY_VALUE);
+    }
+
+    /**
+     * Returns the dictionary id for the value and adds it to the dictionary if necessary.
+     *
+     * @param value String to get the id for
+     * @return Id of the value
+     */
+    private int getValueID(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY_VALUE;
+        }
+        Integer id = mDictionaryIDs.get(value);
+        if (id == null) {
+            id = mDictionary.size();
+            mDictionary.add(value);
+            mDictionaryIDs.put(value, id);
+        }
+        return id;
+    }
+}
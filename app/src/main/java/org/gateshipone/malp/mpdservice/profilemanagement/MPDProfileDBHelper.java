@@ -27,6 +27,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+
 public class MPDProfileDBHelper extends SQLiteOpenHelper{
     private static final String TAG = MPDProfileManager.class.getSimpleName();
     /**
@@ -37,7 +39,7 @@ public class MPDProfileDBHelper extends SQLiteOpenHelper{
     /**
      * Database version, used for migrating to new versions.
      */
-    public static final int DATABASE_VERSION = 2;
+    public static final int DATABASE_VERSION = 4;
 
     /**
      * Constructor to create the database.
@@ -76,6 +78,16 @@ public class MPDProfileDBHelper extends SQLiteOpenHelper{
                 sqlString = "ALTER TABLE " + MPDServerProfileTable.SQL_TABLE_NAME + " ADD COLUMN " + MPDServerProfileTable.COLUMN_PROFILE_STREAMING_ENABLED + " integer;";
                 database.execSQL(sqlString);
             }
+            // Upgrade from version 2 to 3 needs introduction of the connection pool size column.
+            case 2: {
+                String sqlString = "ALTER TABLE " + MPDServerProfileTable.SQL_TABLE_NAME + " ADD COLUMN " + MPDServerProfileTable.COLUMN_PROFILE_CONNECTION_POOL_SIZE + " integer DEFAULT " + MPDConnectionPool.DEFAULT_POOL_SIZE + ";";
+                database.execSQL(sqlString);
+            }
+            // Upgrade from version 3 to 4 needs introduction of the library mirror column.
+            case 3: {
+                String sqlString = "ALTER TABLE " + MPDServerProfileTable.SQL_TABLE_NAME + " ADD COLUMN " + MPDServerProfileTable.COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED + " integer DEFAULT 0;";
+                database.execSQL(sqlString);
+            }
             default:
                 break;
         }
@@ -29,6 +29,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.nfc.Tag;
 import android.util.Log;
 
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Observable;
@@ -85,6 +87,12 @@ public class MPDProfileManager extends Observable {
                 String streamingURL = cursor.getString(cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_PORT));
                 boolean streamingEnabled = cursor.getInt(cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_ENABLED)) == 1;
 
+                /* Connection parameters */
+                int poolSizeIndex = cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_CONNECTION_POOL_SIZE);
+                int connectionPoolSize = cursor.isNull(poolSizeIndex) ? MPDConnectionPool.DEFAULT_POOL_SIZE : cursor.getInt(poolSizeIndex);
+                int libraryMirrorIndex = cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED);
+                boolean libraryMirrorEnabled = !cursor.isNull(libraryMirrorIndex) && cursor.getInt(libraryMirrorIndex) == 1;
+
                 /* Create temporary object to append to list. */
                 MPDServerProfile profile = new MPDServerProfile(profileName, autoConnect, creationDate);
                 profile.setHostname(serverHostname);
@@ -94,6 +102,9 @@ public class MPDProfileManager extends Observable {
                 profile.setStreamingURL(streamingURL);
                 profile.setStreamingEnabled(streamingEnabled);
 
+                profile.setConnectionPoolSize(connectionPoolSize);
+                profile.setLibraryMirrorEnabled(libraryMirrorEnabled);
+
                 /* Finish and add to list */
                 profileList.add(profile);
             } while ( cursor.moveToNext() );
@@ -138,6 +149,10 @@ public class MPDProfileManager extends Observable {
         values.put(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_PORT, profile.getStreamingURL());
         values.put(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_ENABLED, profile.getStreamingEnabled());
 
+        /* Connection parameters */
+        values.put(MPDServerProfileTable.COLUMN_PROFILE_CONNECTION_POOL_SIZE, profile.getConnectionPoolSize());
+        values.put(MPDServerProfileTable.COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED, profile.getLibraryMirrorEnabled());
+
         /* Insert the table in the database */
         db.insert(MPDServerProfileTable.SQL_TABLE_NAME, null, values);
 
@@ -191,6 +206,12 @@ public class MPDProfileManager extends Observable {
             String streamingURL = cursor.getString(cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_PORT));
             boolean streamingEnabled = cursor.getInt(cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_STREAMING_ENABLED)) == 1;
 
+            /* Connection parameters */
+            int poolSizeIndex = cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_CONNECTION_POOL_SIZE);
+            int connectionPoolSize = cursor.isNull(poolSizeIndex) ? MPDConnectionPool.DEFAULT_POOL_SIZE : cursor.getInt(poolSizeIndex);
+            int libraryMirrorIndex = cursor.getColumnIndex(MPDServerProfileTable.COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED);
+            boolean libraryMirrorEnabled = !cursor.isNull(libraryMirrorIndex) && cursor.getInt(libraryMirrorIndex) == 1;
+
             /* Create temporary object to append to list. */
             MPDServerProfile profile = new MPDServerProfile(profileName, autoConnect, creationDate);
             profile.setHostname(serverHostname);
@@ -200,6 +221,9 @@ public class MPDProfileManager extends Observable {
             profile.setStreamingURL(streamingURL);
             profile.setStreamingEnabled(streamingEnabled);
 
+            profile.setConnectionPoolSize(connectionPoolSize);
+            profile.setLibraryMirrorEnabled(libraryMirrorEnabled);
+
             cursor.close();
             db.close();
             return profile;
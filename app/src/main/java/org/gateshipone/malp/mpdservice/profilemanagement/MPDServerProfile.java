@@ -26,6 +26,7 @@ package org.gateshipone.malp.mpdservice.profilemanagement;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
 import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
 
 public class MPDServerProfile implements MPDGenericItem, Parcelable {
@@ -51,6 +52,16 @@ public class MPDServerProfile implements MPDGenericItem, Parcelable {
     private String mStreamingURL = "";
     private boolean mStreamingEnabled;
 
+    /**
+     * Number of additional connections used for queries (see {@link MPDConnectionPool})
+     */
+    private int mConnectionPoolSize = MPDConnectionPool.DEFAULT_POOL_SIZE;
+
+    /**
+     * If set, the library of the server is mirrored locally (see {@link org.gateshipone.malp.mpdservice.librarymirror.LibraryMirror})
+     */
+    private boolean mLibraryMirrorEnabled;
+
 
     private long mCreated;
 
@@ -84,6 +95,8 @@ public class MPDServerProfile implements MPDGenericItem, Parcelable {
         mCreated = in.readLong();
         mStreamingURL = in.readString();
         mStreamingEnabled = in.readInt() == 1;
+        mConnectionPoolSize = in.readInt();
+        mLibraryMirrorEnabled = in.readInt() == 1;
     }
 
     /**
@@ -187,6 +200,38 @@ public class MPDServerProfile implements MPDGenericItem, Parcelable {
         return mStreamingEnabled;
     }
 
+    /**
+     * Sets the number of additional connections to the server used for queries.
+     * @param size Number of connections. 0 disables additional connections.
+     */
+    public void setConnectionPoolSize(int size) {
+        mConnectionPoolSize = size;
+    }
+
+    /**
+     *
+     * @return Number of additional connections to the server used for queries.
+     */
+    public int getConnectionPoolSize() {
+        return mConnectionPoolSize;
+    }
+
+    /**
+     * Enables the local mirror of the server library that is used to answer browse queries.
+     * @param enabled True to mirror the library
+     */
+    public void setLibraryMirrorEnabled(boolean enabled) {
+        mLibraryMirrorEnabled = enabled;
+    }
+
+    /**
+     *
+     * @return True if the library of the server is mirrored locally.
+     */
+    public boolean getLibraryMirrorEnabled() {
+        return mLibraryMirrorEnabled;
+    }
+
     /**
      * Creates a string of the server profile. Be careful printing this out, because
      * it includes potential passwords.
@@ -202,6 +247,8 @@ public class MPDServerProfile implements MPDGenericItem, Parcelable {
         retString += "Password: " + mPassword + "\n";
         retString += "Port: " + mPort + "\n";
         retString += "Created: " + mCreated + "\n";
+        retString += "Connection pool size: " + mConnectionPoolSize + "\n";
+        retString += "Library mirror: " + mLibraryMirrorEnabled + "\n";
 
         return retString;
     }
@@ -239,6 +286,8 @@ public class MPDServerProfile implements MPDGenericItem, Parcelable {
         dest.writeLong(mCreated);
         dest.writeString(mStreamingURL);
         dest.writeInt(mStreamingEnabled ? 1 :0);
+        dest.writeInt(mConnectionPoolSize);
+        dest.writeInt(mLibraryMirrorEnabled ? 1 : 0);
     }
 
     public long getCreationDate() {
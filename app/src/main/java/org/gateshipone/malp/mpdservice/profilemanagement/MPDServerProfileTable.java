@@ -25,6 +25,8 @@ package org.gateshipone.malp.mpdservice.profilemanagement;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import org.gateshipone.malp.mpdservice.mpdprotocol.MPDConnectionPool;
+
 public class MPDServerProfileTable {
     /**
      * Table name of the SQL table inside a database
@@ -44,12 +46,17 @@ public class MPDServerProfileTable {
     public static final String COLUMN_PROFILE_STREAMING_PORT = "streaming_port";
     public static final String COLUMN_PROFILE_STREAMING_ENABLED = "streaming_enabled";
 
+    public static final String COLUMN_PROFILE_CONNECTION_POOL_SIZE = "connection_pool_size";
+
+    public static final String COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED = "library_mirror_enabled";
+
     /**
      * Projection string array used for queries on this table
      */
     public static final String[] PROJECTION_SERVER_PROFILES = {COLUMN_PROFILE_NAME, COLUMN_PROFILE_AUTO_CONNECT,
         COLUMN_SERVER_HOSTNAME, COLUMN_SERVER_PASSWORD, COLUMN_SERVER_PORT, COLUMN_PROFILE_DATE_CREATED,
-            COLUMN_PROFILE_STREAMING_PORT, COLUMN_PROFILE_STREAMING_ENABLED
+            COLUMN_PROFILE_STREAMING_PORT, COLUMN_PROFILE_STREAMING_ENABLED, COLUMN_PROFILE_CONNECTION_POOL_SIZE,
+            COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED
     };
 
 
@@ -60,7 +67,9 @@ public class MPDServerProfileTable {
             COLUMN_PROFILE_NAME + " text," + COLUMN_PROFILE_AUTO_CONNECT + " integer," +
             COLUMN_SERVER_HOSTNAME + " text," + COLUMN_SERVER_PASSWORD + " text," +
             COLUMN_SERVER_PORT  + " integer,"  + COLUMN_PROFILE_DATE_CREATED  + " integer PRIMARY KEY, " +
-            COLUMN_PROFILE_STREAMING_PORT  + " integer,"  + COLUMN_PROFILE_STREAMING_ENABLED  + " integer" + " );";
+            COLUMN_PROFILE_STREAMING_PORT  + " integer,"  + COLUMN_PROFILE_STREAMING_ENABLED  + " integer," +
+            COLUMN_PROFILE_CONNECTION_POOL_SIZE + " integer DEFAULT " + MPDConnectionPool.DEFAULT_POOL_SIZE + "," +
+            COLUMN_PROFILE_LIBRARY_MIRROR_ENABLED + " integer DEFAULT 0 );";
 
     /**
      * Creates the inital database table.
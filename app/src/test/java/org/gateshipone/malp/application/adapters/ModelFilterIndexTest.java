@@ -0,0 +1,150 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.application.adapters;
+
+import org.gateshipone.malp.application.utils.NameNormalizer;
+import org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects.MPDGenericItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the trigram index of {@link ModelFilterIndex} returns the same items as a linear
+ * substring scan over all titles.
+ */
+public class ModelFilterIndexTest {
+
+    /**
+     * Characters of the random titles. Few different characters create many trigram collisions.
+     */
+    private static final String CHARACTERS = "abcAB \u00e9\u00c9e";
+
+    private static class Item implements MPDGenericItem {
+        private final String mTitle;
+
+        Item(String title) {
+            mTitle = title;
+        }
+
+        @Override
+        public String getSectionTitle() {
+            return mTitle;
+        }
+
+        @Override
+        public String toString() {
+            return mTitle;
+        }
+    }
+
+    private static String createString(Random random, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        return builder.toString();
+    }
+
+    private static List<Item> createItems(Random random, int count) {
+        List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(createString(random, 12)));
+        }
+        return items;
+    }
+
+    private static List<Item> linearScan(List<Item> items, String filterString) {
+        String query = NameNormalizer.fold(filterString);
+        List<Item> result = new ArrayList<>();
+        for (Item item : items) {
+            if (NameNormalizer.fold(item.getSectionTitle()).contains(query)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void randomQueriesMatchLinearScan() {
+        Random random = new Random(42);
+        List<Item> items = createItems(random, 2000);
+        ModelFilterIndex<Item> index = new ModelFilterIndex<>(items, null);
+
+        for (int i = 0; i < 1000; i++) {
+            String query = createString(random, 5);
+            assertEquals(query, linearScan(items, query), index.query(query));
+        }
+    }
+
+    @Test
+    public void typedQueriesMatchLinearScan() {
+        Random random = new Random(7);
+        List<Item> items = createItems(random, 2000);
+        ModelFilterIndex<Item> index = new ModelFilterIndex<>(items, null);
+
+        // Extend and shorten the query like typing does, so the previous result is reused
+        for (int i = 0; i < 100; i++) {
+            String typed = createString(random, 6);
+            for (int length = 0; length <= typed.length(); length++) {
+                String query = typed.substring(0, length);
+                assertEquals(query, linearScan(items, query), index.query(query));
+            }
+            for (int length = typed.length() - 1; length >= 0; length--) {
+                String query = typed.substring(0, length);
+                assertEquals(query, linearScan(items, query), index.query(query));
+            }
+        }
+    }
+
+    @Test
+    public void caseAndAccentsAreIgnored() {
+        List<Item> items = Arrays.asList(new Item("Beyonc\u00e9"), new Item("BEYONCE live"), new Item("Other"), new Item(null));
+        ModelFilterIndex<Item> index = new ModelFilterIndex<>(items, null);
+
+        assertEquals(items.subList(0, 2), index.query("beyonce"));
+        assertEquals(items.subList(0, 2), index.query("Onc\u00c9"));
+        assertEquals(items, index.query(""));
+    }
+
+    @Test
+    public void rebuiltIndexMatchesLinearScan() {
+        Random random = new Random(3);
+        List<Item> items = createItems(random, 500);
+        ModelFilterIndex<Item> previousIndex = new ModelFilterIndex<>(items, null);
+
+        List<Item> changedItems = new ArrayList<>(items.subList(100, 500));
+        changedItems.addAll(createItems(random, 200));
+        ModelFilterIndex<Item> index = new ModelFilterIndex<>(changedItems, previousIndex);
+
+        for (int i = 0; i < 500; i++) {
+            String query = createString(random, 4);
+            assertEquals(query, linearScan(changedItems, query), index.query(query));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the key lookup and the value parsing of {@link MPDResponseTokenizer} with typical MPD response lines.
+ */
+public class MPDResponseTokenizerTest {
+
+    private final MPDResponseTokenizer mTokenizer = new MPDResponseTokenizer();
+
+    @Test
+    public void resolvesKnownKeys() {
+        assertEquals(MPDResponseTokenizer.KEY.FILE, mTokenizer.setLine("file: music/song.flac"));
+        assertEquals(MPDResponseTokenizer.KEY.ALBUM_ARTIST, mTokenizer.setLine("AlbumArtist: Someone"));
+        assertEquals(MPDResponseTokenizer.KEY.ALBUM_MBID, mTokenizer.setLine("MUSICBRAINZ_ALBUMID: 1234"));
+        assertEquals(MPDResponseTokenizer.KEY.CHANGED_SONG_POS, mTokenizer.setLine("cpos: 3"));
+        assertEquals(MPDResponseTokenizer.KEY.STATS_DB_LAST_UPDATE, mTokenizer.setLine("db_update: 1500000000"));
+        assertEquals(MPDResponseTokenizer.KEY.LAST_MODIFIED, mTokenizer.setLine("Last-Modified: 2017-01-01T00:00:00Z"));
+        assertEquals(MPDResponseTokenizer.KEY.LAST_MODIFIED, mTokenizer.getKey());
+    }
+
+    @Test
+    public void keysAreCaseSensitive() {
+        assertEquals(MPDResponseTokenizer.KEY.TRACK_TIME, mTokenizer.setLine("Time: 215"));
+        assertEquals(MPDResponseTokenizer.KEY.TIME_INFORMATION_OLD, mTokenizer.setLine("time: 12:215"));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine("FILE: music/song.flac"));
+    }
+
+    @Test
+    public void unknownLines() {
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine("OK"));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine(""));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine(": value"));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine("Composer: Someone"));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine("Fil: music/song.flac"));
+        assertEquals(MPDResponseTokenizer.KEY.UNKNOWN, mTokenizer.setLine("files: music/song.flac"));
+    }
+
+    @Test
+    public void values() {
+        mTokenizer.setLine("Title: Song: Part 2");
+        assertEquals("Song: Part 2", mTokenizer.getValue());
+        assertTrue(mTokenizer.valueEquals("Song: Part 2"));
+        assertFalse(mTokenizer.valueEquals("Song"));
+
+        mTokenizer.setLine("Title: ");
+        assertEquals("", mTokenizer.getValue());
+
+        mTokenizer.setLine("Title:");
+        assertEquals("", mTokenizer.getValue());
+        assertTrue(mTokenizer.valueEquals(""));
+    }
+
+    @Test
+    public void integerValues() {
+        mTokenizer.setLine("Id: 4711");
+        assertEquals(4711, mTokenizer.getIntValue(-1));
+
+        mTokenizer.setLine("Track: 12/42");
+        assertEquals(12, mTokenizer.getIntValue(-1));
+        assertEquals(12, mTokenizer.getIntValuePart(0, '/', -1));
+        assertEquals(42, mTokenizer.getIntValuePart(1, '/', -1));
+        assertEquals(-1, mTokenizer.getIntValuePart(2, '/', -1));
+
+        mTokenizer.setLine("Track: ");
+        assertEquals(-1, mTokenizer.getIntValue(-1));
+
+        mTokenizer.setLine("Disc: a");
+        assertEquals(-1, mTokenizer.getIntValue(-1));
+
+        mTokenizer.setLine("volume: -1");
+        assertEquals(-1, mTokenizer.getIntValue(0));
+
+        mTokenizer.setLine("db_update: 1500000000000");
+        assertEquals(1500000000000L, mTokenizer.getLongValue(-1));
+    }
+
+    @Test
+    public void valueParts() {
+        mTokenizer.setLine("audio: 44100:24:2");
+        assertEquals(44100, mTokenizer.getIntValuePart(0, ':', -1));
+        assertEquals(24, mTokenizer.getIntValuePart(1, ':', -1));
+        assertEquals(2, mTokenizer.getIntValuePart(2, ':', -1));
+        assertEquals("44100", mTokenizer.getValuePart(0, ':'));
+        assertEquals("2", mTokenizer.getValuePart(2, ':'));
+        assertNull(mTokenizer.getValuePart(3, ':'));
+
+        mTokenizer.setLine("audio: dsd64:f:2");
+        assertEquals("dsd64", mTokenizer.getValuePart(0, ':'));
+        assertEquals(-1, mTokenizer.getIntValuePart(1, ':', -1));
+    }
+
+    @Test
+    public void decimalValues() {
+        mTokenizer.setLine("elapsed: 123.456");
+        assertEquals(123, mTokenizer.getRoundedDecimalValue(-1));
+        assertEquals(123456, mTokenizer.getMillisecondsValue(-1));
+
+        mTokenizer.setLine("duration: 214.5");
+        assertEquals(215, mTokenizer.getRoundedDecimalValue(-1));
+        assertEquals(214500, mTokenizer.getMillisecondsValue(-1));
+
+        mTokenizer.setLine("elapsed: 7");
+        assertEquals(7, mTokenizer.getRoundedDecimalValue(-1));
+        assertEquals(7000, mTokenizer.getMillisecondsValue(-1));
+
+        mTokenizer.setLine("elapsed: .5");
+        assertEquals(-1, mTokenizer.getRoundedDecimalValue(-1));
+        assertEquals(-1, mTokenizer.getMillisecondsValue(-1));
+    }
+}
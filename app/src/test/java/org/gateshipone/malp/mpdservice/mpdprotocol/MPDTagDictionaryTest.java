@@ -0,0 +1,112 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that {@link MPDTagDictionary} returns one shared String object per distinct value.
+ */
+public class MPDTagDictionaryTest {
+
+    private final MPDTagDictionary mDictionary = new MPDTagDictionary();
+
+    @Test
+    public void equalValuesAreShared() {
+        String first = mDictionary.get("Artist: Someone", 8);
+        String second = mDictionary.get("AlbumArtist: Someone", 13);
+
+        assertEquals("Someone", first);
+        assertSame(first, second);
+        assertEquals(1, mDictionary.size());
+
+        assertEquals("Someone else", mDictionary.get("Artist: Someone else", 8));
+        assertEquals("", mDictionary.get("Artist: ", 8));
+        assertEquals(3, mDictionary.size());
+    }
+
+    @Test
+    public void valuesWithTheSameHashAreDistinguished() {
+        // "Aa" and "BB" have the same String hash code
+        String first = mDictionary.get("Album: Aa", 7);
+        String second = mDictionary.get("Album: BB", 7);
+
+        assertEquals("Aa", first);
+        assertEquals("BB", second);
+        assertSame(first, mDictionary.get("Album: Aa", 7));
+        assertSame(second, mDictionary.get("Album: BB", 7));
+    }
+
+    @Test
+    public void valuesSurviveResizing() {
+        String first = mDictionary.get("Album: 0", 7);
+        for (int i = 1; i < 5000; i++) {
+            mDictionary.get("Album: " + i, 7);
+        }
+
+        assertEquals(5000, mDictionary.size());
+        assertSame(first, mDictionary.get("Album: 0", 7));
+        assertEquals("4999", mDictionary.get("Album: 4999", 7));
+        assertEquals(5000, mDictionary.size());
+    }
+
+    @Test
+    public void longValuesAreNotPooled() {
+        StringBuilder builder = new StringBuilder("Comment: ");
+        for (int i = 0; i < 300; i++) {
+            builder.append('x');
+        }
+        String line = builder.toString();
+
+        String first = mDictionary.get(line, 9);
+        assertEquals(line.substring(9), first);
+        assertNotSame(first, mDictionary.get(line, 9));
+        assertEquals(0, mDictionary.size());
+    }
+
+    @Test
+    public void clear() {
+        String first = mDictionary.get("Date: 2017", 6);
+        mDictionary.clear();
+
+        assertEquals(0, mDictionary.size());
+        assertNotSame(first, mDictionary.get("Date: 2017", 6));
+    }
+
+    @Test
+    public void tokenizerUsesTheDictionary() {
+        MPDResponseTokenizer tokenizer = new MPDResponseTokenizer();
+
+        tokenizer.setLine("Album: Some album");
+        String first = tokenizer.getPooledValue(mDictionary);
+        tokenizer.setLine("Album:Some album");
+        String second = tokenizer.getPooledValue(mDictionary);
+
+        assertEquals("Some album", first);
+        assertSame(first, second);
+    }
+}
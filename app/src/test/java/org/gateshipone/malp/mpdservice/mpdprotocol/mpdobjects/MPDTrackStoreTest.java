@@ -0,0 +1,194 @@
+/*
+ *  Copyright (C) 2017 Team Gateship-One
+ *  (Hendrik Borghorst & Frederik Luetkes)
+ *
+ *  The AUTHORS.md file contains a detailed contributors list:
+ *  <https://github.com/gateship-one/malp/blob/master/AUTHORS.md>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.gateshipone.malp.mpdservice.mpdprotocol.mpdobjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MPDTrackStore#applyChanges(int, MPDPlaylistChanges)} keeps the rows in sync
+ * with the changes reported by "plchangesposid".
+ */
+public class MPDTrackStoreTest {
+
+    /**
+     * Creates a store with the tracks of the given song ids, song id n has the path "song n".
+     */
+    private static MPDTrackStore createStore(int... songIDs) {
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        for (int songID : songIDs) {
+            MPDTrack track = new MPDTrack("song " + songID);
+            track.setSongID(songID);
+            track.setTrackTitle("Title " + songID);
+            track.setTrackArtist("Artist " + (songID % 2));
+            track.setTrackAlbum("Album " + (songID % 3));
+            tracks.add(track);
+        }
+        MPDTrackStore store = new MPDTrackStore(songIDs.length);
+        store.setTracks(0, tracks);
+        return store;
+    }
+
+    /**
+     * Creates the changes for the given positions, pairs of position and song id.
+     */
+    private static MPDPlaylistChanges createChanges(int... positionsAndIDs) {
+        MPDPlaylistChanges changes = new MPDPlaylistChanges();
+        for (int i = 0; i < positionsAndIDs.length; i += 2) {
+            changes.addChange(positionsAndIDs[i], positionsAndIDs[i + 1]);
+        }
+        return changes;
+    }
+
+    /**
+     * Checks that the store contains exactly the loaded tracks with the given song ids in this order.
+     */
+    private static void assertRows(MPDTrackStore store, int... songIDs) {
+        assertEquals(songIDs.length, store.getSize());
+        for (int row = 0; row < songIDs.length; row++) {
+            int songID = songIDs[row];
+            assertTrue("Row " + row + " not loaded", store.isLoaded(row));
+            assertEquals(songID, store.getSongID(row));
+            assertEquals("song " + songID, store.getPath(row));
+            assertEquals("Title " + songID, store.getTrackTitle(row));
+            assertEquals("Artist " + (songID % 2), store.getTrackArtist(row));
+            assertEquals("Album " + (songID % 3), store.getTrackAlbum(row));
+        }
+    }
+
+    @Test
+    public void moveTrackForward() {
+        MPDTrackStore store = createStore(10, 11, 12, 13, 14);
+
+        // Move position 1 to position 3
+        store.applyChanges(5, createChanges(1, 12, 2, 13, 3, 11));
+
+        assertRows(store, 10, 12, 13, 11, 14);
+    }
+
+    @Test
+    public void moveTrackBackward() {
+        MPDTrackStore store = createStore(10, 11, 12, 13, 14);
+
+        // Move position 4 to position 0
+        store.applyChanges(5, createChanges(0, 14, 1, 10, 2, 11, 3, 12, 4, 13));
+
+        assertRows(store, 14, 10, 11, 12, 13);
+    }
+
+    @Test
+    public void swapTracks() {
+        MPDTrackStore store = createStore(10, 11, 12, 13);
+
+        store.applyChanges(4, createChanges(0, 13, 3, 10));
+
+        assertRows(store, 13, 11, 12, 10);
+    }
+
+    @Test
+    public void removeTrack() {
+        MPDTrackStore store = createStore(10, 11, 12, 13, 14);
+
+        // Remove position 1, all following tracks move up
+        store.applyChanges(4, createChanges(1, 12, 2, 13, 3, 14));
+
+        assertRows(store, 10, 12, 13, 14);
+    }
+
+    @Test
+    public void truncate() {
+        MPDTrackStore store = createStore(10, 11, 12, 13, 14);
+
+        // Removing the last tracks does not report any changed positions
+        store.applyChanges(2, createChanges());
+
+        assertRows(store, 10, 11);
+        assertFalse(store.isLoaded(2));
+    }
+
+    @Test
+    public void addUnknownTrack() {
+        MPDTrackStore store = createStore(10, 11, 12);
+
+        // Insert a new track at position 1
+        store.applyChanges(4, createChanges(1, 20, 2, 11, 3, 12));
+
+        assertTrue(store.isLoaded(0));
+        assertFalse(store.isLoaded(1));
+        assertNull(store.createTrack(1));
+        assertEquals(11, store.getSongID(2));
+        assertEquals("song 12", store.getPath(3));
+    }
+
+    @Test
+    public void sequenceOfChanges() {
+        MPDTrackStore store = createStore(10, 11, 12, 13, 14, 15);
+
+        // Swap 0 and 5
+        store.applyChanges(6, createChanges(0, 15, 5, 10));
+        // Remove position 2
+        store.applyChanges(5, createChanges(2, 13, 3, 14, 4, 10));
+        // Move position 0 to position 2
+        store.applyChanges(5, createChanges(0, 11, 1, 13, 2, 15));
+        // Truncate to 4 tracks
+        store.applyChanges(4, createChanges());
+
+        assertRows(store, 11, 13, 15, 14);
+    }
+
+    @Test
+    public void changesOutsideOfTheStoreAreIgnored() {
+        MPDTrackStore store = createStore(10, 11, 12);
+
+        store.applyChanges(3, createChanges(-1, 12, 3, 10, 1, 11));
+
+        assertRows(store, 10, 11, 12);
+    }
+
+    @Test
+    public void dictionaryIsClearedWhenNothingIsLoaded() {
+        MPDTrackStore store = createStore(10, 11);
+
+        // All rows are replaced by unknown tracks
+        store.applyChanges(2, createChanges(0, 20, 1, 21));
+        assertFalse(store.isLoaded(0));
+        assertFalse(store.isLoaded(1));
+
+        List<MPDFileEntry> tracks = new ArrayList<>();
+        MPDTrack track = new MPDTrack("song 20");
+        track.setSongID(20);
+        track.setTrackArtist("New artist");
+        tracks.add(track);
+        store.setTracks(0, tracks);
+
+        assertEquals("New artist", store.getTrackArtist(0));
+        assertEquals(20, store.createTrack(0).getSongID());
+    }
+}